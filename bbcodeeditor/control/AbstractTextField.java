@@ -34,6 +34,7 @@ import javax.swing.Timer;
 import bbcodeeditor.control.EnvironmentProperties.PropertyListener;
 import bbcodeeditor.control.events.*;
 import bbcodeeditor.control.export.bbcode.BBCodeTags;
+import bbcodeeditor.control.export.bbcode.ParseBudget;
 import bbcodeeditor.control.view.FontCache;
 
 
@@ -49,6 +50,12 @@ public abstract class AbstractTextField extends JComponent
 	
 	private static final long serialVersionUID = -7183342611852688140L;
 	
+	/**
+	 * The number of pixels above and below the visible area that belong to the
+	 * layout-area if the virtual layout is enabled
+	 */
+	private static final int LAYOUT_MARGIN = 500;
+	
 	/**
 	 * our cursor
 	 */
@@ -125,6 +132,21 @@ public abstract class AbstractTextField extends JComponent
 	 */
 	private boolean _antialiasing = true;
 	
+	/**
+	 * The cache for the rendered paragraphs
+	 */
+	private final RasterCache _rasterCache = new RasterCache();
+	
+	/**
+	 * The timings of the expensive phases
+	 */
+	private final Metrics _metrics = new Metrics(this);
+	
+	/**
+	 * Are just the paragraphs near the visible area laid out exactly?
+	 */
+	private boolean _virtualLayout = false;
+	
 	/**
 	 * The maximum size of images. Greater images will be resized so that the limit will
 	 * not be exceeded. The user can toggle the size with a click on the image.
@@ -141,6 +163,11 @@ public abstract class AbstractTextField extends JComponent
 	 */
 	protected int _maxTagNestingLevel = 5;
 	
+	/**
+	 * the limits for parsing BBCode
+	 */
+	private ParseBudget _parseBudget = new ParseBudget();
+	
 	/**
 	 * The editor-mode
 	 */
@@ -430,6 +457,28 @@ public abstract class AbstractTextField extends JComponent
 			_maxTagNestingLevel = level;
 	}
 	
+	/**
+	 * @return the limits for parsing BBCode
+	 */
+	public ParseBudget getParseBudget() {
+		return _parseBudget;
+	}
+	
+	/**
+	 * sets the limits for parsing BBCode. If one of them is exceeded, the rest of the
+	 * BBCode will be inserted as plain-text and the {@link BBCodeParseErrorListener}s
+	 * will be notified with
+	 * {@link bbcodeeditor.control.export.bbcode.BBCodeParser#ERR_BUDGET_EXCEEDED}.
+	 * 
+	 * @param budget the new budget
+	 */
+	public void setParseBudget(ParseBudget budget) {
+		if(budget == null)
+			throw new InvalidParameterException("budget is null");
+		
+		_parseBudget = budget;
+	}
+	
 	public boolean setEnvProperty(Integer property,int envType,Object value) {
 		boolean changed = _envProperties.setValue(property,envType,value);
 		if(changed) {
@@ -622,6 +671,116 @@ public abstract class AbstractTextField extends JComponent
 	 */
 	public void setAntialiasing(boolean antialiasing) {
 		_antialiasing = antialiasing;
+		_rasterCache.invalidateAll();
+	}
+	
+	/**
+	 * @return the cache for the rendered paragraphs
+	 */
+	public RasterCache getRasterCache() {
+		return _rasterCache;
+	}
+	
+	/**
+	 * @return true if the rendered paragraphs are cached
+	 * @see #setRasterCacheEnabled(boolean)
+	 */
+	public boolean isRasterCacheEnabled() {
+		return _rasterCache.isEnabled();
+	}
+	
+	/**
+	 * Sets wether the rendered paragraphs should be cached. If enabled, scrolling and the
+	 * blinking cursor just copy the cached images instead of painting the text again.
+	 * Disabled by default.
+	 * 
+	 * @param enabled the new value
+	 * @see #setRasterCacheMaxMemory(int)
+	 */
+	public void setRasterCacheEnabled(boolean enabled) {
+		_rasterCache.setEnabled(enabled);
+		repaint(false);
+	}
+	
+	/**
+	 * Sets the maximum memory the cached paragraph-images may use. The least recently
+	 * used images will be removed first.
+	 * 
+	 * @param bytes the number of bytes
+	 * @see RasterCache#DEFAULT_MAX_MEMORY
+	 */
+	public void setRasterCacheMaxMemory(int bytes) {
+		_rasterCache.setMaxMemory(bytes);
+	}
+	
+	public Metrics getMetrics() {
+		return _metrics;
+	}
+	
+	public boolean isMetricsEnabled() {
+		return _metrics.isEnabled();
+	}
+	
+	public void setMetricsEnabled(boolean enabled) {
+		_metrics.setEnabled(enabled);
+	}
+	
+	/**
+	 * @return true if just the paragraphs near the visible area are laid out exactly
+	 * @see #setVirtualLayoutEnabled(boolean)
+	 */
+	public boolean isVirtualLayoutEnabled() {
+		return _virtualLayout;
+	}
+	
+	/**
+	 * Sets wether just the paragraphs in the layout-area should be laid out exactly. The
+	 * other paragraphs will be wrapped in the background and get the paint-positions of
+	 * their lines and sections as soon as they are needed. Until a paragraph has been
+	 * wrapped, the required height of the control contains an estimation for it.
+	 * That means long documents will be shown much faster. Disabled by default.
+	 * 
+	 * @param enabled the new value
+	 * @see #getLayoutArea()
+	 */
+	public void setVirtualLayoutEnabled(boolean enabled) {
+		_virtualLayout = enabled;
+		getPaintPosManager().markAllDirty();
+		finish();
+	}
+	
+	/**
+	 * @return the area which has to be laid out exactly: the visible rectangle with a
+	 * 	margin above and below it. null if everything has to be laid out
+	 * @see #setVirtualLayoutEnabled(boolean)
+	 */
+	public Rectangle getLayoutArea() {
+		if(!_virtualLayout)
+			return null;
+		
+		// if nothing is visible, we don't know what will be visible
+		Rectangle area = getVisibleRect();
+		if(area.height == 0)
+			return null;
+		
+		area.grow(0,LAYOUT_MARGIN);
+		return area;
+	}
+	
+	/**
+	 * Determines wether the given vertical range is in the layout-area
+	 * 
+	 * @param y the y-position
+	 * @param height the height
+	 * @return true if it has to be laid out exactly
+	 * @see #getLayoutArea()
+	 */
+	public boolean isInLayoutArea(int y,int height) {
+		Rectangle area = getLayoutArea();
+		if(area == null)
+			return true;
+		
+		return y + height >= area.y && y <= area.y + area.height;
 	}
 	
 	/**
@@ -882,6 +1041,8 @@ public abstract class AbstractTextField extends JComponent
 		if(getIgnoreRepaint())
 			return;
 		
+		// something may have changed that is not tracked by the managers
+		_rasterCache.invalidateAll();
 		repaint(getVisibleRect(),showCursor);
 	}
 	
@@ -907,6 +1068,7 @@ public abstract class AbstractTextField extends JComponent
 		if(_requiredHeight == -1 && _requiredWidth == -1)
 			_controller.refreshPaintPositions();
 		
+		long start = _metrics.begin();
 		super.paint(g);
 		
 		Rectangle paintRect = g.getClipBounds();
@@ -929,6 +1091,7 @@ public abstract class AbstractTextField extends JComponent
 		
 		if(_tempShowCursor)
 			_tempShowCursor = false;
+		_metrics.end(Metrics.PAINT,start);
 	}
 	
 	/**
@@ -952,6 +1115,19 @@ public abstract class AbstractTextField extends JComponent
 		repaint(rect,true);
 	}
 	
+	/**
+	 * paints the given rectangle immediatly, including the cursor
+	 * 
+	 * @param rect the rectangle to paint
+	 */
+	void paintRegion(Rectangle rect) {
+		if(getIgnoreRepaint())
+			return;
+		
+		_tempShowCursor = true;
+		paintImmediately(rect);
+	}
+	
 	/**
 	 * determines the rectangle of the given line
 	 * if complete is enabled the complete width of the control will be used
@@ -1046,7 +1222,7 @@ public abstract class AbstractTextField extends JComponent
 			if(lastWidth > 0) {
 				SwingUtilities.invokeLater(new Runnable() {
 					public void run() {
-						refreshWordWrap();
+						getWordwrapManager().scheduleReflow();
 					}
 				});
 			}
@@ -22,7 +22,6 @@ import java.awt.Color;
 import java.awt.Container;
 import java.awt.Point;
 import java.awt.Toolkit;
-import java.awt.datatransfer.StringSelection;
 import java.security.InvalidParameterException;
 import java.util.Iterator;
 import java.util.List;
@@ -30,11 +29,6 @@ import java.util.List;
 import javax.swing.JViewport;
 
 import bbcodeeditor.control.events.*;
-import bbcodeeditor.control.export.Exporter;
-import bbcodeeditor.control.export.IExportContent;
-import bbcodeeditor.control.export.bbcode.BBCodeExportContent;
-import bbcodeeditor.control.export.html.HTMLExportContent;
-import bbcodeeditor.control.export.plain.PlainExportContent;
 import bbcodeeditor.control.tools.MutableInt;
 import bbcodeeditor.control.tools.TextPart;
 import bbcodeeditor.control.view.ILineView;
@@ -108,6 +102,16 @@ public class BBCTextField extends AbstractTextField {
 	 */
 	private WordwrapManager _wordwrapManager;
 	
+	/**
+	 * The number of running updates
+	 */
+	private int _updateLevel = 0;
+	
+	/**
+	 * Stores wether something has to be refreshed when the update is finished
+	 */
+	private boolean _finishPending = false;
+	
 	/**
 	 * Constructor
 	 */
@@ -331,6 +335,25 @@ public class BBCTextField extends AbstractTextField {
 		_history.stopCaching();
 	}
 	
+	public void beginUpdate() {
+		_updateLevel++;
+	}
+	
+	public void endUpdate() {
+		if(_updateLevel == 0)
+			throw new IllegalStateException("There is no running update");
+		
+		_updateLevel--;
+		if(_updateLevel == 0 && _finishPending) {
+			_finishPending = false;
+			finish();
+		}
+	}
+	
+	public boolean isUpdating() {
+		return _updateLevel > 0;
+	}
+	
 	public void refreshFonts() {
 		_controller.refreshFonts();
 		finish();
@@ -645,7 +668,7 @@ public class BBCTextField extends AbstractTextField {
 		if(isReadOnly())
 			return -1;
 		
-		int pos = _controller.replaceNext(text,repl,start,end,caseSensitive,true,parseBBCode);
+		int pos = _controller.replaceNext(text,repl,start,end,caseSensitive,parseBBCode,true);
 		if(pos >= 0)
 			finish();
 		return pos;
@@ -656,7 +679,7 @@ public class BBCTextField extends AbstractTextField {
 		if(isReadOnly())
 			return -1;
 		
-		int pos = _controller.replaceNext(text,repl,start,end,caseSensitive,false,parseBBCode);
+		int pos = _controller.replaceNext(text,repl,start,end,caseSensitive,parseBBCode,false);
 		if(pos >= 0)
 			finish();
 		return pos;
@@ -684,6 +707,55 @@ public class BBCTextField extends AbstractTextField {
 	public List getAllOccurrences(String text,int start,int end,boolean caseSensitive) {
 		return _controller.getAllOccurrences(text,start,end,caseSensitive);
 	}
+	
+	public TextPart getFirstMatch(String pattern,int start,int end,int flags) {
+		return _controller.getNextMatch(pattern,start,end,flags,true);
+	}
+	
+	public TextPart getLastMatch(String pattern,int start,int end,int flags) {
+		return _controller.getNextMatch(pattern,start,end,flags,false);
+	}
+	
+	public List<TextPart> getAllMatches(String pattern,int start,int end,int flags) {
+		return _controller.getAllMatches(pattern,start,end,flags);
+	}
+	
+	public int replaceFirstMatch(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode) {
+		if(isReadOnly())
+			return -1;
+		
+		int pos = _controller.replaceNextMatch(pattern,repl,start,end,flags,parseBBCode,true);
+		if(pos >= 0)
+			finish();
+		return pos;
+	}
+	
+	public int replaceLastMatch(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode) {
+		if(isReadOnly())
+			return -1;
+		
+		int pos = _controller.replaceNextMatch(pattern,repl,start,end,flags,parseBBCode,false);
+		if(pos >= 0)
+			finish();
+		return pos;
+	}
+	
+	public int replaceAllMatches(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode) {
+		if(isReadOnly())
+			return 0;
+		
+		int num = _controller.replaceAllMatches(pattern,repl,start,end,flags,parseBBCode);
+		if(num > 0)
+			finish();
+		return num;
+	}
+	
+	public CharSequence getDocumentText() {
+		return _controller.getDocumentText();
+	}
 
 	// -----------------------------
 	// -------- ENVIRONMENTS -------
@@ -1448,19 +1520,10 @@ public class BBCTextField extends AbstractTextField {
 	public void copySelectedText() {
 		Selection sel = getSelection();
 		if(!sel.isEmpty()) {
-			IExportContent type;
-			if(_editorMode == IPublicController.MODE_HTML)
-				type = new HTMLExportContent(this);
-			else if(_editorMode == IPublicController.MODE_TEXT_EDITOR)
-				type = new PlainExportContent();
-			else
-				type = new BBCodeExportContent();
-			
-			Exporter ex = new Exporter(this,type);
-			String res = ex.getContent(sel.getSelectionStart(),sel.getSelectionEnd());
-			
-			StringSelection selString = new StringSelection(res);
-			Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selString,selString);
+			// the flavors will be exported from a snapshot of the selected text
+			ClipboardContent content = new ClipboardContent(this,sel.getSelectionStart(),
+					sel.getSelectionEnd());
+			Toolkit.getDefaultToolkit().getSystemClipboard().setContents(content,content);
 		}
 	}
 
@@ -1609,15 +1672,47 @@ public class BBCTextField extends AbstractTextField {
 	}
 	
 	void finish() {
+		// if an update is running we do everything at the end of it
+		if(_updateLevel > 0) {
+			_finishPending = true;
+			return;
+		}
+		
+		Metrics metrics = getMetrics();
+		
 		// we have to refresh the paint-texts, string-bounds, etc. _before_ we perform
 		// wordwraps
+		long start = metrics.begin();
 		getViewManager().refresh();
+		metrics.end(Metrics.VIEW_REFRESH,start);
+		
+		start = metrics.begin();
 		getWordwrapManager().refresh();
+		metrics.end(Metrics.WORDWRAP,start);
 		
 		// refresh the view-stuff again, because wordwrap may have changed something
+		start = metrics.begin();
 		getViewManager().refresh();
+		metrics.end(Metrics.VIEW_REFRESH,start);
 		
+		start = metrics.begin();
 		getPaintPosManager().refresh();
+		metrics.end(Metrics.PAINTPOS_REFRESH,start);
+		
+		// now we know which paragraphs are visible, so wrap them if that has been deferred
+		start = metrics.begin();
+		boolean wrapped = getWordwrapManager().refreshLayoutArea();
+		metrics.end(Metrics.WORDWRAP,start);
+		if(wrapped) {
+			start = metrics.begin();
+			getViewManager().refresh();
+			metrics.end(Metrics.VIEW_REFRESH,start);
+			
+			start = metrics.begin();
+			getPaintPosManager().refresh();
+			metrics.end(Metrics.PAINTPOS_REFRESH,start);
+		}
+		
 		getAttributesManager().checkChanged();
 		getCursorManager().checkChange();
 		getRepaintManager().repaint();
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+
+import bbcodeeditor.control.export.ExportSnapshot;
+import bbcodeeditor.control.export.Exporter;
+import bbcodeeditor.control.export.IExportContent;
+import bbcodeeditor.control.export.bbcode.BBCodeExportContent;
+import bbcodeeditor.control.export.html.HTMLExportContent;
+import bbcodeeditor.control.export.plain.PlainExportContent;
+
+
+/**
+ * The clipboard-content for copied text. The copied range is recorded as
+ * {@link ExportSnapshot} when the text is copied, so that the content stays the same, no
+ * matter what happens with the text afterwards. The flavors will be exported from the
+ * snapshot by a background-thread, or by the thread that requests them, if they are not
+ * ready yet. The string-flavor contains the text in the syntax of the editor-mode;
+ * additionally HTML and plain-text are available.
+ * 
+ * @author hrniels
+ */
+final class ClipboardContent implements Transferable,ClipboardOwner {
+	
+	/**
+	 * The flavor for HTML
+	 */
+	public static final DataFlavor HTML_FLAVOR =
+		new DataFlavor("text/html;class=java.lang.String","HTML");
+	
+	/**
+	 * The flavor for plain-text
+	 */
+	public static final DataFlavor PLAIN_FLAVOR =
+		new DataFlavor("text/plain;class=java.lang.String","Plain text");
+	
+	/**
+	 * All flavors we support
+	 */
+	private static final DataFlavor[] FLAVORS = new DataFlavor[] {
+		DataFlavor.stringFlavor,HTML_FLAVOR,PLAIN_FLAVOR
+	};
+	
+	/**
+	 * The copied range; null as soon as all flavors have been exported
+	 */
+	private ExportSnapshot _snapshot;
+	
+	/**
+	 * The exported texts, indexed like FLAVORS
+	 */
+	private final String[] _texts = new String[FLAVORS.length];
+	
+	/**
+	 * Constructor. Has to be called in the UI-thread.
+	 * 
+	 * @param textField the text-field
+	 * @param start the start-position of the copied range
+	 * @param end the end-position of the copied range
+	 */
+	ClipboardContent(BBCTextField textField,int start,int end) {
+		int mode = textField.getEditorMode();
+		IExportContent[] types = new IExportContent[FLAVORS.length];
+		for(int i = 0;i < FLAVORS.length;i++)
+			types[i] = getExportContent(textField,mode,FLAVORS[i]);
+		_snapshot = Exporter.getSnapshot(textField,types,start,end);
+		
+		// export the flavors in the background, so that they are ready when they are requested
+		Thread exporter = new Thread(new Runnable() {
+			public void run() {
+				for(int i = 0;i < FLAVORS.length;i++)
+					getText(i);
+			}
+		});
+		exporter.setDaemon(true);
+		exporter.start();
+	}
+	
+	public void lostOwnership(Clipboard clipboard,Transferable contents) {
+		// nothing to do
+	}
+	
+	public DataFlavor[] getTransferDataFlavors() {
+		return FLAVORS.clone();
+	}
+	
+	public boolean isDataFlavorSupported(DataFlavor flavor) {
+		return getFlavor(flavor) != -1;
+	}
+	
+	public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException,
+			IOException {
+		int index = getFlavor(flavor);
+		if(index == -1)
+			throw new UnsupportedFlavorException(flavor);
+		
+		return getText(index);
+	}
+	
+	/**
+	 * Exports the text for the flavor with given index, if not already done
+	 * 
+	 * @param index the index in FLAVORS
+	 * @return the text
+	 */
+	private synchronized String getText(int index) {
+		if(_texts[index] == null) {
+			_texts[index] = _snapshot.getContent(index);
+			
+			// we don't need the snapshot anymore if everything has been exported
+			boolean done = true;
+			for(int i = 0;done && i < _texts.length;i++)
+				done = _texts[i] != null;
+			if(done)
+				_snapshot = null;
+		}
+		
+		return _texts[index];
+	}
+	
+	/**
+	 * @param textField the text-field
+	 * @param mode the editor-mode
+	 * @param flavor one of our flavors
+	 * @return the export-content for the given flavor
+	 */
+	private static IExportContent getExportContent(BBCTextField textField,int mode,
+			DataFlavor flavor) {
+		if(flavor == HTML_FLAVOR)
+			mode = IPublicController.MODE_HTML;
+		else if(flavor == PLAIN_FLAVOR)
+			mode = IPublicController.MODE_TEXT_EDITOR;
+		
+		if(mode == IPublicController.MODE_HTML)
+			return new HTMLExportContent(textField);
+		if(mode == IPublicController.MODE_TEXT_EDITOR)
+			return new PlainExportContent();
+		return new BBCodeExportContent();
+	}
+	
+	/**
+	 * @param flavor the requested flavor
+	 * @return the index of our flavor that is equal to the given one or -1
+	 */
+	private int getFlavor(DataFlavor flavor) {
+		for(int i = 0;i < FLAVORS.length;i++) {
+			if(FLAVORS[i].equals(flavor))
+				return i;
+		}
+		return -1;
+	}
+}
\ No newline at end of file
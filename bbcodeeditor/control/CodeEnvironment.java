@@ -90,7 +90,8 @@ public final class CodeEnvironment extends Environment {
 					return;
 			}
 			
-			if(_highlightSyntax != null)
+			// we hold a reference just as long as we're part of the document
+			if(_highlightSyntax != null && isAttached())
 				HighlightSyntax.removeHighlighter(_highlightSyntax);
 			
 			_highlightSyntax = syntax;
@@ -104,10 +105,31 @@ public final class CodeEnvironment extends Environment {
 			else
 				updateHighlighting();
 			
+			if(syntax != null && !isAttached())
+				HighlightSyntax.removeHighlighter(syntax);
+			
 			_view.forceRefresh(CodeEnvironmentView.CODE_TITLE);
 		}
 	}
 	
+	void attach() {
+		if(isAttached())
+			return;
+		
+		super.attach();
+		if(_highlightSyntax != null)
+			HighlightSyntax.announceHighlighter(_highlightSyntax);
+	}
+	
+	void detach() {
+		if(!isAttached())
+			return;
+		
+		super.detach();
+		if(_highlightSyntax != null)
+			HighlightSyntax.removeHighlighter(_highlightSyntax);
+	}
+	
 	public int getType() {
 		return EnvironmentTypes.ENV_CODE;
 	}
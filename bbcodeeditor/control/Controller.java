@@ -26,16 +26,21 @@ import java.io.InputStreamReader;
 import java.security.InvalidParameterException;
 import java.util.*;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import javax.swing.JViewport;
 
 import bbcodeeditor.control.actions.*;
+import bbcodeeditor.control.export.ExportCache;
 import bbcodeeditor.control.export.Exporter;
 import bbcodeeditor.control.export.IExportContent;
 import bbcodeeditor.control.export.bbcode.BBCodeExportContent;
 import bbcodeeditor.control.export.bbcode.BBCodeParser;
 import bbcodeeditor.control.export.bbcode.BBCodeTags;
 import bbcodeeditor.control.export.bbcode.BBCodeTokenizer;
+import bbcodeeditor.control.export.bbcode.ParseBudget;
 import bbcodeeditor.control.export.html.HTMLExportContent;
 import bbcodeeditor.control.export.html.HTMLParser;
 import bbcodeeditor.control.export.html.HTMLTokenizer;
@@ -45,7 +50,10 @@ import bbcodeeditor.control.tools.MutableInt;
 import bbcodeeditor.control.tools.MutablePointer;
 import bbcodeeditor.control.tools.StringUtils;
 import bbcodeeditor.control.tools.TextPart;
+import bbcodeeditor.control.view.CodeEnvironmentView;
 import bbcodeeditor.control.view.IEnvironmentView;
+import bbcodeeditor.control.view.ListEnvironmentView;
+import bbcodeeditor.control.view.View;
 
 
 /**
@@ -149,6 +157,23 @@ public final class Controller {
 	 */
 	private TextAttributes _tempAttributes = null;
 	
+	/**
+	 * the CharSequence-view of the document (will be created on demand)
+	 */
+	private DocumentText _docText = null;
+	
+	/**
+	 * the caches for the exported content of the paragraphs, indexed by the syntax
+	 * (will be created on demand)
+	 */
+	private final ExportCache[] _exportCaches = new ExportCache[IPublicController.SYNTAX_PLAIN + 1];
+	
+	/**
+	 * the estimated height of the paragraphs that have not been wrapped yet, which is
+	 * contained in the required height of the textfield
+	 */
+	private int _appliedPendingHeight = 0;
+	
 	/**
 	 * maps all available attributes to the corresponding tag-id
 	 */
@@ -187,6 +212,7 @@ public final class Controller {
 			_rootEnv = new CodeEnvironment(_textArea,null,null,null);
 		else
 			_rootEnv = new Environment(_textArea,null,null,null);
+		_rootEnv.attach();
 		
 		_currentEnv = _rootEnv;
 		_currentEnv.enterCursorFront();
@@ -199,6 +225,13 @@ public final class Controller {
 		return _textArea.getMaxTagNestingLevel();
 	}
 	
+	/**
+	 * @return the limits for parsing BBCode
+	 */
+	public ParseBudget getParseBudget() {
+		return _textArea.getParseBudget();
+	}
+	
 	/**
 	 * @return the textfield
 	 */
@@ -247,6 +280,12 @@ public final class Controller {
 		
 		_smileys = con;
 		
+		// the cached exports may contain smileys that are not valid anymore
+		for(int i = 0;i < _exportCaches.length;i++) {
+			if(_exportCaches[i] != null)
+				_exportCaches[i].clear();
+		}
+		
 		// we have to refresh the content in this case
 		refreshContent();
 	}
@@ -1461,17 +1500,26 @@ public final class Controller {
 	 * clears everything
 	 */
 	public void clear() {
+		// releases the highlighters of all code-environments
+		Environment old = _rootEnv;
+		old.detach();
+		
 		if(_textArea.getEditorMode() == IPublicController.MODE_TEXT_EDITOR) {
-			Environment old = _rootEnv;
 			Object syntax = null;
 			if(old instanceof CodeEnvironment)
 				syntax = ((CodeEnvironment)old).getHighlightSyntax();
 		
 			_rootEnv = new CodeEnvironment(_textArea,null,null,null);
+			_rootEnv.attach();
 			((CodeEnvironment)_rootEnv).setHighlightSyntax(syntax);
 		}
-		else
+		else {
 			_rootEnv = new Environment(_textArea,null,null,null);
+			_rootEnv.attach();
+		}
+		
+		// the view belongs to the old root-environment
+		_docText = null;
 
 		// we have to reset the temporary attributes
 		clearTemporaryAttributes();
@@ -2002,27 +2050,256 @@ public final class Controller {
 		text = text.replace('\r',' ');
 		text = text.replace('\n',' ');
 		
-		List results = new ArrayList();
+		List<TextPart> results = new ArrayList<TextPart>();
 		_rootEnv.collectSearchResults(text,start,end,caseSensitive,results);
-		if(results.size() == 0)
+		return replaceRegions(results,repl,parseBBCode);
+	}
+	
+	/**
+	 * Replaces all matches of <code>pattern</code> with <code>repl</code> between
+	 * <code>start</code> and <code>end</code>. The replacement will be inserted
+	 * literally (or as BBCode if <code>parseBBCode</code> is enabled), that means
+	 * group-references are not supported.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param repl the text to replace with
+	 * @param start the start-position for the search
+	 * @param end the end-position for the search
+	 * @param flags the search-flags (see IPublicController.SEARCH_*)
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the number of replaces
+	 */
+	public int replaceAllMatches(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode) {
+		if(repl == null)
+			throw new InvalidParameterException("repl = null");
+		
+		List<TextPart> results = getAllMatches(pattern,start,end,flags);
+		return replaceRegions(results,repl,parseBBCode);
+	}
+	
+	/**
+	 * Replaces the next match of <code>pattern</code> with <code>repl</code> between
+	 * <code>start</code> and <code>end</code>.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param repl the text to replace with
+	 * @param start the start-position for the search
+	 * @param end the end-position for the search
+	 * @param flags the search-flags (see IPublicController.SEARCH_*)
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @param forward search forward?
+	 * @return the start-position of the replace or -1 if nothing has been done
+	 */
+	public int replaceNextMatch(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode,boolean forward) {
+		if(repl == null)
+			throw new InvalidParameterException("repl = null");
+		
+		TextPart part = getNextMatch(pattern,start,end,flags,forward);
+		if(part == null)
+			return -1;
+		
+		replaceRegions(Arrays.asList(new TextPart[] {part}),repl,parseBBCode);
+		return part.startPos;
+	}
+	
+	/**
+	 * Replaces the given regions with <code>repl</code>. The regions have to be sorted
+	 * ascending by the position and must not overlap.<br>
+	 * The regions will be replaced from back to front, so that the positions of the
+	 * regions that are still to replace don't change. All performed actions will be
+	 * stored as one history-action.
+	 * 
+	 * @param regions a List with TextPart-objects
+	 * @param repl the text to replace with
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the number of replaces
+	 * @see #getRunStart(List, int)
+	 */
+	private int replaceRegions(List<TextPart> regions,String repl,boolean parseBBCode) {
+		if(regions.size() == 0)
 			return 0;
 		
-		int dec = 0;
-		Iterator it = results.iterator();
+		List<HistoryAction> actions;
+		if(!parseBBCode && isPlainReplace(regions,repl))
+			actions = replacePlainRegions(regions,repl);
+		else {
+			// store the number of entries in the history
+			int currentHistoryPos = _historyManager.size();
+			
+			int runEnd = regions.size();
+			while(runEnd > 0) {
+				// a run is replaced from front to back, so that its regions are moved by the
+				// replacements in front of them
+				int runStart = getRunStart(regions,runEnd);
+				int offset = 0;
+				for(int i = runStart;i < runEnd;i++) {
+					TextPart part = regions.get(i);
+					removeText(part.startPos + offset,part.endPos + offset,true);
+					goToPosition(part.startPos + offset);
+					
+					if(repl.length() > 0)
+						pasteTextAtCursor(repl,parseBBCode);
+					offset = getCurrentCursorPos() - part.endPos;
+				}
+				runEnd = runStart;
+			}
+			
+			actions = _historyManager.extractLast(_historyManager.size() - currentHistoryPos);
+		}
+		
+		// combine the actions of the single replaces
+		if(actions.size() > 0) {
+			TextPart first = regions.get(0);
+			TextPart last = regions.get(regions.size() - 1);
+			_historyManager.add(new ReplaceListAction(this,actions,first.startPos,last.endPos,
+					repl,regions.size()));
+		}
+		
+		return regions.size();
+	}
+	
+	/**
+	 * Determines the first region of the run of regions that directly follow each other
+	 * and that ends in front of <code>end</code>. A replacement gets the attributes of the
+	 * text in front of it (or behind it at the beginning of a paragraph). Therefore, the
+	 * regions of a run can't be replaced one by one from back to front, because the
+	 * replacements would get the attributes of the text of the previous region instead of
+	 * the ones of its replacement.
+	 * 
+	 * @param regions a List with TextPart-objects, sorted ascending by the position
+	 * @param end the index behind the last region of the run
+	 * @return the index of the first region of the run
+	 */
+	private int getRunStart(List<TextPart> regions,int end) {
+		int start = end - 1;
+		while(start > 0 && regions.get(start - 1).endPos == regions.get(start).startPos)
+			start--;
+		return start;
+	}
+	
+	/**
+	 * Determines wether the given regions can be replaced with <code>repl</code> directly
+	 * in the model. That is the case if the text is simply inserted, i.e. it doesn't
+	 * contain line-ends, no smileys would be replaced and no temporary attributes are
+	 * set, and if each region is in one paragraph.
+	 * 
+	 * @param regions a List with TextPart-objects
+	 * @param repl the text to replace with
+	 * @return true if so
+	 */
+	private boolean isPlainReplace(List<TextPart> regions,String repl) {
+		if(_tempAttributes != null)
+			return false;
+		
+		if(repl.indexOf('\n') >= 0 || repl.indexOf('\r') >= 0)
+			return false;
+		
+		int maxSmileyLen = _smileys.getMaxSmileyLength();
+		int runStart = -1;
+		int prevEnd = -1;
+		Iterator<TextPart> it = regions.iterator();
 		while(it.hasNext()) {
-			TextPart part = (TextPart)it.next();
+			TextPart part = it.next();
+			boolean adjacent = part.startPos == prevEnd;
+			if(!adjacent)
+				runStart = part.startPos;
+			prevEnd = part.endPos;
+			ContentSection sec = _rootEnv.getSectionAt(part.startPos);
+			Paragraph para = sec.getSectionParagraph();
+			Environment env = sec.getParentEnvironment();
+			int paraStart = env.getGlobalStartPos() + para.getElementStartPos();
+			if(part.endPos > paraStart + para.getElementLength())
+				return false;
 			
-			removeText(part.startPos - dec,part.endPos - dec,true);
-			goToPosition(part.startPos - dec);
+			// the start of a paragraph behind an environment-paragraph is ambiguous
+			Paragraph prev = (Paragraph)para.getPrev();
+			if(part.startPos == paraStart && prev != null && prev.containsEnvironment())
+				return false;
 			
-			if(repl.length() > 0)
-				pasteTextAtCursor(repl,parseBBCode);
+			// at the beginning of a paragraph the replacements of a run would get the
+			// attributes of the text of its second region
+			if(adjacent && runStart == paraStart)
+				return false;
 			
-			int lenDiff = text.length() - (getCurrentCursorPos() - (part.startPos - dec));
-			dec += lenDiff;
+			// the replacement might complete a smiley with the text in front of it
+			if(env.containsStyles() && _replaceSmileys && maxSmileyLen > 0) {
+				// behind an adjacent region, the text in front of it is the replacement
+				if(adjacent)
+					return false;
+				
+				String lineText = para.getText();
+				int smEnd = part.startPos - paraStart;
+				String text = lineText.substring(Math.max(0,smEnd - maxSmileyLen),smEnd) + repl;
+				for(int i = 0,len = text.length();i < len;i++) {
+					String sub = text.substring(i,Math.min(len,i + maxSmileyLen));
+					if(_smileys.getSmileyAtBeginning(sub) != null)
+						return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Replaces the given regions with <code>repl</code> directly in the model, from back
+	 * to front. A run of regions that directly follow each other is replaced at once with
+	 * the replacement repeated. The positions of the following paragraphs are adjusted
+	 * once at the end instead of for each region. The cursor will be placed behind the
+	 * replacement of the first run.
+	 * 
+	 * @param regions a List with TextPart-objects
+	 * @param repl the text to replace with
+	 * @return the performed actions, as they would have been stored in the history
+	 * @see #isPlainReplace(List, String)
+	 * @see #getRunStart(List, int)
+	 */
+	private List<HistoryAction> replacePlainRegions(List<TextPart> regions,String repl) {
+		List<HistoryAction> actions = new ArrayList<HistoryAction>();
+		
+		int start = 0;
+		String text = repl;
+		_rootEnv.deferAdjustments();
+		try {
+			int runEnd = regions.size();
+			while(runEnd > 0) {
+				int runStart = getRunStart(regions,runEnd);
+				start = regions.get(runStart).startPos;
+				int end = regions.get(runEnd - 1).endPos;
+				StringBuffer buf = new StringBuffer();
+				for(int i = runStart;i < runEnd;i++)
+					buf.append(repl);
+				text = buf.toString();
+				
+				List<HistoryActionPart> removeActions = new ArrayList<HistoryActionPart>();
+				_rootEnv.collectRemoveTextActions(start,end,removeActions);
+				if(removeActions.size() > 0 && _rootEnv.removeText(start,end) > 0)
+					actions.add(new RemoveTextListAction(this,removeActions,start,end));
+				
+				if(text.length() > 0) {
+					_rootEnv.addTextAt(text,start);
+					
+					List<HistoryActionPart> addActions = new ArrayList<HistoryActionPart>();
+					AttributeText aText = new AttributeText(text,null,ParagraphAttributes.ALIGN_UNDEF);
+					addActions.add(new AddPlainTextInEnvActionPart(start,aText));
+					actions.add(new ReplaceSmileyListAction(this,start,start + text.length(),
+							addActions,false));
+				}
+				runEnd = runStart;
+			}
+		}
+		finally {
+			_rootEnv.applyAdjustments();
 		}
 		
-		return results.size();
+		_currentEnv.leaveCursor();
+		_currentEnv = _rootEnv.goToPosition(start + text.length());
+		
+		markContentChanged();
+		markRepaintAll();
+		return actions;
 	}
 
 	/**
@@ -2160,6 +2437,139 @@ public final class Controller {
 		_rootEnv.collectSearchResults(text,start,end,caseSensitive,results);
 		return results;
 	}
+	
+	/**
+	 * @return a read-only view of the text of the whole document
+	 * @see IPublicController#getDocumentText()
+	 */
+	public CharSequence getDocumentText() {
+		if(_docText == null)
+			_docText = new DocumentText(_rootEnv);
+		
+		return _docText;
+	}
+	
+	/**
+	 * Searches the control for the given pattern in the given interval.<br>
+	 * If a match has been found a TextPart-object will be returned. Otherwise
+	 * null.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags (see IPublicController.SEARCH_*)
+	 * @param forward search forward?
+	 * @return the TextPart if found, null otherwise
+	 */
+	public TextPart getNextMatch(String pattern,int start,int end,int flags,boolean forward) {
+		Matcher m = createMatcher(pattern,start,end,flags);
+		boolean wholeWord = (flags & IPublicController.SEARCH_WHOLE_WORD) != 0;
+		
+		TextPart part = getNextMatch(m,start,end,wholeWord);
+		if(forward)
+			return part;
+		
+		// the matcher works just forward, so we have to walk through all matches
+		TextPart last = null;
+		while(part != null) {
+			last = part;
+			part = getNextMatch(m,part.endPos,end,wholeWord);
+		}
+		return last;
+	}
+	
+	/**
+	 * Searches the control for the given pattern in the given interval.<br>
+	 * A List with TextPart-objects will be collected which contains all found
+	 * matches.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags (see IPublicController.SEARCH_*)
+	 * @return a List with the TextPart-objects
+	 */
+	public List<TextPart> getAllMatches(String pattern,int start,int end,int flags) {
+		Matcher m = createMatcher(pattern,start,end,flags);
+		boolean wholeWord = (flags & IPublicController.SEARCH_WHOLE_WORD) != 0;
+		
+		List<TextPart> results = new ArrayList<TextPart>();
+		TextPart part = getNextMatch(m,start,end,wholeWord);
+		while(part != null) {
+			results.add(part);
+			part = getNextMatch(m,part.endPos,end,wholeWord);
+		}
+		return results;
+	}
+	
+	/**
+	 * Creates a matcher for the given pattern on the document-text
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags
+	 * @return the matcher
+	 */
+	private Matcher createMatcher(String pattern,int start,int end,int flags) {
+		if(pattern == null || pattern.length() == 0)
+			throw new InvalidParameterException("Pattern must not be empty");
+		
+		if(start < 0 || end > length() || start >= end)
+			throw new InvalidParameterException("Invalid start- or end-position");
+		
+		int pFlags = 0;
+		if((flags & IPublicController.SEARCH_REGEX) == 0)
+			pFlags |= Pattern.LITERAL;
+		if((flags & IPublicController.SEARCH_CASE_SENSITIVE) == 0)
+			pFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+		
+		Pattern p;
+		try {
+			p = Pattern.compile(pattern,pFlags);
+		}
+		catch(PatternSyntaxException e) {
+			throw new InvalidParameterException("Invalid pattern: " + e.getDescription());
+		}
+		
+		Matcher m = p.matcher(getDocumentText());
+		// lookarounds may look outside of the region, but '^' and '$' should not match
+		// at the borders of it
+		m.useTransparentBounds(true);
+		m.useAnchoringBounds(false);
+		return m;
+	}
+	
+	/**
+	 * Searches for the next non-empty match between <code>from</code> and <code>end</code>
+	 * 
+	 * @param m the matcher
+	 * @param from the position where to start
+	 * @param end the end-position
+	 * @param wholeWord match whole words only?
+	 * @return the TextPart or null if there is no further match
+	 */
+	private TextPart getNextMatch(Matcher m,int from,int end,boolean wholeWord) {
+		CharSequence doc = getDocumentText();
+		while(from < end) {
+			m.region(from,end);
+			if(!m.find())
+				return null;
+			
+			int mStart = m.start();
+			int mEnd = m.end();
+			// we can't highlight empty matches
+			if(mStart < mEnd) {
+				if(!wholeWord || ((mStart == 0 || !_rootEnv.isWordChar(doc.charAt(mStart - 1))) &&
+						(mEnd == doc.length() || !_rootEnv.isWordChar(doc.charAt(mEnd)))))
+					return new TextPart(m.group(),mStart,mEnd);
+			}
+			
+			from = mStart + 1;
+		}
+		
+		return null;
+	}
 
 	/**
 	 * exports the complete text in BBCode-syntax.
@@ -2168,7 +2578,7 @@ public final class Controller {
 	 */
 	public String getText() {
 		IExportContent type = getExportType(IPublicController.SYNTAX_BBCODE);
-		Exporter ex = new Exporter(_textArea,type);
+		Exporter ex = new Exporter(_textArea,type,getExportCache(IPublicController.SYNTAX_BBCODE));
 		return ex.getContent();
 	}
 	
@@ -2182,7 +2592,7 @@ public final class Controller {
 	 */
 	public String getText(int start,int end) {
 		IExportContent type = getExportType(IPublicController.SYNTAX_BBCODE);
-		Exporter ex = new Exporter(_textArea,type);
+		Exporter ex = new Exporter(_textArea,type,getExportCache(IPublicController.SYNTAX_BBCODE));
 		return ex.getContent(start,end);
 	}
 	
@@ -2195,7 +2605,7 @@ public final class Controller {
 	public String getText(int syntax) {
 		IExportContent type = getExportType(syntax);
 		if(type != null) {
-			Exporter ex = new Exporter(_textArea,type);
+			Exporter ex = new Exporter(_textArea,type,getExportCache(syntax));
 			return ex.getContent();
 		}
 		
@@ -2214,13 +2624,25 @@ public final class Controller {
 	public String getText(int start,int end,int syntax) {
 		IExportContent type = getExportType(syntax);
 		if(type != null) {
-			Exporter ex = new Exporter(_textArea,type);
+			Exporter ex = new Exporter(_textArea,type,getExportCache(syntax));
 			return ex.getContent(start,end);
 		}
 		
 		throw new InvalidParameterException("Invalid syntax-value");
 	}
 	
+	/**
+	 * returns the cache for the exported content of the paragraphs for the given syntax
+	 * 
+	 * @param syntax the syntax to use. see IPublicController.SYNTAX_*
+	 * @return the cache
+	 */
+	private ExportCache getExportCache(int syntax) {
+		if(_exportCaches[syntax] == null)
+			_exportCaches[syntax] = new ExportCache();
+		return _exportCaches[syntax];
+	}
+	
 	/**
 	 * creates the corresponding export-type by the given syntax
 	 * 
@@ -2777,6 +3199,9 @@ public final class Controller {
 	 * @return the result-code
 	 */
 	int refreshWordWrap() {
+		// all paragraphs will be wrapped now
+		_textArea.getWordwrapManager().cancelReflow();
+		
 		if(refreshWordWrap(_rootEnv)) {
 			
 			// we have to current the current section because the section / line may change
@@ -2847,6 +3272,10 @@ public final class Controller {
 	 */
 	void refreshTabWidth() {
 		_rootEnv.getEnvView().refreshTabWidth();
+		
+		// the HTML-export depends on the tab-width
+		if(_exportCaches[IPublicController.SYNTAX_HTML] != null)
+			_exportCaches[IPublicController.SYNTAX_HTML].clear();
 		markRepaintAll();
 	}
 	
@@ -2858,46 +3287,283 @@ public final class Controller {
 		MutableInt y = new MutableInt(0);
 		MutableInt maxWidth = new MutableInt(0);
 		_rootEnv.getEnvView().setPaintPositions(_textArea.getGraphics(),x,y,maxWidth);
+		_textArea.getRasterCache().invalidateAll();
 		
-		_textArea.setCompleteSize(maxWidth.getValue(),y.getValue());
+		// add the estimated height of the paragraphs that have not been wrapped yet
+		_appliedPendingHeight = _textArea.getWordwrapManager().getPendingHeight();
+		int height = y.getValue() + _appliedPendingHeight;
+		_textArea.setCompleteSize(maxWidth.getValue(),height);
 	}
 	
 	/**
-	 * refreshes all paint-positions in the given paragraph
-	 * assumes that the paint-position of the last paragraph is correct
-	 * (and of the following of course)
+	 * refreshes the paint-positions in the given paragraphs. Assumes that all other
+	 * paragraphs have correct paint-positions (relative to each other). That means that
+	 * we recalculate just the given paragraphs and move the following elements by the
+	 * height-difference, if necessary.
 	 * 
-	 * @param p the paragraph in which to refresh the paint-positions
+	 * @param paragraphs the paragraphs in which to refresh the paint-positions
+	 * @return false if it was not possible because some paint-positions are not available.
+	 * 	In this case all paint-positions have to be refreshed
 	 */
-	void refreshPaintPositionsInParagraph(Paragraph p) {
-		Paragraph prev = (Paragraph)p.getPrev();
-		Environment parent = p.getParentEnvironment();
-		IEnvironmentView parentView = parent.getEnvView();
+	boolean refreshPaintPositionsInParagraphs(Collection<Paragraph> paragraphs) {
+		if(_textArea.getRequiredHeight() == -1)
+			return false;
 		
-		MutableInt x = new MutableInt(parentView.getGlobalTextStart());
-		MutableInt y;
-		if(prev != null) {
-			Point lp = prev.getView().getPaintPos();
-			if(lp == null)
-				return;
-			
-			y = new MutableInt(lp.y + prev.getParagraphView().getHeight());
+		// collect the paragraphs we have to refresh
+		Set<Paragraph> dirty = new HashSet<Paragraph>();
+		Iterator<Paragraph> it = paragraphs.iterator();
+		while(it.hasNext()) {
+			Paragraph p = getPaintPosParagraph(it.next());
+			if(p != null)
+				dirty.add(p);
 		}
-		// so it must be the first line in the environment...
-		else {
-			Point ep = parent.getView().getPaintPos();
-			if(ep == null)
-				return;
+		
+		// we have to start at the top because we move the following paragraphs
+		Paragraph[] sorted = dirty.toArray(new Paragraph[dirty.size()]);
+		Arrays.sort(sorted,new Comparator<Paragraph>() {
+			public int compare(Paragraph p1,Paragraph p2) {
+				int pos1 = p1.getParentEnvironment().getGlobalStartPos() + p1.getElementStartPos();
+				int pos2 = p2.getParentEnvironment().getGlobalStartPos() + p2.getElementStartPos();
+				if(pos1 != pos2)
+					return pos1 - pos2;
+				// the outer paragraph first
+				return p1.getParentEnvironment().getLayer() - p2.getParentEnvironment().getLayer();
+			}
+		});
+		
+		Graphics g = _textArea.getGraphics();
+		MutableInt maxWidth = new MutableInt(0);
+		// the estimated height of the pending paragraphs is added at the end
+		int height = _textArea.getRequiredHeight() - _appliedPendingHeight;
+		Set<Paragraph> done = new HashSet<Paragraph>();
+		// we move the paragraphs behind a refreshed one not until we reach the next one to
+		// refresh. so each paragraph is moved at most once
+		Paragraph moveStart = null;
+		int moveDelta = 0;
+		for(int i = 0;i < sorted.length;i++) {
+			Paragraph p = sorted[i];
+			if(isPaintPosRefreshed(p,done))
+				continue;
+			
+			if(moveStart != null && moveDelta != 0)
+				movePaintPositions(moveStart,moveDelta,p);
+			moveStart = null;
+			
+			Environment parent = p.getParentEnvironment();
+			IEnvironmentView parentView = parent.getEnvView();
+			MutableInt x = new MutableInt(parentView.getGlobalTextStart());
+			MutableInt y;
+			Paragraph prev = (Paragraph)p.getPrev();
+			if(prev != null) {
+				Point lp = prev.getView().getPaintPos();
+				if(lp == null)
+					return false;
+				
+				y = new MutableInt(lp.y + prev.getParagraphView().getHeight());
+			}
+			// so it must be the first line in the environment...
+			else {
+				Point ep = parent.getView().getPaintPos();
+				if(ep == null)
+					return false;
+				
+				y = new MutableInt(ep.y + parentView.getInnerTopPadding() + parentView.getOuterPadding());
+			}
 			
-			y = new MutableInt(ep.y + parentView.getInnerTopPadding() + parentView.getOuterPadding());
+			// refresh the paragraph and all directly following ones that are dirty or new
+			Paragraph next = p;
+			do {
+				next.getParagraphView().setPaintPositions(g,x,y,maxWidth);
+				x.setValue(parentView.getGlobalTextStart());
+				done.add(next);
+				
+				// the cached images of moved paragraphs stay valid, but not of these
+				if(next.containsEnvironment())
+					_textArea.getRasterCache().invalidateAll();
+				else
+					_textArea.getRasterCache().invalidate(next);
+				
+				next = (Paragraph)next.getNext();
+			} while(next != null && (dirty.contains(next) || next.getView().getPaintPos() == null));
+			
+			// now move all following elements by the height-difference
+			int bottom = y.getValue();
+			Paragraph last = next == null ? parent.getLastParagraph() : (Paragraph)next.getPrev();
+			while(next == null) {
+				Environment env = last.getParentEnvironment();
+				IEnvironmentView envView = env.getEnvView();
+				bottom += envView.getInnerBottomPadding() + envView.getOuterPadding();
+				
+				// have we reached the end of the document?
+				if(env.getParentEnvironment() == null)
+					break;
+				
+				last = env.getSectionParagraph();
+				next = (Paragraph)last.getNext();
+			}
+			
+			if(next == null)
+				height = bottom;
+			else {
+				Point np = next.getView().getPaintPos();
+				if(np == null)
+					return false;
+				
+				// the following paragraphs have not been moved yet, so this is the total
+				// height-difference up to here
+				moveStart = next;
+				moveDelta = bottom - np.y;
+			}
 		}
 		
-		MutableInt maxWidth = new MutableInt(0);
-		p.getParagraphView().setPaintPositions(_textArea.getGraphics(),x,y,maxWidth);
+		if(moveStart != null && moveDelta != 0) {
+			movePaintPositions(moveStart,moveDelta,null);
+			height += moveDelta;
+		}
+		
+		// the refreshed paragraphs may have been the widest ones, so we have to take the
+		// width of the untouched ones into account, too
+		int newWidth = 0;
+		Paragraph p = _rootEnv.getFirstParagraph();
+		do {
+			newWidth = Math.max(newWidth,p.getParagraphView().getRequiredWidth());
+			p = (Paragraph)p.getNext();
+		} while(p != null);
+		
+		_appliedPendingHeight = _textArea.getWordwrapManager().getPendingHeight();
+		_textArea.setCompleteSize(newWidth,height + _appliedPendingHeight);
+		return true;
+	}
+	
+	/**
+	 * Determines the paragraph that has to be refreshed if the given one is dirty. Because
+	 * lists and code-blocks store their left padding, which depends on all paragraphs,
+	 * we refresh them completely.
+	 * 
+	 * @param p the dirty paragraph
+	 * @return the paragraph to refresh or null if the paragraph is not in the document
+	 */
+	private Paragraph getPaintPosParagraph(Paragraph p) {
+		Paragraph res = p;
+		while(true) {
+			// has the paragraph been removed?
+			Environment env = p.getParentEnvironment();
+			Paragraph prev = (Paragraph)p.getPrev();
+			if(prev == null ? env.getFirstParagraph() != p : prev.getNext() != p)
+				return null;
+			
+			if(env.getParentEnvironment() == null)
+				return env == _rootEnv ? res : null;
+			
+			p = env.getSectionParagraph();
+			IEnvironmentView envView = env.getEnvView();
+			if(envView instanceof ListEnvironmentView || envView instanceof CodeEnvironmentView)
+				res = p;
+		}
+	}
+	
+	/**
+	 * @param p the paragraph
+	 * @param done the paragraphs that have been refreshed
+	 * @return wether the given paragraph or one of the paragraphs that contain it has been refreshed
+	 */
+	private boolean isPaintPosRefreshed(Paragraph p,Set<Paragraph> done) {
+		while(true) {
+			if(done.contains(p))
+				return true;
+			
+			Environment env = p.getParentEnvironment();
+			if(env.getParentEnvironment() == null)
+				return false;
+			
+			p = env.getSectionParagraph();
+		}
+	}
+	
+	/**
+	 * Moves the paint-positions of the given paragraph, all following ones and all
+	 * following ones in the parent-environments by <code>delta</code> pixels, until
+	 * <code>end</code> is reached.
+	 * 
+	 * @param p the first paragraph to move
+	 * @param delta the number of pixels
+	 * @param end the first paragraph that should not be moved (null = move all)
+	 */
+	private void movePaintPositions(Paragraph p,int delta,Paragraph end) {
+		// collect the paragraphs that contain the end, because we have to walk into them
+		Set<Paragraph> endParents = new HashSet<Paragraph>();
+		for(Paragraph ep = end;ep != null;) {
+			Environment env = ep.getParentEnvironment();
+			if(env.getParentEnvironment() == null)
+				break;
+			ep = env.getSectionParagraph();
+			endParents.add(ep);
+		}
 		
-		// don't change the height and don't decrease the width
-		int newWidth = Math.max(_textArea.getRequiredWidth(),maxWidth.getValue());
-		_textArea.setCompleteSize(newWidth,_textArea.getRequiredHeight());
+		Environment env = p.getParentEnvironment();
+		while(true) {
+			for(;p != null;p = (Paragraph)p.getNext()) {
+				if(p == end)
+					return;
+				if(endParents.contains(p))
+					break;
+				movePaintPositionsInParagraph(p,delta);
+			}
+			
+			// the end is in this environment, so move the environment itself and continue
+			// with its paragraphs
+			if(p != null) {
+				env = (Environment)p.getFirstSection();
+				movePaintPosition(env.getView(),delta);
+				p = env.getFirstParagraph();
+				continue;
+			}
+			
+			// the environment has changed its height, so the following paragraphs in the
+			// parent-environment have to be moved, too
+			if(env.getParentEnvironment() == null)
+				break;
+			
+			p = (Paragraph)env.getSectionParagraph().getNext();
+			env = env.getParentEnvironment();
+		}
+	}
+	
+	/**
+	 * Moves all paint-positions in the given paragraph by <code>delta</code> pixels
+	 * 
+	 * @param p the paragraph
+	 * @param delta the number of pixels
+	 */
+	private void movePaintPositionsInParagraph(Paragraph p,int delta) {
+		Section s = p.getFirstSection();
+		if(p.containsEnvironment()) {
+			Environment env = (Environment)s;
+			movePaintPosition(env.getView(),delta);
+			for(Paragraph ep = env.getFirstParagraph();ep != null;ep = (Paragraph)ep.getNext())
+				movePaintPositionsInParagraph(ep,delta);
+		}
+		// the sections have no paint-positions yet, so it's enough to move the paragraph
+		else if(p.getParagraphView().isPaintPosPending())
+			movePaintPosition(p.getView(),delta);
+		else {
+			do {
+				movePaintPosition(s.getView(),delta);
+				s = s.getNextInParagraph();
+			} while(s != null);
+		}
+	}
+	
+	/**
+	 * Moves the paint-position of the given view by <code>delta</code> pixels
+	 * 
+	 * @param view the view
+	 * @param delta the number of pixels
+	 */
+	private void movePaintPosition(View view,int delta) {
+		Point pos = view.getPaintPos();
+		if(pos != null)
+			view.setPaintPos(new Point(pos.x,pos.y + delta));
 	}
 	
 	/**
@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * A read-only CharSequence-view of the whole document. The positions are the global
+ * positions of the control; paragraphs are separated by '\n' and images count as
+ * {@link ImageSection#dummyText}.<br>
+ * The text will not be copied. Instead we store for each paragraph a segment which maps
+ * the positions in the paragraph to the sections. A segment is built lazily and will be
+ * dropped as soon as the modification-count of the paragraph changes. Therefore an edit
+ * invalidates just the segments of the affected paragraphs.
+ * <p>
+ * Note that this view is meant to be used by one thread at a time and just as long as
+ * the document is not modified. Use it for searches and so on, not for storage.
+ * 
+ * @author hrniels
+ */
+final class DocumentText implements CharSequence {
+	
+	/**
+	 * The root-environment
+	 */
+	private final Environment _rootEnv;
+	
+	/**
+	 * The segments of the paragraphs we've used so far. The keys are weak so
+	 * that removed paragraphs will disappear automatically
+	 */
+	private final Map<Paragraph,Segment> _segments = new WeakHashMap<Paragraph,Segment>();
+	
+	/**
+	 * The paragraph we've accessed the last time
+	 */
+	private Paragraph _lastPara = null;
+	
+	/**
+	 * The segment of the last paragraph
+	 */
+	private Segment _lastSeg = null;
+	
+	/**
+	 * The global start-position of the last paragraph
+	 */
+	private int _lastStart = -1;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param rootEnv the root-environment
+	 */
+	DocumentText(Environment rootEnv) {
+		_rootEnv = rootEnv;
+	}
+	
+	public int length() {
+		return _rootEnv.getElementLength();
+	}
+	
+	public char charAt(int index) {
+		if(index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("Invalid index " + index);
+		
+		// in most cases we're still in the same paragraph
+		if(!isInLastParagraph(index))
+			locate(index);
+		
+		int local = index - _lastStart;
+		if(local >= _lastSeg.length)
+			return '\n';
+		
+		return _lastSeg.charAt(local);
+	}
+	
+	public CharSequence subSequence(int start,int end) {
+		if(start < 0 || end > length() || start > end)
+			throw new IndexOutOfBoundsException("Invalid interval [" + start + "," + end + "]");
+		
+		StringBuffer buf = new StringBuffer(end - start);
+		for(int i = start;i < end;i++)
+			buf.append(charAt(i));
+		return buf.toString();
+	}
+	
+	public String toString() {
+		return subSequence(0,length()).toString();
+	}
+	
+	/**
+	 * Checks wether the given position belongs to the last paragraph and
+	 * wether the cached information of it are still valid
+	 * 
+	 * @param index the global position
+	 * @return true if so
+	 */
+	private boolean isInLastParagraph(int index) {
+		if(_lastPara == null)
+			return false;
+		
+		// the segment or the position of the paragraph may have changed
+		if(!_lastSeg.isValid(_lastPara))
+			return false;
+		
+		int start = _lastPara.getElementStartPos() +
+			_lastPara.getParentEnvironment().getGlobalStartPos();
+		if(start != _lastStart)
+			return false;
+		
+		// the position behind the paragraph is the line-end
+		return index >= start && index <= start + _lastSeg.length;
+	}
+	
+	/**
+	 * Determines the content-paragraph for the given position and stores it as
+	 * the last paragraph
+	 * 
+	 * @param index the global position
+	 */
+	private void locate(int index) {
+		Environment env = _rootEnv;
+		int pos = index;
+		Paragraph p = env.getParagraphAtPosition(pos);
+		while(p.containsEnvironment()) {
+			env = (Environment)p.getFirstSection();
+			pos -= env.getStartPosInEnv();
+			p = env.getParagraphAtPosition(pos);
+		}
+		
+		Segment seg = _segments.get(p);
+		if(seg == null || !seg.isValid(p)) {
+			seg = new Segment(p);
+			_segments.put(p,seg);
+		}
+		
+		_lastPara = p;
+		_lastSeg = seg;
+		_lastStart = index - pos + p.getElementStartPos();
+	}
+	
+	/**
+	 * Maps the positions in a paragraph to the ContentSections
+	 * 
+	 * @author hrniels
+	 */
+	private static final class Segment {
+		
+		/**
+		 * The modification-count of the paragraph when we've built the segment
+		 */
+		private final int _modCount;
+		
+		/**
+		 * The length of the paragraph
+		 */
+		final int length;
+		
+		/**
+		 * The non-empty sections of the paragraph
+		 */
+		private final ContentSection[] _sections;
+		
+		/**
+		 * The start-positions of the sections in the paragraph
+		 */
+		private final int[] _starts;
+		
+		/**
+		 * The index of the section we've used the last time
+		 */
+		private int _last = 0;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param p the paragraph
+		 */
+		public Segment(Paragraph p) {
+			_modCount = p.getModCount();
+			length = p.getElementLength();
+			
+			int count = 0;
+			ContentSection[] secs = new ContentSection[p.getSectionCount()];
+			int[] starts = new int[secs.length];
+			Section s = p.getFirstSection();
+			do {
+				if(s.getElementLength() > 0) {
+					secs[count] = (ContentSection)s;
+					starts[count] = s.getElementStartPos();
+					count++;
+				}
+				
+				s = s.getNextInParagraph();
+			} while(s != null);
+			
+			_sections = new ContentSection[count];
+			_starts = new int[count];
+			System.arraycopy(secs,0,_sections,0,count);
+			System.arraycopy(starts,0,_starts,0,count);
+		}
+		
+		/**
+		 * @param p the paragraph
+		 * @return wether this segment is still valid for the given paragraph
+		 */
+		public boolean isValid(Paragraph p) {
+			return _modCount == p.getModCount() && length == p.getElementLength();
+		}
+		
+		/**
+		 * @param pos the position in the paragraph (must be valid)
+		 * @return the character at given position
+		 */
+		public char charAt(int pos) {
+			int i = _last;
+			// sequential access is the common case, so try the current and the next one first
+			if(!contains(i,pos)) {
+				if(contains(i + 1,pos))
+					i++;
+				else
+					i = find(pos);
+				_last = i;
+			}
+			
+			ContentSection sec = _sections[i];
+			if(sec instanceof TextSection)
+				return ((TextSection)sec).getCharAt(pos - _starts[i]);
+			
+			return ImageSection.dummyText.charAt(0);
+		}
+		
+		/**
+		 * @param i the section-index
+		 * @param pos the position in the paragraph
+		 * @return wether the section with given index contains the position
+		 */
+		private boolean contains(int i,int pos) {
+			if(i >= _starts.length)
+				return false;
+			
+			return pos >= _starts[i] && pos < _starts[i] + _sections[i].getElementLength();
+		}
+		
+		/**
+		 * Searches for the section which contains the given position
+		 * 
+		 * @param pos the position in the paragraph
+		 * @return the index of the section
+		 */
+		private int find(int pos) {
+			int low = 0;
+			int high = _starts.length - 1;
+			while(low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if(_starts[mid] <= pos)
+					low = mid;
+				else
+					high = mid - 1;
+			}
+			
+			return low;
+		}
+	}
+}
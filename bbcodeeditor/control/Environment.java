@@ -97,6 +97,11 @@ public class Environment extends Section {
 	 */
 	protected boolean _selected = false;
 	
+	/**
+	 * is this Environment part of the document?
+	 */
+	private boolean _attached = false;
+	
 	/**
 	 * constructor
 	 * 
@@ -233,6 +238,16 @@ public class Environment extends Section {
 		return _paragraphs.getParagraph(index);
 	}
 	
+	/**
+	 * Determines the index of the given paragraph in O(log n)
+	 * 
+	 * @param p the paragraph
+	 * @return the index of the paragraph or -1 if it is not in this environment
+	 */
+	public int getParagraphIndex(Paragraph p) {
+		return _paragraphs.getParagraphIndex(p);
+	}
+	
 	/**
 	 * @return the linked list with all paragraphs
 	 */
@@ -330,6 +345,56 @@ public class Environment extends Section {
 		return pos;
 	}
 	
+	/**
+	 * @return wether this environment is part of the document
+	 */
+	boolean isAttached() {
+		return _attached;
+	}
+	
+	/**
+	 * Will be called as soon as this environment has been added to the document.
+	 * Notifies the sub-environments, too.
+	 */
+	void attach() {
+		if(_attached)
+			return;
+		
+		_attached = true;
+		notifySubEnvironments(true);
+	}
+	
+	/**
+	 * Will be called as soon as this environment has been removed from the document.
+	 * Notifies the sub-environments, too.
+	 */
+	void detach() {
+		if(!_attached)
+			return;
+		
+		_attached = false;
+		notifySubEnvironments(false);
+	}
+	
+	/**
+	 * Calls attach() or detach() for all sub-environments
+	 * 
+	 * @param attach attach them?
+	 */
+	private void notifySubEnvironments(boolean attach) {
+		Paragraph p = getFirstParagraph();
+		while(p != null) {
+			if(p.containsEnvironment()) {
+				Environment env = (Environment)p.getFirstSection();
+				if(attach)
+					env.attach();
+				else
+					env.detach();
+			}
+			p = (Paragraph)p.getNext();
+		}
+	}
+	
 	/**
 	 * clears all content in this environment
 	 */
@@ -796,6 +861,48 @@ public class Environment extends Section {
 		correctCurrentSection();
 	}
 	
+	/**
+	 * adds a string at the given position without moving the cursor. The text gets the
+	 * attributes of the section at the position
+	 * 
+	 * @param text the text to add; must not contain line-ends
+	 * @param pos the position in this environment
+	 */
+	void addTextAt(String text,int pos) {
+		Paragraph p = _paragraphs.getParagraphAtPosition(pos);
+		if(p.containsEnvironment()) {
+			Environment env = (Environment)p.getFirstSection();
+			env.addTextAt(text,pos - p.getElementStartPos());
+			return;
+		}
+		
+		_paragraphs.addTextAt(text,p,pos,null);
+		adjustEnvPositions(text.length());
+
+		_textArea.getWordwrapManager().markDirty(p);
+		updateHighlighting(p);
+	}
+	
+	/**
+	 * Defers the adjustment of the paragraph-positions in this environment.
+	 * 
+	 * @see ParagraphContainer#deferAdjustments()
+	 */
+	void deferAdjustments() {
+		_paragraphs.deferAdjustments();
+	}
+	
+	/**
+	 * Applies the deferred adjustments of the paragraph-positions and refreshes the
+	 * position of this environment
+	 * 
+	 * @see ParagraphContainer#applyAdjustments()
+	 */
+	void applyAdjustments() {
+		_paragraphs.applyAdjustments();
+		setElementPos(0,getLastParagraph().getElementEndPos());
+	}
+	
 	/**
 	 * determines if the previous char can be removed
 	 * this has to be the current environment!
@@ -1099,7 +1206,7 @@ public class Environment extends Section {
 		// reset the highlighters
 		Paragraph p = getFirstParagraph();
 		do {
-			p.getHighlighter().resetHighlighter();
+			p.resetHighlighter();
 			p = (Paragraph)p.getNext();
 		} while(p != null);
 		
@@ -1135,6 +1242,7 @@ public class Environment extends Section {
 				((CodeEnvironment)this).getHighlightSyntax() == null)
 			return false;
 		
+		long start = _textArea.getMetrics().begin();
 		int i = 0;
 		do {
 			ParagraphHighlighter phl = p.getHighlighter();
@@ -1203,7 +1311,8 @@ public class Environment extends Section {
 		// we have to repaint all, if more than one paragraph has changed
 		if(i > 1)
 			_textArea.getRepaintManager().markCompletlyDirty();
-
+		
+		_textArea.getMetrics().end(Metrics.HIGHLIGHT,start);
 		return i > 1;
 	}
 	
@@ -1649,13 +1758,8 @@ public class Environment extends Section {
 		if(pParent != null)
 			adjustEnvPositions(pParent,count,parent.getSectionParagraph());
 		
-		if(p != null) {
-			Paragraph para = (Paragraph)p.getNext();
-			while(para != null) {
-				para.increaseElementPos(count);
-				para = (Paragraph)para.getNext();
-			}
-		}
+		if(p != null)
+			parent._paragraphs.adjustParagraphs((Paragraph)p.getNext(),count);
 	}
 	
 	/**
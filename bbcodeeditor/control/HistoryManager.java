@@ -79,6 +79,21 @@ public class HistoryManager {
 			_actions.remove(_actions.size() - 1);
 	}
 	
+	/**
+	 * Removes the last <code>amount</code> added entries and returns them
+	 * 
+	 * @param amount the number of entries to remove
+	 * @return a List with the removed entries in the order in which they have been added
+	 */
+	public List<HistoryAction> extractLast(int amount) {
+		int start = Math.max(0,_actions.size() - amount);
+		List<HistoryAction> res = new ArrayList<HistoryAction>(_actions.size() - start);
+		for(int i = start;i < _actions.size();i++)
+			res.add((HistoryAction)_actions.get(i));
+		_actions.subList(start,_actions.size()).clear();
+		return res;
+	}
+	
 	/**
 	 * Clears all actions
 	 */
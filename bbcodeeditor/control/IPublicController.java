@@ -102,6 +102,22 @@ public interface IPublicController {
 	 * Indicates that the editor should be used as a html-editor
 	 */
 	static final int MODE_HTML							= 2;
+	
+	
+	/**
+	 * a search-flag: search case-sensitive
+	 */
+	static final int SEARCH_CASE_SENSITIVE	= 1;
+	
+	/**
+	 * a search-flag: interpret the search-text as regular expression
+	 */
+	static final int SEARCH_REGEX						= 2;
+	
+	/**
+	 * a search-flag: match whole words only
+	 */
+	static final int SEARCH_WHOLE_WORD			= 4;
 
 
 	/**
@@ -341,6 +357,60 @@ public interface IPublicController {
 	 */
 	void stopHistoryCache();
 	
+	/**
+	 * Starts an update. Until the corresponding {@link #endUpdate()} has been called,
+	 * all modifications will just be applied to the content. The word-wrap, the
+	 * paint-positions, the repaint, the listeners and the history will be refreshed
+	 * once when the update is finished. Therefore all modifications in the update will
+	 * be undone in one step.
+	 * <p>
+	 * Updates may be nested; the refresh will be done when the outermost update ends.
+	 * Note that you should start and end an update in the same event, because the
+	 * control will not be repainted correctly in the meantime. Additionally everything
+	 * that depends on the layout (for example moving the cursor up and down) uses
+	 * the layout of the time when the update has been started.
+	 * 
+	 * @see #endUpdate()
+	 * @see #isUpdating()
+	 */
+	void beginUpdate();
+	
+	/**
+	 * Ends an update that has been started by {@link #beginUpdate()}. If it is the
+	 * outermost update and something has been changed, everything will be refreshed.
+	 * 
+	 * @see #beginUpdate()
+	 */
+	void endUpdate();
+	
+	/**
+	 * @return wether an update is currently running
+	 * @see #beginUpdate()
+	 */
+	boolean isUpdating();
+	
+	/**
+	 * @return the timings of the expensive phases (word-wrap, paint, ...), the statistics
+	 * 	of the caches and the size of the document
+	 * @see #setMetricsEnabled(boolean)
+	 */
+	Metrics getMetrics();
+	
+	/**
+	 * @return wether the timings of the expensive phases are collected
+	 * @see #setMetricsEnabled(boolean)
+	 */
+	boolean isMetricsEnabled();
+	
+	/**
+	 * Sets wether the timings of the expensive phases should be collected. Disabled by
+	 * default, which costs nothing.
+	 * 
+	 * @param enabled the new value
+	 * @see #getMetrics()
+	 */
+	void setMetricsEnabled(boolean enabled);
+	
 	/**
 	 * determines the value for the given property and the given environment-type
 	 * 
@@ -955,6 +1025,119 @@ public interface IPublicController {
 	 * @see #getLastOccurrence(String, int, int, boolean)
 	 */
 	List getAllOccurrences(String text,int start,int end,boolean caseSensitive);
+	
+	/**
+	 * Searches the control for the given pattern in the given interval.<br>
+	 * In contrast to {@link #getFirstOccurrence(String, int, int, boolean)} the whole
+	 * document will be searched at once, so that the matches may span multiple paragraphs.
+	 * Paragraphs are separated by '\n' and images are represented by a '-'.<br>
+	 * The flags are a combination of SEARCH_CASE_SENSITIVE, SEARCH_REGEX and
+	 * SEARCH_WHOLE_WORD. If SEARCH_REGEX is not set, the pattern will be matched
+	 * literally.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags
+	 * @return the first TextPart if found, null otherwise
+	 * @see #getLastMatch(String, int, int, int)
+	 * @see #getAllMatches(String, int, int, int)
+	 */
+	TextPart getFirstMatch(String pattern,int start,int end,int flags);
+	
+	/**
+	 * Searches the control <b>backwards</b> for the given pattern in the given interval.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags
+	 * @return the last TextPart if found, null otherwise
+	 * @see #getFirstMatch(String, int, int, int)
+	 * @see #getAllMatches(String, int, int, int)
+	 */
+	TextPart getLastMatch(String pattern,int start,int end,int flags);
+	
+	/**
+	 * Searches the control for the given pattern in the given interval.<br>
+	 * A List with TextPart-objects will be collected which contains all found
+	 * matches. Empty matches will be ignored.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags
+	 * @return a List with the TextPart-objects
+	 * @see #getFirstMatch(String, int, int, int)
+	 * @see #getLastMatch(String, int, int, int)
+	 */
+	List<TextPart> getAllMatches(String pattern,int start,int end,int flags);
+	
+	/**
+	 * Replaces the first match of <code>pattern</code> with <code>repl</code> between
+	 * <code>start</code> and <code>end</code>. The flags are the same as for
+	 * {@link #getFirstMatch(String, int, int, int)}.<br>
+	 * Note that <code>repl</code> will be inserted literally, so group-references are not
+	 * supported. But it may contain BBCode if <code>parseBBCode</code> is enabled!
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param repl the text to replace with
+	 * @param start the start-position for the search
+	 * @param end the end-position for the search
+	 * @param flags the search-flags
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the start-position of the replace or -1 if nothing has been done
+	 * @see #replaceLastMatch(String, String, int, int, int, boolean)
+	 * @see #replaceAllMatches(String, String, int, int, int, boolean)
+	 */
+	int replaceFirstMatch(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode);
+	
+	/**
+	 * Replaces the last match of <code>pattern</code> with <code>repl</code> between
+	 * <code>start</code> and <code>end</code>.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param repl the text to replace with
+	 * @param start the start-position for the search
+	 * @param end the end-position for the search
+	 * @param flags the search-flags
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the start-position of the replace or -1 if nothing has been done
+	 * @see #replaceFirstMatch(String, String, int, int, int, boolean)
+	 * @see #replaceAllMatches(String, String, int, int, int, boolean)
+	 */
+	int replaceLastMatch(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode);
+	
+	/**
+	 * Replaces all matches of <code>pattern</code> with <code>repl</code> between
+	 * <code>start</code> and <code>end</code>. The matches will be determined at first
+	 * and replaced afterwards, so that the replacement will not be searched again.
+	 * All replaces can be undone in one step.
+	 * 
+	 * @param pattern the text or regular expression to search for
+	 * @param repl the text to replace with
+	 * @param start the start-position for the search
+	 * @param end the end-position for the search
+	 * @param flags the search-flags
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the number of replaces
+	 * @see #replaceFirstMatch(String, String, int, int, int, boolean)
+	 * @see #replaceLastMatch(String, String, int, int, int, boolean)
+	 */
+	int replaceAllMatches(String pattern,String repl,int start,int end,int flags,
+			boolean parseBBCode);
+	
+	/**
+	 * Returns a read-only view of the text of the whole document. Paragraphs are separated
+	 * by '\n' and images are represented by a '-'. The text will not be copied, so that
+	 * this is much cheaper than exporting the text, but the view must not be used anymore
+	 * after the document has been modified.
+	 * 
+	 * @return the text of the document
+	 */
+	CharSequence getDocumentText();
 
 	/**
 	 * exports the selected text of the control in the given syntax
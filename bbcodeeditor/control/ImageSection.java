@@ -86,10 +86,14 @@ public class ImageSection extends ContentSection {
 	 * @param imageURL the URL of the image
 	 */
 	private void loadImage(URL imageURL) {
+		final Metrics metrics = _env.getTextField().getMetrics();
+		metrics.imageRequested();
+		
 		// let the image-loader of the textarea load the image
 		_env.getTextField().getImageLoader().imageLoadingRequest(imageURL,
 			new ImageLoadingFinishedListener() {
 				public void imageLoadingFinished(Image image) {
+					metrics.imageLoaded(image != null);
 					if(image != null) {
 						_image.setImage(image);
 						setImageSize(true);
@@ -215,6 +219,8 @@ public class ImageSection extends ContentSection {
 	 */
 	void setImage(SecImage img) {
 		_image = img;
+		// the export depends on the image
+		_paragraph.markModified();
 		loadImage(img.getImageURL());
 	}
 	
@@ -21,6 +21,7 @@ package bbcodeeditor.control;
 import java.util.*;
 
 import bbcodeeditor.control.tools.AbstractElement;
+import bbcodeeditor.control.tools.IPositionComparator;
 import bbcodeeditor.control.tools.MyLinkedList;
 import bbcodeeditor.control.view.ILineView;
 import bbcodeeditor.control.view.LineView;
@@ -45,6 +46,27 @@ import bbcodeeditor.control.view.Viewable;
  */
 public final class Line extends AbstractElement implements Viewable {
 	
+	/**
+	 * compares the sections with positions in the paragraph
+	 */
+	private static final IPositionComparator SECTION_POS_CMP = new IPositionComparator() {
+		public int compare(AbstractElement element,int position) {
+			Section s = (Section)element;
+			if(position < s.getElementStartPos())
+				return 1;
+			
+			// if we are at the section-start-pos and there is a previous section
+			// we want to use the previous one
+			if(position == s.getElementStartPos() && !s.isFirst())
+				return 1;
+			
+			if(position > s.getElementEndPos() + 1)
+				return -1;
+			
+			return 0;
+		}
+	};
+	
 	/**
 	 * the environment which contains this line
 	 */
@@ -52,8 +74,11 @@ public final class Line extends AbstractElement implements Viewable {
 	
 	/**
 	 * a LinkedList with all sections
+	 * 
+	 * Note that we init it with 2 entries because most lines contain just
+	 * one or two sections.
 	 */
-	private final MyLinkedList _sections = new MyLinkedList();
+	private final MyLinkedList _sections = new MyLinkedList(2);
 	
 	/**
 	 * The view
@@ -212,7 +237,7 @@ public final class Line extends AbstractElement implements Viewable {
 		Section s = getFirstSection();
 		do {
 			if(s instanceof TextSection)
-				text.append(((TextSection)s).getText());
+				((TextSection)s).appendText(text);
 			else if(s instanceof ImageSection)
 				text.append(ImageSection.dummyText);
 			
@@ -404,6 +429,7 @@ public final class Line extends AbstractElement implements Viewable {
 		if(_sections.size() == 1)
 			first = getFirstSection();
 		
+		_para.markModified();
 		_sections.addBefore(index,sec);
 		
 		// remove the first section, if it is empty
@@ -428,6 +454,7 @@ public final class Line extends AbstractElement implements Viewable {
 		if(_sections.size() == 1)
 			first = getFirstSection();
 		
+		_para.markModified();
 		if(prev == null)
 			_sections.addBefore(_sections.getFirst(),sec);
 		else
@@ -449,6 +476,7 @@ public final class Line extends AbstractElement implements Viewable {
 	 * @param sec the section to remove
 	 */
 	void removeSection(Section sec) {
+		_para.markModified();
 		_sections.remove(sec);
 		
 		// do we have to add an empty section?
@@ -671,26 +699,7 @@ public final class Line extends AbstractElement implements Viewable {
 			return (ContentSection)getFirstSection();
 		
 		// the sections are sorted, so we can use binarySearch :)
-		int index = Arrays.binarySearch(_sections.toArray(),new Integer(position),new Comparator() {
-			public int compare(Object arg0,Object arg1) {
-				if(arg0 instanceof Section && arg1 instanceof Integer) {
-					int pos = ((Integer)arg1).intValue();
-					Section s = (Section)arg0;
-					if(pos < s.getElementStartPos())
-						return 1;
-					
-					// if we are at the section-start-pos and there is a previous section
-					// we want to use the previous one
-					if(pos == s.getElementStartPos() && !s.isFirst())
-						return 1;
-					
-					if(pos > s.getElementEndPos() + 1)
-						return -1;
-				}
-				
-				return 0;
-			}
-		});
+		int index = _sections.getIndexOfPosition(position,SECTION_POS_CMP);
 		
 		// have we found the line?
 		if(index >= 0)
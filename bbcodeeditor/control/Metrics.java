@@ -0,0 +1,613 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import bbcodeeditor.control.highlighter.HighlightSyntax;
+import bbcodeeditor.control.view.FontCache;
+
+
+/**
+ * Collects the timings of the expensive phases of a text-field: the refresh of the views,
+ * the word-wrap, the refresh of the paint-positions, the highlighting, the export and
+ * the paint. For each phase the number of invocations, the total and the maximum time
+ * and the times of the recent invocations are stored. Additionally it provides the
+ * statistics of the caches, the image-loading and the size of the document.
+ * <p>
+ * The metrics are disabled by default. In this case {@link #begin()} and
+ * {@link #end(int, long)} do nothing but checking a flag and the caches don't count
+ * their lookups. If enabled, each phase can
+ * be emitted as an event of the Java Flight Recorder, too (see
+ * {@link #setEventsEnabled(boolean)}).
+ * <p>
+ * The phases are measured like this:
+ * <pre>
+ * long start = metrics.begin();
+ * ...
+ * metrics.end(Metrics.PAINT,start);
+ * </pre>
+ * 
+ * @author hrniels
+ */
+public final class Metrics {
+	
+	/**
+	 * The refresh of the views (paint-texts, string-bounds, ...)
+	 */
+	public static final int VIEW_REFRESH			= 0;
+	
+	/**
+	 * The word-wrap of the dirty paragraphs and the ones in the layout-area
+	 */
+	public static final int WORDWRAP					= 1;
+	
+	/**
+	 * The refresh of the paint-positions
+	 */
+	public static final int PAINTPOS_REFRESH	= 2;
+	
+	/**
+	 * The highlighting of code-paragraphs
+	 */
+	public static final int HIGHLIGHT					= 3;
+	
+	/**
+	 * The export of the text
+	 */
+	public static final int EXPORT						= 4;
+	
+	/**
+	 * The paint of the control
+	 */
+	public static final int PAINT							= 5;
+	
+	/**
+	 * The number of phases
+	 */
+	public static final int PHASE_COUNT				= 6;
+	
+	/**
+	 * The number of recent times that are stored for each phase
+	 */
+	public static final int RECENT_COUNT			= 64;
+	
+	/**
+	 * The value of {@link #begin()} if the metrics are disabled
+	 */
+	private static final long DISABLED				= Long.MIN_VALUE;
+	
+	/**
+	 * The class of the JFR-event. It is not in the main source-folder (see build.xml)
+	 */
+	private static final String EVENT_CLASS	= "bbcodeeditor.control.MetricsEvent";
+	
+	/**
+	 * The names of the phases
+	 */
+	private static final String[] NAMES = {
+		"viewRefresh","wordwrap","paintPosRefresh","highlight","export","paint"
+	};
+	
+	/**
+	 * The text-field
+	 */
+	private final AbstractTextField _textField;
+	
+	/**
+	 * Are the metrics enabled?
+	 */
+	private volatile boolean _enabled = false;
+	
+	/**
+	 * Should the phases be emitted as JFR-events?
+	 */
+	private volatile boolean _events = false;
+	
+	/**
+	 * The method that emits a JFR-event; null if not loaded yet
+	 */
+	private volatile Method _emit = null;
+	
+	/**
+	 * The number of invocations of each phase
+	 */
+	private final int[] _counts = new int[PHASE_COUNT];
+	
+	/**
+	 * The total time of each phase in nanoseconds
+	 */
+	private final long[] _totalTimes = new long[PHASE_COUNT];
+	
+	/**
+	 * The maximum time of each phase in nanoseconds
+	 */
+	private final long[] _maxTimes = new long[PHASE_COUNT];
+	
+	/**
+	 * The recent times of each phase in nanoseconds; a ring-buffer
+	 */
+	private final long[][] _recentTimes = new long[PHASE_COUNT][RECENT_COUNT];
+	
+	/**
+	 * The number of images that have been requested from the image-loader
+	 */
+	private int _imageRequests = 0;
+	
+	/**
+	 * The number of images that have been loaded successfully
+	 */
+	private int _imagesLoaded = 0;
+	
+	/**
+	 * The number of images that could not be loaded
+	 */
+	private int _imagesFailed = 0;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param textField the text-field
+	 */
+	Metrics(AbstractTextField textField) {
+		_textField = textField;
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the name of the given phase
+	 */
+	public static String getPhaseName(int phase) {
+		return NAMES[phase];
+	}
+	
+	/**
+	 * @return wether the metrics are enabled
+	 */
+	public boolean isEnabled() {
+		return _enabled;
+	}
+	
+	/**
+	 * Sets wether the metrics are enabled. The collected times will be kept
+	 * 
+	 * @param enabled the new value
+	 */
+	void setEnabled(boolean enabled) {
+		_enabled = enabled;
+		_textField.getFontCache().setStatisticsEnabled(enabled);
+		_textField.getRasterCache().setStatisticsEnabled(enabled);
+	}
+	
+	/**
+	 * @return wether the phases are emitted as JFR-events
+	 */
+	public boolean isEventsEnabled() {
+		return _events;
+	}
+	
+	/**
+	 * Sets wether the measured phases should be emitted as events of the Java Flight
+	 * Recorder ("bbcodeeditor.Phase"). That requires that the metrics are enabled, that
+	 * the JVM supports JFR and that the event has been compiled (see build.xml).
+	 * 
+	 * @param enabled the new value
+	 * @return true if successfull, false if the JVM does not support JFR or the event is
+	 * 	not available
+	 */
+	public boolean setEventsEnabled(boolean enabled) {
+		if(enabled && _emit == null) {
+			try {
+				Class<?> event = Class.forName(EVENT_CLASS);
+				_emit = event.getDeclaredMethod("emit",new Class<?>[] {String.class,long.class});
+			}
+			catch(ClassNotFoundException e) {
+				return false;
+			}
+			catch(NoSuchMethodException e) {
+				return false;
+			}
+			// the event is available, but JFR is not
+			catch(LinkageError e) {
+				return false;
+			}
+		}
+		
+		_events = enabled;
+		return true;
+	}
+	
+	/**
+	 * Starts the measurement of a phase
+	 * 
+	 * @return the value you have to pass to {@link #end(int, long)}
+	 */
+	public long begin() {
+		return _enabled ? System.nanoTime() : DISABLED;
+	}
+	
+	/**
+	 * Ends the measurement of the given phase
+	 * 
+	 * @param phase the phase
+	 * @param start the value of {@link #begin()}
+	 */
+	public void end(int phase,long start) {
+		if(start == DISABLED)
+			return;
+		
+		long time = System.nanoTime() - start;
+		add(phase,time);
+		if(_events)
+			emit(NAMES[phase],time);
+	}
+	
+	/**
+	 * Notifies the metrics that an image has been requested from the image-loader
+	 */
+	synchronized void imageRequested() {
+		if(_enabled)
+			_imageRequests++;
+	}
+	
+	/**
+	 * Notifies the metrics that the image-loader has finished loading an image.
+	 * May be called by any thread
+	 * 
+	 * @param success wether the image has been loaded
+	 */
+	synchronized void imageLoaded(boolean success) {
+		if(_enabled) {
+			if(success)
+				_imagesLoaded++;
+			else
+				_imagesFailed++;
+		}
+	}
+	
+	/**
+	 * Removes all collected times
+	 */
+	public synchronized void reset() {
+		for(int i = 0;i < PHASE_COUNT;i++) {
+			_counts[i] = 0;
+			_totalTimes[i] = 0;
+			_maxTimes[i] = 0;
+		}
+		
+		_imageRequests = 0;
+		_imagesLoaded = 0;
+		_imagesFailed = 0;
+		_textField.getFontCache().resetStatistics();
+		_textField.getRasterCache().resetStatistics();
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the number of invocations of the given phase
+	 */
+	public synchronized int getCount(int phase) {
+		return _counts[phase];
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the total time of the given phase in nanoseconds
+	 */
+	public synchronized long getTotalTime(int phase) {
+		return _totalTimes[phase];
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the maximum time of the given phase in nanoseconds
+	 */
+	public synchronized long getMaxTime(int phase) {
+		return _maxTimes[phase];
+	}
+	
+	/**
+	 * @param phase the phase
+	 * @return the times of the last (up to {@link #RECENT_COUNT}) invocations of the
+	 * 	given phase in nanoseconds, the most recent one at the end
+	 */
+	public synchronized long[] getRecentTimes(int phase) {
+		int count = Math.min(_counts[phase],RECENT_COUNT);
+		long[] times = new long[count];
+		int first = _counts[phase] - count;
+		for(int i = 0;i < count;i++)
+			times[i] = _recentTimes[phase][(first + i) % RECENT_COUNT];
+		return times;
+	}
+	
+	/**
+	 * @return the number of images that have been requested from the image-loader
+	 */
+	public synchronized int getImageRequests() {
+		return _imageRequests;
+	}
+	
+	/**
+	 * @return the number of images that have been loaded successfully
+	 */
+	public synchronized int getImagesLoaded() {
+		return _imagesLoaded;
+	}
+	
+	/**
+	 * @return the number of images that could not be loaded
+	 */
+	public synchronized int getImagesFailed() {
+		return _imagesFailed;
+	}
+	
+	/**
+	 * Determines the size of the document. Has to be called in the event-dispatch-thread
+	 * 
+	 * @return the statistics of the document
+	 */
+	public DocumentStats getDocumentStats() {
+		DocumentStats stats = new DocumentStats();
+		Environment root = _textField._controller.getRootEnvironment();
+		stats._length = root.getElementLength();
+		collect(root,stats);
+		return stats;
+	}
+	
+	/**
+	 * Builds a report of the phases, the caches and the document
+	 * 
+	 * @return the report
+	 */
+	public String toString() {
+		StringBuffer buf = new StringBuffer();
+		buf.append("Metrics[\n");
+		for(int i = 0;i < PHASE_COUNT;i++) {
+			long[] recent = getRecentTimes(i);
+			long recentSum = 0;
+			for(int j = 0;j < recent.length;j++)
+				recentSum += recent[j];
+			
+			buf.append("  ").append(NAMES[i]).append(": count=").append(getCount(i));
+			buf.append(", total=").append(getTotalTime(i) / 1000).append("us");
+			buf.append(", max=").append(getMaxTime(i) / 1000).append("us");
+			if(recent.length > 0)
+				buf.append(", recentAvg=").append(recentSum / recent.length / 1000).append("us");
+			buf.append('\n');
+		}
+		
+		FontCache fonts = _textField.getFontCache();
+		buf.append("  fontCache: size=").append(fonts.size());
+		buf.append(", hits=").append(fonts.getHits());
+		buf.append(", misses=").append(fonts.getMisses()).append('\n');
+		
+		RasterCache raster = _textField.getRasterCache();
+		buf.append("  rasterCache: size=").append(raster.size());
+		buf.append(", memory=").append(raster.getMemory());
+		buf.append(", hits=").append(raster.getHits());
+		buf.append(", misses=").append(raster.getMisses()).append('\n');
+		
+		buf.append("  images: requests=").append(getImageRequests());
+		buf.append(", loaded=").append(getImagesLoaded());
+		buf.append(", failed=").append(getImagesFailed()).append('\n');
+		
+		buf.append("  highlighters: active=").append(HighlightSyntax.getActiveCount());
+		buf.append(", compiled=").append(HighlightSyntax.getCompiledCount()).append('\n');
+		
+		buf.append("  ").append(getDocumentStats()).append('\n');
+		buf.append("]");
+		return buf.toString();
+	}
+	
+	/**
+	 * Adds the given time for the given phase
+	 * 
+	 * @param phase the phase
+	 * @param time the time in nanoseconds
+	 */
+	private synchronized void add(int phase,long time) {
+		_recentTimes[phase][_counts[phase] % RECENT_COUNT] = time;
+		_counts[phase]++;
+		_totalTimes[phase] += time;
+		if(time > _maxTimes[phase])
+			_maxTimes[phase] = time;
+	}
+	
+	/**
+	 * Emits the JFR-event for the given phase
+	 * 
+	 * @param phase the name of the phase
+	 * @param time the time in nanoseconds
+	 */
+	private void emit(String phase,long time) {
+		try {
+			_emit.invoke(null,new Object[] {phase,Long.valueOf(time)});
+		}
+		catch(IllegalAccessException e) {
+			_events = false;
+		}
+		catch(InvocationTargetException e) {
+			_events = false;
+		}
+	}
+	
+	/**
+	 * Counts the elements in the given environment, recursively
+	 * 
+	 * @param env the environment
+	 * @param stats the statistics
+	 */
+	private void collect(Environment env,DocumentStats stats) {
+		stats._environments++;
+		if(env.getView() != null)
+			stats._views++;
+		
+		Paragraph p = env.getFirstParagraph();
+		while(p != null) {
+			if(p.containsEnvironment())
+				collect((Environment)p.getFirstSection(),stats);
+			else {
+				stats._paragraphs++;
+				if(p.getView() != null)
+					stats._views++;
+				
+				Line l = p.getFirstLine();
+				while(l != null) {
+					stats._lines++;
+					if(l.getView() != null)
+						stats._views++;
+					l = (Line)l.getNext();
+				}
+				
+				Section s = p.getFirstSection();
+				while(s != null) {
+					stats._sections++;
+					if(s instanceof SmileySection)
+						stats._smileys++;
+					else if(s instanceof ImageSection)
+						stats._images++;
+					if(s.getView() != null)
+						stats._views++;
+					s = s.getNextInParagraph();
+				}
+			}
+			
+			p = (Paragraph)p.getNext();
+		}
+	}
+	
+	/**
+	 * The size of a document
+	 * 
+	 * @author hrniels
+	 */
+	public static final class DocumentStats {
+		
+		/**
+		 * The number of characters
+		 */
+		private int _length = 0;
+		
+		/**
+		 * The number of environments, including the root-environment
+		 */
+		private int _environments = 0;
+		
+		/**
+		 * The number of content-paragraphs
+		 */
+		private int _paragraphs = 0;
+		
+		/**
+		 * The number of lines
+		 */
+		private int _lines = 0;
+		
+		/**
+		 * The number of content-sections
+		 */
+		private int _sections = 0;
+		
+		/**
+		 * The number of image-sections, without smileys
+		 */
+		private int _images = 0;
+		
+		/**
+		 * The number of smiley-sections
+		 */
+		private int _smileys = 0;
+		
+		/**
+		 * The number of views
+		 */
+		private int _views = 0;
+		
+		/**
+		 * Constructor
+		 */
+		DocumentStats() {
+		
+		}
+		
+		/**
+		 * @return the number of characters
+		 */
+		public int getLength() {
+			return _length;
+		}
+		
+		/**
+		 * @return the number of environments, including the root-environment
+		 */
+		public int getEnvironments() {
+			return _environments;
+		}
+		
+		/**
+		 * @return the number of paragraphs that don't contain an environment
+		 */
+		public int getParagraphs() {
+			return _paragraphs;
+		}
+		
+		/**
+		 * @return the number of lines
+		 */
+		public int getLines() {
+			return _lines;
+		}
+		
+		/**
+		 * @return the number of content-sections
+		 */
+		public int getSections() {
+			return _sections;
+		}
+		
+		/**
+		 * @return the number of image-sections, without smileys
+		 */
+		public int getImages() {
+			return _images;
+		}
+		
+		/**
+		 * @return the number of smiley-sections
+		 */
+		public int getSmileys() {
+			return _smileys;
+		}
+		
+		/**
+		 * @return the number of views of environments, paragraphs, lines and sections
+		 */
+		public int getViews() {
+			return _views;
+		}
+		
+		public String toString() {
+			return "document: length=" + _length + ", environments=" + _environments
+				+ ", paragraphs=" + _paragraphs + ", lines=" + _lines + ", sections=" + _sections
+				+ ", images=" + _images + ", smileys=" + _smileys + ", views=" + _views;
+		}
+	}
+}
\ No newline at end of file
@@ -18,9 +18,8 @@
 
 package bbcodeeditor.control;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 
 /**
@@ -37,15 +36,21 @@ public class PaintPosManager {
 	private final Controller _con;
 	
 	/**
-	 * A list with all paragraphs that need a refresh
+	 * A set with all paragraphs that need a refresh. The following paragraphs will be
+	 * moved if the height of a paragraph changes
 	 */
-	private final List _dirtyParagraphs = new ArrayList();
+	private final Set<Paragraph> _dirtyParagraphs = new HashSet<Paragraph>();
 
 	/**
 	 * Stores wether all paint-positions should be refreshed
 	 */
 	private boolean _refreshAll = false;
 	
+	/**
+	 * Stores wether the height of the control should be refreshed
+	 */
+	private boolean _refreshHeight = false;
+	
 	/**
 	 * Constructor
 	 * 
@@ -63,16 +68,23 @@ public class PaintPosManager {
 		_dirtyParagraphs.clear();
 	}
 	
+	/**
+	 * Marks the height of the control as dirty. That is necessary if it changes without
+	 * any paint-position, e.g. because of the estimated height of paragraphs that have
+	 * not been wrapped yet.
+	 */
+	public void markHeightDirty() {
+		_refreshHeight = true;
+	}
+	
 	/**
 	 * Adds the given paragraph as dirty
 	 * 
 	 * @param p the paragraph
 	 */
 	public void addParagraph(Paragraph p) {
-		if(!_refreshAll) {
-			if(!_dirtyParagraphs.contains(p))
-				_dirtyParagraphs.add(p);
-		}
+		if(!_refreshAll)
+			_dirtyParagraphs.add(p);
 	}
 	
 	/**
@@ -81,23 +93,14 @@ public class PaintPosManager {
 	public void refresh() {
 		if(_refreshAll)
 			_con.refreshPaintPositions();
-		else {
-			Iterator it = _dirtyParagraphs.iterator();
-			while(it.hasNext()) {
-				Paragraph p = (Paragraph)it.next();
-				
-				// not possible here?
-				Paragraph prev = (Paragraph)p.getPrev();
-				if(prev != null && prev.getView().getPaintPos() == null) {
-					_con.refreshPaintPositions();
-					break;
-				}
-				
-				_con.refreshPaintPositionsInParagraph(p);
-			}
+		else if(_dirtyParagraphs.size() > 0 || _refreshHeight) {
+			// refresh all if the paint-positions are not available
+			if(!_con.refreshPaintPositionsInParagraphs(_dirtyParagraphs))
+				_con.refreshPaintPositions();
 		}
 		
 		_refreshAll = false;
+		_refreshHeight = false;
 		_dirtyParagraphs.clear();
 	}
 }
\ No newline at end of file
@@ -21,6 +21,8 @@ package bbcodeeditor.control;
 import java.util.*;
 
 import bbcodeeditor.control.actions.SetAttributeActionPart;
+import bbcodeeditor.control.tools.AbstractElement;
+import bbcodeeditor.control.tools.IPositionComparator;
 import bbcodeeditor.control.tools.MutablePointer;
 import bbcodeeditor.control.tools.MyLinkedList;
 import bbcodeeditor.control.view.ILineView;
@@ -53,6 +55,22 @@ import bbcodeeditor.control.view.ParagraphView;
  */
 public final class Paragraph extends PositionElement {
 
+	/**
+	 * compares the lines with positions in the paragraph
+	 */
+	private static final IPositionComparator LINE_POS_CMP = new IPositionComparator() {
+		public int compare(AbstractElement element,int position) {
+			Line l = (Line)element;
+			if(position < l.getLineStartPosition())
+				return 1;
+			
+			if(position > l.getLastCursorPos())
+				return -1;
+			
+			return 0;
+		}
+	};
+
 	/**
 	 * a linked list with all lines of this container
 	 * 
@@ -62,9 +80,10 @@ public final class Paragraph extends PositionElement {
 	private final MyLinkedList _lines = new MyLinkedList(2);
 	
 	/**
-	 * The highlighter for this paragraph
+	 * The highlighter for this paragraph. Will be created as soon as the paragraph is
+	 * highlighted, because most code-blocks have no highlight-syntax
 	 */
-	private final ParagraphHighlighter _highlighter;
+	private ParagraphHighlighter _highlighter = null;
 	
 	/**
 	 * the alignment of the text in this line
@@ -84,6 +103,12 @@ public final class Paragraph extends PositionElement {
 	 */
 	private boolean _containsEnv = false;
 	
+	/**
+	 * the number of modifications of the sections in this paragraph. Will be used
+	 * to detect whether cached information about the content are still valid
+	 */
+	private int _modCount = 0;
+	
 	/**
 	 * constructor
 	 * 
@@ -98,11 +123,20 @@ public final class Paragraph extends PositionElement {
 		
 		// at least 1 line is required
 		_lines.add(new Line(parentEnv,this));
-		
-		if(_env instanceof CodeEnvironment)
-			_highlighter = new ParagraphHighlighter(this);
-		else
-			_highlighter = null;
+	}
+	
+	/**
+	 * @return the number of modifications of the sections in this paragraph
+	 */
+	public int getModCount() {
+		return _modCount;
+	}
+	
+	/**
+	 * marks that the sections in this paragraph have been modified
+	 */
+	void markModified() {
+		_modCount++;
 	}
 	
 	/**
@@ -113,12 +147,25 @@ public final class Paragraph extends PositionElement {
 	}
 	
 	/**
-	 * @return the ParagraphHighlighter instance for this paragraph
+	 * @return the ParagraphHighlighter instance for this paragraph (null if the paragraph
+	 * 	is not in a code-environment)
 	 */
 	ParagraphHighlighter getHighlighter() {
+		if(_highlighter == null && _env instanceof CodeEnvironment)
+			_highlighter = new ParagraphHighlighter(this);
 		return _highlighter;
 	}
 	
+	/**
+	 * Resets the highlighter, if it has already been created
+	 * 
+	 * @see ParagraphHighlighter#resetHighlighter()
+	 */
+	void resetHighlighter() {
+		if(_highlighter != null)
+			_highlighter.resetHighlighter();
+	}
+	
 	/**
 	 * @return wether this paragraph contains an environment
 	 */
@@ -141,6 +188,8 @@ public final class Paragraph extends PositionElement {
 	 * @param isListPoint is it a new list point?
 	 */
 	void setListPoint(boolean isListPoint) {
+		if(_isListPoint != isListPoint)
+			markModified();
 		_isListPoint = isListPoint;
 	}
 	
@@ -164,8 +213,10 @@ public final class Paragraph extends PositionElement {
 		_align = align;
 		
 		// we have to refresh the paint-positions in this paragraph
-		if(res)
+		if(res) {
+			markModified();
 			getTextField().getPaintPosManager().addParagraph(this);
+		}
 		
 		return res;
 	}
@@ -174,6 +225,7 @@ public final class Paragraph extends PositionElement {
 	 * resets this container
 	 */
 	void clear() {
+		markModified();
 		_lines.clear();
 		
 		_lines.add(new Line(_env,this));
@@ -189,7 +241,7 @@ public final class Paragraph extends PositionElement {
 		Section s = getFirstSection();
 		do {
 			if(s instanceof TextSection)
-				text.append(((TextSection)s).getText());
+				((TextSection)s).appendText(text);
 			else if(s instanceof ImageSection)
 				text.append(ImageSection.dummyText);
 			
@@ -963,8 +1015,8 @@ public final class Paragraph extends PositionElement {
 					// remove empty virtual lines
 					if(l.getLineLength() == 0) {
 						_lines.remove(l);
-						// we have to recalculate all paint-positions if we have removed a line
-						getTextField().getPaintPosManager().markAllDirty();
+						// we have to recalculate the paint-positions if we have removed a line
+						getTextField().getPaintPosManager().addParagraph(this);
 					}
 					else
 						l.getView().forceRefresh(ILineView.TAB_WIDTH);
@@ -1034,6 +1086,7 @@ public final class Paragraph extends PositionElement {
 	 * @param l the line to remove
 	 */
 	void remove(Line l) {
+		markModified();
 		_lines.remove(l);
 		
 		adjustLines((Line)l.getNext(),-(l.getLineLength() + 1));
@@ -1113,21 +1166,7 @@ public final class Paragraph extends PositionElement {
 			return first;
 		
 		// the lines are sorted, so we can use binarySearch :)
-		int index = _lines.getIndexBinarySearch(new Integer(position),new Comparator() {
-			public int compare(Object arg0,Object arg1) {
-				if(arg0 instanceof Line && arg1 instanceof Integer) {
-					int pos = ((Integer)arg1).intValue();
-					Line l = (Line)arg0;
-					if(pos < l.getLineStartPosition())
-						return 1;
-					
-					if(pos > l.getLastCursorPos())
-						return -1;
-				}
-				
-				return 0;
-			}
-		});
+		int index = _lines.getIndexOfPosition(position,LINE_POS_CMP);
 		
 		if(index >= 0)
 			return (Line)_lines.get(index);
@@ -20,6 +20,8 @@ package bbcodeeditor.control;
 
 import java.util.*;
 
+import bbcodeeditor.control.tools.AbstractElement;
+import bbcodeeditor.control.tools.IPositionComparator;
 import bbcodeeditor.control.tools.MyLinkedList;
 
 
@@ -36,6 +38,22 @@ import bbcodeeditor.control.tools.MyLinkedList;
  */
 public class ParagraphContainer {
 	
+	/**
+	 * compares the paragraphs with positions in the environment
+	 */
+	private static final IPositionComparator PARA_POS_CMP = new IPositionComparator() {
+		public int compare(AbstractElement element,int position) {
+			Paragraph p = (Paragraph)element;
+			if(position < p.getElementStartPos())
+				return 1;
+			
+			if(position > p.getElementEndPos() + 1)
+				return -1;
+			
+			return 0;
+		}
+	};
+	
 	/**
 	 * the environment which contains this line
 	 */
@@ -46,6 +64,17 @@ public class ParagraphContainer {
 	 */
 	private final MyLinkedList _paragraphs = new MyLinkedList();
 	
+	/**
+	 * The deferred position-changes: <code>Paragraph => Integer</code>, the amount for the
+	 * paragraph and all following ones. null if the positions are adjusted immediately
+	 */
+	private Map<Paragraph,Integer> _pendingAdjustments = null;
+	
+	/**
+	 * The first paragraph in <code>_pendingAdjustments</code>
+	 */
+	private Paragraph _firstPendingAdjustment = null;
+	
 	/**
 	 * constructor
 	 * 
@@ -63,6 +92,14 @@ public class ParagraphContainer {
 	 * resets this container
 	 */
 	void clear() {
+		// the sub-environments are not part of the document anymore
+		Paragraph p = getFirstParagraph();
+		while(p != null) {
+			if(p.containsEnvironment())
+				((Environment)p.getFirstSection()).detach();
+			p = (Paragraph)p.getNext();
+		}
+		
 		_paragraphs.clear();
 		_paragraphs.add(new Paragraph(_env,0,-1));
 	}
@@ -114,7 +151,7 @@ public class ParagraphContainer {
 		
 		// remove the line and adjust positions
 		_paragraphs.remove(p);
-		_env.getTextField().getPaintPosManager().markAllDirty();
+		_env.getTextField().getPaintPosManager().addParagraph(prev);
 		
 		adjustParagraphs((Paragraph)prev.getNext(),-1);
 	}
@@ -187,6 +224,11 @@ public class ParagraphContainer {
 		// we have added a new-line
 		adjustParagraphs((Paragraph)newPara.getNext(),1);
 		
+		// the following paragraphs will be moved down
+		PaintPosManager paintPos = _env.getTextField().getPaintPosManager();
+		paintPos.addParagraph(p);
+		paintPos.addParagraph(newPara);
+		
 		return (ContentSection)newPara.getFirstSection();
 	}
 	
@@ -320,6 +362,32 @@ public class ParagraphContainer {
 		return (Paragraph)_paragraphs.get(index);
 	}
 	
+	/**
+	 * Determines the index of the given paragraph. Because the start-positions of the
+	 * paragraphs are always up to date and strictly increasing, we can use a binary search.
+	 * 
+	 * @param p the paragraph
+	 * @return the index of the paragraph or -1 if not found
+	 */
+	public int getParagraphIndex(Paragraph p) {
+		int pos = p.getElementStartPos();
+		int low = 0;
+		int high = _paragraphs.size() - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			Paragraph mp = (Paragraph)_paragraphs.get(mid);
+			int mpos = mp.getElementStartPos();
+			if(mpos < pos)
+				low = mid + 1;
+			else if(mpos > pos)
+				high = mid - 1;
+			else
+				return mp == p ? mid : -1;
+		}
+		
+		return -1;
+	}
+	
 	/**
 	 * @return the linked list with all paragraphs
 	 */
@@ -358,6 +426,8 @@ public class ParagraphContainer {
 		// insert environment in empty paragraph
 		p.insertEnvironment(env);
 		p.increaseElementEndPos(env.getElementLength());
+		if(_env.isAttached())
+			env.attach();
 		
 		// adjust following paragraphs
 		adjustParagraphs((Paragraph)p.getNext(),env.getElementLength());
@@ -480,10 +550,22 @@ public class ParagraphContainer {
 	 * @param p the Paragraph to remove
 	 */
 	void remove(Paragraph p) {
+		Paragraph prev = (Paragraph)p.getPrev();
+		Paragraph next = (Paragraph)p.getNext();
 		_paragraphs.remove(p);
-		
-		adjustParagraphs((Paragraph)p.getNext(),-(p.getElementLength() + 1));
-		_env.getTextField().getPaintPosManager().markAllDirty();
+		if(p.containsEnvironment())
+			((Environment)p.getFirstSection()).detach();
+		
+		adjustParagraphs(next,-(p.getElementLength() + 1));
+		
+		// the following paragraphs will be moved up
+		PaintPosManager paintPos = _env.getTextField().getPaintPosManager();
+		if(prev != null)
+			paintPos.addParagraph(prev);
+		else if(next != null)
+			paintPos.addParagraph(next);
+		else
+			paintPos.markAllDirty();
 	}
 	
 	/**
@@ -517,9 +599,25 @@ public class ParagraphContainer {
 	 * 
 	 * @param start the start-paragraph
 	 * @param amount the amount to add
+	 * @see #deferAdjustments()
 	 */
-	private void adjustParagraphs(Paragraph start,int amount) {
+	void adjustParagraphs(Paragraph start,int amount) {
 		if(amount != 0) {
+			if(_pendingAdjustments != null) {
+				if(start != null) {
+					Integer pending = _pendingAdjustments.get(start);
+					int total = pending == null ? amount : pending.intValue() + amount;
+					_pendingAdjustments.put(start,Integer.valueOf(total));
+					
+					// no paragraph has been moved since the deferral started, so we can compare
+					// the positions to find the first one
+					if(_firstPendingAdjustment == null ||
+							start.getElementStartPos() < _firstPendingAdjustment.getElementStartPos())
+						_firstPendingAdjustment = start;
+				}
+				return;
+			}
+			
 			while(start != null) {
 				start.increaseElementPos(amount);
 				start = (Paragraph)start.getNext();
@@ -527,6 +625,38 @@ public class ParagraphContainer {
 		}
 	}
 	
+	/**
+	 * Defers the adjustment of the positions of following paragraphs until
+	 * {@link #applyAdjustments()} is called. That way multiple changes need just one
+	 * walk through the paragraphs instead of one per change.<br>
+	 * Until then the positions of the paragraphs behind a change are wrong. Therefore
+	 * the changes have to be performed from back to front and no paragraphs may be
+	 * added or removed.
+	 */
+	void deferAdjustments() {
+		_pendingAdjustments = new HashMap<Paragraph,Integer>();
+		_firstPendingAdjustment = null;
+	}
+	
+	/**
+	 * Applies the position-changes that have been collected since
+	 * {@link #deferAdjustments()} and adjusts the positions immediately again
+	 */
+	void applyAdjustments() {
+		Map<Paragraph,Integer> pending = _pendingAdjustments;
+		_pendingAdjustments = null;
+		
+		int amount = 0;
+		for(Paragraph p = _firstPendingAdjustment;p != null;p = (Paragraph)p.getNext()) {
+			Integer add = pending.get(p);
+			if(add != null)
+				amount += add.intValue();
+			if(amount != 0)
+				p.increaseElementPos(amount);
+		}
+		_firstPendingAdjustment = null;
+	}
+	
 	/**
 	 * determines the Paragraph which contains the given position
 	 * 
@@ -539,21 +669,7 @@ public class ParagraphContainer {
 			return first;
 		
 		// the lines are sorted, so we can use binarySearch :)
-		int index = _paragraphs.getIndexBinarySearch(new Integer(position),new Comparator() {
-			public int compare(Object arg0,Object arg1) {
-				if(arg0 instanceof Paragraph && arg1 instanceof Integer) {
-					int pos = ((Integer)arg1).intValue();
-					Paragraph p = (Paragraph)arg0;
-					if(pos < p.getElementStartPos())
-						return 1;
-					
-					if(pos > p.getElementEndPos() + 1)
-						return -1;
-				}
-				
-				return 0;
-			}
-		});
+		int index = _paragraphs.getIndexOfPosition(position,PARA_POS_CMP);
 		
 		if(index >= 0)
 			return (Paragraph)_paragraphs.get(index);
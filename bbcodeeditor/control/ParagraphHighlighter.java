@@ -52,9 +52,10 @@ class ParagraphHighlighter {
 	private final Paragraph _para;
 	
 	/**
-	 * All highlight-types of this paragraph
+	 * All highlight-types of this paragraph. A paragraph has rarely more than
+	 * a few types, so we start small
 	 */
-	private final Set _hlTypes = new HashSet();
+	private final Set _hlTypes = new HashSet(4);
 	
 	/**
 	 * Stores the visible area
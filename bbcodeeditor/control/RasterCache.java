@@ -0,0 +1,310 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Caches the rendered images of paragraphs so that scrolling and the blinking cursor
+ * just have to copy the images instead of painting the text again. The cursor will not
+ * be part of the images.
+ * <p>
+ * An image is valid as long as the paragraph has not been modified, has the same size and
+ * the same part of it is selected. Additionally the images will be dropped if the
+ * {@link RepaintManager} or {@link ViewManager} mark the paragraph (or everything) as
+ * dirty. The cache is bounded by the memory of the images; the least recently used ones
+ * will be removed first.
+ * 
+ * @author hrniels
+ */
+public final class RasterCache {
+	
+	/**
+	 * The default maximum memory in bytes
+	 */
+	public static final int DEFAULT_MAX_MEMORY = 16 * 1024 * 1024;
+	
+	/**
+	 * The cached images, in access-order
+	 */
+	private final Map<Paragraph,Entry> _entries = new LinkedHashMap<Paragraph,Entry>(16,0.75f,true);
+	
+	/**
+	 * Is the cache enabled?
+	 */
+	private boolean _enabled = false;
+	
+	/**
+	 * The maximum memory in bytes
+	 */
+	private int _maxMemory = DEFAULT_MAX_MEMORY;
+	
+	/**
+	 * The memory in bytes of all cached images
+	 */
+	private int _memory = 0;
+	
+	/**
+	 * The number of lookups that found a valid image
+	 */
+	private int _hits = 0;
+	
+	/**
+	 * The number of lookups that found no valid image
+	 */
+	private int _misses = 0;
+	
+	/**
+	 * Should the hits and misses be counted?
+	 */
+	private boolean _countLookups = false;
+	
+	/**
+	 * Constructor
+	 */
+	RasterCache() {
+	
+	}
+	
+	/**
+	 * @return wether the cache is enabled
+	 */
+	public boolean isEnabled() {
+		return _enabled;
+	}
+	
+	/**
+	 * Sets wether the cache is enabled. Disabling it removes all images
+	 * 
+	 * @param enabled the new value
+	 */
+	void setEnabled(boolean enabled) {
+		_enabled = enabled;
+		if(!enabled)
+			invalidateAll();
+	}
+	
+	/**
+	 * @return the maximum memory in bytes
+	 */
+	public int getMaxMemory() {
+		return _maxMemory;
+	}
+	
+	/**
+	 * Sets the maximum memory for the images
+	 * 
+	 * @param bytes the number of bytes
+	 */
+	void setMaxMemory(int bytes) {
+		_maxMemory = Math.max(0,bytes);
+		evict(0);
+	}
+	
+	/**
+	 * @return the number of cached images
+	 */
+	public int size() {
+		return _entries.size();
+	}
+	
+	/**
+	 * @return the memory in bytes of all cached images
+	 */
+	public int getMemory() {
+		return _memory;
+	}
+	
+	/**
+	 * @return the number of lookups that found a valid image
+	 */
+	public int getHits() {
+		return _hits;
+	}
+	
+	/**
+	 * @return the number of lookups that found no valid image
+	 */
+	public int getMisses() {
+		return _misses;
+	}
+	
+	/**
+	 * Sets wether the hits and misses should be counted. This is enabled together with
+	 * the metrics of the text-field
+	 * 
+	 * @param enabled the new value
+	 */
+	void setStatisticsEnabled(boolean enabled) {
+		_countLookups = enabled;
+	}
+	
+	/**
+	 * Resets the number of hits and misses
+	 */
+	void resetStatistics() {
+		_hits = 0;
+		_misses = 0;
+	}
+	
+	/**
+	 * Returns the cached image for the given paragraph, if it is still valid
+	 * 
+	 * @param p the paragraph
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param selStart the start of the selection in the paragraph (-1 if there is none)
+	 * @param selEnd the end of the selection in the paragraph (-1 if there is none)
+	 * @return the image or null
+	 */
+	public BufferedImage getImage(Paragraph p,int width,int height,int selStart,int selEnd) {
+		Entry e = _entries.get(p);
+		if(e == null) {
+			if(_countLookups)
+				_misses++;
+			return null;
+		}
+		
+		if(e.modCount != p.getModCount() || e.image.getWidth() != width ||
+				e.image.getHeight() != height || e.selStart != selStart || e.selEnd != selEnd) {
+			remove(p);
+			if(_countLookups)
+				_misses++;
+			return null;
+		}
+		
+		if(_countLookups)
+			_hits++;
+		return e.image;
+	}
+	
+	/**
+	 * Creates a new, transparent image for the given paragraph and stores it in the
+	 * cache. If necessary, the least recently used images will be removed.
+	 * 
+	 * @param p the paragraph
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param selStart the start of the selection in the paragraph (-1 if there is none)
+	 * @param selEnd the end of the selection in the paragraph (-1 if there is none)
+	 * @return the image or null if it would need too much memory
+	 */
+	public BufferedImage createImage(Paragraph p,int width,int height,int selStart,int selEnd) {
+		remove(p);
+		
+		int size = width * height * 4;
+		if(size > _maxMemory)
+			return null;
+		
+		evict(size);
+		
+		Entry e = new Entry();
+		e.image = new BufferedImage(width,height,BufferedImage.TYPE_INT_ARGB);
+		e.modCount = p.getModCount();
+		e.selStart = selStart;
+		e.selEnd = selEnd;
+		_entries.put(p,e);
+		_memory += size;
+		return e.image;
+	}
+	
+	/**
+	 * Removes the image of the given paragraph
+	 * 
+	 * @param p the paragraph
+	 */
+	public void invalidate(Paragraph p) {
+		if(_entries.size() > 0)
+			remove(p);
+	}
+	
+	/**
+	 * Removes all images
+	 */
+	public void invalidateAll() {
+		_entries.clear();
+		_memory = 0;
+	}
+	
+	/**
+	 * Removes the image of the given paragraph
+	 * 
+	 * @param p the paragraph
+	 */
+	private void remove(Paragraph p) {
+		Entry e = _entries.remove(p);
+		if(e != null)
+			_memory -= getSize(e);
+	}
+	
+	/**
+	 * Removes the least recently used images until the given number of bytes is
+	 * available
+	 * 
+	 * @param required the number of required bytes
+	 */
+	private void evict(int required) {
+		Iterator<Entry> it = _entries.values().iterator();
+		while(_memory + required > _maxMemory && it.hasNext()) {
+			Entry e = it.next();
+			_memory -= getSize(e);
+			it.remove();
+		}
+	}
+	
+	/**
+	 * @param e the entry
+	 * @return the number of bytes of the image
+	 */
+	private int getSize(Entry e) {
+		return e.image.getWidth() * e.image.getHeight() * 4;
+	}
+	
+	/**
+	 * A cached image
+	 * 
+	 * @author hrniels
+	 */
+	private static final class Entry {
+		
+		/**
+		 * The image
+		 */
+		BufferedImage image;
+		
+		/**
+		 * The modification-count of the paragraph when the image has been created
+		 */
+		int modCount;
+		
+		/**
+		 * The start of the selection in the paragraph
+		 */
+		int selStart;
+		
+		/**
+		 * The end of the selection in the paragraph
+		 */
+		int selEnd;
+	}
+}
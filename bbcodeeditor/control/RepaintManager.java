@@ -18,17 +18,24 @@
 
 package bbcodeeditor.control;
 
+import java.awt.Rectangle;
 import java.util.*;
 import java.util.Map.Entry;
 
+import javax.swing.SwingUtilities;
+
 
 /**
  * The repaint-manager for the textfield. Stores lines and sections that
  * have to be repainted or wether the complete control needs a repaint
+ * <p>
+ * The rectangles of the dirty lines and sections are merged as long as the merged
+ * rectangle doesn't cover more than the single ones. They are painted once per turn
+ * of the event-queue, so that multiple refreshes don't lead to multiple repaints.
  * 
  * @author hrniels
  */
-public class RepaintManager {
+public class RepaintManager implements Runnable {
 	
 	/**
 	 * The textfield-instance
@@ -39,18 +46,38 @@ public class RepaintManager {
 	 * Contains all lines that are "dirty". Stores as value if the complete
 	 * line has to be repainted
 	 */
-	private final Map _dirtyLines = new HashMap();
+	private final Map<Line,Boolean> _dirtyLines = new IdentityHashMap<Line,Boolean>();
 	
 	/**
-	 * Contains all sections that are "dirty"
+	 * Contains all sections that are "dirty" as keys
 	 */
-	private final List _dirtySections = new ArrayList();
+	private final Map<ContentSection,Boolean> _dirtySections = new IdentityHashMap<ContentSection,Boolean>();
+	
+	/**
+	 * The merged rectangles that have not been painted yet
+	 */
+	private final List<Rectangle> _pendingRects = new ArrayList<Rectangle>();
 	
 	/**
 	 * Indicates if the complete control should be repainted
 	 */
 	private boolean _completlyDirty = false;
 	
+	/**
+	 * Indicates if the painting of the pending rectangles has been scheduled
+	 */
+	private boolean _flushScheduled = false;
+	
+	/**
+	 * The number of requested rectangles since the last reset
+	 */
+	private long _requestedRects = 0;
+	
+	/**
+	 * The number of painted rectangles since the last reset
+	 */
+	private long _paintedRects = 0;
+	
 	/**
 	 * Constructor
 	 * 
@@ -64,21 +91,32 @@ public class RepaintManager {
 	 * Repaints everything that is necessary
 	 */
 	public void repaint() {
-		if(_completlyDirty)
+		if(_completlyDirty) {
+			// the pending rectangles will be painted, too
+			_pendingRects.clear();
 			_textField.repaint(true);
+		}
 		else {
-			// paint lines
+			// collect lines
 			Iterator it = _dirtyLines.entrySet().iterator();
 			while(it.hasNext()) {
 				Entry e = (Entry)it.next();
 				boolean complete = ((Boolean)e.getValue()).booleanValue();
-				_textField.paintLine((Line)e.getKey(),complete);
+				addRect(_textField.getLineRect((Line)e.getKey(),complete));
 			}
 			
-			// paint sections
-			if(_dirtySections.size() > 0) {
-				ContentSection[] s = (ContentSection[])_dirtySections.toArray(new ContentSection[0]);
-				_textField.paintSections(s);
+			// collect sections, if their line is not painted anyway
+			it = _dirtySections.keySet().iterator();
+			while(it.hasNext()) {
+				ContentSection s = (ContentSection)it.next();
+				if(!_dirtyLines.containsKey(s.getSectionLine()))
+					addRect(_textField.getSectionRect(new ContentSection[] {s}));
+			}
+			
+			// paint them in the next turn of the event-queue
+			if(_pendingRects.size() > 0 && !_flushScheduled) {
+				_flushScheduled = true;
+				SwingUtilities.invokeLater(this);
 			}
 		}
 		
@@ -88,10 +126,55 @@ public class RepaintManager {
 		_dirtySections.clear();
 	}
 	
+	/**
+	 * Paints the pending rectangles
+	 */
+	public void run() {
+		_flushScheduled = false;
+		Rectangle[] rects = _pendingRects.toArray(new Rectangle[_pendingRects.size()]);
+		_pendingRects.clear();
+		
+		for(int i = 0;i < rects.length;i++) {
+			_textField.paintRegion(rects[i]);
+			_paintedRects++;
+		}
+	}
+	
+	/**
+	 * @return the number of rectangles that have been requested since the last reset
+	 */
+	public long getRequestedRectCount() {
+		return _requestedRects;
+	}
+	
+	/**
+	 * @return the number of rectangles that have been painted since the last reset
+	 */
+	public long getPaintedRectCount() {
+		return _paintedRects;
+	}
+	
+	/**
+	 * @return the number of requested rectangles that have been merged with others or
+	 * 	that have been dropped because the complete control has been repainted
+	 */
+	public long getRedundantRectCount() {
+		return _requestedRects - _paintedRects - _pendingRects.size();
+	}
+	
+	/**
+	 * Resets the rectangle-counters
+	 */
+	public void resetStatistics() {
+		_requestedRects = _pendingRects.size();
+		_paintedRects = 0;
+	}
+	
 	/**
 	 * Marks everything dirty
 	 */
 	public void markCompletlyDirty() {
+		_textField.getRasterCache().invalidateAll();
 		_completlyDirty = true;
 		_dirtyLines.clear();
 		_dirtySections.clear();
@@ -104,21 +187,16 @@ public class RepaintManager {
 	 * @param complete repaint the complete line?
 	 */
 	public void addDirtyLine(Line l,boolean complete) {
+		_textField.getRasterCache().invalidate(l.getParagraph());
+		
 		if(_completlyDirty)
 			return;
 		
 		if(_dirtyLines.containsKey(l))
 			return;
 		
+		// the sections of the line will be skipped in repaint()
 		_dirtyLines.put(l,Boolean.valueOf(complete));
-		
-		// remove the sections that are in the line
-		Iterator it = _dirtySections.iterator();
-		while(it.hasNext()) {
-			ContentSection s = (ContentSection)it.next();
-			if(s.getSectionLine() == l)
-				_dirtySections.remove(s);
-		}
 	}
 	
 	/**
@@ -145,16 +223,63 @@ public class RepaintManager {
 	 * @param sections the sections
 	 */
 	public void addDirtySections(List sections) {
+		RasterCache cache = _textField.getRasterCache();
+		Iterator it = sections.iterator();
+		while(it.hasNext())
+			cache.invalidate(((ContentSection)it.next()).getSectionParagraph());
+		
 		if(_completlyDirty)
 			return;
 		
-		Iterator it = sections.iterator();
+		it = sections.iterator();
 		while(it.hasNext()) {
 			ContentSection s = (ContentSection)it.next();
-			if(!_dirtySections.contains(s)) {
-				if(!_dirtyLines.containsKey(s.getSectionLine()))
-					_dirtySections.add(s);
-			}
+			if(!_dirtyLines.containsKey(s.getSectionLine()))
+				_dirtySections.put(s,Boolean.TRUE);
 		}
 	}
+	
+	/**
+	 * Adds the given rectangle to the pending ones. It will be merged with all pending
+	 * rectangles for which this is reasonable.
+	 * 
+	 * @param rect the rectangle
+	 */
+	private void addRect(Rectangle rect) {
+		_requestedRects++;
+		if(rect.isEmpty())
+			return;
+		
+		// the merged rectangle may overlap others now, so repeat it until nothing changes
+		boolean merged;
+		do {
+			merged = false;
+			for(int i = _pendingRects.size() - 1;i >= 0;i--) {
+				Rectangle r = _pendingRects.get(i);
+				if(shouldMerge(r,rect)) {
+					rect = r.union(rect);
+					_pendingRects.remove(i);
+					merged = true;
+				}
+			}
+		} while(merged);
+		
+		_pendingRects.add(rect);
+	}
+	
+	/**
+	 * Determines wether the given rectangles should be merged. That is the case if the
+	 * union doesn't cover more than the two rectangles.
+	 * 
+	 * @param a the first rectangle
+	 * @param b the second rectangle
+	 * @return true if they should be merged
+	 */
+	private boolean shouldMerge(Rectangle a,Rectangle b) {
+		Rectangle union = a.union(b);
+		Rectangle intersection = a.intersection(b);
+		long overlap = intersection.isEmpty() ? 0 : (long)intersection.width * intersection.height;
+		long area = (long)a.width * a.height + (long)b.width * b.height - overlap;
+		return (long)union.width * union.height <= area;
+	}
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import java.awt.geom.Rectangle2D;
 import java.security.InvalidParameterException;
 import java.util.Iterator;
 
+import bbcodeeditor.control.tools.GapBuffer;
 import bbcodeeditor.control.view.TextSectionView;
 
 
@@ -41,10 +42,10 @@ import bbcodeeditor.control.view.TextSectionView;
 public final class TextSection extends ContentSection {
 	
 	/**
-	 * the text of this section
-	 * NOTE: use StringBuffer for multi-threading!
+	 * the text of this section. The gap will be at the position of the last modification,
+	 * which is usually the cursor-position
 	 */
-	private final StringBuffer _text = new StringBuffer();
+	private final GapBuffer _text;
 	
 	/**
 	 * the attributes of this section
@@ -86,7 +87,7 @@ public final class TextSection extends ContentSection {
 		if(attributes != null)
 			_attributes = (TextAttributes)attributes.clone();
 
-		_text.append(text);
+		_text = new GapBuffer(text);
 		_view.forceRefresh(TextSectionView.PAINT_TEXT);
 		if(forceFontRefresh) {
 			_view.forceRefresh(TextSectionView.FONT);
@@ -127,9 +128,12 @@ public final class TextSection extends ContentSection {
 		if(length <= 0 || length > _length)
 			throw new IndexOutOfBoundsException("Invalid length " + length);
 		
-		_text.delete(start,start + length);
+		_text.delete(start,Math.min(start + length,_text.length()));
 		_length -= length;
 		_endPos -= length;
+		
+		if(_paragraph != null)
+			_paragraph.markModified();
 
 		_view.forceRefresh(TextSectionView.PAINT_TEXT);
 		_view.forceRefresh(TextSectionView.TEXT_BOUNDS);
@@ -152,13 +156,13 @@ public final class TextSection extends ContentSection {
 		if(text == null || text.length() == 0)
 			throw new InvalidParameterException("Empty text");
 		
-		if(_text.length() == pos)
-			_text.append(text);
-		else
-			_text.insert(pos,text);
+		_text.insert(pos,text);
 
 		_length += text.length();
 		_endPos += text.length();
+		
+		if(_paragraph != null)
+			_paragraph.markModified();
 
 		_view.forceRefresh(TextSectionView.PAINT_TEXT);
 		_view.forceRefresh(TextSectionView.TEXT_BOUNDS);
@@ -184,6 +188,53 @@ public final class TextSection extends ContentSection {
 		return _text.toString();
 	}
 	
+	/**
+	 * the content of this section as CharSequence. This is a view of the text, not a copy.
+	 * Therefore it is only valid until the next modification of the section.
+	 * this does NOT support tabs (which is important for painting-issues)
+	 * 
+	 * @return the text in this section
+	 */
+	public CharSequence getTextSequence() {
+		return _text;
+	}
+	
+	/**
+	 * copies the characters from <code>start</code> to <code>end</code> of this section to
+	 * the given array. In contrast to {@link #getText()} this does not build the whole text.
+	 * this does NOT support tabs (which is important for painting-issues)
+	 * 
+	 * @param start the start-position
+	 * @param end the end-position (exclusive)
+	 * @param dst the destination-array
+	 * @param dstStart the start-position in the destination-array
+	 * @throws IndexOutOfBoundsException if the interval is invalid
+	 */
+	public void getChars(int start,int end,char[] dst,int dstStart)
+			throws IndexOutOfBoundsException {
+		_text.getChars(start,end,dst,dstStart);
+	}
+	
+	/**
+	 * searches for the given character in this section, beginning at <code>from</code>
+	 * 
+	 * @param c the character
+	 * @param from the position to start at
+	 * @return the position of the character or -1 if not found
+	 */
+	public int indexOf(char c,int from) {
+		return _text.indexOf(c,from);
+	}
+	
+	/**
+	 * appends the content of this section to the given StringBuffer
+	 * 
+	 * @param buf the StringBuffer
+	 */
+	void appendText(StringBuffer buf) {
+		_text.appendTo(buf);
+	}
+	
 	/**
 	 * the content of this section. returns an empty string if the start-position is invalid
 	 * this does NOT support tabs (which is important for painting-issues)
@@ -196,7 +247,7 @@ public final class TextSection extends ContentSection {
 		if(start < 0 || start > _length)
 			throw new IndexOutOfBoundsException("Invalid start-position " + start);
 		
-		return _text.substring(start);
+		return _text.substring(start,_length);
 	}
 	
 	/**
@@ -316,6 +367,9 @@ public final class TextSection extends ContentSection {
 		else
 			_attributes = (TextAttributes)attributes.clone();
 		
+		if(_paragraph != null)
+			_paragraph.markModified();
+		
 		if(refreshFont) {
 			_view.forceRefresh(TextSectionView.FONT);
 			_view.forceRefresh(TextSectionView.TEXT_BOUNDS);
@@ -378,6 +432,9 @@ public final class TextSection extends ContentSection {
 		
 		changed = _attributes.set(attribute,value);
 		
+		if(changed && _paragraph != null)
+			_paragraph.markModified();
+		
 		if(changed && refreshFont) {
 			if(_attributes.idNeedsRefresh())
 					_view.forceRefresh(TextSectionView.TEXT_BOUNDS);
@@ -418,6 +475,9 @@ public final class TextSection extends ContentSection {
 			if(_attributes.isEmpty())
 				_attributes = null;
 			
+			if(_paragraph != null)
+				_paragraph.markModified();
+			
 			if(refreshFont) {
 				if(_attributes.idNeedsRefresh())
 					_view.forceRefresh(TextSectionView.TEXT_BOUNDS);
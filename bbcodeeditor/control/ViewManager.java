@@ -69,6 +69,7 @@ public class ViewManager {
 	 * @param para the paragraph
 	 */
 	public void markParagraphDirty(Paragraph para) {
+		para.getTextField().getRasterCache().invalidate(para);
 		_dirtyParaContents.add(para);
 	}
 	
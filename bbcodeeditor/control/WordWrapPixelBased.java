@@ -81,7 +81,7 @@ public class WordWrapPixelBased implements IWordWrap {
 					else {
 						// otherwise we have to walk through the text
 						TextSection tSec = (TextSection)sec;
-						String text = tSec.getText();
+						CharSequence text = tSec.getTextSequence();
 						for(int x = 0,tLen = text.length();x < tLen;x++) {
 							// determine char-width
 							int cWidth = tSec.getTextSectionView().getCharWidth(x);
@@ -98,13 +98,23 @@ public class WordWrapPixelBased implements IWordWrap {
 				sec = (ContentSection)sec.getNext();
 			}
 			
-			// lets see if we can find a space where to wrap
-			String lineText = line.getText();
-			for(int i = hardBreakPos - 1;i >= 0;i--) {
-				if(Character.isWhitespace(lineText.charAt(i))) {
-					softBreakPos = i + 1;
-					break;
+			// lets see if we can find a space where to wrap. images are no whitespace, so we
+			// have to look at the text-sections in front of the break-position
+			int lineStart = line.getLineStartPosition();
+			Section s = line.getLastSection();
+			while(s != null && softBreakPos == 0) {
+				int secStart = s.getElementStartPos() - lineStart;
+				if(s instanceof TextSection && secStart < hardBreakPos) {
+					CharSequence text = ((TextSection)s).getTextSequence();
+					for(int i = Math.min(text.length(),hardBreakPos - secStart) - 1;i >= 0;i--) {
+						if(Character.isWhitespace(text.charAt(i))) {
+							softBreakPos = secStart + i + 1;
+							break;
+						}
+					}
 				}
+				
+				s = (Section)s.getPrev();
 			}
 			
 			// we prefer a soft-break
@@ -152,8 +162,8 @@ public class WordWrapPixelBased implements IWordWrap {
 			isSoftWrap = true;
 			TextSection tLast = (TextSection)last;
 			if(tLast.getElementLength() > 0) {
-				String end = tLast.getText(tLast.getElementLength() - 1);
-				if(!Character.isWhitespace(end.charAt(0)))
+				char end = tLast.getCharAt(tLast.getElementLength() - 1);
+				if(!Character.isWhitespace(end))
 					isSoftWrap = false;
 			}
 			else
@@ -185,7 +195,7 @@ public class WordWrapPixelBased implements IWordWrap {
 					int eleStart = sec.getElementStartPos() - next.getLineStartPosition();
 					
 					// so we walk through the text and see where we can break it
-					String text = tSec.getText();
+					CharSequence text = tSec.getTextSequence();
 					for(int i = 0,len = text.length();i < len && missingWidth > 0;i++) {
 						char c = text.charAt(i);
 						
@@ -18,28 +18,93 @@
 
 package bbcodeeditor.control;
 
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.swing.JViewport;
+import javax.swing.Timer;
+
+import bbcodeeditor.control.view.IParagraphView;
 
 
 /**
  * The manager for word-wraps. Collects paragraphs that need a refresh.
+ * <p>
+ * Additionally it schedules the reflow if the width of the control has changed. In this
+ * case the visible paragraphs will be wrapped immediatly and the others in small slices
+ * when the event-queue is idle. Until all paragraphs are wrapped, the required height
+ * of the control contains an estimation for the remaining paragraphs.
+ * <p>
+ * If the virtual layout is enabled, the same is done for dirty paragraphs that are not
+ * in the layout-area. Each slice starts with the paragraphs that are in the layout-area
+ * at that time, so that the estimations will be replaced as the user scrolls.
  * 
  * @author hrniels
  */
-public class WordwrapManager {
+public class WordwrapManager implements ActionListener {
+	
+	/**
+	 * The maximum time (in ms) we spend in one reflow-slice
+	 */
+	private static final int SLICE_TIME = 15;
+	
+	/**
+	 * The delay (in ms) between two reflow-slices
+	 */
+	private static final int SLICE_DELAY = 10;
 	
 	/**
 	 * The textfield-instance
 	 */
 	private final AbstractTextField _textField;
-
+	
 	/**
 	 * A set with all dirty paragraphs
 	 */
 	private final Set _dirtyParagraphs = new HashSet();
 	
+	/**
+	 * The paragraphs that have not been wrapped yet since the width has changed, mapped
+	 * to their estimated height-difference. The keys are weak so that removed paragraphs
+	 * will disappear automatically
+	 */
+	private final Map<Paragraph,Integer> _reflowParagraphs = new WeakHashMap<Paragraph,Integer>();
+	
+	/**
+	 * The number of paragraphs we've added to <code>_reflowParagraphs</code>. If the map
+	 * is smaller, removed paragraphs have disappeared and the pending height is wrong
+	 */
+	private int _reflowCount = 0;
+	
+	/**
+	 * The paragraph at which the next reflow-slice continues
+	 */
+	private Paragraph _reflowCursor = null;
+	
+	/**
+	 * The paragraph at which the slices started to find no paragraphs to reflow anymore
+	 */
+	private Paragraph _reflowIdle = null;
+	
+	/**
+	 * The timer for the reflow-slices
+	 */
+	private final Timer _reflowTimer;
+	
+	/**
+	 * The estimated height-difference of the paragraphs that have not been wrapped yet
+	 */
+	private int _pendingHeight = 0;
+	
 	/**
 	 * Constructor
 	 * 
@@ -47,6 +112,10 @@ public class WordwrapManager {
 	 */
 	public WordwrapManager(AbstractTextField textField) {
 		_textField = textField;
+		_reflowTimer = new Timer(SLICE_DELAY,this);
+		_reflowTimer.setRepeats(false);
+		// we restart the timer in the action-listener, so it must not drop the event
+		_reflowTimer.setCoalesce(false);
 	}
 	
 	/**
@@ -59,24 +128,508 @@ public class WordwrapManager {
 		_dirtyParagraphs.add(p);
 	}
 	
+	/**
+	 * @return wether there are paragraphs that have not been wrapped yet since the
+	 * 	width has changed
+	 */
+	public boolean isReflowPending() {
+		return _reflowParagraphs.size() > 0;
+	}
+	
+	/**
+	 * @return the estimated height-difference of the paragraphs that have not been
+	 * 	wrapped yet since the width has changed
+	 */
+	public int getPendingHeight() {
+		// some paragraphs have been removed, so we have to sum up the remaining estimations
+		if(_reflowParagraphs.size() != _reflowCount) {
+			_pendingHeight = 0;
+			Iterator<Integer> it = _reflowParagraphs.values().iterator();
+			while(it.hasNext())
+				_pendingHeight += it.next().intValue();
+			_reflowCount = _reflowParagraphs.size();
+		}
+		return _pendingHeight;
+	}
+	
 	/**
 	 * Refreshes all dirty paragraphs
 	 */
 	public void refresh() {
 		boolean changed = false;
+		boolean layoutChanged = false;
+		boolean deferred = false;
+		boolean virtual = _textField.getLayoutArea() != null;
+		int width = _textField.getVisibleRect().width;
+		RepaintManager repaint = _textField.getRepaintManager();
+		PaintPosManager paintPos = _textField.getPaintPosManager();
 		Iterator it = _dirtyParagraphs.iterator();
 		while(it.hasNext()) {
 			Paragraph p = (Paragraph)it.next();
+			
+			// wrap it later if it's not in the layout-area
+			if(virtual && isWidthDependent(p) && !isInLayoutArea(p)) {
+				addReflowParagraph(p,width);
+				deferred = true;
+				continue;
+			}
+			
+			// the paragraph has the current width now
+			if(removeReflowParagraph(p))
+				deferred = true;
+			
+			int lineCount = p.getLineCount();
+			if(p.performWordWrap() > 0) {
+				changed = true;
+				paintPos.addParagraph(p);
+				
+				// if the number of lines is the same, the paragraphs behind it don't move. so
+				// it is enough to repaint the lines of this paragraph
+				if(lineCount != p.getLineCount())
+					layoutChanged = true;
+				else if(!layoutChanged) {
+					Line l = p.getFirstLine();
+					do {
+						repaint.addDirtyLine(l,true);
+						l = (Line)l.getNext();
+					} while(l != null);
+				}
+			}
+		}
+		
+		if(changed)
+			_textField._controller.getCurrentEnvironment().correctCurrentSection();
+		if(layoutChanged)
+			repaint.markCompletlyDirty();
+		
+		_dirtyParagraphs.clear();
+		
+		// the estimated height has changed
+		if(deferred)
+			finishReflow(false);
+	}
+	
+	/**
+	 * Wraps the paragraphs in the layout-area that have not been wrapped yet. Should be
+	 * called after the paint-positions have been refreshed, because they determine which
+	 * paragraphs are in the layout-area.
+	 * 
+	 * @return true if something has changed
+	 * @see AbstractTextField#setVirtualLayoutEnabled(boolean)
+	 */
+	public boolean refreshLayoutArea() {
+		boolean changed = reflowLayoutArea();
+		if(changed)
+			finishReflow(true);
+		return changed;
+	}
+	
+	/**
+	 * Schedules the reflow of all paragraphs whose wrap-position depends on the width
+	 * of the control. The visible paragraphs will be wrapped immediatly, the other ones
+	 * in the following slices.
+	 */
+	public void scheduleReflow() {
+		List<Paragraph> visible = new ArrayList<Paragraph>();
+		collectReflowParagraphs(_textField._controller.getRootEnvironment(),
+				_textField.getVisibleRect(),visible);
+		
+		boolean changed = false;
+		Iterator<Paragraph> it = visible.iterator();
+		while(it.hasNext()) {
+			Paragraph p = it.next();
+			removeReflowParagraph(p);
 			if(p.performWordWrap() > 0)
 				changed = true;
 		}
 		
+		// start again at the top and refresh all paint-positions because of the new width
+		_reflowCursor = null;
+		_reflowIdle = null;
+		_textField.getPaintPosManager().markAllDirty();
+		finishReflow(changed);
+		
+		// we want to move the scrollpane back to the cursor
+		_textField.getCursorManager().forceCursorChange();
+		_textField.finish();
+	}
+	
+	/**
+	 * Cancels the scheduled reflow. Should be called if all paragraphs have been wrapped
+	 */
+	public void cancelReflow() {
+		_reflowTimer.stop();
+		_reflowParagraphs.clear();
+		_reflowCount = 0;
+		_reflowCursor = null;
+		_reflowIdle = null;
+		_pendingHeight = 0;
+	}
+	
+	/**
+	 * Performs the next reflow-slice
+	 * 
+	 * @param e the event
+	 */
+	public void actionPerformed(ActionEvent e) {
+		if(_reflowParagraphs.size() == 0)
+			return;
+		
+		long start = System.currentTimeMillis();
+		Paragraph anchor = getAnchorParagraph();
+		Point anchorPos = anchor == null ? null : anchor.getView().getPaintPos();
+		
+		// the user may have scrolled, so we start with the paragraphs that are in sight
+		boolean changed = reflowLayoutArea();
+		if(reflowSlice(start))
+			changed = true;
+		finishReflow(changed);
+		_textField.finish();
+		
+		// the paragraphs above the anchor may have changed their height. we don't want to
+		// move the visible content, so that the user can continue to read or write
+		if(anchorPos != null)
+			keepInPlace(anchor,anchorPos.y);
+	}
+	
+	/**
+	 * Determines the paragraph that should stay at its place. That is the paragraph with
+	 * the cursor, if it is visible, or the innermost paragraph at the top of the visible
+	 * area.
+	 * 
+	 * @return the paragraph (null if there is no viewport)
+	 */
+	private Paragraph getAnchorParagraph() {
+		if(!(_textField.getParent() instanceof JViewport))
+			return null;
+		
+		Rectangle visibleRect = _textField.getVisibleRect();
+		Paragraph p = _textField._controller.getCurrentParagraph();
+		Point pos = p.getView().getPaintPos();
+		if(pos != null && pos.y >= visibleRect.y && pos.y < visibleRect.y + visibleRect.height)
+			return p;
+		
+		int y = visibleRect.y;
+		p = _textField._controller.getRootEnvironment().getEnvView().getParagraphAtPixelPosition(y);
+		while(p.containsEnvironment())
+			p = ((Environment)p.getFirstSection()).getEnvView().getParagraphAtPixelPosition(y);
+		return p;
+	}
+	
+	/**
+	 * Scrolls the viewport so that the given paragraph stays at the same place
+	 * 
+	 * @param p the paragraph
+	 * @param oldY the previous y-position of the paragraph
+	 */
+	private void keepInPlace(Paragraph p,int oldY) {
+		Point pos = p.getView().getPaintPos();
+		if(pos == null || pos.y == oldY)
+			return;
+		
+		JViewport viewport = (JViewport)_textField.getParent();
+		Point viewPos = viewport.getViewPosition();
+		viewPos.y = Math.max(0,viewPos.y + pos.y - oldY);
+		viewport.setViewPosition(viewPos);
+	}
+	
+	/**
+	 * Refreshes the layout after paragraphs have been wrapped and starts the next slice,
+	 * if necessary. The wrapped paragraphs have to be added to the paint-position-manager
+	 * before.
+	 * 
+	 * @param changed wether something has been wrapped
+	 */
+	private void finishReflow(boolean changed) {
+		if(_reflowParagraphs.size() > 0)
+			_reflowTimer.restart();
+		
+		// we have to refresh the height of the control, even if no paint-positions changed
+		_textField.getPaintPosManager().markHeightDirty();
 		if(changed) {
 			_textField._controller.getCurrentEnvironment().correctCurrentSection();
 			_textField.getRepaintManager().markCompletlyDirty();
-			_textField.getPaintPosManager().markAllDirty();
 		}
+	}
+	
+	/**
+	 * Wraps the paragraphs in the layout-area that have not been wrapped yet
+	 * 
+	 * @return true if something has changed
+	 */
+	private boolean reflowLayoutArea() {
+		Rectangle area = _textField.getLayoutArea();
+		if(area == null || _reflowParagraphs.size() == 0)
+			return false;
 		
-		_dirtyParagraphs.clear();
+		List<Paragraph> paragraphs = new ArrayList<Paragraph>();
+		collectLayoutArea(_textField._controller.getRootEnvironment(),area,paragraphs);
+		
+		boolean changed = false;
+		Iterator<Paragraph> it = paragraphs.iterator();
+		while(it.hasNext()) {
+			Paragraph p = it.next();
+			removeReflowParagraph(p);
+			if(wrap(p))
+				changed = true;
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * Collects the paragraphs in the given area that have not been wrapped yet
+	 * 
+	 * @param env the environment
+	 * @param area the layout-area
+	 * @param paragraphs the list for the paragraphs
+	 */
+	private void collectLayoutArea(Environment env,Rectangle area,List<Paragraph> paragraphs) {
+		// the paragraphs are sorted by their paint-positions, so we can start at the top
+		Paragraph p = env.getEnvView().getParagraphAtPixelPosition(area.y);
+		do {
+			Point pos = p.getView().getPaintPos();
+			if(pos != null && pos.y > area.y + area.height)
+				break;
+			
+			if(p.containsEnvironment())
+				collectLayoutArea((Environment)p.getFirstSection(),area,paragraphs);
+			else if(pos != null && _reflowParagraphs.containsKey(p))
+				paragraphs.add(p);
+			
+			p = (Paragraph)p.getNext();
+		} while(p != null);
+	}
+	
+	/**
+	 * Collects all paragraphs that depend on the width of the control. The visible ones
+	 * will be added to <code>visible</code>, the others to the paragraphs to reflow
+	 * 
+	 * @param env the environment
+	 * @param visibleRect the visible rectangle of the control
+	 * @param visible the list for the visible paragraphs
+	 */
+	private void collectReflowParagraphs(Environment env,Rectangle visibleRect,
+			List<Paragraph> visible) {
+		boolean widthDependent = isWidthDependent(env.getFirstParagraph());
+		Paragraph p = env.getFirstParagraph();
+		do {
+			if(p.containsEnvironment())
+				collectReflowParagraphs((Environment)p.getFirstSection(),visibleRect,visible);
+			else if(widthDependent) {
+				if(isVisible(p,visibleRect))
+					visible.add(p);
+				else
+					addReflowParagraph(p,visibleRect.width);
+			}
+			
+			p = (Paragraph)p.getNext();
+		} while(p != null);
+	}
+	
+	/**
+	 * Wraps the paragraphs to reflow until the time of the slice is over. Continues at
+	 * the paragraph where the last slice has stopped and starts again at the top when
+	 * the end of the document is reached.
+	 * 
+	 * @param start the start-time of the slice
+	 * @return true if something has changed
+	 */
+	private boolean reflowSlice(long start) {
+		Environment root = _textField._controller.getRootEnvironment();
+		Paragraph p = _reflowCursor;
+		if(p == null || !isInDocument(p))
+			p = getFirstContentParagraph(root.getFirstParagraph());
+		
+		boolean changed = false;
+		while(_reflowParagraphs.size() > 0 && System.currentTimeMillis() - start < SLICE_TIME) {
+			if(removeReflowParagraph(p)) {
+				_reflowIdle = null;
+				if(wrap(p))
+					changed = true;
+			}
+			else if(_reflowIdle == null)
+				_reflowIdle = p;
+			// we've walked through the whole document without finding one, so the remaining
+			// ones have been removed
+			else if(_reflowIdle == p) {
+				cancelReflow();
+				return changed;
+			}
+			
+			p = getNextContentParagraph(p);
+			if(p == null)
+				p = getFirstContentParagraph(root.getFirstParagraph());
+		}
+		
+		_reflowCursor = p;
+		return changed;
+	}
+	
+	/**
+	 * Performs the wordwrap for the given paragraph and marks its paint-positions as
+	 * dirty, if necessary
+	 * 
+	 * @param p the paragraph
+	 * @return true if something has changed
+	 */
+	private boolean wrap(Paragraph p) {
+		if(p.performWordWrap() > 0) {
+			_textField.getPaintPosManager().addParagraph(p);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Adds the given paragraph to the paragraphs to reflow and updates the pending height
+	 * 
+	 * @param p the paragraph
+	 * @param width the width of the visible area
+	 */
+	private void addReflowParagraph(Paragraph p,int width) {
+		int lines = p.getLineCount();
+		int newLines = estimateLineCount(p,width);
+		int diff = (newLines - lines) * p.getParagraphView().getHeight() / lines;
+		
+		Integer old = _reflowParagraphs.put(p,Integer.valueOf(diff));
+		if(old != null)
+			_pendingHeight -= old.intValue();
+		else
+			_reflowCount++;
+		_pendingHeight += diff;
+	}
+	
+	/**
+	 * Removes the given paragraph from the paragraphs to reflow and updates the pending
+	 * height
+	 * 
+	 * @param p the paragraph
+	 * @return true if the paragraph has been removed
+	 */
+	private boolean removeReflowParagraph(Paragraph p) {
+		Integer old = _reflowParagraphs.remove(p);
+		if(old == null)
+			return false;
+		
+		_pendingHeight -= old.intValue();
+		_reflowCount--;
+		return true;
+	}
+	
+	/**
+	 * Determines the first paragraph without environment, beginning with <code>p</code>
+	 * 
+	 * @param p the paragraph
+	 * @return the content-paragraph
+	 */
+	private Paragraph getFirstContentParagraph(Paragraph p) {
+		while(p.containsEnvironment())
+			p = ((Environment)p.getFirstSection()).getFirstParagraph();
+		return p;
+	}
+	
+	/**
+	 * Determines the paragraph without environment that follows the given one in the
+	 * document
+	 * 
+	 * @param p the paragraph
+	 * @return the next content-paragraph or null if it is the last one
+	 */
+	private Paragraph getNextContentParagraph(Paragraph p) {
+		Paragraph next = (Paragraph)p.getNext();
+		while(next == null) {
+			Environment env = p.getParentEnvironment();
+			if(env.getParentEnvironment() == null)
+				return null;
+			
+			p = env.getSectionParagraph();
+			next = (Paragraph)p.getNext();
+		}
+		return getFirstContentParagraph(next);
+	}
+	
+	/**
+	 * @param p the paragraph
+	 * @return wether the given paragraph and the paragraphs that contain it are still in
+	 * 	the document
+	 */
+	private boolean isInDocument(Paragraph p) {
+		Environment root = _textField._controller.getRootEnvironment();
+		while(true) {
+			Environment env = p.getParentEnvironment();
+			Paragraph prev = (Paragraph)p.getPrev();
+			if(prev == null ? env.getFirstParagraph() != p : prev.getNext() != p)
+				return false;
+			
+			if(env.getParentEnvironment() == null)
+				return env == root;
+			
+			p = env.getSectionParagraph();
+		}
+	}
+	
+	/**
+	 * Estimates the number of lines the given paragraph will have after the wordwrap
+	 * 
+	 * @param p the paragraph
+	 * @param width the width of the visible area
+	 * @return the estimated number of lines
+	 */
+	private int estimateLineCount(Paragraph p,int width) {
+		int textStart = p.getParentEnvironment().getEnvView().getGlobalTextStart();
+		int available = width - textStart * 2;
+		if(available <= 0)
+			return p.getLineCount();
+		
+		int textWidth = 0;
+		Line l = p.getFirstLine();
+		do {
+			textWidth += l.getLineView().getPixelWidth();
+			l = (Line)l.getNext();
+		} while(l != null);
+		
+		return Math.max(1,(textWidth + available - 1) / available);
+	}
+	
+	/**
+	 * @param p the paragraph
+	 * @return wether the wrap-positions of the given paragraph depend on the width
+	 */
+	private boolean isWidthDependent(Paragraph p) {
+		return p.getParentEnvironment().getWordWrapStrategie() instanceof WordWrapPixelBased;
+	}
+	
+	/**
+	 * Determines wether the given paragraph is in the layout-area. Paragraphs without
+	 * paint-position are not, because we don't know where they are.
+	 * 
+	 * @param p the paragraph
+	 * @return true if so
+	 */
+	private boolean isInLayoutArea(Paragraph p) {
+		Point pos = p.getView().getPaintPos();
+		if(pos == null)
+			return false;
+		
+		return _textField.isInLayoutArea(pos.y,p.getParagraphView().getHeight());
+	}
+	
+	/**
+	 * Determines wether the given paragraph is visible. Paragraphs without paint-position
+	 * are treated as visible.
+	 * 
+	 * @param p the paragraph
+	 * @param visibleRect the visible rectangle of the control
+	 * @return true if the paragraph is visible
+	 */
+	private boolean isVisible(Paragraph p,Rectangle visibleRect) {
+		IParagraphView view = p.getParagraphView();
+		Point pos = p.getView().getPaintPos();
+		if(pos == null)
+			return true;
+		
+		return pos.y + view.getHeight() >= visibleRect.y &&
+			pos.y <= visibleRect.y + visibleRect.height;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control.actions;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import bbcodeeditor.control.Controller;
+
+
+/**
+ * The action for replacing multiple regions at once. Contains the actions that have
+ * been performed for the single replaces, in the order in which they have been
+ * performed.
+ *
+ * @author hrniels
+ */
+public final class ReplaceListAction extends HistoryAction {
+
+	/**
+	 * the actions of the single replaces
+	 */
+	private final List<HistoryAction> _actions;
+
+	/**
+	 * the replacement
+	 */
+	private final String _repl;
+
+	/**
+	 * the number of replaced regions
+	 */
+	private final int _count;
+
+	/**
+	 * constructor
+	 *
+	 * @param con the controller of the text-field
+	 * @param actions a List with the performed HistoryActions
+	 * @param start the start-position of the first region
+	 * @param end the end-position of the last region
+	 * @param repl the replacement
+	 * @param count the number of replaced regions
+	 */
+	public ReplaceListAction(Controller con,List<HistoryAction> actions,int start,int end,String repl,
+			int count) {
+		super(con,start,end);
+
+		_actions = actions;
+		_repl = repl;
+		_count = count;
+	}
+
+	public void performAction() {
+		switch(_actionType) {
+			case UNDO:
+				// undo the actions in the opposite order
+				ListIterator<HistoryAction> lit = _actions.listIterator(_actions.size());
+				while(lit.hasPrevious()) {
+					HistoryAction action = lit.previous();
+					action.performAction();
+				}
+
+				_actionType = REDO;
+				break;
+
+			case REDO:
+				Iterator<HistoryAction> it = _actions.iterator();
+				while(it.hasNext()) {
+					HistoryAction action = it.next();
+					action.performAction();
+				}
+
+				_actionType = UNDO;
+				break;
+		}
+	}
+
+	public String getName() {
+		String text = HistoryAction.getPrintText(_repl);
+		if(_actionType == UNDO)
+			return "Undo replace of " + _count + " regions with '" + text + "'";
+
+		return "Replace " + _count + " regions with '" + text + "'";
+	}
+
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.events;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import bbcodeeditor.control.IPublicController;
+import bbcodeeditor.control.TextAttributes;
+
+
+/**
+ * A key-listener that records the session into a trace so that it can be replayed later,
+ * e.g. to measure the latency of the editing-operations. Every handled key will be
+ * written as one line:
+ * <pre>
+ * # a comment
+ * type &lt;chars&gt;               the characters have been typed
+ * key &lt;name&gt; [ctrl] [shift]  the key KeyEvent.VK_&lt;name&gt; has been pressed
+ * paste &lt;text&gt;               the text has been pasted
+ * toggle &lt;attribute&gt;         the attribute has been toggled
+ * </pre>
+ * The attribute is the name of {@link TextAttributes#getAttributeName(Integer)}. In the
+ * texts '\' , newlines, carriage-returns and tabs are escaped with '\'.
+ * <p>
+ * Note that we record the string-content of the clipboard for pastes, so that a trace
+ * does not depend on the clipboard. Toggled attributes are not known to the listener;
+ * you can record them via {@link #recordToggle(Integer)}.
+ * <p>
+ * Use it via {@link bbcodeeditor.control.AbstractTextField#setBasicKeyListener(TextAreaKeyListener)}.
+ * 
+ * @author hrniels
+ */
+public class RecordingKeyListener extends TextAreaKeyListener {
+	
+	/**
+	 * The names of the key-codes
+	 */
+	private static Map<Integer,String> _keyNames = null;
+	
+	/**
+	 * The writer for the trace
+	 */
+	private final PrintWriter _out;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param textArea the textarea to which you want to connect the listener
+	 * @param out the writer for the trace
+	 */
+	public RecordingKeyListener(IPublicController textArea,Writer out) {
+		super(textArea);
+		_out = new PrintWriter(out);
+		_out.println("# recorded trace");
+		_out.flush();
+	}
+	
+	/**
+	 * Records that the given attribute has been toggled
+	 * 
+	 * @param attribute the attribute
+	 */
+	public void recordToggle(Integer attribute) {
+		write("toggle " + TextAttributes.getAttributeName(attribute));
+	}
+	
+	/**
+	 * Closes the writer
+	 */
+	public void close() {
+		_out.close();
+	}
+	
+	public void keyPressed(KeyEvent e) {
+		if(e.isConsumed())
+			return;
+		
+		super.keyPressed(e);
+		
+		// record just the keys we've handled
+		if(!e.isConsumed())
+			return;
+		
+		if(e.getKeyCode() == KeyEvent.VK_V && e.isControlDown()) {
+			String text = getClipboardText();
+			if(text != null)
+				write("paste " + escape(text));
+			return;
+		}
+		
+		String name = getKeyName(e.getKeyCode());
+		if(name != null) {
+			StringBuffer line = new StringBuffer("key ");
+			line.append(name);
+			if(e.isControlDown())
+				line.append(" ctrl");
+			if(e.isShiftDown())
+				line.append(" shift");
+			write(line.toString());
+		}
+	}
+	
+	public void keyTyped(KeyEvent e) {
+		super.keyTyped(e);
+		
+		char keyChar = e.getKeyChar();
+		if(!e.isControlDown() && isPrintableChar(keyChar))
+			write("type " + escape(String.valueOf(keyChar)));
+	}
+	
+	/**
+	 * Escapes the given text for a trace
+	 * 
+	 * @param text the text
+	 * @return the escaped text
+	 * @see #unescape(String)
+	 */
+	public static String escape(String text) {
+		StringBuffer buf = new StringBuffer(text.length());
+		for(int i = 0;i < text.length();i++) {
+			char c = text.charAt(i);
+			switch(c) {
+				case '\\':
+					buf.append("\\\\");
+					break;
+				case '\n':
+					buf.append("\\n");
+					break;
+				case '\r':
+					buf.append("\\r");
+					break;
+				case '\t':
+					buf.append("\\t");
+					break;
+				default:
+					buf.append(c);
+					break;
+			}
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * Unescapes the given text of a trace
+	 * 
+	 * @param text the escaped text
+	 * @return the text
+	 * @see #escape(String)
+	 */
+	public static String unescape(String text) {
+		StringBuffer buf = new StringBuffer(text.length());
+		for(int i = 0;i < text.length();i++) {
+			char c = text.charAt(i);
+			if(c == '\\' && i < text.length() - 1) {
+				c = text.charAt(++i);
+				if(c == 'n')
+					c = '\n';
+				else if(c == 'r')
+					c = '\r';
+				else if(c == 't')
+					c = '\t';
+			}
+			buf.append(c);
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * Determines the name of the given key-code, i.e. the name of the constant
+	 * KeyEvent.VK_&lt;name&gt;
+	 * 
+	 * @param keyCode the key-code
+	 * @return the name or null if there is no constant for it
+	 */
+	public static synchronized String getKeyName(int keyCode) {
+		if(_keyNames == null) {
+			_keyNames = new HashMap<Integer,String>();
+			Field[] fields = KeyEvent.class.getFields();
+			for(int i = 0;i < fields.length;i++) {
+				Field f = fields[i];
+				if(Modifier.isStatic(f.getModifiers()) && f.getType() == Integer.TYPE &&
+						f.getName().startsWith("VK_")) {
+					try {
+						Integer code = Integer.valueOf(f.getInt(null));
+						// prefer the first name if there are multiple ones
+						if(!_keyNames.containsKey(code))
+							_keyNames.put(code,f.getName().substring(3));
+					}
+					catch(IllegalAccessException ex) {
+						// ignore
+					}
+				}
+			}
+		}
+		
+		return _keyNames.get(Integer.valueOf(keyCode));
+	}
+	
+	/**
+	 * Determines the key-code for the given name
+	 * 
+	 * @param name the name of the constant KeyEvent.VK_&lt;name&gt;
+	 * @return the key-code or -1 if there is no such constant
+	 */
+	public static int getKeyCode(String name) {
+		try {
+			return KeyEvent.class.getField("VK_" + name).getInt(null);
+		}
+		catch(Exception e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Builds the modifiers for a KeyEvent
+	 * 
+	 * @param ctrl is control down?
+	 * @param shift is shift down?
+	 * @return the modifiers
+	 */
+	public static int getModifiers(boolean ctrl,boolean shift) {
+		int modifiers = 0;
+		if(ctrl)
+			modifiers |= InputEvent.CTRL_DOWN_MASK;
+		if(shift)
+			modifiers |= InputEvent.SHIFT_DOWN_MASK;
+		return modifiers;
+	}
+	
+	/**
+	 * Writes the given line to the trace
+	 * 
+	 * @param line the line
+	 */
+	private void write(String line) {
+		_out.println(line);
+		_out.flush();
+	}
+	
+	/**
+	 * @return the string-content of the clipboard or null
+	 */
+	private String getClipboardText() {
+		try {
+			Transferable content = Toolkit.getDefaultToolkit().getSystemClipboard().getContents(this);
+			if(content != null && content.isDataFlavorSupported(DataFlavor.stringFlavor))
+				return (String)content.getTransferData(DataFlavor.stringFlavor);
+		}
+		catch(Exception e) {
+			// ignore
+		}
+		return null;
+	}
+}
\ No newline at end of file
@@ -216,7 +216,7 @@ public class TextAreaKeyListener extends KeyAdapter {
 	 * @param c the character to test
 	 * @return true if the character is printable
 	 */
-	private boolean isPrintableChar(char c) {
+	protected boolean isPrintableChar(char c) {
 		// 0xFFFF = undefined, 0x8 = backspace, 0xA = enter, 0x7F = delete, 0x1B = Esc
 		return c != 0xFFFF && c != 0x8 && c != 0xA && c != 0x7F && c != 0x1B;
 	}
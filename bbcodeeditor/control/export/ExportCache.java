@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import bbcodeeditor.control.Paragraph;
+
+
+/**
+ * Caches the exported content of paragraphs for one export-type so that repeated exports
+ * of the whole document just have to export the paragraphs that have been changed.
+ * <p>
+ * The content of a paragraph depends on the paragraph itself and the state in which the
+ * {@link Exporter} arrives at it (the open attributes, the alignment and so on). Therefore
+ * each entry stores that state as well and is only used if the state is the same. An entry
+ * is invalid as soon as the modification-count of the paragraph changes. The paragraphs
+ * are weak keys so that removed paragraphs disappear automatically.
+ * <p>
+ * Note that the cache is not thread-safe; it is meant to be used in the thread that
+ * modifies the document.
+ * 
+ * @author hrniels
+ */
+public final class ExportCache {
+	
+	/**
+	 * The cached contents of the paragraphs
+	 */
+	private final Map<Paragraph,Entry> _entries = new WeakHashMap<Paragraph,Entry>();
+	
+	/**
+	 * Constructor
+	 */
+	public ExportCache() {
+	
+	}
+	
+	/**
+	 * Removes all entries. Should be called if the configuration of the export-type
+	 * has changed.
+	 */
+	public void clear() {
+		_entries.clear();
+	}
+	
+	/**
+	 * @param p the paragraph
+	 * @return the entry for the given paragraph, if it is still valid
+	 */
+	Entry get(Paragraph p) {
+		Entry e = _entries.get(p);
+		if(e != null && e.modCount != p.getModCount()) {
+			_entries.remove(p);
+			return null;
+		}
+		return e;
+	}
+	
+	/**
+	 * Stores the given entry for the given paragraph
+	 * 
+	 * @param p the paragraph
+	 * @param e the entry
+	 */
+	void put(Paragraph p,Entry e) {
+		e.modCount = p.getModCount();
+		_entries.put(p,e);
+	}
+	
+	/**
+	 * The exported content of a paragraph and the state before and after it
+	 * 
+	 * @author hrniels
+	 */
+	static final class Entry {
+		
+		/**
+		 * The modification-count of the paragraph when the content has been exported
+		 */
+		int modCount;
+		
+		/**
+		 * The properties of the paragraph and its neighbours (see Exporter.FLAG_*)
+		 */
+		int flags;
+		
+		/**
+		 * The enabled attributes (bitmask)
+		 */
+		int enabledAttrs;
+		
+		/**
+		 * The alignment before the paragraph
+		 */
+		int inAlign;
+		
+		/**
+		 * The open attributes before the paragraph, in the order in which they have been opened
+		 */
+		int[] inOrder;
+		
+		/**
+		 * The values of the open attributes before the paragraph
+		 */
+		Object[] inValues;
+		
+		/**
+		 * The exported content
+		 */
+		String content;
+		
+		/**
+		 * The alignment after the paragraph
+		 */
+		int outAlign;
+		
+		/**
+		 * The open attributes after the paragraph, in the order in which they have been opened
+		 */
+		int[] outOrder;
+		
+		/**
+		 * The values of the open attributes after the paragraph
+		 */
+		Object[] outValues;
+	}
+}
\ No newline at end of file
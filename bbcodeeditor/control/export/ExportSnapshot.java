@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bbcodeeditor.control.Environment;
+import bbcodeeditor.control.SecImage;
+import bbcodeeditor.control.SecSmiley;
+
+
+/**
+ * An immutable copy of a part of the document that can be exported later, independent
+ * of the document and in any thread. It will be created by
+ * {@link Exporter#getSnapshot(bbcodeeditor.control.IPublicController, IExportContent[], int, int)}
+ * in the UI-thread and stores the copied text and the attributes of each section. The
+ * parts that depend on other elements of the document (environments, images and smileys)
+ * are exported immediately for all given export-types. Everything else, especially the
+ * text and the attribute-tags, will be exported by {@link #getContent(int)}.
+ *
+ * @author hrniels
+ */
+public final class ExportSnapshot {
+	
+	/**
+	 * Text of a section. value = the text
+	 */
+	static final int OP_TEXT				= 0;
+	
+	/**
+	 * Exported content of all export-types. value = String[]
+	 */
+	static final int OP_STRINGS			= 1;
+	
+	/**
+	 * The attributes of a section. mask and value = the attributes, flag = close all
+	 */
+	static final int OP_ATTRIBUTES	= 2;
+	
+	/**
+	 * Closes attributes. flag = close all, otherwise the ones that have been removed
+	 */
+	static final int OP_CLOSE				= 3;
+	
+	/**
+	 * Opens the attributes of the last section
+	 */
+	static final int OP_OPEN				= 4;
+	
+	/**
+	 * The start of the content of an environment
+	 */
+	static final int OP_BEGIN				= 5;
+	
+	/**
+	 * The end of the content of an environment
+	 */
+	static final int OP_END					= 6;
+	
+	/**
+	 * The export-types
+	 */
+	private final IExportContent[] _types;
+	
+	/**
+	 * The operations to export the content
+	 */
+	private final List<Op> _ops = new ArrayList<Op>();
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param types the export-types
+	 */
+	ExportSnapshot(IExportContent[] types) {
+		_types = types.clone();
+	}
+	
+	/**
+	 * Exports the content for the export-type with given index. This method may be
+	 * called from any thread.
+	 * 
+	 * @param type the index of the export-type
+	 * @return the result-string to export
+	 */
+	public String getContent(int type) {
+		Exporter ex = new Exporter(null,_types[type]);
+		return ex.getContent(this,type);
+	}
+	
+	/**
+	 * @return the number of operations
+	 */
+	int size() {
+		return _ops.size();
+	}
+	
+	/**
+	 * @param index the index
+	 * @return the operation at given index
+	 */
+	Op get(int index) {
+		return _ops.get(index);
+	}
+	
+	/**
+	 * Adds the given operation
+	 * 
+	 * @param type the type of operation
+	 * @param mask the mask
+	 * @param value the value
+	 * @param flag the flag
+	 */
+	void add(int type,int mask,Object value,boolean flag) {
+		_ops.add(new Op(type,mask,value,flag));
+	}
+	
+	/**
+	 * @return the export-type that records the content in this snapshot
+	 */
+	IExportContent getRecorder() {
+		return new Recorder();
+	}
+	
+	/**
+	 * One operation to export the content
+	 * 
+	 * @author hrniels
+	 */
+	static final class Op {
+		
+		/**
+		 * the type of operation (see OP_*)
+		 */
+		final int type;
+		
+		/**
+		 * the attributes (bitmask)
+		 */
+		final int mask;
+		
+		/**
+		 * the value
+		 */
+		final Object value;
+		
+		/**
+		 * the flag
+		 */
+		final boolean flag;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param type the type of operation
+		 * @param mask the mask
+		 * @param value the value
+		 * @param flag the flag
+		 */
+		Op(int type,int mask,Object value,boolean flag) {
+			this.type = type;
+			this.mask = mask;
+			this.value = value;
+			this.flag = flag;
+		}
+	}
+	
+	/**
+	 * The export-type that is used by the {@link Exporter} to record the snapshot. The text
+	 * will be stored as it is; all other parts will be exported for all export-types.
+	 * The attributes are recorded by the exporter itself.
+	 * 
+	 * @author hrniels
+	 */
+	private final class Recorder implements IExportContent {
+		
+		/**
+		 * Stores the content of all export-types, if it is not empty
+		 * 
+		 * @param contents the contents
+		 * @return the empty string
+		 */
+		private String addStrings(String[] contents) {
+			for(int i = 0;i < contents.length;i++) {
+				if(!"".equals(contents[i])) {
+					add(OP_STRINGS,0,contents,false);
+					break;
+				}
+			}
+			return "";
+		}
+		
+		public String getText(String text) {
+			add(OP_TEXT,0,text,false);
+			return "";
+		}
+		
+		public String getImage(SecImage img) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getImage(img);
+			return addStrings(contents);
+		}
+		
+		public String getSmiley(SecSmiley smiley) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getSmiley(smiley);
+			return addStrings(contents);
+		}
+		
+		public String getEnvironmentStart(Environment env) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getEnvironmentStart(env);
+			return addStrings(contents);
+		}
+		
+		public String getEnvironmentEnd(Environment env) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getEnvironmentEnd(env);
+			return addStrings(contents);
+		}
+		
+		public Integer[] getAttributeOrder() {
+			return new Integer[0];
+		}
+		
+		public String getAttributeStartTag(Integer attribute,Object value) {
+			return null;
+		}
+		
+		public String getAttributeEndTag(Integer attribute,Object value) {
+			return null;
+		}
+		
+		public String getParagraphStart(boolean isInList,boolean isEnvStart) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getParagraphStart(isInList,isEnvStart);
+			return addStrings(contents);
+		}
+		
+		public String getLineEnd(boolean isInList,boolean isEnvEnd) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getLineEnd(isInList,isEnvEnd);
+			return addStrings(contents);
+		}
+		
+		public String getLineAlignmentStart(int align) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getLineAlignmentStart(align);
+			return addStrings(contents);
+		}
+		
+		public String getLineAlignmentEnd(int align) {
+			String[] contents = new String[_types.length];
+			for(int i = 0;i < _types.length;i++)
+				contents[i] = _types[i].getLineAlignmentEnd(align);
+			return addStrings(contents);
+		}
+	}
+}
@@ -18,21 +18,91 @@
 
 package bbcodeeditor.control.export;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import bbcodeeditor.control.*;
 import bbcodeeditor.control.export.bbcode.BBCodeTags;
-import bbcodeeditor.control.tools.Pair;
 
 
 /**
  * exports a specified content from the control
+ * <p>
+ * The open attributes are tracked as bitmask (bit <code>1 &lt;&lt; attribute</code>) plus
+ * the values and the order in which they have been opened. So we can determine the
+ * attributes to close and to open with bit-operations and without creating objects
+ * for each section.
+ * <p>
+ * If an {@link ExportCache} is given, the content of paragraphs that have not been changed
+ * since the last export will be taken from the cache, as long as the whole environment is
+ * exported.
+ * <p>
+ * Long documents may be exported in parallel via {@link #getContent(ForkJoinPool)}.
+ * <p>
+ * A part of the document may be recorded via
+ * {@link #getSnapshot(IPublicController, IExportContent[], int, int)} and exported later,
+ * in any thread.
  * 
  * @author hrniels
  */
 public class Exporter {
 	
+	/**
+	 * All attributes, indexed by their value
+	 */
+	private static final Integer[] ATTRIBUTES;
+	
+	static {
+		Object[] all = TextAttributes.getAll().toArray();
+		int count = 0;
+		for(int i = 0;i < all.length;i++)
+			count = Math.max(count,((Integer)all[i]).intValue() + 1);
+		
+		ATTRIBUTES = new Integer[count];
+		for(int i = 0;i < all.length;i++) {
+			Integer attr = (Integer)all[i];
+			ATTRIBUTES[attr.intValue()] = attr;
+		}
+	}
+	
+	/**
+	 * The paragraph is in a list-environment
+	 */
+	static final int FLAG_IN_LIST					= 1;
+	
+	/**
+	 * The paragraph is a list-point
+	 */
+	static final int FLAG_LIST_POINT			= 2;
+	
+	/**
+	 * The paragraph has a previous paragraph
+	 */
+	static final int FLAG_PREV						= 4;
+	
+	/**
+	 * The previous paragraph contains an environment
+	 */
+	static final int FLAG_PREV_ENV				= 8;
+	
+	/**
+	 * The first section of the previous paragraph is a content-section
+	 */
+	static final int FLAG_PREV_CONTENT		= 16;
+	
+	/**
+	 * The shift for the alignment of the paragraph in the flags
+	 */
+	private static final int ALIGN_SHIFT	= 5;
+	
+	/**
+	 * The minimum length of the parts of the document that are exported in parallel
+	 */
+	private static final int MIN_CHUNK_LENGTH = 16 * 1024;
+	
 	/**
 	 * the public-controller-interface
 	 */
@@ -43,6 +113,49 @@ public class Exporter {
 	 */
 	private IExportContent _exportType;
 	
+	/**
+	 * the cache for the paragraphs (may be null)
+	 */
+	private final ExportCache _cache;
+	
+	/**
+	 * the order in which the attributes should be opened
+	 */
+	private final int[] _attrOrder;
+	
+	/**
+	 * the attributes that are enabled (bitmask)
+	 */
+	private int _enabledAttrs;
+	
+	/**
+	 * the attributes of the current section (bitmask)
+	 */
+	private int _newAttrs;
+	
+	/**
+	 * the values of the attributes of the current section
+	 */
+	private final Object[] _newValues = new Object[ATTRIBUTES.length];
+	
+	/**
+	 * the index of the first open attribute that has to be closed. Will be set by
+	 * determineAttrDiff()
+	 */
+	private int _closeFrom;
+	
+	/**
+	 * the snapshot that is recorded instead of building the content (null if we're not
+	 * recording)
+	 */
+	private ExportSnapshot _snapshot = null;
+	
+	/**
+	 * true if the document must not be modified, i.e. disabled attributes will not be
+	 * removed from the sections
+	 */
+	private boolean _readOnly = false;
+	
 	/**
 	 * constructor
 	 * 
@@ -50,8 +163,26 @@ public class Exporter {
 	 * @param exportType the implementation of the IExportContent interface
 	 */
 	public Exporter(IPublicController pubCon,IExportContent exportType) {
+		this(pubCon,exportType,null);
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param pubCon the public-controller-interface
+	 * @param exportType the implementation of the IExportContent interface
+	 * @param cache the cache to use for the content of the paragraphs (may be null). Note
+	 * 	that the cache has to be used for the same export-type only
+	 */
+	public Exporter(IPublicController pubCon,IExportContent exportType,ExportCache cache) {
 		_pubCon = pubCon;
 		_exportType = exportType;
+		_cache = cache;
+		
+		Integer[] order = exportType.getAttributeOrder();
+		_attrOrder = new int[order.length];
+		for(int i = 0;i < order.length;i++)
+			_attrOrder[i] = order[i].intValue();
 	}
 	
 	/**
@@ -60,9 +191,55 @@ public class Exporter {
 	 * @return the result-string to export
 	 */
 	public String getContent() {
+		Metrics metrics = _pubCon.getMetrics();
+		long start = metrics.begin();
 		Environment rootEnv = _pubCon.getRootEnvironment();
 		int len = rootEnv.getElementLength();
-		return getContent(rootEnv,0,len,false);
+		_enabledAttrs = determineEnabledAttrs();
+		String content = getContent(rootEnv,0,len,false);
+		metrics.end(Metrics.EXPORT,start);
+		return content;
+	}
+	
+	/**
+	 * returns the whole content of the control, exported in parallel in the given pool.
+	 * The paragraphs of the root-environment will be split into parts after which no
+	 * attributes are open, so that the content of each part does not depend on the
+	 * previous ones. The result is the same as the one of {@link #getContent()}.
+	 * <p>
+	 * Note that the document must not be modified during the export and that the cache
+	 * will not be used. The export does not modify the document either, so that the
+	 * attributes of disabled tags will not be removed from the sections.
+	 * 
+	 * @param pool the pool to use
+	 * @return the result-string to export
+	 */
+	public String getContent(ForkJoinPool pool) {
+		Metrics metrics = _pubCon.getMetrics();
+		long start = metrics.begin();
+		Environment rootEnv = _pubCon.getRootEnvironment();
+		int len = rootEnv.getElementLength();
+		_enabledAttrs = determineEnabledAttrs();
+		_readOnly = true;
+		
+		String result;
+		int chunkLength = Math.max(MIN_CHUNK_LENGTH,len / (pool.getParallelism() * 4));
+		List<ChunkTask> chunks = getChunks(rootEnv,len,chunkLength);
+		if(chunks.size() <= 1)
+			result = getContent(rootEnv,0,len,false);
+		else {
+			for(int i = 0;i < chunks.size();i++)
+				pool.execute(chunks.get(i));
+			
+			StringBuffer content = new StringBuffer(len);
+			for(int i = 0;i < chunks.size();i++)
+				content.append(chunks.get(i).join());
+			result = content.toString();
+		}
+		
+		_readOnly = false;
+		metrics.end(Metrics.EXPORT,start);
+		return result;
 	}
 	
 	/**
@@ -76,9 +253,86 @@ public class Exporter {
 		Environment rootEnv = _pubCon.getRootEnvironment();
 		Paragraph startPara = rootEnv.getParagraphAtPosition(start);
 		
-		return getContent(rootEnv,startPara,start,end,false);
+		Metrics metrics = _pubCon.getMetrics();
+		long begin = metrics.begin();
+		_enabledAttrs = determineEnabledAttrs();
+		String content = getContent(rootEnv,startPara,start,end,false);
+		metrics.end(Metrics.EXPORT,begin);
+		return content;
 	}
 
+	/**
+	 * records the content of the control in the given interval, so that it can be exported
+	 * later for the given export-types via {@link ExportSnapshot#getContent(int)}. Has to be
+	 * called in the thread that modifies the document.
+	 * 
+	 * @param pubCon the public-controller-interface
+	 * @param exportTypes the implementations of the IExportContent interface
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @return the snapshot
+	 */
+	public static ExportSnapshot getSnapshot(IPublicController pubCon,IExportContent[] exportTypes,
+			int start,int end) {
+		ExportSnapshot snapshot = new ExportSnapshot(exportTypes);
+		Exporter ex = new Exporter(pubCon,snapshot.getRecorder());
+		ex._snapshot = snapshot;
+		ex.getContent(start,end);
+		return snapshot;
+	}
+	
+	/**
+	 * exports the content of the given snapshot. The controller is not used for that, so
+	 * that this may happen in any thread.
+	 * 
+	 * @param snapshot the snapshot
+	 * @param type the index of our export-type in the snapshot
+	 * @return the result-string to export
+	 */
+	String getContent(ExportSnapshot snapshot,int type) {
+		StringBuffer content = new StringBuffer();
+		Stack<OpenAttributes> outer = new Stack<OpenAttributes>();
+		OpenAttributes attributes = null;
+		int add = 0;
+		for(int i = 0,len = snapshot.size();i < len;i++) {
+			ExportSnapshot.Op op = snapshot.get(i);
+			switch(op.type) {
+				case ExportSnapshot.OP_TEXT:
+					content.append(_exportType.getText((String)op.value));
+					break;
+				
+				case ExportSnapshot.OP_STRINGS:
+					content.append(((String[])op.value)[type]);
+					break;
+				
+				case ExportSnapshot.OP_ATTRIBUTES:
+					_newAttrs = op.mask;
+					System.arraycopy((Object[])op.value,0,_newValues,0,_newValues.length);
+					add = determineAttrDiff(attributes,op.flag);
+					break;
+				
+				case ExportSnapshot.OP_CLOSE:
+					closeAttributes(content,attributes,op.flag ? 0 : _closeFrom);
+					break;
+				
+				case ExportSnapshot.OP_OPEN:
+					if(add != 0)
+						openAttributes(content,attributes,add);
+					break;
+				
+				case ExportSnapshot.OP_BEGIN:
+					outer.push(attributes);
+					attributes = new OpenAttributes();
+					break;
+				
+				case ExportSnapshot.OP_END:
+					attributes = outer.pop();
+					break;
+			}
+		}
+		return content.toString();
+	}
+	
 	/**
 	 * calculates the content to export
 	 * 
@@ -101,11 +355,6 @@ public class Exporter {
 	 * @param isInList true if we are in a list-environment
 	 */
 	private String getContent(Environment parent,Paragraph firstPara,int start,int end,boolean isInList) {
-		StringBuffer content = new StringBuffer();
-		Stack attributes = new Stack();
-
-		int align = ParagraphAttributes.ALIGN_LEFT;
-		
 		Paragraph p;
 		if(firstPara == null)
 			p = parent.getFirstParagraph();
@@ -115,6 +364,38 @@ public class Exporter {
 		if(p == null)
 			return "";
 		
+		StringBuffer content = new StringBuffer();
+		OpenAttributes attributes = new OpenAttributes();
+		if(_snapshot != null)
+			_snapshot.add(ExportSnapshot.OP_BEGIN,0,null,false);
+		int align = appendParagraphs(content,attributes,parent,p,null,ParagraphAttributes.ALIGN_LEFT,
+				start,end,isInList);
+		appendEnd(content,attributes,align,isInList);
+		if(_snapshot != null)
+			_snapshot.add(ExportSnapshot.OP_END,0,null,false);
+		return content.toString();
+	}
+	
+	/**
+	 * appends the content of the paragraphs, starting with <code>p</code>, to the given buffer
+	 * 
+	 * @param content the buffer
+	 * @param attributes the open attributes
+	 * @param parent the Environment
+	 * @param p the paragraph to start with
+	 * @param endPara the paragraph to stop at (exclusive; null = all following paragraphs)
+	 * @param align the alignment before the first paragraph
+	 * @param start the start-position in the environment
+	 * @param end the end-position in the environment
+	 * @param isInList true if we are in a list-environment
+	 * @return the alignment after the last paragraph
+	 */
+	private int appendParagraphs(StringBuffer content,OpenAttributes attributes,Environment parent,
+			Paragraph p,Paragraph endPara,int align,int start,int end,boolean isInList) {
+		// the content of the paragraphs depends on the interval, so we can use the cache
+		// only if the whole environment is exported
+		boolean useCache = _cache != null && start <= 0 && end >= parent.getElementLength();
+		
 		do {
 			Section sec = p.getFirstSection();
 			
@@ -125,6 +406,29 @@ public class Exporter {
 			if(end < sec.getStartPosInEnv())
 				break;
 			
+			ExportCache.Entry entry = null;
+			int entryStart = 0;
+			if(useCache && !p.containsEnvironment()) {
+				int flags = getFlags(p,isInList);
+				entry = _cache.get(p);
+				// has the paragraph not been changed and do we arrive in the same state at it?
+				if(entry != null && entry.flags == flags && entry.enabledAttrs == _enabledAttrs &&
+						entry.inAlign == align && attributes.equals(entry.inOrder,entry.inValues)) {
+					content.append(entry.content);
+					align = entry.outAlign;
+					attributes.set(entry.outOrder,entry.outValues);
+					continue;
+				}
+				
+				entry = new ExportCache.Entry();
+				entry.flags = flags;
+				entry.enabledAttrs = _enabledAttrs;
+				entry.inAlign = align;
+				entry.inOrder = attributes.getOrder();
+				entry.inValues = attributes.getValues();
+				entryStart = content.length();
+			}
+			
 			do {
 				// ensure that the given part will be collected
 				if(start > sec.getEndPosInEnv() + 1)
@@ -137,8 +441,7 @@ public class Exporter {
 					Environment eSec = (Environment)sec;
 					
 					// close all open tags
-					content.append(_exportType.getAttributeEndTags((Stack)attributes.clone(),attributes));
-					attributes.clear();
+					closeAttributes(content,attributes,0);
 					
 					// add alignment-end
 					content.append(_exportType.getLineAlignmentEnd(align));
@@ -180,24 +483,17 @@ public class Exporter {
 					boolean alignChange = sec.isFirst() && p.getHorizontalAlignment() != align;
 					boolean isNoTextSec = !(textSec instanceof TextSection);
 					
-					Stack remove = new Stack();
-					TextAttributes add = new TextAttributes();
-					TextAttributes newAttr;
 					// we have to check if it contains styles, because the highlight-environments
 					// contain no "public" styles, but internal ones for the highlighting...
-					if(textSec instanceof TextSection && sec.getParentEnvironment().containsStyles()) {
-						newAttr = ((TextSection)textSec).getAttributes();
-						_pubCon.cleanAttributes(newAttr);
-					}
+					if(textSec instanceof TextSection && sec.getParentEnvironment().containsStyles())
+						setNewAttributes(((TextSection)textSec).getAttributes());
 					else
-						newAttr = new TextAttributes();
+						setNewAttributes(null);
 					
-					determineAttrDiff(attributes,newAttr,add,remove,
-							listNewLine || alignChange || isNoTextSec);
+					int add = determineAttrDiff(attributes,listNewLine || alignChange || isNoTextSec);
 					
-					// close tags that have been removed					
-					if(remove.size() > 0)
-						content.append(_exportType.getAttributeEndTags(remove,attributes));
+					// close tags that have been removed
+					closeAttributes(content,attributes,_closeFrom);
 					
 					// add alignment-end
 					if(alignChange || listNewLine)
@@ -234,8 +530,8 @@ public class Exporter {
 						
 						if(length > 0) {
 							// add new attributes
-							if(!add.isEmpty())
-								content.append(_exportType.getAttributeStartTags(add,attributes));
+							if(add != 0)
+								openAttributes(content,attributes,add);
 							
 							if(textSec instanceof TextSection) {
 								String text = ((TextSection)textSec).getText(textStart,length);
@@ -252,89 +548,439 @@ public class Exporter {
 						}
 					}
 					// we want to allow empty tags after new lines
-					else if(sec.isFirst() && !add.isEmpty())
-						content.append(_exportType.getAttributeStartTags(add,attributes));
+					else if(sec.isFirst() && add != 0)
+						openAttributes(content,attributes,add);
 				}
 				
 				// go to the next section in the current paragraph
 			} while((sec = sec.getNextInParagraph()) != null);
 			
+			if(entry != null) {
+				entry.content = content.substring(entryStart);
+				entry.outAlign = align;
+				entry.outOrder = attributes.getOrder();
+				entry.outValues = attributes.getValues();
+				_cache.put(p,entry);
+			}
+			
 			// go to the next paragraph
-		} while((p = (Paragraph)p.getNext()) != null);
+		} while((p = (Paragraph)p.getNext()) != null && p != endPara);
 		
+		return align;
+	}
+	
+	/**
+	 * appends the end of the content of an environment to the given buffer
+	 * 
+	 * @param content the buffer
+	 * @param attributes the open attributes
+	 * @param align the current alignment
+	 * @param isInList true if we are in a list-environment
+	 */
+	private void appendEnd(StringBuffer content,OpenAttributes attributes,int align,boolean isInList) {
 		// close remaining tags
-		content.append(_exportType.getAttributeEndTags((Stack)attributes.clone(),attributes));
+		closeAttributes(content,attributes,0);
 		
 		// add alignment-end
 		content.append(_exportType.getLineAlignmentEnd(align));
 		
 		// add line-end
 		content.append(_exportType.getLineEnd(isInList,true));
+	}
+	
+	/**
+	 * splits the paragraphs of the given root-environment into parts with at least
+	 * <code>chunkLength</code> characters, if possible
+	 * 
+	 * @param rootEnv the root-environment
+	 * @param len the length of the root-environment
+	 * @param chunkLength the minimum length of a part
+	 * @return a List with the ChunkTasks for the parts
+	 */
+	private List<ChunkTask> getChunks(Environment rootEnv,int len,int chunkLength) {
+		List<ChunkTask> chunks = new ArrayList<ChunkTask>();
+		Paragraph p = rootEnv.getFirstParagraph();
+		if(p == null)
+			return chunks;
 		
-		return content.toString();
+		ChunkTask last = new ChunkTask(rootEnv,len,p,ParagraphAttributes.ALIGN_LEFT);
+		chunks.add(last);
+		int chunkStart = 0;
+		Paragraph next;
+		for(;(next = (Paragraph)p.getNext()) != null;p = next) {
+			if(next.getElementStartPos() - chunkStart < chunkLength)
+				continue;
+			
+			int align = getAlignmentAfter(p);
+			if(align != -1) {
+				last.endPara = next;
+				last = new ChunkTask(rootEnv,len,next,align);
+				chunks.add(last);
+				chunkStart = next.getElementStartPos();
+			}
+		}
+		return chunks;
+	}
+	
+	/**
+	 * determines the alignment after the given paragraph (of the root-environment), if
+	 * no attributes are open after it
+	 * 
+	 * @param p the paragraph
+	 * @return the alignment or -1 if attributes may be open
+	 */
+	private int getAlignmentAfter(Paragraph p) {
+		// environments close all attributes and reset the alignment
+		Section last = p.getLastSection();
+		if(last instanceof Environment)
+			return ParagraphAttributes.ALIGN_LEFT;
+		if(p.containsEnvironment())
+			return -1;
+		
+		// the last section closes all attributes if it has none
+		if(last instanceof TextSection && last.getParentEnvironment().containsStyles()) {
+			TextAttributes attrs = ((TextSection)last).getAttributes();
+			for(int i = 0;i < ATTRIBUTES.length;i++) {
+				if((_enabledAttrs & (1 << i)) != 0 && attrs.isSet(ATTRIBUTES[i]))
+					return -1;
+			}
+		}
+		
+		// the first section sets the alignment of the paragraph
+		return p.getHorizontalAlignment();
+	}
+	
+	/**
+	 * determines the properties of the given paragraph and its previous one that influence
+	 * the exported content of the paragraph
+	 * 
+	 * @param p the paragraph
+	 * @param isInList true if we are in a list-environment
+	 * @return the flags (see FLAG_*)
+	 */
+	private int getFlags(Paragraph p,boolean isInList) {
+		int flags = p.getHorizontalAlignment() << ALIGN_SHIFT;
+		if(isInList)
+			flags |= FLAG_IN_LIST;
+		if(p.isListPoint())
+			flags |= FLAG_LIST_POINT;
+		
+		Paragraph prev = (Paragraph)p.getPrev();
+		if(prev != null) {
+			flags |= FLAG_PREV;
+			if(prev.containsEnvironment())
+				flags |= FLAG_PREV_ENV;
+			if(prev.getFirstSection() instanceof ContentSection)
+				flags |= FLAG_PREV_CONTENT;
+		}
+		return flags;
+	}
+	
+	/**
+	 * determines the attributes for which the corresponding tags are enabled
+	 * 
+	 * @return the attributes as bitmask
+	 */
+	private int determineEnabledAttrs() {
+		TextAttributes all = new TextAttributes();
+		for(int i = 0;i < ATTRIBUTES.length;i++) {
+			if(ATTRIBUTES[i] != null)
+				all.remove(ATTRIBUTES[i]);
+		}
+		_pubCon.cleanAttributes(all);
+		
+		int mask = 0;
+		for(int i = 0;i < ATTRIBUTES.length;i++) {
+			if(ATTRIBUTES[i] != null && all.isSet(ATTRIBUTES[i]))
+				mask |= 1 << i;
+		}
+		return mask;
 	}
 	
 	/**
-	 * determines the difference between the two given attribute-maps <code>newAttr</code>
-	 * and <code>current</code>.
-	 * The method stores the attributes to add in the list <code>add</code> and the attributes
-	 * to remove in <code>rem</code>
+	 * stores the given attributes as the ones of the current section. Attributes whose tags
+	 * are disabled will be ignored and removed from the section, if the document may be
+	 * modified.
 	 * 
-	 * @param current your current attributes
-	 * @param newAttr the new attributes
-	 * @param add will contain the attributes which have been added
-	 * @param rem will contain the attributes which have been removed
+	 * @param attributes the attributes (may be null)
+	 */
+	private void setNewAttributes(TextAttributes attributes) {
+		_newAttrs = 0;
+		boolean disabled = false;
+		for(int i = 0;i < ATTRIBUTES.length;i++) {
+			_newValues[i] = null;
+			if(attributes != null && ATTRIBUTES[i] != null && attributes.isSet(ATTRIBUTES[i])) {
+				if((_enabledAttrs & (1 << i)) != 0) {
+					_newAttrs |= 1 << i;
+					_newValues[i] = attributes.get(ATTRIBUTES[i]);
+				}
+				else
+					disabled = true;
+			}
+		}
+		
+		// the section should not contain them
+		if(disabled && !_readOnly)
+			_pubCon.cleanAttributes(attributes);
+	}
+	
+	/**
+	 * determines the difference between the open attributes and the ones of the current
+	 * section (see {@link #setNewAttributes(TextAttributes)}).
+	 * Stores the index of the first open attribute that has to be closed in
+	 * <code>_closeFrom</code> and returns the attributes that have to be opened afterwards.
+	 * 
+	 * @param current the open attributes
 	 * @param closeAll close all tags and add them again afterwards?
+	 * @return the attributes to open (bitmask)
 	 */
-	private void determineAttrDiff(Stack current,TextAttributes newAttr,TextAttributes add,
-			Stack rem,boolean closeAll) {
+	private int determineAttrDiff(OpenAttributes current,boolean closeAll) {
+		// the difference depends on the export-type, so we record the attributes
+		if(_snapshot != null) {
+			_snapshot.add(ExportSnapshot.OP_ATTRIBUTES,_newAttrs,_newValues.clone(),closeAll);
+			_closeFrom = -1;
+			return -1;
+		}
+		
+		int add = 0;
+		
 		// at first we search for the attributes which have been removed
 		// therefore we walk through our current attributes and look which are not enabled
-		// in the new attributes
-		boolean foundFirst = false;
-		Iterator it = current.iterator();
-		while(it.hasNext()) {
-			Pair e = (Pair)it.next();
-			Integer attrKey = (Integer)e.getKey();
-			Object attrVal = newAttr.get(attrKey);
+		// in the new attributes. everything above the first one has to be closed, too
+		_closeFrom = closeAll ? 0 : current.size;
+		for(int i = 0;i < current.size;i++) {
+			int attr = current.order[i];
+			Object attrVal = _newValues[attr];
 			
 			// alignment-change?
 			if(closeAll) {
-				// so remove all keys
-				rem.add(e);
-				
-				// and add it again if we don't want to disable it
+				// add it again if we don't want to disable it
 				if(attrVal != null && (!(attrVal instanceof Boolean) || ((Boolean)attrVal).booleanValue()))
-					add.set(attrKey,newAttr.get(attrKey));
+					add |= 1 << attr;
 			}
-			// is the attribute not available or disabled
-			else if(attrVal == null) {
-				rem.add(e);
-				foundFirst = true;
-			}
-			// is the value different?
-			else if(!foundFirst && !attrVal.equals(e.getValue())) {
-				rem.add(e);
-				foundFirst = true;
+			// is the attribute not available or disabled or is the value different?
+			else if(_closeFrom == current.size) {
+				if(attrVal == null || !attrVal.equals(current.values[attr]))
+					_closeFrom = i;
 			}
 			// if we have already found an attribute to remove, all following attributes
 			// will also be removed. therefore we want to add attributes again which have to be
 			// closed but should not be disabled
-			else if(foundFirst)
-				add.set(attrKey,newAttr.get(attrKey));
+			else if(attrVal != null)
+				add |= 1 << attr;
 		}
 		
 		// now we search for the attributes which have been added
 		// so we walk through the new ones and look which of them are not enabled
 		// in the current attributes
-		it = newAttr.iterator();
-		while(it.hasNext()) {
-			Integer attr = (Integer)it.next();
-			Pair e = new Pair(attr,newAttr.get(attr));
+		for(int attr = 0;attr < ATTRIBUTES.length;attr++) {
+			if((_newAttrs & (1 << attr)) != 0) {
+				Object val = _newValues[attr];
+				if(val == null || (current.mask & (1 << attr)) == 0 || !val.equals(current.values[attr]))
+					add |= 1 << attr;
+			}
+		}
+		
+		return add;
+	}
+	
+	/**
+	 * closes the open attributes, starting with the last one, until <code>from</code>
+	 * attributes are open
+	 * 
+	 * @param content the buffer to append the end-tags to
+	 * @param current the open attributes
+	 * @param from the index of the first attribute to close
+	 */
+	private void closeAttributes(StringBuffer content,OpenAttributes current,int from) {
+		if(_snapshot != null) {
+			_snapshot.add(ExportSnapshot.OP_CLOSE,0,null,from == 0);
+			return;
+		}
+		
+		while(current.size > from) {
+			int attr = current.order[--current.size];
+			content.append(_exportType.getAttributeEndTag(ATTRIBUTES[attr],current.values[attr]));
+			current.mask &= ~(1 << attr);
+			current.values[attr] = null;
+		}
+	}
+	
+	/**
+	 * opens the given attributes of the current section in the order of the export-type
+	 * 
+	 * @param content the buffer to append the start-tags to
+	 * @param current the open attributes
+	 * @param add the attributes to open (bitmask)
+	 */
+	private void openAttributes(StringBuffer content,OpenAttributes current,int add) {
+		if(_snapshot != null) {
+			_snapshot.add(ExportSnapshot.OP_OPEN,0,null,false);
+			return;
+		}
+		
+		for(int i = 0;i < _attrOrder.length;i++) {
+			int attr = _attrOrder[i];
+			if((add & (1 << attr)) != 0) {
+				Object val = _newValues[attr];
+				String tag = _exportType.getAttributeStartTag(ATTRIBUTES[attr],val);
+				if(tag != null) {
+					content.append(tag);
+					current.order[current.size++] = attr;
+					current.mask |= 1 << attr;
+					current.values[attr] = val;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The attributes that are open in an environment
+	 * 
+	 * @author hrniels
+	 */
+	private static final class OpenAttributes {
+		
+		/**
+		 * the open attributes (bitmask)
+		 */
+		int mask = 0;
+		
+		/**
+		 * the open attributes in the order in which they have been opened
+		 */
+		final int[] order = new int[ATTRIBUTES.length];
+		
+		/**
+		 * the number of open attributes
+		 */
+		int size = 0;
+		
+		/**
+		 * the values of the open attributes, indexed by the attribute
+		 */
+		final Object[] values = new Object[ATTRIBUTES.length];
+		
+		/**
+		 * @return a copy of the open attributes in the order in which they have been opened
+		 */
+		int[] getOrder() {
+			int[] res = new int[size];
+			System.arraycopy(order,0,res,0,size);
+			return res;
+		}
+		
+		/**
+		 * @return the values of the open attributes in the order in which they have been opened
+		 */
+		Object[] getValues() {
+			Object[] res = new Object[size];
+			for(int i = 0;i < size;i++)
+				res[i] = values[order[i]];
+			return res;
+		}
+		
+		/**
+		 * @param o the open attributes in the order in which they have been opened
+		 * @param v the values of them
+		 * @return wether exactly these attributes are open
+		 */
+		boolean equals(int[] o,Object[] v) {
+			if(o.length != size)
+				return false;
+			
+			for(int i = 0;i < size;i++) {
+				if(o[i] != order[i])
+					return false;
+				Object val = values[order[i]];
+				if(val == null ? v[i] != null : !val.equals(v[i]))
+					return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * sets the open attributes. The ones that are currently open will be replaced
+		 * 
+		 * @param o the open attributes in the order in which they have been opened
+		 * @param v the values of them
+		 */
+		void set(int[] o,Object[] v) {
+			for(int i = 0;i < size;i++)
+				values[order[i]] = null;
+			
+			mask = 0;
+			size = o.length;
+			for(int i = 0;i < size;i++) {
+				order[i] = o[i];
+				values[o[i]] = v[i];
+				mask |= 1 << o[i];
+			}
+		}
+	}
+	
+	/**
+	 * The task to export a part of the paragraphs of the root-environment
+	 * 
+	 * @author hrniels
+	 */
+	private final class ChunkTask extends RecursiveTask<String> {
+		
+		private static final long serialVersionUID = 4615032866309174183L;
+		
+		/**
+		 * the root-environment
+		 */
+		private final Environment _rootEnv;
+		
+		/**
+		 * the length of the root-environment
+		 */
+		private final int _len;
+		
+		/**
+		 * the first paragraph
+		 */
+		private final Paragraph _first;
+		
+		/**
+		 * the alignment before the first paragraph
+		 */
+		private final int _align;
+		
+		/**
+		 * the paragraph to stop at (null = the last part)
+		 */
+		Paragraph endPara = null;
+		
+		/**
+		 * constructor
+		 * 
+		 * @param rootEnv the root-environment
+		 * @param len the length of the root-environment
+		 * @param first the first paragraph
+		 * @param align the alignment before the first paragraph
+		 */
+		public ChunkTask(Environment rootEnv,int len,Paragraph first,int align) {
+			_rootEnv = rootEnv;
+			_len = len;
+			_first = first;
+			_align = align;
+		}
+		
+		protected String compute() {
+			// the exporter is not thread-safe, so every task needs its own one
+			Exporter ex = new Exporter(_pubCon,_exportType);
+			ex._enabledAttrs = _enabledAttrs;
+			ex._readOnly = true;
 			
-			// was the attribute not available?
-			if(!current.contains(e))
-				add.set(attr,e.getValue());
+			StringBuffer content = new StringBuffer();
+			OpenAttributes attributes = new OpenAttributes();
+			int align = ex.appendParagraphs(content,attributes,_rootEnv,_first,endPara,_align,
+					0,_len,false);
+			if(endPara == null)
+				ex.appendEnd(content,attributes,align,false);
+			return content.toString();
 		}
 	}
 }
\ No newline at end of file
@@ -18,8 +18,6 @@
 
 package bbcodeeditor.control.export;
 
-import java.util.Stack;
-
 import bbcodeeditor.control.*;
 
 
@@ -72,25 +70,34 @@ public interface IExportContent {
 	String getEnvironmentEnd(Environment env);
 	
 	/**
-	 * creates a tag or multiple tags to start a text with given attributes
-	 * you have to add the attributes in the same order than you add them to
-	 * the stack
+	 * returns the order in which the attributes should be opened, if multiple attributes
+	 * start at the same position. Attributes that are not in the array will never be
+	 * opened.
+	 * 
+	 * @return the attributes (see TextAttributes.*)
+	 */
+	Integer[] getAttributeOrder();
+	
+	/**
+	 * creates the start-tag for the given attribute. The exporter keeps track of the
+	 * opened attributes and will call {@link #getAttributeEndTag(Integer, Object)} with
+	 * the same value to close it again.
 	 * 
-	 * @param attributes a container with all attributes to apply
-	 * @param current the current attributes which have to be modified
-	 * @return the tag(s)
+	 * @param attribute the attribute (see TextAttributes.*)
+	 * @param value the value of the attribute (may be null)
+	 * @return the start-tag or null if the attribute should not be opened
 	 */
-	String getAttributeStartTags(TextAttributes attributes,Stack current);
+	String getAttributeStartTag(Integer attribute,Object value);
 	
 	/**
-	 * creates a tag or multiple tags to finish a text with given attributes
-	 * you have to remove the attributes in the correct order!
+	 * creates the end-tag for the given attribute that has been opened with
+	 * {@link #getAttributeStartTag(Integer, Object)}
 	 * 
-	 * @param attributes a container with all attributes to remove
-	 * @param current the current attributes which you have to modify!
-	 * @return the tag(s)
+	 * @param attribute the attribute (see TextAttributes.*)
+	 * @param value the value of the attribute
+	 * @return the end-tag
 	 */
-	String getAttributeEndTags(Stack attributes,Stack current);
+	String getAttributeEndTag(Integer attribute,Object value);
 	
 	/**
 	 * returns the start of a paragraph
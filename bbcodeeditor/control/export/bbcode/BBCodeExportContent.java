@@ -19,13 +19,10 @@
 package bbcodeeditor.control.export.bbcode;
 
 import java.awt.Color;
-import java.util.Iterator;
-import java.util.Stack;
 
 import bbcodeeditor.control.*;
 import bbcodeeditor.control.export.ColorFunctions;
 import bbcodeeditor.control.export.IExportContent;
-import bbcodeeditor.control.tools.Pair;
 
 /**
  * the implementation of the export-interface for BBCode
@@ -33,6 +30,23 @@ import bbcodeeditor.control.tools.Pair;
  * @author hrniels
  */
 public class BBCodeExportContent extends Object implements IExportContent {
+	
+	/**
+	 * The order in which we open the attributes
+	 */
+	private static final Integer[] ATTRIBUTE_ORDER = new Integer[] {
+		TextAttributes.URL,
+		TextAttributes.EMAIL,
+		TextAttributes.FONT_FAMILY,
+		TextAttributes.FONT_SIZE,
+		TextAttributes.FONT_COLOR,
+		TextAttributes.BOLD,
+		TextAttributes.ITALIC,
+		TextAttributes.UNDERLINE,
+		TextAttributes.STRIKE,
+		TextAttributes.POSITION,
+		TextAttributes.BG_COLOR
+	};
 
 	public String getText(String text) {
 		return text;
@@ -46,113 +60,89 @@ public class BBCodeExportContent extends Object implements IExportContent {
 		return smiley.getPrimaryCode();
 	}
 	
-	public String getAttributeEndTags(Stack attributes,Stack current) {
-		StringBuffer attrStr = new StringBuffer();
-		
-		while(attributes.size() > 0) {
-			Pair e = (Pair)current.pop();
-			Integer attr = (Integer)e.getKey();
-			if(e.equals(attributes.peek()))
-				attributes.pop();
-			
-			if(attr.equals(TextAttributes.BOLD))
-				attrStr.append("[/b]");
-			else if(attr.equals(TextAttributes.ITALIC))
-				attrStr.append("[/i]");
-			else if(attr.equals(TextAttributes.UNDERLINE))
-				attrStr.append("[/u]");
-			else if(attr.equals(TextAttributes.STRIKE))
-				attrStr.append("[/s]");
-			else if(attr.equals(TextAttributes.POSITION)) {
-				if(e.getValue().equals(new Byte(TextAttributes.POS_SUPERSCRIPT)))
-					attrStr.append("[/sup]");
-				else
-					attrStr.append("[/sub]");
-			}
-			else if(attr.equals(TextAttributes.BG_COLOR))
-				attrStr.append("[/bgcolor]");
-			else if(attr.equals(TextAttributes.FONT_COLOR))
-				attrStr.append("[/color]");
-			else if(attr.equals(TextAttributes.FONT_FAMILY))
-				attrStr.append("[/font]");
-			else if(attr.equals(TextAttributes.FONT_SIZE))
-				attrStr.append("[/size]");
-			else if(attr.equals(TextAttributes.URL))
-				attrStr.append("[/url]");
-			else if(attr.equals(TextAttributes.EMAIL))
-				attrStr.append("[/mail]");
+	public Integer[] getAttributeOrder() {
+		return ATTRIBUTE_ORDER;
+	}
+	
+	public String getAttributeEndTag(Integer attr,Object value) {
+		if(attr.equals(TextAttributes.BOLD))
+			return "[/b]";
+		if(attr.equals(TextAttributes.ITALIC))
+			return "[/i]";
+		if(attr.equals(TextAttributes.UNDERLINE))
+			return "[/u]";
+		if(attr.equals(TextAttributes.STRIKE))
+			return "[/s]";
+		if(attr.equals(TextAttributes.POSITION)) {
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUPERSCRIPT)))
+				return "[/sup]";
+			return "[/sub]";
 		}
+		if(attr.equals(TextAttributes.BG_COLOR))
+			return "[/bgcolor]";
+		if(attr.equals(TextAttributes.FONT_COLOR))
+			return "[/color]";
+		if(attr.equals(TextAttributes.FONT_FAMILY))
+			return "[/font]";
+		if(attr.equals(TextAttributes.FONT_SIZE))
+			return "[/size]";
+		if(attr.equals(TextAttributes.URL))
+			return "[/url]";
+		if(attr.equals(TextAttributes.EMAIL))
+			return "[/mail]";
 		
-		return attrStr.toString();
+		return "";
 	}
 
-	public String getAttributeStartTags(TextAttributes attributes,Stack current) {
-		StringBuffer attrStr = new StringBuffer();
-		
-		// append urls and emails first because otherwise we can't apply formating
-		// to the link-title
-		String url = attributes.getURL();
-		if(url != null)
-		{
-			attrStr.append("[url=" + url + "]");
-			current.push(new Pair(TextAttributes.URL,url));
+	public String getAttributeStartTag(Integer attr,Object value) {
+		// note that urls and emails are opened first because otherwise we can't apply
+		// formating to the link-title (see ATTRIBUTE_ORDER)
+		if(attr.equals(TextAttributes.URL)) {
+			if(value != null)
+				return "[url=" + value + "]";
 		}
-		
-		String eurl = attributes.getEmail();
-		if(eurl != null)
-		{
-			attrStr.append("[mail=" + eurl + "]");
-			current.push(new Pair(TextAttributes.EMAIL,eurl));
+		else if(attr.equals(TextAttributes.EMAIL)) {
+			if(value != null)
+				return "[mail=" + value + "]";
 		}
-		
-		Iterator it = attributes.iterator();
-		while(it.hasNext()) {
-			Integer attr = (Integer)it.next();
-			Pair e = new Pair(attr,attributes.get(attr));
-			
-			if(attr.equals(TextAttributes.BOLD) && attributes.isBold())
-				attrStr.append("[b]");
-			else if(attr.equals(TextAttributes.ITALIC) && attributes.isItalic())
-				attrStr.append("[i]");
-			else if(attr.equals(TextAttributes.UNDERLINE) && attributes.isUnderline())
-				attrStr.append("[u]");
-			else if(attr.equals(TextAttributes.STRIKE) && attributes.isStrike())
-				attrStr.append("[s]");
-			else if(attr.equals(TextAttributes.POSITION)) {
-				if(e.getValue().equals(new Byte(TextAttributes.POS_SUPERSCRIPT)))
-					attrStr.append("[sup]");
-				else if(e.getValue().equals(new Byte(TextAttributes.POS_SUBSCRIPT)))
-					attrStr.append("[sub]");
-				else
-					continue;
-			}
-			else if(attr.equals(TextAttributes.BG_COLOR)) {
-				Color color = (Color)e.getValue();
-				String strColor = ColorFunctions.getStringFromColor(color);
-				attrStr.append("[bgcolor=" + strColor + "]");
-			}
-			else if(attr.equals(TextAttributes.FONT_COLOR)) {
-				Color color = (Color)e.getValue();
-				String strColor = ColorFunctions.getStringFromColor(color);
-				attrStr.append("[color=" + strColor + "]");
-			}
-			else if(attr.equals(TextAttributes.FONT_FAMILY)) {
-				String fontFamily = (String)e.getValue();
-				attrStr.append("[font=" + fontFamily + "]");
-			}
-			else if(attr.equals(TextAttributes.FONT_SIZE)) {
-				int size = ((Integer)e.getValue()).intValue();
-				attrStr.append("[size=" + size + "]");
-			}
-			else
-				continue;
-			
-			// we don't want to put URL and EMAIL on the stack twice
-			if(!attr.equals(TextAttributes.URL) && !attr.equals(TextAttributes.EMAIL))
-				current.push(e);
+		else if(attr.equals(TextAttributes.BOLD)) {
+			if(((Boolean)value).booleanValue())
+				return "[b]";
+		}
+		else if(attr.equals(TextAttributes.ITALIC)) {
+			if(((Boolean)value).booleanValue())
+				return "[i]";
+		}
+		else if(attr.equals(TextAttributes.UNDERLINE)) {
+			if(((Boolean)value).booleanValue())
+				return "[u]";
+		}
+		else if(attr.equals(TextAttributes.STRIKE)) {
+			if(((Boolean)value).booleanValue())
+				return "[s]";
+		}
+		else if(attr.equals(TextAttributes.POSITION)) {
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUPERSCRIPT)))
+				return "[sup]";
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUBSCRIPT)))
+				return "[sub]";
+		}
+		else if(attr.equals(TextAttributes.BG_COLOR)) {
+			String strColor = ColorFunctions.getStringFromColor((Color)value);
+			return "[bgcolor=" + strColor + "]";
+		}
+		else if(attr.equals(TextAttributes.FONT_COLOR)) {
+			String strColor = ColorFunctions.getStringFromColor((Color)value);
+			return "[color=" + strColor + "]";
+		}
+		else if(attr.equals(TextAttributes.FONT_FAMILY))
+			return "[font=" + value + "]";
+		else if(attr.equals(TextAttributes.FONT_SIZE)) {
+			int size = ((Integer)value).intValue();
+			return "[size=" + size + "]";
 		}
 		
-		return attrStr.toString();
+		return null;
 	}
 
 	public String getEnvironmentEnd(Environment env) {
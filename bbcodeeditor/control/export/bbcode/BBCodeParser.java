@@ -19,7 +19,12 @@
 package bbcodeeditor.control.export.bbcode;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import bbcodeeditor.control.Controller;
@@ -76,6 +81,11 @@ public final class BBCodeParser {
 	 */
 	public static final int ERR_MISSING_CLOSING_TAG	= 5;
 	
+	/**
+	 * the parse-budget has been exceeded; the rest has been inserted as plain-text
+	 */
+	public static final int ERR_BUDGET_EXCEEDED			= 6;
+	
 	
 	/**
 	 * The controller
@@ -85,18 +95,80 @@ public final class BBCodeParser {
 	/**
 	 * the token-list
 	 */
-	private final List _tokens;
+	private final List<String> _tokens;
 	
 	/**
 	 * the list of tags (will be created)
 	 */
-	private List _result;
+	private List<Object> _result;
 	
 	/**
 	 * the recursive Block-structure (will be created)
 	 */
 	private Block _base;
 	
+	/**
+	 * the limits for parsing
+	 */
+	private final ParseBudget _budget;
+	
+	/**
+	 * a copy of the tokens, because convert() may swap tokens (null if the budget
+	 * is unlimited)
+	 */
+	private List<String> _original = null;
+	
+	/**
+	 * the index of the first token that will be treated as plain-text
+	 */
+	private int _cut;
+	
+	/**
+	 * the index of the token for each entry of the result
+	 */
+	private int[] _resultTokens;
+	
+	/**
+	 * the number of result-entries that have a token-index
+	 */
+	private int _mapped;
+	
+	/**
+	 * the index of the result-entry at which the steps have been exceeded after the
+	 * conversion (-1 = not exceeded)
+	 */
+	private int _exceededAt = -1;
+	
+	/**
+	 * the maximum number of steps in the current run
+	 */
+	private int _maxSteps;
+	
+	/**
+	 * the number of performed steps
+	 */
+	private int _steps = 0;
+	
+	/**
+	 * the number of characters of the tokens in front of {@link #_lengthPos}
+	 */
+	private int _length;
+	
+	/**
+	 * the index of the first token that is not counted in {@link #_length}
+	 */
+	private int _lengthPos;
+	
+	/**
+	 * the number of tags
+	 */
+	private int _tags;
+	
+	/**
+	 * the number of smileys
+	 */
+	private int _smileys;
+	
 	/**
 	 * constructor
 	 * the constructor will perform the action
@@ -104,9 +176,11 @@ public final class BBCodeParser {
 	 * @param con the Controller
 	 * @param tokens the tokens
 	 */
-	public BBCodeParser(Controller con,List tokens) {
+	public BBCodeParser(Controller con,List<String> tokens) {
 		_con = con;
 		_tokens = tokens;
+		_budget = con.getParseBudget();
+		_cut = tokens.size();
 	}
 	
 	/**
@@ -134,6 +208,9 @@ public final class BBCodeParser {
 			
 			case ERR_MISSING_CLOSING_TAG:
 				return "Missing closing tag";
+			
+			case ERR_BUDGET_EXCEEDED:
+				return "The parse-budget has been exceeded";
 				
 			default:
 				return "No error :)";
@@ -146,13 +223,27 @@ public final class BBCodeParser {
 	 * @return the error-code. see ERR_*
 	 */
 	public int parse() {
+		if(!_budget.isUnlimited())
+			_original = new ArrayList<String>(_tokens);
+		_maxSteps = _budget.getMaxSteps();
+		
 		int error = convert();
-		if(error == ERR_NO_ERROR) {
-			removeNotNeededTags();
-			
-			_base = new Block(null,null,null);
-			connectTags(0,_base);
+		if(error == ERR_NO_ERROR && !connect()) {
+			// the steps have been exceeded after the conversion. so we convert it again and
+			// treat everything from the corresponding token on as plain-text. the second run
+			// may perform the same number of steps. if they are not enough either, we insert
+			// the complete input as plain-text
+			_cut = Math.min(_resultTokens[_exceededAt],_cut - 1);
+			_steps = 0;
+			Collections.copy(_tokens,_original);
 			
+			if(_cut > 0)
+				error = convert();
+			if(error == ERR_NO_ERROR && (_cut <= 0 || !connect()))
+				connectAsPlainText();
+		}
+		
+		if(error == ERR_NO_ERROR) {
 			error = _base.checkForSyntaxError(_con);
 			if(error == ERR_NO_ERROR) {
 				_con.setReplaceSmileys(false);
@@ -160,6 +251,10 @@ public final class BBCodeParser {
 				_base.parseContent(_con,new TextAttributes());
 				
 				_con.setReplaceSmileys(true);
+				
+				// the content has been inserted, but not completely as BBCode
+				if(_cut < _tokens.size())
+					error = ERR_BUDGET_EXCEEDED;
 			}
 		}
 		
@@ -167,103 +262,184 @@ public final class BBCodeParser {
 	}
 	
 	/**
-	 * connects and nests the tags to blocks
+	 * removes the not needed tags and builds the blocks
 	 * 
-	 * @param pos the position
-	 * @param parent the parent-block
+	 * @return false if the steps have been exceeded
 	 */
-	private int connectTags(int pos,Block parent) {
+	private boolean connect() {
+		_exceededAt = -1;
+		removeNotNeededTags();
+		if(_exceededAt != -1)
+			return false;
+		
+		_base = new Block(null,null,null);
+		int[] closingTags = findClosingTags();
+		if(_exceededAt != -1)
+			return false;
+		
+		connectTags(closingTags);
+		return _exceededAt == -1;
+	}
+	
+	/**
+	 * builds a block that contains the complete input as plain-text
+	 */
+	private void connectAsPlainText() {
+		_cut = 0;
+		StringBuffer text = new StringBuffer();
+		for(int i = 0,len = _original.size();i < len;i++)
+			text.append(_original.get(i));
+		
+		_base = new Block(null,null,null);
+		_base.addContent(new PlainContent(text.toString()));
+	}
+	
+	/**
+	 * counts a step
+	 * 
+	 * @param count the number of steps
+	 * @return false if the steps have been exceeded
+	 */
+	private boolean step(int count) {
+		if(_maxSteps == ParseBudget.UNLIMITED)
+			return true;
+		
+		_steps = (int)Math.min((long)_steps + count,Integer.MAX_VALUE);
+		return _steps <= _maxSteps;
+	}
+	
+	/**
+	 * determines the closing-tag for each opening-tag, that means the first closing-tag
+	 * with the same name behind it
+	 * 
+	 * @return the index of the closing-tag for each opening-tag, -1 otherwise
+	 */
+	private int[] findClosingTags() {
 		int len = _result.size();
-		int i;
-		for(i = pos;i < len;i++) {
+		int[] closingTags = new int[len];
+		// the opening-tags without closing-tag so far for each tag-name
+		Map<String,List<Integer>> open = new HashMap<String,List<Integer>>();
+		for(int i = 0;i < len;i++) {
+			if(!step(1)) {
+				_exceededAt = i;
+				return null;
+			}
+			
+			closingTags[i] = -1;
+			Object obj = _result.get(i);
+			if(obj instanceof BBCodeTag) {
+				BBCodeTag tag = (BBCodeTag)obj;
+				List<Integer> tags = open.get(tag.getName());
+				if(!tag.isClosingtag()) {
+					if(tags == null) {
+						tags = new ArrayList<Integer>();
+						open.put(tag.getName(),tags);
+					}
+					tags.add(Integer.valueOf(i));
+				}
+				else if(tags != null) {
+					for(int t = 0,count = tags.size();t < count;t++)
+						closingTags[tags.get(t).intValue()] = i;
+					tags.clear();
+				}
+			}
+		}
+		
+		return closingTags;
+	}
+	
+	/**
+	 * connects and nests the tags to blocks. The blocks that are still open are kept in
+	 * a stack, so that deeply nested input does not need a deep recursion
+	 * 
+	 * @param closingTags the index of the closing-tag for each opening-tag
+	 */
+	private void connectTags(int[] closingTags) {
+		Stack<Block> parents = new Stack<Block>();
+		Block parent = _base;
+		for(int i = 0,len = _result.size();i < len;i++) {
+			if(!step(1)) {
+				_exceededAt = i;
+				return;
+			}
+			
 			Object obj = _result.get(i);
 			
 			if(obj instanceof BBCodeTag) {
 				BBCodeTag start = (BBCodeTag)obj;
 				
-				// break here if we're at the end of the parent-block
+				// go back to the parent-block if we're at the end of this one
 				if(parent.getClosingTag() != null && start.isClosingtag() &&
-						start.getName().equals(parent.getClosingTag().getName()))
-					return i;
+						start.getName().equals(parent.getClosingTag().getName())) {
+					parent = parents.pop();
+					continue;
+				}
 				
-				// check if the tag is enabled
+				// check if the tag is enabled and has a closing-tag
 				int id = BBCodeTags.getIdFromTag(start.getName());
-				if(_con.isTagEnabled(id)) {
-					BBCodeTag end = null;
-					if(!start.isClosingtag()) {
-						// search for the closing-tag
-						for(int a = i + 1;a < len;a++) {
-							Object potEnd = _result.get(a);
-							
-							if(potEnd instanceof BBCodeTag) {
-								end = (BBCodeTag)potEnd;
-								// is the tag-name the same and is it a closing-tag?
-								if(end.getName().equals(start.getName()) && end.isClosingtag())
-									break;
-							}
+				if(_con.isTagEnabled(id) && !start.isClosingtag() && closingTags[i] != -1) {
+					BBCodeTag end = (BBCodeTag)_result.get(closingTags[i]);
+					Block block = null;
+					
+					// create the new block
+					switch(id) {
+						case BBCodeTags.BOLD:
+						case BBCodeTags.ITALIC:
+						case BBCodeTags.UNDERLINE:
+						case BBCodeTags.STRIKE:
+							block = new SimpleBlock(parent,(SimpleTag)start,(SimpleTag)end);
+							break;
+						case BBCodeTags.FONT_SIZE:
+							block = new FontSizeBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
+							break;
+						case BBCodeTags.FONT_FAMILY:
+							block = new FontFamilyBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
+							break;
+						case BBCodeTags.SUBSCRIPT:
+							block = new SubScriptBlock(parent,(SimpleTag)start,(SimpleTag)end);
+							break;
+						case BBCodeTags.SUPERSCRIPT:
+							block = new SuperScriptBlock(parent,(SimpleTag)start,(SimpleTag)end);
+							break;
+						case BBCodeTags.BG_COLOR:
+						case BBCodeTags.FONT_COLOR:
+							block = new FontColorBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
+							break;
+						case BBCodeTags.EMAIL:
+						case BBCodeTags.URL:
+							block = new LinkBlock(parent,start,end);
+							break;
+						case BBCodeTags.QUOTE:
+							block = new QuoteBlock(parent,start,end);
+							break;
+						case BBCodeTags.CODE:
+							block = new CodeBlock(parent,start,end);
+							break;
+						case BBCodeTags.LIST:
+							block = new ListBlock(parent,start,end);
+							break;
+						case BBCodeTags.IMAGE:
+							block = new ImageBlock(parent,(SimpleTag)start,(SimpleTag)end);
+							break;
+						case BBCodeTags.RIGHT:
+						case BBCodeTags.CENTER:
+						case BBCodeTags.LEFT:
+							block = new AlignmentBlock(parent,start,end);
+							break;
+					}
+					
+					if(block != null) {
+						// the syntax-check walks up to the root for each block
+						if(!step(parents.size() + 1)) {
+							_exceededAt = i;
+							return;
 						}
 						
-						// break here if the closing-tag has not been found
-						if(end != null) {
-							Block block = null;
-						
-							// create the new block
-							switch(id) {
-								case BBCodeTags.BOLD:
-								case BBCodeTags.ITALIC:
-								case BBCodeTags.UNDERLINE:
-								case BBCodeTags.STRIKE:
-									block = new SimpleBlock(parent,(SimpleTag)start,(SimpleTag)end);
-									break;
-								case BBCodeTags.FONT_SIZE:
-									block = new FontSizeBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
-									break;
-								case BBCodeTags.FONT_FAMILY:
-									block = new FontFamilyBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
-									break;
-								case BBCodeTags.SUBSCRIPT:
-									block = new SubScriptBlock(parent,(SimpleTag)start,(SimpleTag)end);
-									break;
-								case BBCodeTags.SUPERSCRIPT:
-									block = new SuperScriptBlock(parent,(SimpleTag)start,(SimpleTag)end);
-									break;
-								case BBCodeTags.BG_COLOR:
-								case BBCodeTags.FONT_COLOR:
-									block = new FontColorBlock(parent,(ExtendedTag)start,(ExtendedTag)end);
-									break;
-								case BBCodeTags.EMAIL:
-								case BBCodeTags.URL:
-									block = new LinkBlock(parent,start,end);
-									break;
-								case BBCodeTags.QUOTE:
-									block = new QuoteBlock(parent,start,end);
-									break;
-								case BBCodeTags.CODE:
-									block = new CodeBlock(parent,start,end);
-									break;
-								case BBCodeTags.LIST:
-									block = new ListBlock(parent,start,end);
-									break;
-								case BBCodeTags.IMAGE:
-									block = new ImageBlock(parent,(SimpleTag)start,(SimpleTag)end);
-									break;
-								case BBCodeTags.RIGHT:
-								case BBCodeTags.CENTER:
-								case BBCodeTags.LEFT:
-									block = new AlignmentBlock(parent,start,end);
-									break;
-							}
-							
-							if(block != null) {
-								// recursiv call which collects the content of this block
-								i = connectTags(i + 1,block);
-								
-								// add the block to content
-								BlockContent content = new BlockContent(block);
-								parent.addContent(content);
-								continue;
-							}
-						}
+						// add the block to content and collect the following content in it
+						parent.addContent(new BlockContent(block));
+						parents.push(parent);
+						parent = block;
+						continue;
 					}
 				}
 			}
@@ -281,8 +457,6 @@ public final class BBCodeParser {
 				parent.addContent(content);
 			}
 		}
-		
-		return i;
 	}
 	
 	/**
@@ -292,6 +466,8 @@ public final class BBCodeParser {
 	 */
 	private int convert() {
 		Stack openTags = new Stack();
+		// the index of the token of each open tag
+		Stack<Integer> openTokens = new Stack<Integer>();
 		
 		// we have to take care of the current location because we may be at a location
 		// where some block-types are not allowed
@@ -307,10 +483,26 @@ public final class BBCodeParser {
 		
 		List allowedTags = allowedTagsRoot;
 		
-		_result = new ArrayList();
+		_result = new ArrayList<Object>();
+		_resultTokens = new int[_tokens.size() + 16];
+		_mapped = 0;
+		_length = 0;
+		_lengthPos = 0;
+		_tags = 0;
+		_smileys = 0;
+		
 		int len = _tokens.size();
+		int start = 0;
 		for(int i = 0;i < len;i++) {
-			String current = (String)_tokens.get(i);
+			// the new entries belong to the last token we've started with
+			mapResult(start);
+			start = i;
+			
+			String current = _tokens.get(i);
+			if(i >= _cut || !step(1) || isBudgetExceeded(i,current)) {
+				_cut = i;
+				break;
+			}
 			
 			// are we at a bbcode-tag?
 			if(current.equals("[")) {
@@ -366,6 +558,7 @@ public final class BBCodeParser {
 				if(!isClosingTag) {
 					// save the tag-id in the stack to remember the last opening tags
 					openTags.push(new Integer(id));
+					openTokens.push(Integer.valueOf(i));
 					
 					allowedTags = BBCodeTags.getAllowedTypes(lname);
 				}
@@ -392,14 +585,20 @@ public final class BBCodeParser {
 						int swapid = -1;
 						int swapPos = -1;
 						String swapName = null;
+						boolean exceeded = false;
 						for(int a = i + 5;a < len;a += 4) {
-							String tok = (String)_tokens.get(a);
+							if(!step(1)) {
+								exceeded = true;
+								break;
+							}
+							
+							String tok = _tokens.get(a);
 							// if it is an opening-tag we stop here
 							if(!tok.equals("/"))
 								break;
 
 							// have we found the tag?
-							tok = (String)_tokens.get(a + 1);
+							tok = _tokens.get(a + 1);
 							swapName = tok.toLowerCase();
 							swapid = BBCodeTags.getIdFromTag(swapName);
 							if(topId.equals(new Integer(swapid))) {
@@ -408,12 +607,18 @@ public final class BBCodeParser {
 							}
 						}
 
+						// treat everything from this tag on as plain-text if the steps are exceeded
+						if(exceeded) {
+							_cut = i;
+							break;
+						}
+						
 						// no tag found?
 						if(swapPos == -1)
 							return ERR_MISSING_CLOSING_TAG;
 						
 						// swap the tags (just the names)
-						String t = (String)_tokens.get(i + 2);
+						String t = _tokens.get(i + 2);
 						_tokens.set(i + 2,_tokens.get(swapPos));
 						_tokens.set(swapPos,t);
 						
@@ -434,12 +639,17 @@ public final class BBCodeParser {
 					
 					try {
 						// add the closing-tags of the last, not closed opening tags in front of this closing-tag
+						// they belong to the token of the opening-tag
+						mapResult(start);
 						int lastOpenTagID = ((Integer)openTags.pop()).intValue();
+						int lastOpenToken = openTokens.pop().intValue();
 						while(lastOpenTagID != id) {
 							int lastOpenTagType = BBCodeTags.getTagParamType(lastOpenTagID);
 							addByType(i,lastOpenTagType,lastOpenTagID,true,
 									BBCodeTags.getTagFromID(lastOpenTagID),"",null);
+							mapResult(lastOpenToken);
 							lastOpenTagID = ((Integer)openTags.pop()).intValue();
+							lastOpenToken = openTokens.pop().intValue();
 						}
 						
 						// set the allowed tags for the parent-tag
@@ -459,34 +669,102 @@ public final class BBCodeParser {
 				
 				// add this tag
 				i = addByType(i,ptype,id,isClosingTag,name,value,compare);
+				_tags++;
 			}
 			// add the string
 			else
 				_result.add(current);
 		}
+		mapResult(start);
 		
-		// close all remaining open tags
+		// close all remaining open tags. they belong to the token of the opening-tag
 		try {
 			int i = 0;
 			while(openTags.size() > 0) {
 				int id = ((Integer)openTags.pop()).intValue();
 				int type = BBCodeTags.getTagParamType(id);
 				addByType(i,type,id,true,BBCodeTags.getTagFromID(id),"",null);
+				mapResult(openTokens.pop().intValue());
 			}
 		}
 		catch(Exception e) {
 			
 		}
 		
+		// the rest is plain-text
+		if(_cut < len) {
+			StringBuffer rest = new StringBuffer();
+			for(int i = _cut;i < len;i++)
+				rest.append(_original.get(i));
+			_result.add(rest.toString());
+		}
+		mapResult(_cut);
+		
 		return ERR_NO_ERROR;
 	}
 	
+	/**
+	 * checks wether the budget does not allow to convert the given token
+	 * 
+	 * @param i the index of the token
+	 * @param current the token
+	 * @return true if the token and all following ones should be plain-text
+	 */
+	private boolean isBudgetExceeded(int i,String current) {
+		if(i >= _budget.getMaxTokens())
+			return true;
+		
+		if(_budget.getMaxTextLength() != ParseBudget.UNLIMITED) {
+			while(_lengthPos <= i)
+				_length += _tokens.get(_lengthPos++).length();
+			if(_length > _budget.getMaxTextLength())
+				return true;
+		}
+		
+		if(current.equals("["))
+			return _tags >= _budget.getMaxTags();
+		
+		if(_budget.getMaxSmileys() != ParseBudget.UNLIMITED &&
+				_con.getSmileys().containsSmileyWithCode(current)) {
+			if(_smileys >= _budget.getMaxSmileys())
+				return true;
+			_smileys++;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * stores the given token-index for all result-entries that have none yet
+	 * 
+	 * @param token the index of the token
+	 */
+	private void mapResult(int token) {
+		int size = _result.size();
+		if(size > _resultTokens.length) {
+			int[] tokens = new int[Math.max(size,_resultTokens.length * 2)];
+			System.arraycopy(_resultTokens,0,tokens,0,_resultTokens.length);
+			_resultTokens = tokens;
+		}
+		
+		for(int i = _mapped;i < size;i++)
+			_resultTokens[i] = token;
+		_mapped = size;
+	}
+	
 	/**
 	 * removes the tags which are not needed, which means that the
 	 * closing-tags which have no opening-tag will be removed
 	 */
 	private void removeNotNeededTags() {
+		// the names of the opening-tags in front of the current position
+		Set<String> opened = new HashSet<String>();
 		for(int i = 0,len = _result.size();i < len;i++) {
+			if(!step(1)) {
+				_exceededAt = i;
+				return;
+			}
+			
 			Object o = _result.get(i);
 			if(o instanceof BBCodeTag) {
 				BBCodeTag b = (BBCodeTag)o;
@@ -494,31 +772,15 @@ public final class BBCodeParser {
 				// is it a closing tag?
 				if(b.isClosingtag()) {
 					// remove the tag if it has no opening-tag
-					if(!hasStartTag(b.getName(),i))
+					if(!opened.contains(b.getName()))
 						_result.set(i,"[/" + b.getName() + "]");
 				}
+				else
+					opened.add(b.getName());
 			}
 		}
 	}
 	
-	/**
-	 * @param tag the tag-name
-	 * @param pos the position to start
-	 * @return true if the given tag has an opening-tag
-	 */
-	private boolean hasStartTag(String tag,int pos) {
-		for(pos--;pos >= 0;pos--) {
-			Object o = _result.get(pos);
-			if(o instanceof BBCodeTag) {
-				BBCodeTag b = (BBCodeTag)o;
-				if(!b.isClosingtag() && b.getName().equals(tag))
-					return true;
-			}
-		}
-		
-		return false;
-	}
-	
 	/**
 	 * @param isClosingTag will be true if the current tag is a closing tag
 	 * @param type the tag-type
@@ -595,7 +857,7 @@ public final class BBCodeParser {
 		String end;
 		int len = _tokens.size();
 		do {
-			end = (String)_tokens.get(i);
+			end = _tokens.get(i);
 			collect.append(end);
 			i++;
 		} while(i < len && !end.equals("]"));
@@ -614,6 +876,6 @@ public final class BBCodeParser {
 		if(i >= _tokens.size())
 			return null;
 		
-		return (String)_tokens.get(i);
+		return _tokens.get(i);
 	}
 }
\ No newline at end of file
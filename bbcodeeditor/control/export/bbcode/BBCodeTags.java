@@ -387,7 +387,7 @@ public class BBCodeTags {
 	 * @param tag the tag-name
 	 * @return a List with all allowed types: Block.TYPE_*
 	 */
-	public static List getAllowedTypes(String tag) {
+	public static List<Integer> getAllowedTypes(String tag) {
 		if(tag.equals("left") || tag.equals("center") || tag.equals("right") ||
 				tag.equals("color") || tag.equals("font") || tag.equals("size") ||
 				tag.equals("b") || tag.equals("i") || tag.equals("u") || tag.equals("sub") ||
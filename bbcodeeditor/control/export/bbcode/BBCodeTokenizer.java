@@ -46,7 +46,7 @@ public final class BBCodeTokenizer {
 	/**
 	 * the list with tokens (will be created)
 	 */
-	private List _result;
+	private List<String> _result;
 	
 	/**
 	 * a temporary buffer
@@ -69,7 +69,7 @@ public final class BBCodeTokenizer {
 	/**
 	 * @return a List with the tokens
 	 */
-	public List getTokens() {
+	public List<String> getTokens() {
 		return _result;
 	}
 	
@@ -77,7 +77,7 @@ public final class BBCodeTokenizer {
 	 * walks through the input-string and tokenizes it
 	 */
 	private void tokenize() {
-		_result = new ArrayList();
+		_result = new ArrayList<String>();
 		
 		SmileyContainer smileys = _con.getSmileys();
 		int maxSmileyLen = smileys.getMaxSmileyLength();
@@ -0,0 +1,654 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export.bbcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import bbcodeeditor.control.export.bbcode.blocks.Block;
+import bbcodeeditor.control.tools.StringTreeMap;
+
+
+/**
+ * Validates BBCode with the same rules as the text-field, but without a controller or
+ * any Swing-component, e.g. to check posts on the server.
+ * <p>
+ * The {@link BBCodeTokenizer}, the conversion and the syntax-check of the {@link Block}s
+ * are done in one pass: the tokens are created on demand, the tags are paired with a
+ * stack and each block is checked as soon as its opening tag is reached. Instead of
+ * stopping at the first error, the validator treats an unpairable closing-tag as
+ * plain-text and continues, so that all errors will be reported in the order of their
+ * offsets. The input is valid if and only if the {@link BBCodeParser} would report no
+ * error when inserting it into an empty document. Note that tag-names are compared
+ * case-insensitive, whereas the blocks of the parser compare them case-sensitive.
+ * <p>
+ * The validator copies the configuration and is immutable afterwards. Therefore it may be
+ * used by multiple threads concurrently.
+ * 
+ * @author hrniels
+ */
+public final class BBCodeValidator {
+	
+	/**
+	 * The allowed types at the root
+	 */
+	private static final List<Integer> ROOT_TYPES = Arrays.asList(
+		new Integer[] {Block.TYPE_INLINE,Block.TYPE_URL,Block.TYPE_BLOCK}
+	);
+	
+	/**
+	 * The enabled tags, indexed by the tag-ids
+	 */
+	private final boolean[] _enabled = new boolean[BBCodeTags.HIGHLIGHT + 1];
+	
+	/**
+	 * The maximum nesting level of tags
+	 */
+	private final int _maxTagNestingLevel;
+	
+	/**
+	 * The maximum number of errors to report
+	 */
+	private final int _maxErrors;
+	
+	/**
+	 * The smiley-codes: <code>code => code</code>
+	 */
+	private final StringTreeMap _smileys = new StringTreeMap();
+	
+	/**
+	 * The maximum length of a smiley
+	 */
+	private final int _maxSmileyLength;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param config the configuration
+	 */
+	public BBCodeValidator(ValidatorConfig config) {
+		for(int i = 0;i < _enabled.length;i++)
+			_enabled[i] = config.isTagEnabled(i);
+		_maxTagNestingLevel = config.getMaxTagNestingLevel();
+		_maxErrors = config.getMaxErrors();
+		
+		int maxLen = 0;
+		Iterator<String> it = config.getSmileys().iterator();
+		while(it.hasNext()) {
+			String code = it.next();
+			_smileys.add(code,code);
+			maxLen = Math.max(maxLen,code.length());
+		}
+		_maxSmileyLength = maxLen;
+	}
+	
+	/**
+	 * Validates the given BBCode
+	 * 
+	 * @param input the BBCode
+	 * @return a List with the {@link ValidationError}s, ordered by their offsets. Empty if
+	 * 	the input is valid
+	 */
+	public List<ValidationError> validate(String input) {
+		return new Run(input,_maxErrors).validate();
+	}
+	
+	/**
+	 * Checks wether the given BBCode is valid. This stops at the first error.
+	 * 
+	 * @param input the BBCode
+	 * @return true if it is valid
+	 */
+	public boolean isValid(String input) {
+		return new Run(input,1).validate().isEmpty();
+	}
+	
+	/**
+	 * The state of one validation
+	 * 
+	 * @author hrniels
+	 */
+	private final class Run {
+		
+		/**
+		 * The input-string
+		 */
+		private final String _input;
+		
+		/**
+		 * The maximum number of errors to report
+		 */
+		private final int _max;
+		
+		/**
+		 * The found errors
+		 */
+		private final List<ValidationError> _errors = new ArrayList<ValidationError>();
+		
+		/**
+		 * The tokens that are still needed. The first one has the index {@link #_first}
+		 */
+		private final List<String> _tokens = new ArrayList<String>();
+		
+		/**
+		 * The offsets of the tokens in the input
+		 */
+		private int[] _offsets = new int[64];
+		
+		/**
+		 * The index of the first token in {@link #_tokens}
+		 */
+		private int _first = 0;
+		
+		/**
+		 * The position of the tokenizer in the input
+		 */
+		private int _pos = 0;
+		
+		/**
+		 * Has the tokenizer reached the end?
+		 */
+		private boolean _eof = false;
+		
+		/**
+		 * A temporary buffer for the tokenizer
+		 */
+		private final StringBuffer _buffer = new StringBuffer();
+		
+		/**
+		 * The offset of the first character in the buffer
+		 */
+		private int _bufferStart;
+		
+		/**
+		 * The ids of the open tags (enabled or not)
+		 */
+		private int[] _openTags = new int[16];
+		
+		/**
+		 * The number of open tags
+		 */
+		private int _openCount = 0;
+		
+		/**
+		 * The number of open tags per tag-id
+		 */
+		private final int[] _openPerTag = new int[BBCodeTags.HIGHLIGHT + 1];
+		
+		/**
+		 * The open blocks, i.e. the enabled open tags. The first one is the root
+		 */
+		private final List<OpenBlock> _blocks = new ArrayList<OpenBlock>();
+		
+		/**
+		 * The number of open blocks per tag-id
+		 */
+		private final int[] _blocksPerTag = new int[BBCodeTags.HIGHLIGHT + 1];
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param input the input-string
+		 * @param max the maximum number of errors to report
+		 */
+		public Run(String input,int max) {
+			_input = input;
+			_max = max;
+			_blocks.add(new OpenBlock(BBCodeTags.UNDEFINED,ROOT_TYPES));
+		}
+		
+		/**
+		 * Performs the validation. Works like the convert-method of the BBCodeParser
+		 * 
+		 * @return the errors
+		 */
+		public List<ValidationError> validate() {
+			List<Integer> allowedTags = ROOT_TYPES;
+			
+			for(int i = 0;_errors.size() < _max;i++) {
+				// we'll never look back, so we can drop the tokens in front of the current one
+				release(i);
+				
+				String current = getValue(i);
+				if(current == null)
+					break;
+				
+				// plain-text and smileys can't cause errors
+				if(!current.equals("["))
+					continue;
+				
+				String test = getValue(i + 1);
+				boolean isClosingTag = test != null && test.equals("/");
+				String name = getValue(isClosingTag ? i + 2 : i + 1);
+				
+				// is this an empty tag?
+				if(test == null || name == null) {
+					i = skipTag(i);
+					continue;
+				}
+				
+				// is the tag allowed here? if not, it is plain-text
+				String lname = name.toLowerCase();
+				Integer type = BBCodeTags.getBlockType(lname);
+				if(!name.equals("*") && !isClosingTag && !allowedTags.contains(type))
+					continue;
+				
+				int id = BBCodeTags.getIdFromTag(lname);
+				if(id == BBCodeTags.UNDEFINED) {
+					if(name.equals("*"))
+						i = skipTag(i);
+					else
+						i++;
+					continue;
+				}
+				
+				int ptype = BBCodeTags.getTagParamType(id);
+				String compare = getValue(i + 2);
+				String value = null;
+				if(!isClosingTag && ptype != BBCodeTags.TYPE_SIMPLE)
+					value = getValue(i + 3);
+				
+				// extended tags without =xxx and simple tags with parameter are plain-text
+				if(ptype == BBCodeTags.TYPE_EXTENDED && !isClosingTag &&
+					 (compare == null || !compare.equals("=") || value == null)) {
+					i = skipTag(i);
+					continue;
+				}
+				else if(ptype == BBCodeTags.TYPE_SIMPLE && compare != null &&
+								compare.equals("=")) {
+					i = skipTag(i);
+					continue;
+				}
+				
+				int offset = _offsets[i - _first];
+				if(!isClosingTag) {
+					pushTag(id);
+					openBlock(id,offset);
+					allowedTags = BBCodeTags.getAllowedTypes(lname);
+				}
+				else {
+					int topId = _openCount > 0 ? _openTags[_openCount - 1] : BBCodeTags.UNDEFINED;
+					if(topId != id) {
+						if(!allowedTags.contains(type)) {
+							i = skipTag(i);
+							continue;
+						}
+						
+						// try to correct the order like the parser: swap the name with the one of
+						// the directly following closing-tags that we expect
+						int swapPos = -1;
+						int swapId = BBCodeTags.UNDEFINED;
+						for(int a = i + 5;getValue(a) != null;a += 4) {
+							if(!getValue(a).equals("/"))
+								break;
+							
+							swapId = BBCodeTags.getIdFromTag(getValue(a + 1).toLowerCase());
+							if(swapId == topId) {
+								swapPos = a + 1;
+								break;
+							}
+						}
+						
+						// the parser would stop here; we treat the tag as plain-text instead
+						if(swapPos == -1) {
+							addError(BBCodeParser.ERR_MISSING_CLOSING_TAG,offset);
+							i = skipTag(i);
+							continue;
+						}
+						
+						String t = getValue(i + 2);
+						_tokens.set(i + 2 - _first,getValue(swapPos));
+						_tokens.set(swapPos - _first,t);
+						
+						id = swapId;
+						ptype = BBCodeTags.getTagParamType(id);
+						compare = getValue(i + 2);
+					}
+					
+					if(id == BBCodeTags.UNDEFINED || _openPerTag[id] == 0) {
+						addError(BBCodeParser.ERR_MISS_OPEN_TAG,offset);
+						i = skipTag(i);
+						continue;
+					}
+					
+					// close the not closed tags in front of this one
+					while(popTag() != id)
+						;
+					
+					if(_openCount == 0)
+						allowedTags = ROOT_TYPES;
+					else {
+						String topName = BBCodeTags.getTagFromID(_openTags[_openCount - 1]);
+						allowedTags = BBCodeTags.getAllowedTypes(topName);
+					}
+				}
+				
+				i = skipByType(i,ptype,isClosingTag,compare,value);
+			}
+			
+			return _errors;
+		}
+		
+		/**
+		 * Pushes the given tag on the stack of open tags
+		 * 
+		 * @param id the tag-id
+		 */
+		private void pushTag(int id) {
+			if(_openCount == _openTags.length) {
+				int[] tags = new int[_openTags.length * 2];
+				System.arraycopy(_openTags,0,tags,0,_openCount);
+				_openTags = tags;
+			}
+			
+			_openTags[_openCount++] = id;
+			_openPerTag[id]++;
+		}
+		
+		/**
+		 * Removes the top of the stack of open tags and closes the block, if any
+		 * 
+		 * @return the tag-id
+		 */
+		private int popTag() {
+			int id = _openTags[--_openCount];
+			_openPerTag[id]--;
+			if(_enabled[id]) {
+				_blocks.remove(_blocks.size() - 1);
+				_blocksPerTag[id]--;
+			}
+			return id;
+		}
+		
+		/**
+		 * Opens a block for the given tag, if it is enabled, and checks it like
+		 * {@link Block#checkForSyntaxError(bbcodeeditor.control.Controller)}
+		 * 
+		 * @param id the tag-id
+		 * @param offset the offset of the tag
+		 */
+		private void openBlock(int id,int offset) {
+			// disabled tags are plain-text
+			if(!_enabled[id])
+				return;
+			
+			OpenBlock parent = _blocks.get(_blocks.size() - 1);
+			String name = BBCodeTags.getTagFromID(id);
+			if(parent.id != BBCodeTags.UNDEFINED) {
+				// quotes and lists may be nested directly
+				if(parent.id == id && id != BBCodeTags.QUOTE && id != BBCodeTags.LIST)
+					addError(BBCodeParser.ERR_NESTED_TAG,offset);
+				
+				// the parent reports this for its first block
+				if(!parent.hasBlocks && parent.level + 1 > _maxTagNestingLevel)
+					addError(BBCodeParser.ERR_MAX_NEST_LEVEL,offset);
+			}
+			parent.hasBlocks = true;
+			
+			if(!parent.allowedTypes.contains(BBCodeTags.getBlockType(name)))
+				addError(BBCodeParser.ERR_INVALID_CONTENT,offset);
+			
+			// the allowed types of the content are the more restrictive ones
+			List<Integer> own = BBCodeTags.getAllowedTypes(name);
+			List<Integer> allowed = own.size() < parent.allowedTypes.size() ? own : parent.allowedTypes;
+			OpenBlock block = new OpenBlock(id,allowed);
+			block.level = ++_blocksPerTag[id];
+			_blocks.add(block);
+		}
+		
+		/**
+		 * Stores the given error
+		 * 
+		 * @param error the error-type
+		 * @param offset the offset of the tag
+		 */
+		private void addError(int error,int offset) {
+			if(_errors.size() < _max)
+				_errors.add(new ValidationError(error,offset));
+		}
+		
+		/**
+		 * Skips the given tag like the parser skips it when adding it
+		 * 
+		 * @param i the position of the tag
+		 * @param ptype the parameter-type of the tag
+		 * @param isClosingTag is it a closing tag?
+		 * @param compare the compare-part
+		 * @param value the value of the tag
+		 * @return the new position
+		 */
+		private int skipByType(int i,int ptype,boolean isClosingTag,String compare,
+				String value) {
+			if(ptype == BBCodeTags.TYPE_BOTH) {
+				if(compare != null && compare.equals("=") && value != null)
+					ptype = BBCodeTags.TYPE_EXTENDED;
+				else
+					ptype = BBCodeTags.TYPE_SIMPLE;
+			}
+			
+			if(isClosingTag)
+				return i + 3;
+			return i + (ptype == BBCodeTags.TYPE_SIMPLE ? 2 : 4);
+		}
+		
+		/**
+		 * Skips all tokens until "]"
+		 * 
+		 * @param i the position of the start-tag
+		 * @return the new position
+		 */
+		private int skipTag(int i) {
+			String end;
+			do {
+				end = getValue(i);
+				i++;
+			} while(getValue(i) != null && !end.equals("]"));
+			
+			return i - 1;
+		}
+		
+		/**
+		 * Drops the tokens in front of the given position, if there are enough of them
+		 * 
+		 * @param i the position
+		 */
+		private void release(int i) {
+			int count = i - _first;
+			if(count < 1024 || count < _tokens.size() / 2)
+				return;
+			
+			_tokens.subList(0,count).clear();
+			System.arraycopy(_offsets,count,_offsets,0,_tokens.size());
+			_first = i;
+		}
+		
+		/**
+		 * Tokenizes the input until the token at the given position exists
+		 * 
+		 * @param i the position
+		 * @return the token at given position or null if there is none
+		 */
+		private String getValue(int i) {
+			while(i - _first >= _tokens.size()) {
+				if(_eof)
+					return null;
+				tokenize();
+			}
+			
+			return _tokens.get(i - _first);
+		}
+		
+		/**
+		 * Performs one step of the {@link BBCodeTokenizer}: reads one character, smiley
+		 * or tag
+		 */
+		private void tokenize() {
+			int len = _input.length();
+			int i = _pos;
+			if(i >= len) {
+				addBuffer();
+				_eof = true;
+				return;
+			}
+			
+			// search for smileys
+			if(_maxSmileyLength > 0) {
+				String sub = _input.substring(i,Math.min(len,i + _maxSmileyLength));
+				String smiley = (String)_smileys.get(sub);
+				if(smiley != null) {
+					addBuffer();
+					addToken(smiley,i);
+					_pos = i + smiley.length();
+					return;
+				}
+			}
+			
+			char c = _input.charAt(i);
+			if(c == '[') {
+				addBuffer();
+				addToken("[",i);
+				
+				// look if it is a closing tag
+				i++;
+				if(i >= len) {
+					_pos = i;
+					return;
+				}
+				
+				if(_input.charAt(i) == '/') {
+					addToken("/",i);
+					i++;
+				}
+				
+				// walk to the end of the bbcode-tag
+				boolean inTagName = true;
+				for(;i < len;i++) {
+					char t = _input.charAt(i);
+					if(inTagName && t == '=') {
+						addBuffer();
+						addToken("=",i);
+						inTagName = false;
+						continue;
+					}
+					
+					// a "[" starts the next potential tag
+					if(t == '[') {
+						addBuffer();
+						_pos = i;
+						return;
+					}
+					
+					if(t == ']')
+						break;
+					appendToBuffer(t,i);
+				}
+				
+				addBuffer();
+				addToken("]",i);
+				_pos = i + 1;
+			}
+			else {
+				appendToBuffer(c,i);
+				_pos = i + 1;
+			}
+		}
+		
+		/**
+		 * Appends the given character to the buffer
+		 * 
+		 * @param c the character
+		 * @param offset the offset of it
+		 */
+		private void appendToBuffer(char c,int offset) {
+			if(_buffer.length() == 0)
+				_bufferStart = offset;
+			_buffer.append(c);
+		}
+		
+		/**
+		 * Adds the buffer-content as token, if not empty
+		 */
+		private void addBuffer() {
+			if(_buffer.length() > 0) {
+				addToken(_buffer.toString(),_bufferStart);
+				_buffer.setLength(0);
+			}
+		}
+		
+		/**
+		 * Adds the given token
+		 * 
+		 * @param token the token
+		 * @param offset the offset of it
+		 */
+		private void addToken(String token,int offset) {
+			int count = _tokens.size();
+			if(count == _offsets.length) {
+				int[] offsets = new int[_offsets.length * 2];
+				System.arraycopy(_offsets,0,offsets,0,count);
+				_offsets = offsets;
+			}
+			
+			_offsets[count] = offset;
+			_tokens.add(token);
+		}
+	}
+	
+	/**
+	 * An open block
+	 * 
+	 * @author hrniels
+	 */
+	private static final class OpenBlock {
+		
+		/**
+		 * The tag-id (UNDEFINED for the root)
+		 */
+		final int id;
+		
+		/**
+		 * The allowed types of the content
+		 */
+		final List<Integer> allowedTypes;
+		
+		/**
+		 * The number of open blocks with this tag, including this one
+		 */
+		int level;
+		
+		/**
+		 * Has this block already a block as content?
+		 */
+		boolean hasBlocks = false;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param id the tag-id
+		 * @param allowedTypes the allowed types of the content
+		 */
+		public OpenBlock(int id,List<Integer> allowedTypes) {
+			this.id = id;
+			this.allowedTypes = allowedTypes;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export.bbcode;
+
+
+/**
+ * The limits for parsing BBCode. If one of them is exceeded, the {@link BBCodeParser}
+ * treats the rest of the input, beginning at the token where that happened, as plain-text
+ * and reports {@link BBCodeParser#ERR_BUDGET_EXCEEDED}. The parsed part and the plain-text
+ * will be inserted nevertheless. Since all limits are counted in tokens, tags, characters
+ * and steps, the result depends just on the input and the budget.
+ * <p>
+ * A step is one iteration of the parser, e.g. the search for a closing-tag. So the steps
+ * bound the time that is needed for adversarial input with many unclosed or interleaved
+ * tags. By default everything is unlimited.
+ * 
+ * @author hrniels
+ */
+public final class ParseBudget {
+	
+	/**
+	 * The value for no limit
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+	
+	/**
+	 * The maximum number of tokens
+	 */
+	private int _maxTokens = UNLIMITED;
+	
+	/**
+	 * The maximum number of tags
+	 */
+	private int _maxTags = UNLIMITED;
+	
+	/**
+	 * The maximum number of characters
+	 */
+	private int _maxTextLength = UNLIMITED;
+	
+	/**
+	 * The maximum number of smileys
+	 */
+	private int _maxSmileys = UNLIMITED;
+	
+	/**
+	 * The maximum number of steps
+	 */
+	private int _maxSteps = UNLIMITED;
+	
+	/**
+	 * Constructor. Everything is unlimited
+	 */
+	public ParseBudget() {
+	
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param maxTokens the maximum number of tokens
+	 * @param maxTags the maximum number of tags
+	 * @param maxTextLength the maximum number of characters
+	 * @param maxSmileys the maximum number of smileys
+	 * @param maxSteps the maximum number of steps
+	 */
+	public ParseBudget(int maxTokens,int maxTags,int maxTextLength,int maxSmileys,
+			int maxSteps) {
+		setMaxTokens(maxTokens);
+		setMaxTags(maxTags);
+		setMaxTextLength(maxTextLength);
+		setMaxSmileys(maxSmileys);
+		setMaxSteps(maxSteps);
+	}
+	
+	/**
+	 * @return true if nothing is limited
+	 */
+	public boolean isUnlimited() {
+		return _maxTokens == UNLIMITED && _maxTags == UNLIMITED &&
+			_maxTextLength == UNLIMITED && _maxSmileys == UNLIMITED && _maxSteps == UNLIMITED;
+	}
+	
+	/**
+	 * @return the maximum number of tokens
+	 */
+	public int getMaxTokens() {
+		return _maxTokens;
+	}
+	
+	/**
+	 * Sets the maximum number of tokens. Note that a tag consists of multiple tokens
+	 * 
+	 * @param max the new value
+	 */
+	public void setMaxTokens(int max) {
+		_maxTokens = Math.max(0,max);
+	}
+	
+	/**
+	 * @return the maximum number of tags
+	 */
+	public int getMaxTags() {
+		return _maxTags;
+	}
+	
+	/**
+	 * Sets the maximum number of opening- and closing-tags
+	 * 
+	 * @param max the new value
+	 */
+	public void setMaxTags(int max) {
+		_maxTags = Math.max(0,max);
+	}
+	
+	/**
+	 * @return the maximum number of characters
+	 */
+	public int getMaxTextLength() {
+		return _maxTextLength;
+	}
+	
+	/**
+	 * Sets the maximum number of characters, including the tags
+	 * 
+	 * @param max the new value
+	 */
+	public void setMaxTextLength(int max) {
+		_maxTextLength = Math.max(0,max);
+	}
+	
+	/**
+	 * @return the maximum number of smileys
+	 */
+	public int getMaxSmileys() {
+		return _maxSmileys;
+	}
+	
+	/**
+	 * Sets the maximum number of smileys
+	 * 
+	 * @param max the new value
+	 */
+	public void setMaxSmileys(int max) {
+		_maxSmileys = Math.max(0,max);
+	}
+	
+	/**
+	 * @return the maximum number of steps
+	 */
+	public int getMaxSteps() {
+		return _maxSteps;
+	}
+	
+	/**
+	 * Sets the maximum number of steps of the parser
+	 * 
+	 * @param max the new value
+	 */
+	public void setMaxSteps(int max) {
+		_maxSteps = Math.max(0,max);
+	}
+	
+	public String toString() {
+		return "ParseBudget[tokens=" + _maxTokens + ", tags=" + _maxTags + ", textLength="
+			+ _maxTextLength + ", smileys=" + _maxSmileys + ", steps=" + _maxSteps + "]";
+	}
+}
\ No newline at end of file
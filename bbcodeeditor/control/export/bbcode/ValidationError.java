@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export.bbcode;
+
+
+/**
+ * An error that has been found by the {@link BBCodeValidator}
+ * 
+ * @author hrniels
+ */
+public final class ValidationError {
+	
+	/**
+	 * The error-type. see BBCodeParser.ERR_*
+	 */
+	private final int _error;
+	
+	/**
+	 * The offset of the tag in the input
+	 */
+	private final int _offset;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param error the error-type
+	 * @param offset the offset of the tag in the input
+	 */
+	ValidationError(int error,int offset) {
+		_error = error;
+		_offset = offset;
+	}
+	
+	/**
+	 * @return the error-type. see BBCodeParser.ERR_*
+	 */
+	public int getError() {
+		return _error;
+	}
+	
+	/**
+	 * @return the offset of the tag in the input (the position of the "[")
+	 */
+	public int getOffset() {
+		return _offset;
+	}
+	
+	/**
+	 * @return the error-message
+	 */
+	public String getErrorMsg() {
+		return BBCodeParser.getErrorMsg(_error);
+	}
+	
+	public String toString() {
+		return getErrorMsg() + " at " + _offset;
+	}
+}
\ No newline at end of file
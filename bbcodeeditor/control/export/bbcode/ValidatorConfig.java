@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control.export.bbcode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The configuration for the {@link BBCodeValidator}: the enabled tags, the maximum
+ * nesting level and the smiley-codes. The defaults are the same as the ones of the
+ * text-field, i.e. all tags are enabled, the maximum nesting level is 5 and there are
+ * no smileys.
+ * <p>
+ * Note that this class is not thread-safe. But the validator copies the configuration,
+ * so that it may be changed or reused afterwards.
+ * 
+ * @author hrniels
+ */
+public final class ValidatorConfig {
+	
+	/**
+	 * The value for no limit of errors
+	 */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+	
+	/**
+	 * The enabled tags, indexed by the tag-ids
+	 */
+	private final boolean[] _enabled = new boolean[BBCodeTags.HIGHLIGHT + 1];
+	
+	/**
+	 * The codes of the smileys
+	 */
+	private final List<String> _smileys = new ArrayList<String>();
+	
+	/**
+	 * The maximum nesting level of tags
+	 */
+	private int _maxTagNestingLevel = 5;
+	
+	/**
+	 * The maximum number of errors to report
+	 */
+	private int _maxErrors = UNLIMITED;
+	
+	/**
+	 * Constructor. Enables all tags
+	 */
+	public ValidatorConfig() {
+		for(int i = 0;i < _enabled.length;i++)
+			_enabled[i] = true;
+	}
+	
+	/**
+	 * checks wether the given tag is enabled
+	 * 
+	 * @param tag the tag-id. see BBCodeTags.*
+	 * @return true if it is enabled
+	 */
+	public boolean isTagEnabled(int tag) {
+		if(!BBCodeTags.isValidTag(tag))
+			return false;
+		
+		return _enabled[tag];
+	}
+	
+	/**
+	 * Enables the given tag. As in the text-field, subscript and superscript will always
+	 * be enabled together.
+	 * 
+	 * @param tag the tag-id. see BBCodeTags.*
+	 */
+	public void enableTag(int tag) {
+		setTagEnabled(tag,true);
+	}
+	
+	/**
+	 * Disables the given tag. As in the text-field, subscript and superscript will always
+	 * be disabled together.
+	 * 
+	 * @param tag the tag-id. see BBCodeTags.*
+	 */
+	public void disableTag(int tag) {
+		setTagEnabled(tag,false);
+	}
+	
+	/**
+	 * @return the maximum nesting level of tags
+	 */
+	public int getMaxTagNestingLevel() {
+		return _maxTagNestingLevel;
+	}
+	
+	/**
+	 * sets the maximum nesting level of tags. That means that you can't nest the same
+	 * tag more than this number.
+	 * 
+	 * @param level the new value
+	 */
+	public void setMaxTagNestingLevel(int level) {
+		if(level >= 0)
+			_maxTagNestingLevel = level;
+	}
+	
+	/**
+	 * @return the maximum number of errors to report
+	 */
+	public int getMaxErrors() {
+		return _maxErrors;
+	}
+	
+	/**
+	 * Sets the maximum number of errors to report. The validation stops as soon as
+	 * this number has been reached.
+	 * 
+	 * @param max the new value (at least 1)
+	 */
+	public void setMaxErrors(int max) {
+		_maxErrors = Math.max(1,max);
+	}
+	
+	/**
+	 * @return a List with the smiley-codes
+	 */
+	public List<String> getSmileys() {
+		return _smileys;
+	}
+	
+	/**
+	 * Adds the given smiley-code. Smileys are relevant because the tokenizer treats
+	 * them as separate tokens, so that e.g. a smiley with a "]" may end a tag.
+	 * 
+	 * @param code the code of the smiley
+	 */
+	public void addSmiley(String code) {
+		if(code != null && code.length() > 0 && !_smileys.contains(code))
+			_smileys.add(code);
+	}
+	
+	/**
+	 * Enables or disables the given tag
+	 * 
+	 * @param tag the tag-id
+	 * @param enabled the new value
+	 */
+	private void setTagEnabled(int tag,boolean enabled) {
+		if(!BBCodeTags.isValidTag(tag))
+			return;
+		
+		_enabled[tag] = enabled;
+		if(tag == BBCodeTags.SUBSCRIPT)
+			_enabled[BBCodeTags.SUPERSCRIPT] = enabled;
+		else if(tag == BBCodeTags.SUPERSCRIPT)
+			_enabled[BBCodeTags.SUBSCRIPT] = enabled;
+	}
+}
\ No newline at end of file
@@ -19,13 +19,10 @@
 package bbcodeeditor.control.export.html;
 
 import java.awt.Color;
-import java.util.Iterator;
-import java.util.Stack;
 
 import bbcodeeditor.control.*;
 import bbcodeeditor.control.export.ColorFunctions;
 import bbcodeeditor.control.export.IExportContent;
-import bbcodeeditor.control.tools.Pair;
 import bbcodeeditor.control.tools.StringUtils;
 
 /**
@@ -35,6 +32,23 @@ import bbcodeeditor.control.tools.StringUtils;
  */
 public class HTMLExportContent implements IExportContent {
 	
+	/**
+	 * The order in which we open the attributes
+	 */
+	private static final Integer[] ATTRIBUTE_ORDER = new Integer[] {
+		TextAttributes.FONT_FAMILY,
+		TextAttributes.FONT_SIZE,
+		TextAttributes.FONT_COLOR,
+		TextAttributes.BOLD,
+		TextAttributes.ITALIC,
+		TextAttributes.UNDERLINE,
+		TextAttributes.STRIKE,
+		TextAttributes.POSITION,
+		TextAttributes.URL,
+		TextAttributes.EMAIL,
+		TextAttributes.BG_COLOR
+	};
+	
 	/**
 	 * The string to replace tabs with
 	 */
@@ -63,103 +77,77 @@ public class HTMLExportContent implements IExportContent {
 		return smiley.getPrimaryCode();
 	}
 	
-	public String getAttributeEndTags(Stack attributes,Stack current) {
-		StringBuffer attrStr = new StringBuffer();
-		
-		while(attributes.size() > 0) {
-			Pair e = (Pair)current.pop();
-			Integer attr = (Integer)e.getKey();
-			if(e.equals(attributes.peek()))
-				attributes.pop();
-			
-			if(attr.equals(TextAttributes.BOLD))
-				attrStr.append("</b>");
-			else if(attr.equals(TextAttributes.ITALIC))
-				attrStr.append("</i>");
-			else if(attr.equals(TextAttributes.UNDERLINE))
-				attrStr.append("</u>");
-			else if(attr.equals(TextAttributes.STRIKE))
-				attrStr.append("</s>");
-			else if(attr.equals(TextAttributes.POSITION)) {
-				if(e.getValue().equals(new Byte(TextAttributes.POS_SUBSCRIPT)))
-					attrStr.append("</sub>");
-				else if(e.getValue().equals(new Byte(TextAttributes.POS_SUPERSCRIPT)))
-					attrStr.append("</sup>");
-			}
-			else if(attr.equals(TextAttributes.BG_COLOR))
-				attrStr.append("</span>");
-			else if(attr.equals(TextAttributes.FONT_COLOR))
-				attrStr.append("</span>");
-			else if(attr.equals(TextAttributes.FONT_FAMILY))
-				attrStr.append("</span>");
-			else if(attr.equals(TextAttributes.FONT_SIZE))
-				attrStr.append("</span>");
-			else if(attr.equals(TextAttributes.URL))
-				attrStr.append("</a>");
-			else if(attr.equals(TextAttributes.EMAIL))
-				attrStr.append("</a>");
+	public Integer[] getAttributeOrder() {
+		return ATTRIBUTE_ORDER;
+	}
+	
+	public String getAttributeEndTag(Integer attr,Object value) {
+		if(attr.equals(TextAttributes.BOLD))
+			return "</b>";
+		if(attr.equals(TextAttributes.ITALIC))
+			return "</i>";
+		if(attr.equals(TextAttributes.UNDERLINE))
+			return "</u>";
+		if(attr.equals(TextAttributes.STRIKE))
+			return "</s>";
+		if(attr.equals(TextAttributes.POSITION)) {
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUBSCRIPT)))
+				return "</sub>";
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUPERSCRIPT)))
+				return "</sup>";
 		}
+		else if(attr.equals(TextAttributes.BG_COLOR) || attr.equals(TextAttributes.FONT_COLOR) ||
+				attr.equals(TextAttributes.FONT_FAMILY) || attr.equals(TextAttributes.FONT_SIZE))
+			return "</span>";
+		else if(attr.equals(TextAttributes.URL) || attr.equals(TextAttributes.EMAIL))
+			return "</a>";
 		
-		return attrStr.toString();
+		return "";
 	}
 
-	public String getAttributeStartTags(TextAttributes attributes,Stack current) {
-		StringBuffer attrStr = new StringBuffer();
-		
-		Iterator it = attributes.iterator();
-		while(it.hasNext()) {
-			Integer attr = (Integer)it.next();
-			Pair e = new Pair(attr,attributes.get(attr));
-			
-			if(attr.equals(TextAttributes.BOLD) && attributes.isBold())
-				attrStr.append("<b>");
-			else if(attr.equals(TextAttributes.ITALIC) && attributes.isItalic())
-				attrStr.append("<i>");
-			else if(attr.equals(TextAttributes.UNDERLINE) && attributes.isUnderline())
-				attrStr.append("<u>");
-			else if(attr.equals(TextAttributes.STRIKE) && attributes.isStrike())
-				attrStr.append("<s>");
-			else if(attr.equals(TextAttributes.POSITION)) {
-				if(e.getValue().equals(new Byte(TextAttributes.POS_SUBSCRIPT)))
-					attrStr.append("<sub>");
-				else if(e.getValue().equals(new Byte(TextAttributes.POS_SUPERSCRIPT)))
-					attrStr.append("<sup>");
-				else
-					continue;
-			}
-			else if(attr.equals(TextAttributes.BG_COLOR)) {
-				Color color = (Color)e.getValue();
-				String strColor = ColorFunctions.getStringFromColor(color);
-				attrStr.append("<span style=\"background-color: " + strColor + ";\">");
-			}
-			else if(attr.equals(TextAttributes.FONT_COLOR)) {
-				Color color = (Color)e.getValue();
-				String strColor = ColorFunctions.getStringFromColor(color);
-				attrStr.append("<span style=\"color: " + strColor + ";\">");
-			}
-			else if(attr.equals(TextAttributes.FONT_FAMILY)) {
-				String fontFamily = (String)e.getValue();
-				attrStr.append("<span style=\"font-family: " + fontFamily + ";\">");
-			}
-			else if(attr.equals(TextAttributes.FONT_SIZE)) {
-				int size = ((Integer)e.getValue()).intValue();
-				attrStr.append("<span style=\"font-size: " + size + "px;\">");
-			}
-			else if(attr.equals(TextAttributes.URL)) {
-				String url = (String)e.getValue();
-				attrStr.append("<a href=\"" + url + "\">");
-			}
-			else if(attr.equals(TextAttributes.EMAIL)) {
-				String eurl = (String)e.getValue();
-				attrStr.append("<a href=\"mailto:" + eurl + "\">");
-			}
-			else
-				continue;
-			
-			current.push(e);
+	public String getAttributeStartTag(Integer attr,Object value) {
+		if(attr.equals(TextAttributes.BOLD)) {
+			if(((Boolean)value).booleanValue())
+				return "<b>";
+		}
+		else if(attr.equals(TextAttributes.ITALIC)) {
+			if(((Boolean)value).booleanValue())
+				return "<i>";
+		}
+		else if(attr.equals(TextAttributes.UNDERLINE)) {
+			if(((Boolean)value).booleanValue())
+				return "<u>";
+		}
+		else if(attr.equals(TextAttributes.STRIKE)) {
+			if(((Boolean)value).booleanValue())
+				return "<s>";
+		}
+		else if(attr.equals(TextAttributes.POSITION)) {
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUBSCRIPT)))
+				return "<sub>";
+			if(value.equals(Byte.valueOf(TextAttributes.POS_SUPERSCRIPT)))
+				return "<sup>";
+		}
+		else if(attr.equals(TextAttributes.BG_COLOR)) {
+			String strColor = ColorFunctions.getStringFromColor((Color)value);
+			return "<span style=\"background-color: " + strColor + ";\">";
+		}
+		else if(attr.equals(TextAttributes.FONT_COLOR)) {
+			String strColor = ColorFunctions.getStringFromColor((Color)value);
+			return "<span style=\"color: " + strColor + ";\">";
+		}
+		else if(attr.equals(TextAttributes.FONT_FAMILY))
+			return "<span style=\"font-family: " + value + ";\">";
+		else if(attr.equals(TextAttributes.FONT_SIZE)) {
+			int size = ((Integer)value).intValue();
+			return "<span style=\"font-size: " + size + "px;\">";
 		}
+		else if(attr.equals(TextAttributes.URL))
+			return "<a href=\"" + value + "\">";
+		else if(attr.equals(TextAttributes.EMAIL))
+			return "<a href=\"mailto:" + value + "\">";
 		
-		return attrStr.toString();
+		return null;
 	}
 
 	public String getEnvironmentEnd(Environment env) {
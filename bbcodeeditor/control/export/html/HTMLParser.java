@@ -23,6 +23,7 @@ import java.util.Map.Entry;
 
 import bbcodeeditor.control.Controller;
 import bbcodeeditor.control.export.bbcode.BBCodeTags;
+import bbcodeeditor.control.tools.MutableInt;
 import bbcodeeditor.control.tools.StringUtils;
 
 
@@ -94,6 +95,27 @@ public class HTMLParser {
 	 */
 	private Stack _openTags;
 	
+	/**
+	 * The number of open bbcode-tags in _openTags, for each bbcode-tag. Allows us to
+	 * skip the stack-walk in closeOpenBBCodeTags() if the tag is not open
+	 */
+	private final Map<Object,MutableInt> _openBBCodeTags = new HashMap<Object,MutableInt>();
+	
+	/**
+	 * The attributes of the current tag. Will be reused for all tags
+	 */
+	private final Map<String,String> _attributes = new HashMap<String,String>();
+	
+	/**
+	 * The lowercase tag-names of the tag-tokens
+	 */
+	private final Map<String,String> _tagNames = new HashMap<String,String>();
+	
+	/**
+	 * The parsed style-declarations of the style-values, see getStyleDeclarations()
+	 */
+	private final Map<String,String[][]> _styles = new HashMap<String,String[][]>();
+	
 	/**
 	 * the controller
 	 */
@@ -120,6 +142,7 @@ public class HTMLParser {
 	public String convertToBBCode() {
 		StringBuffer buf = new StringBuffer();
 		_openTags = new Stack();
+		_openBBCodeTags.clear();
 		int openParas = 0;
 		
 		for(int i = 0,len = _tokens.size();i < len;i++) {
@@ -128,13 +151,13 @@ public class HTMLParser {
 			
 			switch(first) {
 				case '<':
-					String tagName = token.substring(1).toLowerCase();
+					String tagName = getTagName(token);
 					
 					if(tagName.equals("p")) {
 						openParas++;
-						Map attrs = new HashMap();
+						Map<String,String> attrs = _attributes;
 						i = collectAttributes(attrs,i + 1,true);
-						String alignVal = (String)attrs.get("align");
+						String alignVal = attrs.get("align");
 						if(alignVal != null) {
 							alignVal = alignVal.toLowerCase();
 							if(alignVal.equals("right")) {
@@ -166,7 +189,7 @@ public class HTMLParser {
 						i = skipWhiteSpaceAfterTag(i);
 					}
 					else if(tagName.equals("font")) {
-						Map attrs = new HashMap();
+						Map<String,String> attrs = _attributes;
 						i = collectAttributes(attrs,i + 1,true);
 						
 						List bbcodeTags = new ArrayList();
@@ -219,7 +242,7 @@ public class HTMLParser {
 					else if(tagName.equals("b") || tagName.equals("i") || tagName.equals("u") ||
 							tagName.equals("sub") || tagName.equals("sup")) {
 						// skip attributes
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 
 						closeOpenBBCodeTags(buf,tagName);
 						if(addToOpenedTags(tagName,tagName))
@@ -232,7 +255,7 @@ public class HTMLParser {
 					}
 					else if(tagName.equals("s") || tagName.equals("strike")) {
 						// skip attributes
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 
 						closeOpenBBCodeTags(buf,"s");
 						if(addToOpenedTags(tagName,"s"))
@@ -243,10 +266,10 @@ public class HTMLParser {
 							closeLastOpenedTags(buf);
 					}
 					else if(tagName.equals("span")) {
-						Map attrs = new HashMap();
+						Map<String,String> attrs = _attributes;
 						i = collectAttributes(attrs,i + 1,true);
 						if(attrs.containsKey("style")) {
-							String style = (String)attrs.get("style");
+							String style = attrs.get("style");
 							if(style.length() > 0 && (style.charAt(0) == '\'' || style.charAt(0) == '"'))
 								style = style.substring(1,style.length() - 1);
 							List openedTags = parseStyle(style,buf);
@@ -261,12 +284,12 @@ public class HTMLParser {
 							closeLastOpenedTags(buf);
 					}
 					else if(tagName.equals("ol")) {
-						Map m = new HashMap();
+						Map<String,String> m = _attributes;
 						i = collectAttributes(m,i + 1,true);
 						
 						String type = "1";
 						if(m.containsKey("type")) {
-							String typeVal = (String)m.get("type");
+							String typeVal = m.get("type");
 							if(typeVal.equals("a") || typeVal.equals("A") || typeVal.equals("i") ||
 									typeVal.equals("I") || typeVal.equals("circle") || typeVal.equals("disc") ||
 									typeVal.equals("square"))
@@ -278,7 +301,7 @@ public class HTMLParser {
 					}
 					else if(tagName.equals("ul")) {
 						// skip attributes
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 						
 						if(addToOpenedTags("ul","list"))
 							buf.append("[list]\n");
@@ -299,7 +322,7 @@ public class HTMLParser {
 							closeLastOpenedTags(buf);
 						
 						// skip attributes
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 						
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("list"))) {
 							buf.append("[*]");
@@ -310,14 +333,14 @@ public class HTMLParser {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("list"))) {
 							buf.append("\n");
 							if(_openTags.size() > 0)
-								_openTags.pop();
+								popOpenedTags();
 						}
 					}
 					else if(tagName.equals("a")) {
-						Map attrs = new HashMap();
+						Map<String,String> attrs = _attributes;
 						i = collectAttributes(attrs,i + 1,true);
 						if(attrs.containsKey("href")) {
-							String val = (String)attrs.get("href");
+							String val = attrs.get("href");
 							if(val.length() >= 2 && (val.charAt(0) == '"' || val.charAt(0) == '\''))
 								val = val.substring(1,val.length() - 1);
 							
@@ -342,12 +365,12 @@ public class HTMLParser {
 							closeLastOpenedTags(buf);
 					}
 					else if(tagName.equals("img")) {
-						Map attrs = new HashMap();
+						Map<String,String> attrs = _attributes;
 						i = collectAttributes(attrs,i + 1,true);
 						if(attrs.containsKey("src")) {
 							if(_con.isTagEnabled(BBCodeTags.getIdFromTag("img"))) {
 								closeOpenBBCodeTags(buf,"img");
-								String url = (String)attrs.get("src");
+								String url = attrs.get("src");
 								if(url.length() >= 2)
 									url = url.substring(1,url.length() - 1);
 								buf.append("[img]" + url + "[/img]");
@@ -364,7 +387,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h1",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("h2")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("size"))) {
@@ -376,7 +399,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h2",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("h3")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("size"))) {
@@ -388,7 +411,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h3",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("h4")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("size"))) {
@@ -400,7 +423,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h4",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("h5")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("size"))) {
@@ -412,7 +435,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h5",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("h6")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("size"))) {
@@ -424,7 +447,7 @@ public class HTMLParser {
 							l.add(new TagEntry("b",""));
 							addToOpenedTags("h6",l);
 						}
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 					}
 					else if(tagName.equals("/h1") || tagName.equals("/h2") || tagName.equals("/h3") ||
 							tagName.equals("/h4") || tagName.equals("/h5") || tagName.equals("/h6")) {
@@ -439,7 +462,7 @@ public class HTMLParser {
 					}
 					else if(tagName.equals("pre") || tagName.equals("code")) {
 						if(_con.isTagEnabled(BBCodeTags.getIdFromTag("code"))) {
-							i = collectAttributes(new HashMap(),i + 1,false);
+							i = collectAttributes(null,i + 1,false);
 							i = skipWhiteSpaceAfterTag(i - 1);
 							
 							buf.append("[code]");
@@ -456,7 +479,7 @@ public class HTMLParser {
 					}
 					else if(tagName.equals("br")) {
 						// skip attributes
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 						i = skipWhiteSpaceAfterTag(i - 1);
 						
 						buf.append("\n");
@@ -466,7 +489,7 @@ public class HTMLParser {
 						if(tagName.length() > 0 && tagName.charAt(0) == '/' && !_openTags.empty()) {
 							Entry e = (Entry)_openTags.peek();
 							if(!_shortTags.contains(e.getKey()))
-								_openTags.pop();
+								popOpenedTags();
 						}
 						else if(!_shortTags.contains(tagName))
 							addToOpenedTags(tagName,Collections.emptyList());
@@ -475,7 +498,7 @@ public class HTMLParser {
 						if(tagName.equals("/div") || tagName.equals("/tr"))
 							buf.append("\n");
 						
-						i = collectAttributes(new HashMap(),i + 1,false);
+						i = collectAttributes(null,i + 1,false);
 						i = skipWhiteSpaceAfterTag(i - 1);
 					}
 					break;
@@ -676,6 +699,11 @@ public class HTMLParser {
 	 * @param tag the bbcode-tag
 	 */
 	private void closeOpenBBCodeTags(StringBuffer buf,String tag) {
+		// nothing to do if the tag is not open
+		MutableInt count = _openBBCodeTags.get(tag);
+		if(count == null || count.getValue() == 0)
+			return;
+		
 		ListIterator it = _openTags.listIterator(_openTags.size());
 		for(int i = _openTags.size() - 1;it.hasPrevious();i--) {
 			Entry e = (Entry)it.previous();
@@ -705,6 +733,7 @@ public class HTMLParser {
 					
 					buf.append("[/" + openTag.getKey() + "]");
 					l.remove(openTag);
+					count.increaseValue(-1);
 					
 					// note that we have removed an entry. so we run until from a
 					for(int x = a;x < l.size();x++) {
@@ -742,7 +771,7 @@ public class HTMLParser {
 	 */
 	private void closeLastOpenedTags(StringBuffer buf) {
 		if(_openTags.size() > 0) {
-			Entry e = (Entry)_openTags.pop();
+			TagEntry e = popOpenedTags();
 			List l = (List)e.getValue();
 			ListIterator it = l.listIterator(l.size());
 			while(it.hasPrevious()) {
@@ -794,6 +823,32 @@ public class HTMLParser {
 	private void addToOpenedTags(String htmlTag,List bbcodeTags) {
 		TagEntry e = new TagEntry(htmlTag,bbcodeTags);
 		_openTags.push(e);
+		
+		for(int i = 0,len = bbcodeTags.size();i < len;i++) {
+			TagEntry bbc = (TagEntry)bbcodeTags.get(i);
+			MutableInt count = _openBBCodeTags.get(bbc.getKey());
+			if(count == null) {
+				count = new MutableInt(0);
+				_openBBCodeTags.put(bbc.getKey(),count);
+			}
+			count.increaseValue(1);
+		}
+	}
+	
+	/**
+	 * removes the top-element from the stack of opened tags
+	 * 
+	 * @return the removed entry
+	 */
+	private TagEntry popOpenedTags() {
+		TagEntry e = (TagEntry)_openTags.pop();
+		List<?> l = (List<?>)e.getValue();
+		for(int i = 0,len = l.size();i < len;i++) {
+			TagEntry bbc = (TagEntry)l.get(i);
+			MutableInt count = _openBBCodeTags.get(bbc.getKey());
+			count.increaseValue(-1);
+		}
+		return e;
 	}
 	
 	private static final class TagEntry implements Entry {
@@ -837,15 +892,10 @@ public class HTMLParser {
 	 */
 	private List parseStyle(String style,StringBuffer buf) {
 		List tags = new ArrayList();
-		String[] cssAttrs = StringUtils.simpleSplit(style,";");
+		String[][] cssAttrs = getStyleDeclarations(style);
 		for(int x = 0;x < cssAttrs.length;x++) {
-			String[] cssAttr = StringUtils.simpleSplit(cssAttrs[x],":");
-			// skip invalid attributes
-			if(cssAttr.length < 2)
-				continue;
-			
-			String cssName = cssAttr[0].toLowerCase().trim();
-			String cssValue = cssAttr[1].trim();
+			String cssName = cssAttrs[x][0];
+			String cssValue = cssAttrs[x][1];
 			
 			if(cssName.equals("font-family") && _con.isTagEnabled(BBCodeTags.getIdFromTag("font"))) {
 				closeOpenBBCodeTags(buf,"font");
@@ -907,15 +957,62 @@ public class HTMLParser {
 		return tags;
 	}
 	
+	/**
+	 * Splits the given style-value into the declarations. Because the same styles are used
+	 * again and again (especially by word-processors) the result will be cached.
+	 * 
+	 * @param style the style-value
+	 * @return an array with <code>{name,value}</code> for each valid declaration. The names
+	 * 	are lowercase
+	 */
+	private String[][] getStyleDeclarations(String style) {
+		String[][] decls = _styles.get(style);
+		if(decls == null) {
+			List<String[]> l = new ArrayList<String[]>();
+			String[] cssAttrs = StringUtils.simpleSplit(style,";");
+			for(int x = 0;x < cssAttrs.length;x++) {
+				String[] cssAttr = StringUtils.simpleSplit(cssAttrs[x],":");
+				// skip invalid attributes
+				if(cssAttr.length < 2)
+					continue;
+				
+				l.add(new String[] {cssAttr[0].toLowerCase().trim(),cssAttr[1].trim()});
+			}
+			
+			decls = l.toArray(new String[l.size()][]);
+			_styles.put(style,decls);
+		}
+		
+		return decls;
+	}
+	
+	/**
+	 * Determines the lowercase name of the given tag-token (without the '&lt;')
+	 * 
+	 * @param token the token
+	 * @return the tag-name
+	 */
+	private String getTagName(String token) {
+		String name = _tagNames.get(token);
+		if(name == null) {
+			name = token.substring(1).toLowerCase();
+			_tagNames.put(token,name);
+		}
+		
+		return name;
+	}
+	
 	/**
 	 * collects the attributes in the given map, starting at the given position
 	 * 
-	 * @param m the map to fill
+	 * @param m the map to fill (will be cleared first)
 	 * @param i the position where to start
 	 * @param collect do you really want to collect the attributes or just skip them?
 	 * @return the position after the collection
 	 */
 	private int collectAttributes(Map m,int i,boolean collect) {
+		if(collect)
+			m.clear();
 		for(int len = _tokens.size();i < len;i++) {
 			String token = (String)_tokens.get(i);
 			if(collect && token.equals("=")) {
@@ -966,7 +1063,8 @@ public class HTMLParser {
 			
 			switch(first) {
 				case '<':
-					if(token.toLowerCase().equals("<!doctype")) {
+					String tag = token.toLowerCase();
+					if(tag.equals("<!doctype")) {
 						inBodyTag = false;
 						hasHTMLTag = true;
 						i = runToTagEnd(i);
@@ -974,20 +1072,20 @@ public class HTMLParser {
 					else if(token.startsWith("<!--")) {
 						i = runToCommentEnd(i);
 					}
-					else if(token.toLowerCase().equals("<html")) {
+					else if(tag.equals("<html")) {
 						inBodyTag = false;
 						hasHTMLTag = true;
 						i = runToTagEnd(i);
 					}
-					else if(token.toLowerCase().equals("<body")) {
+					else if(tag.equals("<body")) {
 						inBodyTag = true;
 						i = runToTagEnd(i);
 					}
-					else if(token.toLowerCase().equals("</body")) {
+					else if(tag.equals("</body")) {
 						inBodyTag = false;
 						i = runToTagEnd(i);
 					}
-					else if(token.toLowerCase().equals("<style")) {
+					else if(tag.equals("<style")) {
 						i = runToClosingTag(i,"style");
 					}
 					else {
@@ -1006,13 +1104,16 @@ public class HTMLParser {
 		}
 		
 		if(hasHTMLTag) {
-			// remove whitespace at the beginning
-			while(newTokens.size() > 0 && StringUtils.isWhiteSpace((String)newTokens.get(0)))
-				newTokens.remove(0);
+			// remove whitespace at the beginning and the end
+			int start = 0;
+			int end = newTokens.size();
+			while(start < end && StringUtils.isWhiteSpace((String)newTokens.get(start)))
+				start++;
+			while(end > start && StringUtils.isWhiteSpace((String)newTokens.get(end - 1)))
+				end--;
 			
-			// remove whitespace at the end
-			while(newTokens.size() > 0 && StringUtils.isWhiteSpace((String)newTokens.get(newTokens.size() - 1)))
-				newTokens.remove(newTokens.size() - 1);
+			newTokens.subList(end,newTokens.size()).clear();
+			newTokens.subList(0,start).clear();
 		}
 		
 		_tokens = newTokens;
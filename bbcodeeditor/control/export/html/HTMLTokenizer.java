@@ -19,7 +19,6 @@
 package bbcodeeditor.control.export.html;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 
@@ -36,10 +35,19 @@ public final class HTMLTokenizer {
 	 */
 	private final String _input;
 	
-	private final List _splitChars = Arrays.asList(new Character[] {
-			new Character('<'),new Character('>'),new Character('='),
-			new Character('"'),new Character('\''),new Character('/')
-	});
+	/**
+	 * the chars at which we split: <code>char => boolean</code>
+	 */
+	private static final boolean[] _splitChars = new boolean[128];
+	
+	static {
+		_splitChars['<'] = true;
+		_splitChars['>'] = true;
+		_splitChars['='] = true;
+		_splitChars['"'] = true;
+		_splitChars['\''] = true;
+		_splitChars['/'] = true;
+	}
 
 	/**
 	 * the list with tokens (will be created)
@@ -79,7 +87,7 @@ public final class HTMLTokenizer {
 			if(split(c,last,true)) {
 				if(buffer.length() > 0) {
 					_result.add(buffer.toString());
-					buffer = new StringBuffer();
+					buffer.setLength(0);
 				}
 				
 				switch(c) {
@@ -102,14 +110,14 @@ public final class HTMLTokenizer {
 						
 						if(buffer.length() > 0) {
 							_result.add(buffer.toString());
-							buffer = new StringBuffer();
+							buffer.setLength(0);
 						}
 						break;
 					
 					case '>':
 						if(buffer.length() > 0) {
 							_result.add(buffer.toString());
-							buffer = new StringBuffer();
+							buffer.setLength(0);
 						}
 						_result.add(String.valueOf(c));
 						break;
@@ -129,7 +137,7 @@ public final class HTMLTokenizer {
 						}
 						
 						_result.add(buffer.toString());
-						buffer = new StringBuffer();
+						buffer.setLength(0);
 						break;
 					
 					default:
@@ -151,6 +159,6 @@ public final class HTMLTokenizer {
 		if(splitWhitespace && Character.isWhitespace(c) && !Character.isWhitespace(last))
 			return true;
 		
-		return _splitChars.contains(new Character(c));
+		return c < _splitChars.length && _splitChars[c];
 	}
 }
\ No newline at end of file
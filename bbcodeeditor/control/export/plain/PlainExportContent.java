@@ -18,12 +18,9 @@
 
 package bbcodeeditor.control.export.plain;
 
-import java.util.Stack;
-
 import bbcodeeditor.control.Environment;
 import bbcodeeditor.control.SecImage;
 import bbcodeeditor.control.SecSmiley;
-import bbcodeeditor.control.TextAttributes;
 import bbcodeeditor.control.export.IExportContent;
 
 /**
@@ -45,11 +42,16 @@ public class PlainExportContent extends Object implements IExportContent {
 		return smiley.getPrimaryCode();
 	}
 	
-	public String getAttributeEndTags(Stack attributes,Stack current) {
-		return "";
+	public Integer[] getAttributeOrder() {
+		// we have no attributes
+		return new Integer[0];
+	}
+	
+	public String getAttributeStartTag(Integer attribute,Object value) {
+		return null;
 	}
 
-	public String getAttributeStartTags(TextAttributes attributes,Stack current) {
+	public String getAttributeEndTag(Integer attribute,Object value) {
 		return "";
 	}
 
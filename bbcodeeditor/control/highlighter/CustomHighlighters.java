@@ -44,13 +44,27 @@ public class CustomHighlighters {
 	private static List _highlighter = new ArrayList(); 
 	
 	/**
-	 * Inits the highlighters in given folder defined in the given language-file
+	 * Inits the highlighters in given folder defined in the given language-file and
+	 * compiles them in the background
 	 * 
 	 * @param hlFolder the folder which contains the highlighters
 	 * @param langFilename the name of the file which contains all available
 	 * 	highlighters
 	 */
 	public static void init(URL hlFolder,String langFilename) {
+		init(hlFolder,langFilename,true);
+	}
+	
+	/**
+	 * Inits the highlighters in given folder defined in the given language-file
+	 * 
+	 * @param hlFolder the folder which contains the highlighters
+	 * @param langFilename the name of the file which contains all available
+	 * 	highlighters
+	 * @param precompile wether the highlighters should be compiled in the background.
+	 * 	If not, you may call {@link HighlightSyntax#precompile()} later
+	 */
+	public static void init(URL hlFolder,String langFilename,boolean precompile) {
 		_highlighter.clear();
 		// read highlighters from file and add it to the control
 		try {
@@ -63,6 +77,10 @@ public class CustomHighlighters {
 		Iterator it = _highlighter.iterator();
 		while(it.hasNext())
 			HighlightSyntax.addHighlighter((HighlighterEntry)it.next());
+		
+		// compile them in the background so that the first code-block doesn't have to wait
+		if(precompile)
+			HighlightSyntax.precompile();
 	}
 
 	private CustomHighlighters() {
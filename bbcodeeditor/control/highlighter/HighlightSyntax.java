@@ -18,24 +18,75 @@
 
 package bbcodeeditor.control.highlighter;
 
+import java.lang.ref.SoftReference;
 import java.util.*;
 
 /**
- * The highlight-syntaxes
+ * The highlight-syntaxes. The registry is shared by all text-fields in the JVM and may
+ * be used from multiple threads.
+ * <p>
+ * A highlighter is loaded when it is announced the first time and counts the references
+ * to it. The code-environments hold a reference as long as they are part of a document.
+ * If no one references it anymore it will be kept for {@link #getIdleTime()}
+ * milliseconds before it is removed by a background-timer. Additionally the compiled definitions are kept
+ * as soft references so that the XML-file has to be parsed again just if the memory
+ * got low. {@link #precompile()} compiles all known highlighters in the background.
  *
  * @author hrniels
  */
 public class HighlightSyntax {
 	
+	/**
+	 * The default time in milliseconds that unused highlighters are kept
+	 */
+	public static final long DEFAULT_IDLE_TIME = 60 * 1000;
+	
 	/**
 	 * All known highlighter-files
 	 */
-	public static final Map _highlighterFiles = new HashMap();
+	private static final Map<Object,HighlighterEntry> _highlighterFiles =
+		new HashMap<Object,HighlighterEntry>();
 	
 	/**
 	 * All active highlighters
 	 */
-	public static final Map _highlighters = new HashMap();
+	private static final Map<Object,HighlighterInstance> _highlighters =
+		new HashMap<Object,HighlighterInstance>();
+	
+	/**
+	 * The compiled highlighters. They are softly referenced, so that they can be
+	 * collected if the memory is needed
+	 */
+	private static final Map<Object,SoftReference<Highlighter>> _compiled =
+		new HashMap<Object,SoftReference<Highlighter>>();
+	
+	/**
+	 * The time in milliseconds that unused highlighters are kept
+	 */
+	private static long _idleTime = DEFAULT_IDLE_TIME;
+	
+	/**
+	 * The timer that removes unused highlighters (created on demand)
+	 */
+	private static Timer _evictTimer = null;
+	
+	/**
+	 * @return the time in milliseconds that unused highlighters are kept
+	 */
+	public static synchronized long getIdleTime() {
+		return _idleTime;
+	}
+	
+	/**
+	 * Sets the time in milliseconds that unused highlighters are kept. 0 removes
+	 * them as soon as they are not referenced anymore.
+	 * 
+	 * @param ms the number of milliseconds
+	 */
+	public static synchronized void setIdleTime(long ms) {
+		_idleTime = Math.max(0,ms);
+		evictIdle();
+	}
 
 	/**
 	 * Adds the given highlighter with the given id to the known highlighters.
@@ -52,11 +103,14 @@ public class HighlightSyntax {
 	 * 
 	 * @param highlighters the highlighters to add
 	 */
-	public static void addHighlighter(List highlighters) {
+	public static synchronized void addHighlighter(List highlighters) {
 		Iterator it = highlighters.iterator();
 		while(it.hasNext()) {
 			HighlighterEntry e = (HighlighterEntry)it.next();
-			_highlighterFiles.put(e.getId(),e);
+			HighlighterEntry old = _highlighterFiles.put(e.getId(),e);
+			// the compiled definition belongs to the old file
+			if(old != null && !old.getFile().equals(e.getFile()))
+				_compiled.remove(e.getId());
 		}
 	}
 	
@@ -67,34 +121,38 @@ public class HighlightSyntax {
 	 * @return true if successfull
 	 */
 	public static boolean announceHighlighter(Object id) {
-		HighlighterInstance inst = (HighlighterInstance)_highlighters.get(id);
-		if(inst != null)
-			inst.incrementRefs();
-		else {
-			HighlighterEntry entry = (HighlighterEntry)_highlighterFiles.get(id);
-			if(entry != null) {
-				inst = new HighlighterInstance(new CustomHighlighter(entry.getId(),entry.getFile()));
-				_highlighters.put(id,inst);
-			}
-			else
+		HighlighterEntry entry;
+		synchronized(HighlightSyntax.class) {
+			if(addReference(id,null))
+				return true;
+			
+			entry = _highlighterFiles.get(id);
+			if(entry == null)
 				return false;
 		}
 		
+		// parse the file without holding the lock
+		Highlighter hl = new CustomHighlighter(entry.getId(),entry.getFile());
+		synchronized(HighlightSyntax.class) {
+			// another thread may have been faster
+			addReference(id,hl);
+		}
 		return true;
 	}
 	
 	/**
 	 * Unloads the given highlighter. If there are no other references to
-	 * the highlighter with given syntax it will be deleted.
+	 * the highlighter with given syntax it will be deleted as soon as it
+	 * has not been used for {@link #getIdleTime()} milliseconds.
 	 * 
 	 * @param id the id
 	 */
-	public static void removeHighlighter(Object id) {
-		HighlighterInstance inst = (HighlighterInstance)_highlighters.get(id);
+	public static synchronized void removeHighlighter(Object id) {
+		HighlighterInstance inst = _highlighters.get(id);
 		if(inst != null) {
 			inst.decrementRefs();
 			if(inst.getReferences() == 0)
-				_highlighters.remove(inst);
+				scheduleEviction();
 		}
 	}
 	
@@ -104,8 +162,8 @@ public class HighlightSyntax {
 	 * @param id the id
 	 * @return the highlighter-implementation or null if there is nothing to highlight
 	 */
-	public static Highlighter getHighlighter(Object id) {
-		HighlighterInstance inst = (HighlighterInstance)_highlighters.get(id);
+	public static synchronized Highlighter getHighlighter(Object id) {
+		HighlighterInstance inst = _highlighters.get(id);
 		if(inst != null)
 			return inst.getHighlighter();
 		
@@ -115,8 +173,143 @@ public class HighlightSyntax {
 	/**
 	 * @return a Map with all available highlighters
 	 */
-	public static Map getHighlighter() {
-		return _highlighterFiles;
+	public static synchronized Map getHighlighter() {
+		return new HashMap<Object,HighlighterEntry>(_highlighterFiles);
+	}
+	
+	/**
+	 * @return the number of active highlighters, including the unused ones that are
+	 * 	kept for {@link #getIdleTime()} milliseconds
+	 */
+	public static synchronized int getActiveCount() {
+		return _highlighters.size();
+	}
+	
+	/**
+	 * @return the number of compiled highlighters that have not been collected yet
+	 */
+	public static synchronized int getCompiledCount() {
+		int count = 0;
+		Iterator<SoftReference<Highlighter>> it = _compiled.values().iterator();
+		while(it.hasNext()) {
+			if(it.next().get() != null)
+				count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Compiles all known highlighters that are not compiled yet in a background-thread.
+	 * Afterwards announcing a highlighter does not need to parse the XML-file anymore.
+	 */
+	public static void precompile() {
+		final List<HighlighterEntry> entries;
+		synchronized(HighlightSyntax.class) {
+			entries = new ArrayList<HighlighterEntry>(_highlighterFiles.values());
+		}
+		
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				Iterator<HighlighterEntry> it = entries.iterator();
+				while(it.hasNext()) {
+					HighlighterEntry e = it.next();
+					synchronized(HighlightSyntax.class) {
+						if(getCompiled(e.getId()) != null)
+							continue;
+					}
+					
+					Highlighter hl = new CustomHighlighter(e.getId(),e.getFile());
+					synchronized(HighlightSyntax.class) {
+						if(_highlighterFiles.get(e.getId()) == e && getCompiled(e.getId()) == null)
+							_compiled.put(e.getId(),new SoftReference<Highlighter>(hl));
+					}
+				}
+			}
+		},"HighlighterCompiler");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		t.start();
+	}
+	
+	/**
+	 * Adds a reference to the highlighter with given id. If it is not active, the compiled
+	 * highlighter or, if there is none, <code>hl</code> will be used.
+	 * Needs to be called with the lock held.
+	 * 
+	 * @param id the id
+	 * @param hl the highlighter to use if there is no other one (may be null)
+	 * @return true if a reference has been added
+	 */
+	private static boolean addReference(Object id,Highlighter hl) {
+		HighlighterInstance inst = _highlighters.get(id);
+		if(inst == null) {
+			Highlighter compiled = getCompiled(id);
+			if(compiled != null)
+				hl = compiled;
+			else if(hl != null)
+				_compiled.put(id,new SoftReference<Highlighter>(hl));
+			else
+				return false;
+			
+			inst = new HighlighterInstance(hl);
+			_highlighters.put(id,inst);
+		}
+		
+		inst.incrementRefs();
+		return true;
+	}
+	
+	/**
+	 * Returns the compiled highlighter with given id. Needs to be called with the lock held.
+	 * 
+	 * @param id the id
+	 * @return the highlighter or null if it is not compiled
+	 */
+	private static Highlighter getCompiled(Object id) {
+		SoftReference<Highlighter> ref = _compiled.get(id);
+		if(ref == null)
+			return null;
+		
+		Highlighter hl = ref.get();
+		// collected by the garbage-collector?
+		if(hl == null)
+			_compiled.remove(id);
+		return hl;
+	}
+	
+	/**
+	 * Removes the unused highlighters now, if the idle-time is 0, or schedules their
+	 * removal after the idle-time. Needs to be called with the lock held.
+	 */
+	private static void scheduleEviction() {
+		if(_idleTime == 0) {
+			evictIdle();
+			return;
+		}
+		
+		if(_evictTimer == null)
+			_evictTimer = new Timer("HighlighterEviction",true);
+		_evictTimer.schedule(new TimerTask() {
+			public void run() {
+				synchronized(HighlightSyntax.class) {
+					evictIdle();
+				}
+			}
+		},_idleTime);
+	}
+	
+	/**
+	 * Removes all highlighters that have not been referenced for the idle-time.
+	 * Needs to be called with the lock held.
+	 */
+	private static void evictIdle() {
+		long now = System.currentTimeMillis();
+		Iterator<HighlighterInstance> it = _highlighters.values().iterator();
+		while(it.hasNext()) {
+			HighlighterInstance inst = it.next();
+			if(inst.getReferences() == 0 && now - inst.getLastUse() >= _idleTime)
+				it.remove();
+		}
 	}
 	
 	/**
@@ -134,7 +327,12 @@ public class HighlightSyntax {
 		/**
 		 * The number of references to this highlighter
 		 */
-		private int _references = 1;
+		private int _references = 0;
+		
+		/**
+		 * The time when the last reference has been removed
+		 */
+		private long _lastUse = 0;
 		
 		/**
 		 * Constructor
@@ -159,6 +357,13 @@ public class HighlightSyntax {
 			return _references;
 		}
 		
+		/**
+		 * @return the time when the last reference has been removed
+		 */
+		public long getLastUse() {
+			return _lastUse;
+		}
+		
 		/**
 		 * Increments the number of references
 		 */
@@ -171,6 +376,8 @@ public class HighlightSyntax {
 		 */
 		public void decrementRefs() {
 			_references = Math.max(0,_references - 1);
+			if(_references == 0)
+				_lastUse = System.currentTimeMillis();
 		}
 	}
 }
\ No newline at end of file
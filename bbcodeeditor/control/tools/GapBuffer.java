@@ -0,0 +1,346 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control.tools;
+
+
+/**
+ * A gap-buffer for characters. The characters are stored in an array with a gap at the
+ * position of the last modification, so that inserting and removing text at this position
+ * is O(1) amortised. This is the common case because the user types at the cursor.
+ * <p>
+ * The buffer is a CharSequence itself, so that it can be read without copying it. The
+ * String that is returned by {@link #toString()} is cached until the next modification.
+ * <p>
+ * As long as the text has not been modified, the buffer just references the String it
+ * has been created with (or the first inserted one). Short texts that are appended to it,
+ * e.g. by the parser that inserts a line in several pieces, are concatenated to this String.
+ * The array will be created by the first other modification. Since most of the text is never
+ * edited after it has been loaded, this saves the array and the gap for it. The array is
+ * kept after building the String, because text that has been edited will most likely be
+ * edited again. It is just dropped if a deletion leaves a gap that is larger than the
+ * remaining text. Readers that need just a part of the text should use
+ * {@link #getChars(int, int, char[], int)} instead of building the String.
+ * <p>
+ * Note that this class is not synchronized.
+ * 
+ * @author hrniels
+ */
+public final class GapBuffer implements CharSequence {
+	
+	/**
+	 * The minimum size of the gap if the buffer has to grow
+	 */
+	private static final int MIN_GAP = 16;
+	
+	/**
+	 * The maximum length up to which appended text is concatenated to the String instead of
+	 * creating the array
+	 */
+	private static final int MAX_CONCAT = 256;
+	
+	/**
+	 * The characters including the gap. null as long as the text has not been modified
+	 */
+	private char[] _buffer = null;
+	
+	/**
+	 * The start of the gap in the buffer
+	 */
+	private int _gapStart;
+	
+	/**
+	 * The end of the gap in the buffer (exclusive)
+	 */
+	private int _gapEnd;
+	
+	/**
+	 * The cached String or the text itself, if the array doesn't exist. null if it has to
+	 * be created
+	 */
+	private String _string;
+	
+	/**
+	 * Constructor
+	 */
+	public GapBuffer() {
+		this("");
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param text the initial text (will not be copied)
+	 */
+	public GapBuffer(String text) {
+		_string = text;
+	}
+	
+	public int length() {
+		if(_buffer == null)
+			return _string.length();
+		
+		return _buffer.length - (_gapEnd - _gapStart);
+	}
+	
+	public char charAt(int index) {
+		if(index < 0 || index >= length())
+			throw new IndexOutOfBoundsException("Invalid index " + index);
+		
+		if(_buffer == null)
+			return _string.charAt(index);
+		if(index < _gapStart)
+			return _buffer[index];
+		return _buffer[index + _gapEnd - _gapStart];
+	}
+	
+	public CharSequence subSequence(int start,int end) {
+		return substring(start,end);
+	}
+	
+	/**
+	 * @param start the start-position
+	 * @param end the end-position (exclusive)
+	 * @return the characters from <code>start</code> to <code>end</code>
+	 * @throws IndexOutOfBoundsException if the interval is invalid
+	 */
+	public String substring(int start,int end) throws IndexOutOfBoundsException {
+		checkInterval(start,end);
+		if(start == 0 && end == length())
+			return toString();
+		if(_buffer == null)
+			return _string.substring(start,end);
+		
+		char[] chars = new char[end - start];
+		getChars(start,end,chars,0);
+		return new String(chars);
+	}
+	
+	/**
+	 * Copies the characters from <code>start</code> to <code>end</code> to the given array
+	 * 
+	 * @param start the start-position
+	 * @param end the end-position (exclusive)
+	 * @param dst the destination-array
+	 * @param dstStart the start-position in the destination-array
+	 * @throws IndexOutOfBoundsException if the interval is invalid
+	 */
+	public void getChars(int start,int end,char[] dst,int dstStart)
+			throws IndexOutOfBoundsException {
+		checkInterval(start,end);
+		
+		if(_buffer == null) {
+			_string.getChars(start,end,dst,dstStart);
+			return;
+		}
+		
+		// copy the part in front of the gap
+		if(start < _gapStart) {
+			int count = Math.min(end,_gapStart) - start;
+			System.arraycopy(_buffer,start,dst,dstStart,count);
+			dstStart += count;
+			start += count;
+		}
+		
+		// copy the part behind the gap
+		if(start < end)
+			System.arraycopy(_buffer,start + _gapEnd - _gapStart,dst,dstStart,end - start);
+	}
+	
+	/**
+	 * Searches for the given character, beginning at <code>from</code>
+	 * 
+	 * @param c the character
+	 * @param from the position to start at
+	 * @return the position of the character or -1 if not found
+	 */
+	public int indexOf(char c,int from) {
+		if(_buffer == null)
+			return _string.indexOf(c,from);
+		
+		for(int i = Math.max(0,from);i < _gapStart;i++) {
+			if(_buffer[i] == c)
+				return i;
+		}
+		
+		int gap = _gapEnd - _gapStart;
+		for(int i = Math.max(from,_gapStart) + gap;i < _buffer.length;i++) {
+			if(_buffer[i] == c)
+				return i - gap;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Appends all characters to the given StringBuffer
+	 * 
+	 * @param buf the StringBuffer
+	 */
+	public void appendTo(StringBuffer buf) {
+		if(_buffer == null) {
+			buf.append(_string);
+			return;
+		}
+		
+		buf.append(_buffer,0,_gapStart);
+		buf.append(_buffer,_gapEnd,_buffer.length - _gapEnd);
+	}
+	
+	/**
+	 * Inserts the given string at the given position
+	 * 
+	 * @param pos the position
+	 * @param str the string to insert
+	 * @throws IndexOutOfBoundsException if the position is invalid
+	 */
+	public void insert(int pos,String str) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos > length())
+			throw new IndexOutOfBoundsException("Invalid position " + pos);
+		
+		int len = str.length();
+		if(len == 0)
+			return;
+		
+		// an empty buffer can simply use the string
+		if(length() == 0) {
+			_buffer = null;
+			_string = str;
+			return;
+		}
+		
+		// appending to a short unmodified text is cheaper without the array
+		if(_buffer == null && pos == _string.length() && pos + len <= MAX_CONCAT) {
+			_string = _string.concat(str);
+			return;
+		}
+		
+		materialize();
+		moveGap(pos);
+		ensureGap(len);
+		str.getChars(0,len,_buffer,_gapStart);
+		_gapStart += len;
+		_string = null;
+	}
+	
+	/**
+	 * Removes the characters from <code>start</code> to <code>end</code>
+	 * 
+	 * @param start the start-position
+	 * @param end the end-position (exclusive)
+	 * @throws IndexOutOfBoundsException if the interval is invalid
+	 */
+	public void delete(int start,int end) throws IndexOutOfBoundsException {
+		checkInterval(start,end);
+		if(start == end)
+			return;
+		
+		// if most of the text is removed, e.g. because a section is split, we don't need
+		// an array for it
+		int remaining = length() - (end - start);
+		if(_buffer == null && remaining <= end - start) {
+			_string = _string.substring(0,start).concat(_string.substring(end));
+			return;
+		}
+		
+		// the removed characters become part of the gap
+		materialize();
+		moveGap(start);
+		_gapEnd += end - start;
+		_string = null;
+		
+		// don't keep an array that is much larger than the text
+		if(_gapEnd - _gapStart > Math.max(MIN_GAP,remaining)) {
+			toString();
+			_buffer = null;
+		}
+	}
+	
+	public String toString() {
+		if(_string == null) {
+			char[] chars = new char[length()];
+			getChars(0,chars.length,chars,0);
+			_string = new String(chars);
+		}
+		
+		return _string;
+	}
+	
+	/**
+	 * Creates the array for the text, if not already done. The gap will be at the end.
+	 */
+	private void materialize() {
+		if(_buffer != null)
+			return;
+		
+		int len = _string.length();
+		_buffer = new char[len + MIN_GAP];
+		_string.getChars(0,len,_buffer,0);
+		_gapStart = len;
+		_gapEnd = _buffer.length;
+	}
+	
+	/**
+	 * Moves the gap to the given position
+	 * 
+	 * @param pos the position
+	 */
+	private void moveGap(int pos) {
+		if(pos < _gapStart) {
+			int count = _gapStart - pos;
+			System.arraycopy(_buffer,pos,_buffer,_gapEnd - count,count);
+			_gapStart -= count;
+			_gapEnd -= count;
+		}
+		else if(pos > _gapStart) {
+			int count = pos - _gapStart;
+			System.arraycopy(_buffer,_gapEnd,_buffer,_gapStart,count);
+			_gapStart += count;
+			_gapEnd += count;
+		}
+	}
+	
+	/**
+	 * Ensures that the gap has at least the given size
+	 * 
+	 * @param required the required size
+	 */
+	private void ensureGap(int required) {
+		if(_gapEnd - _gapStart >= required)
+			return;
+		
+		int size = length() + required;
+		char[] buffer = new char[size + Math.max(MIN_GAP,size / 2)];
+		int tail = _buffer.length - _gapEnd;
+		System.arraycopy(_buffer,0,buffer,0,_gapStart);
+		System.arraycopy(_buffer,_gapEnd,buffer,buffer.length - tail,tail);
+		_gapEnd = buffer.length - tail;
+		_buffer = buffer;
+	}
+	
+	/**
+	 * Checks wether the given interval is valid
+	 * 
+	 * @param start the start-position
+	 * @param end the end-position (exclusive)
+	 * @throws IndexOutOfBoundsException if not
+	 */
+	private void checkInterval(int start,int end) throws IndexOutOfBoundsException {
+		if(start < 0 || end > length() || start > end)
+			throw new IndexOutOfBoundsException("Invalid interval [" + start + "," + end + "]");
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control.tools;
+
+
+/**
+ * Compares the elements of a {@link MyLinkedList} with an int-position (a text- or
+ * pixel-position). This allows us to search for positions without creating objects.
+ * 
+ * @author hrniels
+ */
+public interface IPositionComparator {
+	
+	/**
+	 * compares the given element with the given position
+	 * 
+	 * @param element the element
+	 * @param position the position
+	 * @return a positive value if the position is in front of the element, a negative value
+	 * 	if it is behind the element and 0 if the element contains the position
+	 */
+	int compare(AbstractElement element,int position);
+}
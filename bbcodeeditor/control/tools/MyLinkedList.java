@@ -44,6 +44,11 @@ public final class MyLinkedList implements Collection {
 	 */
 	private AbstractElement _foot;
 	
+	/**
+	 * the index of the element that has been found by the last position-search
+	 */
+	private int _finger = 0;
+	
 	/**
 	 * constructor
 	 */
@@ -177,6 +182,69 @@ public final class MyLinkedList implements Collection {
 		//return Arrays.binarySearch(elements,0,_entries.size(),o,cmp);
 	}
 	
+	/**
+	 * determines the index of the element which contains the given position. The elements
+	 * have to be sorted by the positions.<br>
+	 * The search starts at the element that has been found the last time and its neighbours,
+	 * because most searches are close to the previous one (cursor-movement, painting, ...).
+	 * Otherwise a binary search will be performed. Nothing will be allocated.
+	 * 
+	 * @param position the position to search for
+	 * @param cmp the comparator
+	 * @return the index of the element, or -1 if not found
+	 */
+	public int getIndexOfPosition(int position,IPositionComparator cmp) {
+		Object[] elements = _entries.getElements();
+		int size = _entries.size();
+		if(size == 0)
+			return -1;
+		
+		// check the last one
+		int finger = Math.min(_finger,size - 1);
+		int res = cmp.compare((AbstractElement)elements[finger],position);
+		if(res == 0)
+			return finger;
+		
+		int low,high;
+		if(res < 0) {
+			// check the next one
+			if(finger + 1 < size) {
+				res = cmp.compare((AbstractElement)elements[finger + 1],position);
+				if(res == 0)
+					return _finger = finger + 1;
+				if(res > 0)
+					return -1;
+			}
+			low = finger + 2;
+			high = size - 1;
+		}
+		else {
+			// check the previous one
+			if(finger > 0) {
+				res = cmp.compare((AbstractElement)elements[finger - 1],position);
+				if(res == 0)
+					return _finger = finger - 1;
+				if(res < 0)
+					return -1;
+			}
+			low = 0;
+			high = finger - 2;
+		}
+		
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			res = cmp.compare((AbstractElement)elements[mid],position);
+			if(res < 0)
+				low = mid + 1;
+			else if(res > 0)
+				high = mid - 1;
+			else
+				return _finger = mid;
+		}
+		
+		return -1;
+	}
+	
 	/**
 	 * @param index the index of the element
 	 * @return the AbstractElement at the given position
@@ -20,7 +20,11 @@ package bbcodeeditor.control.view;
 
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.geom.Rectangle2D;
+import java.text.Bidi;
 
 import bbcodeeditor.control.Environment;
 import bbcodeeditor.control.Paragraph;
@@ -36,6 +40,19 @@ import bbcodeeditor.control.TextSection;
  */
 public abstract class AbstractFont {
 	
+	/**
+	 * the maximum length of the paint-text for which we create glyphs. Shaping a long text
+	 * takes longer than measuring the few parts of it we need
+	 */
+	private static final int MAX_GLYPH_LENGTH = 1000;
+	
+	/**
+	 * if the paint-text changes again within this time (in ms), we don't create glyphs for
+	 * it until it stays unchanged for this time. While the user is typing in the section,
+	 * the glyphs would be created for every character
+	 */
+	private static final long GLYPH_DELAY = 500;
+	
 	/**
 	 * the section for this font
 	 */
@@ -57,6 +74,26 @@ public abstract class AbstractFont {
 	 */
 	private int _lastId = -1;
 	
+	/**
+	 * the cached glyphs of the paint-text. null if they have to be created
+	 */
+	private GlyphVector _glyphs = null;
+	
+	/**
+	 * wether the paint-text needs a complex layout, so that we can't use the glyphs
+	 */
+	private boolean _complexText = false;
+	
+	/**
+	 * the time when the glyphs have been invalidated the last time
+	 */
+	private long _glyphsInvalidated = 0;
+	
+	/**
+	 * wether the glyphs have been invalidated twice within {@link #GLYPH_DELAY}
+	 */
+	private boolean _editing = false;
+	
 	/**
 	 * constructor
 	 * 
@@ -145,7 +182,8 @@ public abstract class AbstractFont {
 	 * @return the width of the given string
 	 */
 	int getStringWidth(String str) {
-		if(str.equals(_section.getTextSectionView().getPaintText()))
+		TextSectionView view = _section.getTextSectionView();
+		if(str.length() == view.getPaintTextLength() && str.equals(view.getPaintText()))
 			return getTotalStringWidth();
 		
 		Rectangle2D rect = _fontInfo.getFontMetrics().getStringBounds(
@@ -198,13 +236,101 @@ public abstract class AbstractFont {
 		return _textBounds;
 	}
 	
+	/**
+	 * the x-offset of the character at given index in the paint-text
+	 * 
+	 * @param g the graphics
+	 * @param index the index in the paint-text
+	 * @return the x-offset in pixel
+	 */
+	int getPaintTextOffset(Graphics g,int index) {
+		if(index == 0)
+			return 0;
+		
+		GlyphVector glyphs = getGlyphVector(g);
+		if(glyphs != null)
+			return getGlyphX(glyphs,index);
+		
+		String text = _section.getTextSectionView().getPaintText();
+		return (int)getStringBounds(text.substring(0,index),g).getWidth();
+	}
+	
+	/**
+	 * Returns the glyphs of the paint-text for the given graphics. They will be created if
+	 * necessary and cached until {@link #invalidateGlyphs()} is called.<br>
+	 * If the text needs a complex layout (bidi-text, ligatures, ...) the glyphs don't map
+	 * 1:1 to the characters. In this case we can't use them.<br>
+	 * Long texts and texts that have been changed recently are painted without glyphs, too.
+	 * 
+	 * @param g the graphics
+	 * @return the glyphs or null if they can't be used
+	 */
+	GlyphVector getGlyphVector(Graphics g) {
+		if(_complexText || !(g instanceof Graphics2D))
+			return null;
+		
+		FontRenderContext frc = ((Graphics2D)g).getFontRenderContext();
+		if(_glyphs == null || !_glyphs.getFontRenderContext().equals(frc)) {
+			_glyphs = null;
+			if(_section.getTextSectionView().getPaintTextLength() > MAX_GLYPH_LENGTH)
+				return null;
+			if(_editing && System.currentTimeMillis() - _glyphsInvalidated < GLYPH_DELAY)
+				return null;
+			
+			char[] text = _section.getTextSectionView().getPaintText().toCharArray();
+			if(Bidi.requiresBidi(text,0,text.length)) {
+				_complexText = true;
+				return null;
+			}
+			
+			GlyphVector glyphs = _fontInfo.getFont().layoutGlyphVector(frc,text,0,text.length,
+					Font.LAYOUT_LEFT_TO_RIGHT);
+			if(glyphs.getNumGlyphs() != text.length) {
+				_complexText = true;
+				return null;
+			}
+			for(int i = 0;i < text.length;i++) {
+				if(glyphs.getGlyphCharIndex(i) != i) {
+					_complexText = true;
+					return null;
+				}
+			}
+			
+			_glyphs = glyphs;
+		}
+		
+		return _glyphs;
+	}
+	
+	/**
+	 * Drops the cached glyphs. This has to be done if the paint-text or the font has changed
+	 */
+	void invalidateGlyphs() {
+		_glyphs = null;
+		_complexText = false;
+		
+		long now = System.currentTimeMillis();
+		_editing = now - _glyphsInvalidated < GLYPH_DELAY;
+		_glyphsInvalidated = now;
+	}
+	
+	/**
+	 * @param glyphs the glyphs
+	 * @param index the index of the glyph (may be the number of glyphs)
+	 * @return the x-position of the glyph
+	 */
+	static int getGlyphX(GlyphVector glyphs,int index) {
+		return (int)glyphs.getGlyphPosition(index).getX();
+	}
+	
 	/**
 	 * @param str the string
 	 * @param g the graphics
 	 * @return the bounds of the given string
 	 */
 	Rectangle2D getStringBounds(String str,Graphics g) {
-		if(str.equals(_section.getTextSectionView().getPaintText())) {
+		TextSectionView view = _section.getTextSectionView();
+		if(str.length() == view.getPaintTextLength() && str.equals(view.getPaintText())) {
 			if(_textBounds == null)
 				refreshTextBounds();
 			
@@ -319,4 +445,24 @@ public abstract class AbstractFont {
 	 * @return the width of the painted string
 	 */
 	abstract int paintString(Graphics g,String text,int x,int y,boolean isSelected);
+	
+	/**
+	 * paints the paint-text from <code>start</code> to <code>end</code> at the given
+	 * position. By default the substring will be painted.
+	 * 
+	 * @param g the graphics-object
+	 * @param start the start-index in the paint-text
+	 * @param end the end-index in the paint-text
+	 * @param x the x-position of the text
+	 * @param y the y-position of the text
+	 * @param isSelected should the text be painted as selected?
+	 * @return the width of the painted string
+	 */
+	int paintString(Graphics g,int start,int end,int x,int y,boolean isSelected) {
+		if(start >= end)
+			return 0;
+		
+		String text = _section.getTextSectionView().getPaintText();
+		return paintString(g,text.substring(start,end),x,y,isSelected);
+	}
 }
\ No newline at end of file
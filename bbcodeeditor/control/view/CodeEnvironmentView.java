@@ -19,7 +19,11 @@
 package bbcodeeditor.control.view;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.swing.UIManager;
 
@@ -45,6 +49,16 @@ public class CodeEnvironmentView extends EnvironmentView {
 	 * Refresh Code-title
 	 */
 	public static final byte CODE_TITLE			= 4;
+	
+	/**
+	 * The font for the title
+	 */
+	private static final Font TITLE_FONT = new Font("Verdana",Font.PLAIN,12);
+	
+	/**
+	 * The maximum number of cached line-numbers
+	 */
+	private static final int MAX_CACHED_LINE_NUMBERS = 512;
 
 	/**
 	 * The language-name we want to display in the header
@@ -56,6 +70,21 @@ public class CodeEnvironmentView extends EnvironmentView {
 	 */
 	private int _titlePos = -1;
 	
+	/**
+	 * The cached glyph-vectors of the line-numbers we've painted
+	 */
+	private final Map<Integer,GlyphVector> _lineNumberGlyphs = new HashMap<Integer,GlyphVector>();
+	
+	/**
+	 * The font of the cached line-numbers
+	 */
+	private Font _lineNumberFont = null;
+	
+	/**
+	 * The font-render-context of the cached line-numbers
+	 */
+	private FontRenderContext _lineNumberFRC = null;
+	
 	/**
 	 * Constructor
 	 * 
@@ -90,7 +119,7 @@ public class CodeEnvironmentView extends EnvironmentView {
 			return;
 		}
 		
-		g.setFont(new Font("Verdana",Font.PLAIN,12));
+		g.setFont(TITLE_FONT);
 		FontMetrics met = g.getFontMetrics();
 		Object syntax = ((CodeEnvironment)_env).getHighlightSyntax();
 		Highlighter hl = HighlightSyntax.getHighlighter(syntax);
@@ -171,7 +200,7 @@ public class CodeEnvironmentView extends EnvironmentView {
 				g.fillRect(saveX,saveY,totalWidth,_variableTopPadding);
 				
 				g.setColor(titleFG);
-				g.setFont(new Font("Verdana",Font.PLAIN,12));
+				g.setFont(TITLE_FONT);
 				g.drawString(_langName,saveX + 5,saveY + _variableTopPadding / 2 + _titlePos);
 			}
 		}
@@ -188,14 +217,9 @@ public class CodeEnvironmentView extends EnvironmentView {
 		Font f = null;
 		FontMetrics fm = null;
 		if(tf.displayCodeLineNumbers()) {
-			Paragraph cp = p;
-			while(cp.getPrev() != null) {
-				i++;
-				cp = (Paragraph)cp.getPrev();
-			}
-			
+			i = _env.getParagraphIndex(p) + 1;
 			f = getDefaultFont();
-			fm = g.getFontMetrics(f);
+			fm = getDefaultFontMetrics();
 		}
 		
 		// loop through the paragraphs and paint them
@@ -211,10 +235,8 @@ public class CodeEnvironmentView extends EnvironmentView {
 			// draw the line-number
 			if(tf.displayCodeLineNumbers()) {
 				int firstLineHeight = p.getFirstLine().getLineView().getHeight();
-				g.setFont(f);
 				g.setColor(Color.BLACK);
-				g.drawString(String.valueOf(i),saveX + 3,
-						lastYPos + firstLineHeight - fm.getDescent());
+				paintLineNumber(g,f,i,saveX + 3,lastYPos + firstLineHeight - fm.getDescent());
 				i++;
 			}
 			
@@ -261,4 +283,43 @@ public class CodeEnvironmentView extends EnvironmentView {
 		
 		y.increaseValue(outerPadding);
 	}
+	
+	/**
+	 * Paints the given line-number. Uses the cached glyph-vector, if possible.
+	 * 
+	 * @param g the graphics-object
+	 * @param f the font to use
+	 * @param number the line-number
+	 * @param x the x-position
+	 * @param y the y-position of the baseline
+	 */
+	private void paintLineNumber(Graphics g,Font f,int number,int x,int y) {
+		if(!(g instanceof Graphics2D)) {
+			g.setFont(f);
+			g.drawString(String.valueOf(number),x,y);
+			return;
+		}
+		
+		// the cached glyph-vectors are invalid if the font or the render-context has changed
+		Graphics2D g2 = (Graphics2D)g;
+		FontRenderContext frc = g2.getFontRenderContext();
+		if(f != _lineNumberFont || !frc.equals(_lineNumberFRC)) {
+			_lineNumberGlyphs.clear();
+			_lineNumberFont = f;
+			_lineNumberFRC = frc;
+		}
+		
+		Integer key = Integer.valueOf(number);
+		GlyphVector glyphs = _lineNumberGlyphs.get(key);
+		if(glyphs == null) {
+			// we need just the visible ones, so throw the others away if there are too many
+			if(_lineNumberGlyphs.size() >= MAX_CACHED_LINE_NUMBERS)
+				_lineNumberGlyphs.clear();
+			
+			glyphs = f.createGlyphVector(frc,String.valueOf(number));
+			_lineNumberGlyphs.put(key,glyphs);
+		}
+		
+		g2.drawGlyphVector(glyphs,x,y);
+	}
 }
\ No newline at end of file
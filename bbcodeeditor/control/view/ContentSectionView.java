@@ -18,9 +18,11 @@
 
 package bbcodeeditor.control.view;
 
+import java.awt.Point;
 import java.awt.Rectangle;
 
 import bbcodeeditor.control.ContentSection;
+import bbcodeeditor.control.Paragraph;
 
 /**
  * The view for a content-section
@@ -43,6 +45,15 @@ public abstract class ContentSectionView extends View implements IContentSection
 		_section = section;
 	}
 	
+	public Point getPaintPos() {
+		// the paragraph may not have positioned its sections yet
+		Paragraph p = _section.getSectionParagraph();
+		if(p != null)
+			p.getParagraphView().ensurePaintPositions();
+		
+		return super.getPaintPos();
+	}
+	
 	/**
 	 * checks wether this section is visible
 	 * 
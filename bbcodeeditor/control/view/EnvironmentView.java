@@ -19,9 +19,10 @@
 package bbcodeeditor.control.view;
 
 import java.awt.*;
-import java.util.Comparator;
 
 import bbcodeeditor.control.*;
+import bbcodeeditor.control.tools.AbstractElement;
+import bbcodeeditor.control.tools.IPositionComparator;
 import bbcodeeditor.control.tools.MutableInt;
 
 
@@ -33,6 +34,26 @@ import bbcodeeditor.control.tools.MutableInt;
 public class EnvironmentView extends View implements IEnvironmentView,
 		EnvironmentProperties.PropertyListener {
 	
+	/**
+	 * compares the paragraphs with y-pixel-positions
+	 */
+	private static final IPositionComparator PARA_PIXEL_CMP = new IPositionComparator() {
+		public int compare(AbstractElement element,int y) {
+			Paragraph p = (Paragraph)element;
+			Point paintPos = p.getView().getPaintPos();
+			if(paintPos == null)
+				return 1;
+			
+			if(y < paintPos.y)
+				return 1;
+			
+			if(y > paintPos.y + p.getParagraphView().getHeight())
+				return -1;
+			
+			return 0;
+		}
+	};
+	
 	/**
 	 * Refresh the paddings
 	 */
@@ -377,25 +398,7 @@ public class EnvironmentView extends View implements IEnvironmentView,
 			return -2;
 		
 		// the lines are sorted, so we can use binarySearch :)
-		int index = _env.getParagraphs().getIndexBinarySearch(new Integer(y),new Comparator() {
-			public int compare(Object arg0,Object arg1) {
-				if(arg0 instanceof Paragraph && arg1 instanceof Integer) {
-					int pos = ((Integer)arg1).intValue();
-					Paragraph p = (Paragraph)arg0;
-					Point paintPos = p.getView().getPaintPos();
-					if(paintPos == null)
-						return 1;
-					
-					if(pos < paintPos.y)
-						return 1;
-					
-					if(pos > paintPos.y + p.getParagraphView().getHeight())
-						return -1;
-				}
-				
-				return 0;
-			}
-		});
+		int index = _env.getParagraphs().getIndexOfPosition(y,PARA_PIXEL_CMP);
 		
 		if(index >= 0)
 			return index;
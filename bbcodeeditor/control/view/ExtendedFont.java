@@ -22,6 +22,7 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.font.GlyphVector;
 import java.awt.font.TextAttribute;
 import java.awt.geom.Rectangle2D;
 import java.util.HashMap;
@@ -80,6 +81,12 @@ public class ExtendedFont extends AbstractFont {
 		return (int)rect.getWidth();
 	}
 
+	GlyphVector getGlyphVector(Graphics g) {
+		// the glyphs don't contain the decorations of the font-attributes (underline,
+		// background, ...), so we have to paint the strings
+		return null;
+	}
+
 	int paintString(Graphics g,String text,int x,int y,boolean isSelected) {
 		if(text.length() == 0)
 			return 0;
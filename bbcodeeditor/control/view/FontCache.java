@@ -36,6 +36,21 @@ public class FontCache {
 	 */
 	private final Map _fonts = new HashMap();
 	
+	/**
+	 * The number of lookups that found a font
+	 */
+	private int _hits = 0;
+	
+	/**
+	 * The number of lookups that found no font
+	 */
+	private int _misses = 0;
+	
+	/**
+	 * Should the hits and misses be counted?
+	 */
+	private boolean _countLookups = false;
+	
 	/**
 	 * Constructor
 	 */
@@ -61,11 +76,48 @@ public class FontCache {
 	public FontInfo getFont(int id) {
 		Integer iid = Integer.valueOf(id);
 		FontInfo info = (FontInfo)_fonts.get(iid);
-		if(info != null)
+		if(info != null) {
+			if(_countLookups)
+				_hits++;
 			return info;
+		}
 		
+		if(_countLookups)
+			_misses++;
 		return null;
 	}
+	
+	/**
+	 * @return the number of lookups that found a font
+	 */
+	public int getHits() {
+		return _hits;
+	}
+	
+	/**
+	 * @return the number of lookups that found no font
+	 */
+	public int getMisses() {
+		return _misses;
+	}
+	
+	/**
+	 * Sets wether the hits and misses should be counted. This is enabled together with
+	 * the metrics of the text-field
+	 * 
+	 * @param enabled the new value
+	 */
+	public void setStatisticsEnabled(boolean enabled) {
+		_countLookups = enabled;
+	}
+	
+	/**
+	 * Resets the number of hits and misses
+	 */
+	public void resetStatistics() {
+		_hits = 0;
+		_misses = 0;
+	}
 
 	/**
 	 * @return the number of cached fonts
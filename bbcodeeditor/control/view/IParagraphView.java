@@ -48,6 +48,13 @@ public interface IParagraphView {
 	 */
 	int getHeight();
 	
+	/**
+	 * @return the width that the lines of this paragraph required when the paint-positions
+	 * 	have been set the last time. For paragraphs with an environment it is the
+	 * 	required width of the widest paragraph in it.
+	 */
+	int getRequiredWidth();
+	
 	/**
 	 * determines the line which will be painted at the given y-position
 	 * 
@@ -75,6 +82,18 @@ public interface IParagraphView {
 	 */
 	void setPaintPositions(Graphics g,MutableInt x,MutableInt y,MutableInt maxWidth);
 	
+	/**
+	 * @return wether just the paint-position of the paragraph is known, because it has
+	 * 	not been in the layout-area
+	 * @see bbcodeeditor.control.AbstractTextField#isInLayoutArea(int,int)
+	 */
+	boolean isPaintPosPending();
+	
+	/**
+	 * Sets the paint-positions of the lines and sections, if they are still pending
+	 */
+	void ensurePaintPositions();
+	
 	/**
 	 * paints this line and calls the paint-method of the sections
 	 * 
@@ -126,9 +126,11 @@ public class LineView extends View implements ILineView {
 		_descent = maxDesc;
 		_height = max;
 		
-		// we have to refresh all if the height has changed
-		if(_height != old && _line.getParentEnvironment().getTextField().getPaintPosManager() != null)
-			_line.getParentEnvironment().getTextField().getPaintPosManager().markAllDirty();
+		// we have to refresh the paragraph if the height has changed. the following ones
+		// will be moved
+		PaintPosManager paintPos = _line.getParentEnvironment().getTextField().getPaintPosManager();
+		if(_height != old && paintPos != null)
+			paintPos.addParagraph(_line.getParagraph());
 	}
 	
 	public int getHeight() {
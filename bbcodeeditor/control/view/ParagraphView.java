@@ -18,14 +18,18 @@
 
 package bbcodeeditor.control.view;
 
+import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.util.Comparator;
+import java.awt.image.BufferedImage;
 
 import javax.swing.UIManager;
 
 import bbcodeeditor.control.*;
+import bbcodeeditor.control.tools.AbstractElement;
+import bbcodeeditor.control.tools.IPositionComparator;
 import bbcodeeditor.control.tools.MutableInt;
 
 
@@ -36,11 +40,43 @@ import bbcodeeditor.control.tools.MutableInt;
  */
 public class ParagraphView extends View implements IParagraphView {
 	
+	/**
+	 * compares the lines with y-pixel-positions
+	 */
+	private static final IPositionComparator LINE_PIXEL_CMP = new IPositionComparator() {
+		public int compare(AbstractElement element,int y) {
+			View l = ((Line)element).getView();
+			Point paintPos = l.getPaintPos();
+			if(paintPos == null)
+				return 1;
+			
+			if(y < paintPos.y)
+				return 1;
+			
+			if(y > paintPos.y + ((ILineView)l).getHeight())
+				return -1;
+			
+			return 0;
+		}
+	};
+	
 	/**
 	 * The Paragraph-instance
 	 */
 	protected final Paragraph _p;
 	
+	/**
+	 * Stores wether the paint-positions of the lines and sections have not been set yet.
+	 * In this case the paint-position of the paragraph itself is stored in this view.
+	 */
+	private boolean _pendingPaintPos = false;
+	
+	/**
+	 * The width that has been required by the lines of this paragraph when the
+	 * paint-positions have been set the last time
+	 */
+	private int _requiredWidth = 0;
+	
 	/**
 	 * Constructor
 	 * 
@@ -59,9 +95,26 @@ public class ParagraphView extends View implements IParagraphView {
 	}
 	
 	public Point getPaintPos() {
+		if(_pendingPaintPos)
+			return super.getPaintPos();
+		
 		return _p.getFirstSection().getView().getPaintPos();
 	}
 	
+	public boolean isPaintPosPending() {
+		return _pendingPaintPos;
+	}
+	
+	public void ensurePaintPositions() {
+		if(!_pendingPaintPos)
+			return;
+		
+		Point pos = super.getPaintPos();
+		_pendingPaintPos = false;
+		setPaintPos(null);
+		setLinePaintPositions(new MutableInt(pos.x),new MutableInt(pos.y),new MutableInt(0));
+	}
+	
 	public int getHeight() {
 		int height = 0;
 		Line l = _p.getFirstLine();
@@ -73,6 +126,22 @@ public class ParagraphView extends View implements IParagraphView {
 		
 		return height;
 	}
+	
+	public int getRequiredWidth() {
+		if(!_p.containsEnvironment())
+			return _requiredWidth;
+		
+		// the environments don't require additional width, so it's the widest paragraph
+		int width = 0;
+		Environment env = (Environment)_p.getFirstSection();
+		Paragraph p = env.getFirstParagraph();
+		do {
+			width = Math.max(width,p.getParagraphView().getRequiredWidth());
+			p = (Paragraph)p.getNext();
+		} while(p != null);
+		
+		return width;
+	}
 
 	public void refreshTabWidth() {
 		Section s = _p.getFirstSection();
@@ -130,25 +199,7 @@ public class ParagraphView extends View implements IParagraphView {
 			return -2;
 		
 		// the lines are sorted, so we can use binarySearch :)
-		int index = _p.getLines().getIndexBinarySearch(new Integer(y),new Comparator() {
-			public int compare(Object arg0,Object arg1) {
-				if(arg0 instanceof Line && arg1 instanceof Integer) {
-					int pos = ((Integer)arg1).intValue();
-					View l = ((Line)arg0).getView();
-					Point paintPos = l.getPaintPos();
-					if(paintPos == null)
-						return 1;
-					
-					if(pos < paintPos.y)
-						return 1;
-					
-					if(pos > paintPos.y + ((ILineView)l).getHeight())
-						return -1;
-				}
-				
-				return 0;
-			}
-		});
+		int index = _p.getLines().getIndexOfPosition(y,LINE_PIXEL_CMP);
 		
 		if(index >= 0)
 			return index;
@@ -167,63 +218,136 @@ public class ParagraphView extends View implements IParagraphView {
 			// restore the x-position
 			x.setValue(saveX);
 		}
+		// the lines of invisible paragraphs will be positioned as soon as they are requested
+		else if(getTextField().isVirtualLayoutEnabled() &&
+				!getTextField().isInLayoutArea(y.getValue(),getHeight()))
+			setPendingPaintPositions(x,y,maxWidth);
 		else {
-			IEnvironmentView envView = _p.getParentEnvironment().getEnvView();
-			int align = _p.getHorizontalAlignment();
-			int envWidth = 0;
-			int textStart = envView.getGlobalTextStart();
+			_pendingPaintPos = false;
+			setPaintPos(null);
+			setLinePaintPositions(x,y,maxWidth);
+		}
+	}
+	
+	/**
+	 * Stores just the paint-position of the paragraph and calculates the required width.
+	 * The lines and sections will get their paint-positions by
+	 * {@link #ensurePaintPositions()}.
+	 * 
+	 * @param x the x-position
+	 * @param y the y-position (will be changed)
+	 * @param maxWidth contains the max-width after the call
+	 */
+	private void setPendingPaintPositions(MutableInt x,MutableInt y,MutableInt maxWidth) {
+		_pendingPaintPos = true;
+		setPaintPos(new Point(x.getValue(),y.getValue()));
+		
+		int align = _p.getHorizontalAlignment();
+		int textStart = _p.getParentEnvironment().getEnvView().getGlobalTextStart();
+		
+		// the paragraph may not have been wrapped yet. as soon as it is, its lines fit into
+		// the visible width, so we don't want to stretch the control until then
+		int limit = Integer.MAX_VALUE;
+		Rectangle area = getTextField().getLayoutArea();
+		if(area != null && _p.getParentEnvironment().getWordWrapStrategie() instanceof WordWrapPixelBased)
+			limit = area.width;
+		
+		int width = 0;
+		Line l = _p.getFirstLine();
+		do {
+			ILineView lView = l.getLineView();
 			
+			// the same as in setLinePaintPositions(), but without moving the sections
+			int totalWidth = 0;
 			switch(align) {
+				case ParagraphAttributes.ALIGN_LEFT:
+					totalWidth = x.getValue() + lView.getPixelWidth() + textStart;
+					break;
+				case ParagraphAttributes.ALIGN_CENTER:
 				case ParagraphAttributes.ALIGN_RIGHT:
+					totalWidth = lView.getPixelWidth() + textStart * 2;
+					break;
+			}
+			
+			width = Math.max(width,Math.min(totalWidth,limit));
+			y.increaseValue(lView.getHeight());
+			l = (Line)l.getNext();
+		} while(l != null);
+		
+		_requiredWidth = width;
+		if(width > maxWidth.getValue())
+			maxWidth.setValue(width);
+	}
+	
+	/**
+	 * Sets the paint-positions of all lines and sections in this paragraph
+	 * 
+	 * @param x the x-position
+	 * @param y the y-position (will be changed)
+	 * @param maxWidth contains the max-width after the call
+	 */
+	private void setLinePaintPositions(MutableInt x,MutableInt y,MutableInt maxWidth) {
+		int saveX = x.getValue();
+		IEnvironmentView envView = _p.getParentEnvironment().getEnvView();
+		int align = _p.getHorizontalAlignment();
+		int envWidth = 0;
+		int textStart = envView.getGlobalTextStart();
+		
+		switch(align) {
+			case ParagraphAttributes.ALIGN_RIGHT:
+			case ParagraphAttributes.ALIGN_CENTER:
+				envWidth = envView.getTotalWidth() - envView.getInnerLeftPadding() -
+									 envView.getInnerRightPadding();
+				break;
+		}
+		
+		// go through all lines
+		int width = 0;
+		int lineWidth = 0;
+		Line l = _p.getFirstLine();
+		ILineView lView = l.getLineView();
+		do {
+			switch(align) {
 				case ParagraphAttributes.ALIGN_CENTER:
-					envWidth = envView.getTotalWidth() - envView.getInnerLeftPadding() -
-										 envView.getInnerRightPadding();
+					lineWidth = lView.getPixelWidth();
+					x.increaseValue((envWidth - lineWidth) / 2);
+					break;
+				case ParagraphAttributes.ALIGN_RIGHT:
+					lineWidth = lView.getPixelWidth();
+					x.increaseValue(envWidth - lineWidth);
 					break;
 			}
 			
-			// go through all lines
-			int lineWidth = 0;
-			Line l = _p.getFirstLine();
-			ILineView lView = l.getLineView();
-			do {
-				switch(align) {
-					case ParagraphAttributes.ALIGN_CENTER:
-						lineWidth = lView.getPixelWidth();
-						x.increaseValue((envWidth - lineWidth) / 2);
-						break;
-					case ParagraphAttributes.ALIGN_RIGHT:
-						lineWidth = lView.getPixelWidth();
-						x.increaseValue(envWidth - lineWidth);
-						break;
-				}
-				
-				// set paint-positions in line
-				lView.setPaintPositions(x,y);
-				
-				// determine the line-width and store it th maxWidth if necessary
-				int totalWidth = 0;
-				switch(align) {
-					case ParagraphAttributes.ALIGN_LEFT:
-						totalWidth = x.getValue() + textStart;
-						break;
-					case ParagraphAttributes.ALIGN_CENTER:
-					case ParagraphAttributes.ALIGN_RIGHT:
-						totalWidth = lineWidth + textStart * 2;
-						break;
-				}
+			// set paint-positions in line
+			lView.setPaintPositions(x,y);
+			
+			// determine the line-width and store it th maxWidth if necessary
+			int totalWidth = 0;
+			switch(align) {
+				case ParagraphAttributes.ALIGN_LEFT:
+					totalWidth = x.getValue() + textStart;
+					break;
+				case ParagraphAttributes.ALIGN_CENTER:
+				case ParagraphAttributes.ALIGN_RIGHT:
+					totalWidth = lineWidth + textStart * 2;
+					break;
+			}
 
-				if(totalWidth > maxWidth.getValue())
-					maxWidth.setValue(totalWidth);
-				
-				// change x,y for the next line
-				y.increaseValue(lView.getHeight());
-				x.setValue(saveX);
-				
-				l = (Line)l.getNext();
-				if(l != null)
-					lView = l.getLineView();
-			} while(l != null);
-		}
+			width = Math.max(width,totalWidth);
+			
+			// change x,y for the next line
+			y.increaseValue(lView.getHeight());
+			x.setValue(saveX);
+			
+			l = (Line)l.getNext();
+			if(l != null)
+				lView = l.getLineView();
+		} while(l != null);
+
+		
+		_requiredWidth = width;
+		if(width > maxWidth.getValue())
+			maxWidth.setValue(width);
 	}
 	
 	public void paint(Graphics g,Rectangle paintRect,MutableInt x,MutableInt y,
@@ -239,59 +363,172 @@ public class ParagraphView extends View implements IParagraphView {
 			x.setValue(saveX);
 		}
 		else {
-			IEnvironmentView envView = _p.getParentEnvironment().getEnvView();
-			int align = _p.getHorizontalAlignment();
-			int envWidth = 0;
+			// use the cached image, if possible
+			RasterCache cache = getTextField().getRasterCache();
+			if(cache.isEnabled() && paintCached(g,cache,x,y,showCursor,selStart,selEnd))
+				return;
+			
+			paintLines(g,paintRect,x,y,showCursor,selStart,selEnd);
+		}
+	}
+	
+	/**
+	 * Paints the lines of this paragraph
+	 * 
+	 * @param g the graphics-object
+	 * @param paintRect the rectangle which should be painted
+	 * @param x the x-position
+	 * @param y the y-position
+	 * @param showCursor should the cursor be painted?
+	 * @param selStart the start of the selection
+	 * @param selEnd the end of the selection
+	 */
+	private void paintLines(Graphics g,Rectangle paintRect,MutableInt x,MutableInt y,
+			boolean showCursor,int selStart,int selEnd) {
+		int saveX = x.getValue();
+		IEnvironmentView envView = _p.getParentEnvironment().getEnvView();
+		int align = _p.getHorizontalAlignment();
+		int envWidth = 0;
+		switch(align) {
+			case ParagraphAttributes.ALIGN_RIGHT:
+			case ParagraphAttributes.ALIGN_CENTER:
+				envWidth = envView.getTotalWidth() - envView.getInnerLeftPadding() -
+									 envView.getInnerRightPadding();
+				break;
+		}
+
+		// go through all lines
+		int lineWidth = 0;
+		Line l = _p.getFirstLine();
+		ILineView lView = l.getLineView();
+		do {
 			switch(align) {
-				case ParagraphAttributes.ALIGN_RIGHT:
 				case ParagraphAttributes.ALIGN_CENTER:
-					envWidth = envView.getTotalWidth() - envView.getInnerLeftPadding() -
-										 envView.getInnerRightPadding();
+					lineWidth = lView.getPixelWidth();
+					x.increaseValue((envWidth - lineWidth) / 2);
+					break;
+				case ParagraphAttributes.ALIGN_RIGHT:
+					lineWidth = lView.getPixelWidth();
+					x.increaseValue(envWidth - lineWidth);
 					break;
 			}
-
-			// go through all lines
-			int lineWidth = 0;
-			Line l = _p.getFirstLine();
-			ILineView lView = l.getLineView();
-			do {
-				switch(align) {
-					case ParagraphAttributes.ALIGN_CENTER:
-						lineWidth = lView.getPixelWidth();
-						x.increaseValue((envWidth - lineWidth) / 2);
-						break;
-					case ParagraphAttributes.ALIGN_RIGHT:
-						lineWidth = lView.getPixelWidth();
-						x.increaseValue(envWidth - lineWidth);
-						break;
-				}
-				
-				// paint the line
-				lView.paint(g,paintRect,x,y.getValue(),showCursor,selStart,selEnd);
-				
-				// highlight the line-wrap if necessary
-				if(l.isLast()) {
-					if(selStart != -1 || selEnd != -1) {
-						ContentSection lastSec = (ContentSection)l.getLastSection();
-						if(selStart <= lastSec.getEndPosInEnv() + 1 &&
-								selEnd > lastSec.getEndPosInEnv() + 1) {
-							int width = lastSec.getSectionView().getCharWidth();
-							g.setColor(UIManager.getColor("FormattedTextField.selectionBackground"));
-							Point paintPos = lastSec.getView().getPaintPos();
-							lastSec.getSectionView().paintRect(g,paintPos.x,y.getValue(),
-								lastSec.getElementLength(),width);
-						}
+			
+			// paint the line
+			lView.paint(g,paintRect,x,y.getValue(),showCursor,selStart,selEnd);
+			
+			// highlight the line-wrap if necessary
+			if(l.isLast()) {
+				if(selStart != -1 || selEnd != -1) {
+					ContentSection lastSec = (ContentSection)l.getLastSection();
+					if(selStart <= lastSec.getEndPosInEnv() + 1 &&
+							selEnd > lastSec.getEndPosInEnv() + 1) {
+						int width = lastSec.getSectionView().getCharWidth();
+						g.setColor(UIManager.getColor("FormattedTextField.selectionBackground"));
+						Point paintPos = lastSec.getView().getPaintPos();
+						lastSec.getSectionView().paintRect(g,paintPos.x,y.getValue(),
+							lastSec.getElementLength(),width);
 					}
 				}
-				
-				// change x,y for the next line
-				y.increaseValue(lView.getHeight());
-				x.setValue(saveX);
-				
-				l = (Line)l.getNext();
-				if(l != null)
-					lView = l.getLineView();
-			} while(l != null);
+			}
+			
+			// change x,y for the next line
+			y.increaseValue(lView.getHeight());
+			x.setValue(saveX);
+			
+			l = (Line)l.getNext();
+			if(l != null)
+				lView = l.getLineView();
+		} while(l != null);
+	}
+	
+	/**
+	 * Paints this paragraph from the raster-cache. If there is no valid image, it will be
+	 * created. The cursor will be painted on top of the image.
+	 * 
+	 * @param g the graphics-object
+	 * @param cache the raster-cache
+	 * @param x the x-position
+	 * @param y the y-position
+	 * @param showCursor should the cursor be painted?
+	 * @param selStart the start of the selection
+	 * @param selEnd the end of the selection
+	 * @return true if the paragraph has been painted
+	 */
+	private boolean paintCached(Graphics g,RasterCache cache,MutableInt x,MutableInt y,
+			boolean showCursor,int selStart,int selEnd) {
+		int width = getTextField().getWidth();
+		int height = getHeight();
+		if(width <= 0 || height <= 0 || containsImages())
+			return false;
+		
+		// the selected part of this paragraph (including the line-end) is part of the key
+		int paraStart = _p.getElementStartPos();
+		int paraEnd = _p.getElementEndPos() + 2;
+		int relStart = -1;
+		int relEnd = -1;
+		if(selStart != selEnd && selStart <= paraEnd && selEnd >= paraStart) {
+			relStart = Math.max(selStart,paraStart) - paraStart;
+			relEnd = Math.min(selEnd,paraEnd) - paraStart;
+		}
+		
+		int top = y.getValue();
+		BufferedImage img = cache.getImage(_p,width,height,relStart,relEnd);
+		if(img == null) {
+			img = cache.createImage(_p,width,height,relStart,relEnd);
+			if(img == null)
+				return false;
+			
+			Graphics2D ig = img.createGraphics();
+			if(g instanceof Graphics2D)
+				ig.setRenderingHints(((Graphics2D)g).getRenderingHints());
+			ig.translate(0,-top);
+			paintLines(ig,new Rectangle(0,top,width,height),new MutableInt(x.getValue()),
+					new MutableInt(top),false,selStart,selEnd);
+			ig.dispose();
 		}
+		
+		g.drawImage(img,0,top,null);
+		y.increaseValue(height);
+		
+		if(showCursor)
+			paintCursor(g);
+		return true;
+	}
+	
+	/**
+	 * Paints the cursor, if it is in this paragraph
+	 * 
+	 * @param g the graphics-object
+	 */
+	private void paintCursor(Graphics g) {
+		Environment env = _p.getParentEnvironment();
+		ContentSection sec = env.getCurrentSection();
+		if(sec == null || sec.getSectionParagraph() != _p)
+			return;
+		
+		Point pos = sec.getView().getPaintPos();
+		if(pos == null)
+			return;
+		
+		int cursorInSec = env.getCurrentCursorPos() - _p.getElementStartPos() -
+			sec.getElementStartPos();
+		g.setColor(Color.BLACK);
+		sec.getSectionView().paintRect(g,pos.x,pos.y,cursorInSec,2);
+	}
+	
+	/**
+	 * @return wether this paragraph contains images. We don't cache them because they may
+	 * 	be animated or not loaded yet
+	 */
+	private boolean containsImages() {
+		Section s = _p.getFirstSection();
+		do {
+			if(s instanceof ImageSection)
+				return true;
+			
+			s = s.getNextInParagraph();
+		} while(s != null);
+		
+		return false;
 	}
 }
\ No newline at end of file
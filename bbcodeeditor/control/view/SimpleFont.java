@@ -21,6 +21,9 @@ package bbcodeeditor.control.view;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.font.GlyphVector;
 import java.awt.geom.Rectangle2D;
 
 import javax.swing.UIManager;
@@ -52,6 +55,40 @@ public final class SimpleFont extends AbstractFont {
 		if(text.length() == 0)
 			return 0;
 		
+		int width = getStringWidth(text);
+		paintString(g,text,null,0,x,y,width,isSelected);
+		return width;
+	}
+	
+	int paintString(Graphics g,int start,int end,int x,int y,boolean isSelected) {
+		GlyphVector glyphs = getGlyphVector(g);
+		if(glyphs == null)
+			return super.paintString(g,start,end,x,y,isSelected);
+		
+		if(start >= end)
+			return 0;
+		
+		// the glyphs are positioned already, so we don't have to measure anything
+		int offset = getGlyphX(glyphs,start);
+		int width = getGlyphX(glyphs,end) - offset;
+		paintString(g,null,glyphs,offset,x,y,width,isSelected);
+		return width;
+	}
+	
+	/**
+	 * paints the given string or the part of the glyphs at the given position
+	 * 
+	 * @param g the graphics-object
+	 * @param text the text to draw (null if the glyphs should be used)
+	 * @param glyphs the glyphs of the paint-text (null if the text should be used)
+	 * @param offset the x-offset of the part of the glyphs to paint
+	 * @param x the x-position of the text
+	 * @param y the y-position of the text
+	 * @param width the width of the text
+	 * @param isSelected should the text be painted as selected?
+	 */
+	private void paintString(Graphics g,String text,GlyphVector glyphs,int offset,int x,
+			int y,int width,boolean isSelected) {
 		TextAttributes attributes = _section.getAttributes();
 		IEnvironmentView envView = _section.getParentEnvironment().getEnvView();
 		
@@ -75,7 +112,6 @@ public final class SimpleFont extends AbstractFont {
 		g.setFont(_fontInfo.getFont());
 		
 		// grab some infos
-		int width = getStringWidth(text);
 		int height = getStringHeight();
 		ILineView lView = _section.getSectionLine().getLineView();
 		int descent = lView.getDescent();
@@ -95,7 +131,17 @@ public final class SimpleFont extends AbstractFont {
 		
 		// draw the text
 		g.setColor(foreGround);
-		g.drawString(text,x,y + lineHeight - descent);
+		if(glyphs == null)
+			g.drawString(text,x,y + lineHeight - descent);
+		else if(offset == 0 && width == getGlyphX(glyphs,glyphs.getNumGlyphs()))
+			((Graphics2D)g).drawGlyphVector(glyphs,x,y + lineHeight - descent);
+		else {
+			// paint just the requested part of the glyphs
+			Shape clip = g.getClip();
+			g.clipRect(x,y,width,lineHeight);
+			((Graphics2D)g).drawGlyphVector(glyphs,x - offset,y + lineHeight - descent);
+			g.setClip(clip);
+		}
 		
 		// draw line under the text
 		if(attributes.isUnderline() || isLink) {
@@ -112,8 +158,6 @@ public final class SimpleFont extends AbstractFont {
 			int yPos = y + lineHeight - descent - height / 2 + getDescent();
 			g.drawLine(x,yPos,x + width,yPos);
 		}
-		
-		return width;
 	}
 
 	/**
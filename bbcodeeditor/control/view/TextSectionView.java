@@ -69,6 +69,17 @@ public class TextSectionView extends ContentSectionView {
 	 */
 	private String _paintText = null;
 	
+	/**
+	 * the positions of the tabs in the text, if the paint-text contains tabs
+	 */
+	private int[] _tabPositions = null;
+	
+	/**
+	 * the number of characters the paint-text is longer than the text behind the tab at the
+	 * same index in <code>_tabPositions</code>
+	 */
+	private int[] _tabShifts = null;
+	
 	/**
 	 * Constructor
 	 * 
@@ -101,12 +112,17 @@ public class TextSectionView extends ContentSectionView {
 	
 	public void refresh() {
 		boolean refreshPaintText = shouldRefresh(PAINT_TEXT);
+		boolean refreshFont = shouldRefresh(FONT);
 		
 		if(refreshPaintText)
 			refreshPaintText();
-		if(shouldRefresh(FONT))
+		if(refreshFont)
 			refreshFont();
 		
+		// the glyphs depend on the paint-text and the font
+		if(_font != null && (refreshPaintText || refreshFont))
+			_font.invalidateGlyphs();
+		
 		// check this here because we want to wait for refreshFont()
 		// which regenerates the id of the attributes, if necessary
 		int id = ((TextSection)_section).getAttributes().getId();
@@ -181,6 +197,18 @@ public class TextSectionView extends ContentSectionView {
 		return ((TextSection)_section).getText();
 	}
 	
+	/**
+	 * this supports tabs
+	 * 
+	 * @return the length of the paint-text
+	 */
+	public int getPaintTextLength() {
+		if(_paintText != null)
+			return _paintText.length();
+		
+		return _section.getElementLength();
+	}
+	
 	/**
 	 * returns a substring from start to the end of the section in the paint-text
 	 * this supports tabs
@@ -206,29 +234,42 @@ public class TextSectionView extends ContentSectionView {
 		// is not correct yet
 		if(start < 0 || end < 0 || end > _section.getElementLength() || start > end)
 			return "";
-
-		String text = ((TextSection)_section).getText();
+		
+		// read just the requested part of the text
+		if(_paintText == null) {
+			char[] chars = new char[end - start];
+			((TextSection)_section).getChars(start,end,chars,0);
+			return new String(chars);
+		}
+		
+		return _paintText.substring(getPaintTextIndex(start),getPaintTextIndex(end));
+	}
+	
+	/**
+	 * determines the index in the paint-text of the given position in the section
+	 * this supports tabs
+	 * 
+	 * @param pos the position in the section
+	 * @return the index in the paint-text
+	 */
+	int getPaintTextIndex(int pos) {
 		if(_paintText == null)
-			return text.substring(start,end);
+			return pos;
 		
-		int posInLine = getPaintPositionInLine();
-		int tabWidth = _section.getTextField().getTabWidth();
-		int paintStart = start;
-		int paintEnd = end;
-		for(int i = 0;i < end;i++) {
-			char c = text.charAt(i);
-			if(c == '\t') {
-				int inc = tabWidth - (posInLine % tabWidth) - 1;
-				if(i < start)
-					paintStart += inc;
-				paintEnd += inc;
-				posInLine += inc + 1;
-			}
+		// search the number of tabs in front of pos
+		int low = 0;
+		int high = _tabPositions.length;
+		while(low < high) {
+			int mid = (low + high) / 2;
+			if(_tabPositions[mid] < pos)
+				low = mid + 1;
 			else
-				posInLine++;
+				high = mid;
 		}
 		
-		return _paintText.substring(paintStart,paintEnd);
+		if(low == 0)
+			return pos;
+		return pos + _tabShifts[low - 1];
 	}
 	
 	/**
@@ -238,14 +279,23 @@ public class TextSectionView extends ContentSectionView {
 	 */
 	private boolean refreshPaintText() {
 		String old = _paintText;
-		String text = ((TextSection)_section).getText();
-		if(text.indexOf("\t") >= 0) {
+		
+		// count the tabs without building the text
+		TextSection section = (TextSection)_section;
+		int tabs = 0;
+		for(int i = section.indexOf('\t',0);i >= 0;i = section.indexOf('\t',i + 1))
+			tabs++;
+		
+		if(tabs > 0) {
+			String text = section.getText();
 			int posInLine = getPaintPositionInLine();
 			int tabWidth = _section.getTextField().getTabWidth();
 			
 			// replace the tabs by the corresponding number of spaces depending on the position
-			// of the tab in the line
-			
+			// of the tab in the line. we store where they are to map the positions later
+			_tabPositions = new int[tabs];
+			_tabShifts = new int[tabs];
+			int tab = 0;
 			StringBuffer paintText = new StringBuffer();
 			for(int i = 0,len = text.length();i < len;i++) {
 				char c = text.charAt(i);
@@ -253,6 +303,10 @@ public class TextSectionView extends ContentSectionView {
 					int spaces = tabWidth - (posInLine % tabWidth);
 					paintText.append(StringUtils.repeat(' ',spaces));
 					posInLine += spaces;
+					
+					_tabPositions[tab] = i;
+					_tabShifts[tab] = paintText.length() - (i + 1);
+					tab++;
 				}
 				else {
 					paintText.append(c);
@@ -262,8 +316,11 @@ public class TextSectionView extends ContentSectionView {
 
 			_paintText = paintText.toString();
 		}
-		else
+		else {
 			_paintText = null;
+			_tabPositions = null;
+			_tabShifts = null;
+		}
 		
 		// has the paint-text changed?
 		return (_paintText == null && old != null) || (_paintText != null && old == null) ||
@@ -302,7 +359,7 @@ public class TextSectionView extends ContentSectionView {
 		ContentSection sec = (ContentSection)_section.getSectionLine().getFirstSection();
 		while(sec != null && sec != _section) {
 			if(sec instanceof TextSection)
-				posInLine += ((TextSection)sec).getTextSectionView().getPaintText().length();
+				posInLine += ((TextSection)sec).getTextSectionView().getPaintTextLength();
 			else
 				posInLine++;
 			
@@ -322,12 +379,17 @@ public class TextSectionView extends ContentSectionView {
 	}
 	
 	public void paintRect(Graphics g,int x,int y,int cursorPos,int width) {
-		String text = getPaintText(0,cursorPos);
-		Rectangle2D rect = _font.getStringBounds(text,g);
+		// we may get an invalid position if the control wants to repaint and the
+		// cursor-position is not correct yet
+		int offset = 0;
+		if(cursorPos > 0 && cursorPos <= _section.getElementLength())
+			offset = _font.getPaintTextOffset(g,getPaintTextIndex(cursorPos));
+		
+		Rectangle2D rect = _font.getCachedStringBounds();
 		ILineView lView = _section.getSectionLine().getLineView();
 		
 		g.fillRect(
-				x + (int)rect.getWidth(),
+				x + offset,
 				y + lView.getHeight() - lView.getDescent() + (int)rect.getY(),
 				width,
 				(int)rect.getHeight()
@@ -352,28 +414,30 @@ public class TextSectionView extends ContentSectionView {
 		
 		// if nothing is selected or the selection does not affect this section paint
 		// the text 'normal'
+		int length = getPaintTextLength();
 		if((selStart == -1 && selEnd == -1) || end < startPos || start > endPos) {
-			_font.paintString(g,getPaintText(),saveX,y,false);
+			_font.paintString(g,0,length,saveX,y,false);
 			x.increaseValue(width);
 		}
 		else {
+			// we paint the parts of the paint-text, so that the font can use the cached glyphs
+			int front = getPaintTextIndex(start - startPos);
+			int back = getPaintTextIndex(end - startPos);
+			
 			// if the selection starts not at the beginning of the section, paint the text in
 			// front of the selection 'normal'
 			if(start > startPos) {
-				String sfront = getPaintText(0,start - startPos);
-				int frontWidth = _font.paintString(g,sfront,x.getValue(),y,false);
+				int frontWidth = _font.paintString(g,0,front,x.getValue(),y,false);
 				x.increaseValue(frontWidth);
 			}
 			
 			// paint the selected text
-			String smiddle = getPaintText(start - startPos,end - startPos);
-			int middleWidth = _font.paintString(g,smiddle,x.getValue(),y,true);
+			int middleWidth = _font.paintString(g,front,back,x.getValue(),y,true);
 			x.increaseValue(middleWidth);
 			
 			// paint the text after the selection 'normal' if existing
 			if(end - 1 < endPos) {
-				String send = getPaintText(end - startPos);
-				int endWidth = _font.paintString(g,send,x.getValue(),y,false);
+				int endWidth = _font.paintString(g,back,length,x.getValue(),y,false);
 				x.increaseValue(endWidth);
 			}
 		}
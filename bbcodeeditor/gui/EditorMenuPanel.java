@@ -106,17 +106,29 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 	 * @param textArea the textArea-instance
 	 */
 	public EditorMenuPanel(BBCTextField textArea) {
+		this(textArea,new ExtraTagParser(Helper.getFileInDocumentBase("./extra_tags.xml")));
+	}
+	
+	/**
+	 * constructor
+	 * 
+	 * @param textArea the textArea-instance
+	 * @param extraTags the parser for the extra-tags
+	 */
+	public EditorMenuPanel(BBCTextField textArea,ExtraTagParser extraTags) {
 		super(new GridLayout(1,0));
 		
 		_textArea = textArea;
 		
-		initLayout();
+		initLayout(extraTags);
 	}
 	
 	/**
 	 * inits all components
+	 * 
+	 * @param etp the parser for the extra-tags
 	 */
-	private void initLayout() {
+	private void initLayout(ExtraTagParser etp) {
 		_topPanel = new JPanel(new BorderLayout());
 		add(new ScrollableBar(_topPanel));
 		
@@ -125,7 +137,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 		
 		_topRightPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT,5,2));
 		
-		_btnHelp = new JButton(new ImageIcon(Helper.getFileInDocumentBase("./images/help.png")));
+		_btnHelp = new JButton(Helper.getImageIcon("./images/help.png"));
 		_btnHelp.setPreferredSize(Settings.BUTTON_SIZE);
 		_btnHelp.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -272,7 +284,6 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
     }
     
     // add extra-tag-combo
-    ExtraTagParser etp = new ExtraTagParser(Helper.getFileInDocumentBase("./extra_tags.xml"));
     Map extraButtons = etp.getExtraButtons();
     if(extraButtons.size() > 0) {
     	boolean addedExtraSep = false;
@@ -336,7 +347,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
     
     if(enableBold) {
 	    _btnBold = new ToggleAttrButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/bold.png")),
+	    		Helper.getImageIcon("./images/bold.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_BOLD_TOOLTIP),
 	    		TextAttributes.BOLD);
 	    _btnBold.setPreferredSize(Settings.BUTTON_SIZE);
@@ -345,7 +356,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableItalic) {
 	    _btnItalic = new ToggleAttrButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/italic.png")),
+	    		Helper.getImageIcon("./images/italic.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_ITALIC_TOOLTIP),
 	    		TextAttributes.ITALIC);
 	    _btnItalic.setPreferredSize(Settings.BUTTON_SIZE);
@@ -354,7 +365,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableUnderline) {
 	    _btnUnderline = new ToggleAttrButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/underline.png")),
+	    		Helper.getImageIcon("./images/underline.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_UNDERLINE_TOOLTIP),
 	    		TextAttributes.UNDERLINE);
 	    _btnUnderline.setPreferredSize(Settings.BUTTON_SIZE);
@@ -363,7 +374,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableStrike) {
 	    _btnStrike = new ToggleAttrButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/strike.png")),
+	    		Helper.getImageIcon("./images/strike.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_STRIKE_TOOLTIP),
 	    		TextAttributes.STRIKE);
 	    _btnStrike.setPreferredSize(Settings.BUTTON_SIZE);
@@ -372,7 +383,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
     
     if(enableSub) {
 	    _btnSubScript = new PositionButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/subscript.png")),
+	    		Helper.getImageIcon("./images/subscript.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_SUBSCRIPT_TOOLTIP),new Byte(TextAttributes.POS_SUBSCRIPT));
 	    _btnSubScript.setPreferredSize(Settings.BUTTON_SIZE);
 	    _bottomPanel.add(_btnSubScript);
@@ -380,7 +391,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableSup) {
     	_btnSupScript = new PositionButton(_textArea,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/supscript.png")),
+	    		Helper.getImageIcon("./images/supscript.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_SUPSCRIPT_TOOLTIP),new Byte(TextAttributes.POS_SUPERSCRIPT));
 	    _btnSupScript.setPreferredSize(Settings.BUTTON_SIZE);
 	    _bottomPanel.add(_btnSupScript);
@@ -396,7 +407,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableLeft) {
     	_btnAlignLeft = new AlignButton(_textArea,ParagraphAttributes.ALIGN_LEFT,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/left.png")),
+	    		Helper.getImageIcon("./images/left.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_ALIGN_LEFT_TOOLTIP));
 	    _btnAlignLeft.setPreferredSize(Settings.BUTTON_SIZE);
 	    _bottomPanel.add(_btnAlignLeft);
@@ -404,7 +415,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableCenter) {
 	    _btnAlignCenter = new AlignButton(_textArea,ParagraphAttributes.ALIGN_CENTER,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/center.png")),
+	    		Helper.getImageIcon("./images/center.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_ALIGN_CENTER_TOOLTIP));
 	    _btnAlignCenter.setPreferredSize(Settings.BUTTON_SIZE);
 	    _bottomPanel.add(_btnAlignCenter);
@@ -412,7 +423,7 @@ public class EditorMenuPanel extends JPanel implements ActionListener {
 
     if(enableRight) {
 	    _btnAlignRight = new AlignButton(_textArea,ParagraphAttributes.ALIGN_RIGHT,
-	    		new ImageIcon(Helper.getFileInDocumentBase("./images/right.png")),
+	    		Helper.getImageIcon("./images/right.png"),
 	    		LanguageContainer.getText(Language.GUI_BTN_ALIGN_RIGHT_TOOLTIP));
 	    _btnAlignRight.setPreferredSize(Settings.BUTTON_SIZE);
 	    _bottomPanel.add(_btnAlignRight);
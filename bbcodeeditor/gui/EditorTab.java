@@ -98,10 +98,18 @@ public final class EditorTab extends JPanel implements TextAreaContainer {
 		
 	  _textArea = new BBCTextField() {
 	  	private static final long serialVersionUID = 6583703960397359644L;
+	  	
+	  	private boolean _painted = false;
 
 			public void paint(Graphics g) {
 	  		super.paint(g);
 	  		
+	  		// now the user is able to type
+	  		if(!_painted) {
+	  			_painted = true;
+	  			_window.finishStartup();
+	  		}
+	  		
 	  		if(DEBUG && isFocusOwner())
 	  			_debugArea.setText(toString());
 	  	}
@@ -185,11 +193,16 @@ public final class EditorTab extends JPanel implements TextAreaContainer {
 					case BBCodeParser.ERR_MISSING_CLOSING_TAG:
 						message = LanguageContainer.getText(Language.PARSER_ERR_MISSING_CLOSING_TAG);
 						break;
+					case BBCodeParser.ERR_BUDGET_EXCEEDED:
+						message = LanguageContainer.getText(Language.PARSER_ERR_BUDGET_EXCEEDED);
+						break;
 				}
 				
 				JOptionPane.showMessageDialog(_textArea,message,"Parse-Error",JOptionPane.ERROR_MESSAGE);
 				
-				_window.switchToSource(e.getBBCode());
+				// the text has been inserted, just partially as plain-text
+				if(e.getError() != BBCodeParser.ERR_BUDGET_EXCEEDED)
+					_window.switchToSource(e.getBBCode());
 			}
 		});
 		
@@ -268,7 +281,7 @@ public final class EditorTab extends JPanel implements TextAreaContainer {
     
     _mainPanel.add(p,BorderLayout.CENTER);
     
-    _menuPanel = new EditorMenuPanel(_textArea);
+    _menuPanel = new EditorMenuPanel(_textArea,_window.getExtraTagParser());
     add(_menuPanel,BorderLayout.NORTH);
 	}
 	
@@ -25,6 +25,7 @@ import java.net.URL;
 
 import javax.swing.*;
 
+import bbcodeeditor.gui.combobox.LazyImageIcon;
 import bbcodeeditor.gui.combobox.LimitedImageIcon;
 
 
@@ -38,6 +39,21 @@ public class Helper {
 	private Helper() {
 		// prevent instantiation
 	}
+	
+	/**
+	 * Builds the image-icon for the given file in the document-base. If
+	 * {@link Settings#LAZY_INIT} is enabled the image will be loaded in the background.
+	 * 
+	 * @param file the path / filename to use
+	 * @return the image-icon
+	 */
+	public static ImageIcon getImageIcon(String file) {
+		URL url = getFileInDocumentBase(file);
+		if(Settings.LAZY_INIT)
+			return new LazyImageIcon(url);
+		
+		return new ImageIcon(url);
+	}
 
 	/**
 	 * Loads the image and returns the image-icon to use.
@@ -50,6 +66,8 @@ public class Helper {
 	public static ImageIcon getLimitedImageIcon(Component c,String image) {
 		Image img = Toolkit.getDefaultToolkit().getImage(image);
 		Dimension size = new Dimension(Settings.BUTTON_SIZE.width,Settings.BUTTON_SIZE.height);
+		if(Settings.LAZY_INIT)
+			return new LazyImageIcon(img,size.width - 8,size.height - 4);
 		return Helper.getLimitedImageIcon(c,img,size);
 	}
 
@@ -64,6 +82,8 @@ public class Helper {
 	public static ImageIcon getLimitedImageIcon(Component c,URL image) {
 		Image img = Toolkit.getDefaultToolkit().getImage(image);
 		Dimension size = new Dimension(Settings.BUTTON_SIZE.width,Settings.BUTTON_SIZE.height);
+		if(Settings.LAZY_INIT)
+			return new LazyImageIcon(img,size.width - 8,size.height - 4);
 		return Helper.getLimitedImageIcon(c,img,size);
 	}
 	
@@ -34,7 +34,9 @@ import javax.swing.event.ChangeListener;
 import bbcodeeditor.control.export.ColorFunctions;
 import bbcodeeditor.control.export.bbcode.BBCodeTags;
 import bbcodeeditor.control.highlighter.CustomHighlighters;
+import bbcodeeditor.control.highlighter.HighlightSyntax;
 import bbcodeeditor.control.tools.StringUtils;
+import bbcodeeditor.gui.extra.ExtraTagParser;
 import bbcodeeditor.gui.international.Language;
 import bbcodeeditor.gui.international.LanguageContainer;
 import bbcodeeditor.gui.international.LanguageException;
@@ -54,6 +56,9 @@ public class MainPanel extends JPanel {
 	private EditorTab _editorPanel;
 	private SourceTab _sourcePanel;
 	
+	private ExtraTagParser _extraTags;
+	private final StartupTimings _timings = new StartupTimings();
+	
 	/**
 	 * constructor
 	 */
@@ -83,6 +88,7 @@ public class MainPanel extends JPanel {
 		catch(Exception e) {
 			e.printStackTrace();
 		}
+		_timings.finishPhase("lookAndFeel");
 		
 		Settings.DIALOG_COMPONENT = this;
 		
@@ -104,6 +110,7 @@ public class MainPanel extends JPanel {
 				return;
 			}
 		}
+		_timings.finishPhase("language");
 		
 		setEnabledTags();
 		setEnabledFonts();
@@ -139,7 +146,27 @@ public class MainPanel extends JPanel {
 			}
 		}
 		
-		CustomHighlighters.init(Helper.getFileInDocumentBase("./highlighter/"),"languages.xml");
+		String lazyInit = (String)params.get("lazyInit");
+		if(lazyInit != null) {
+			try {
+				Settings.LAZY_INIT = Integer.parseInt(lazyInit) == 1;
+			}
+			catch(NumberFormatException e) {
+				// fall back to the default
+				Settings.LAZY_INIT = false;
+			}
+		}
+		
+		// the extra-tags are not needed until the toolbar is built
+		_extraTags = new ExtraTagParser(Helper.getFileInDocumentBase("./extra_tags.xml"));
+		if(Settings.LAZY_INIT)
+			_extraTags.parseInBackground();
+		_timings.finishPhase("settings");
+		
+		// in lazy mode we compile the highlighters as soon as the editor is ready
+		CustomHighlighters.init(Helper.getFileInDocumentBase("./highlighter/"),"languages.xml",
+				!Settings.LAZY_INIT);
+		_timings.finishPhase("highlighters");
 	  
 		_basePanel = new JPanel(new BorderLayout());
 		String bgColor = (String)params.get("bgColor");
@@ -169,9 +196,11 @@ public class MainPanel extends JPanel {
 		
 		_editorPanel = new EditorTab(this);
 		_tabPane.addTab(LanguageContainer.getText(Language.GUI_TAB_EDITOR_TITLE),_editorPanel);
+		_timings.finishPhase("editorTab");
 	  
 		_sourcePanel = new SourceTab();
 		_tabPane.addTab(LanguageContainer.getText(Language.GUI_TAB_SOURCE_TITLE),_sourcePanel);
+		_timings.finishPhase("sourceTab");
 	  
 		_basePanel.add(_tabPane,BorderLayout.CENTER);
 		
@@ -196,6 +225,34 @@ public class MainPanel extends JPanel {
 		return (String)_params.get(name);
 	}
 	
+	/**
+	 * @return the parser for the extra-tags-file
+	 */
+	public ExtraTagParser getExtraTagParser() {
+		return _extraTags;
+	}
+	
+	/**
+	 * The timings of the startup. The last phase, "firstPaint", ends when the editor has
+	 * been painted the first time, i.e. when the user is able to type.
+	 * 
+	 * @return the timings
+	 */
+	public StartupTimings getStartupTimings() {
+		return _timings;
+	}
+	
+	/**
+	 * Will be called as soon as the editor has been painted the first time. Finishes the
+	 * startup-timings and starts the work that has been deferred in lazy mode.
+	 */
+	void finishStartup() {
+		_timings.finishPhase("firstPaint");
+		
+		if(Settings.LAZY_INIT)
+			HighlightSyntax.precompile();
+	}
+	
 	/**
 	 * @return the editor tab
 	 */
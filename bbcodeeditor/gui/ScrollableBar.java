@@ -133,7 +133,7 @@ public class ScrollableBar extends JComponent implements SwingConstants,MouseLis
 		else
 			image = "./images/arrow_right.png";
 
-		JButton button = new JButton(new ImageIcon(Helper.getFileInDocumentBase(image)));
+		JButton button = new JButton(Helper.getImageIcon(image));
 		button.setPreferredSize(new Dimension(width,width - 1));
 		return button;
 	}
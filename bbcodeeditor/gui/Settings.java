@@ -113,6 +113,13 @@ public final class Settings {
 	 */
 	public static boolean DISPLAY_CODE_LINE_NUMBERS		= true;
 	
+	/**
+	 * Do you want to defer the loading of images, popups and so on until they are needed?
+	 * This reduces the startup-time. Disabled by default; the applet enables it with the
+	 * parameter "lazyInit" = 1.
+	 */
+	public static boolean LAZY_INIT										= false;
+	
 	/**
 	 * The component which will be used for dialogs
 	 */
@@ -97,7 +97,7 @@ public class SourceMenuPanel extends JPanel {
 	 * inits all components
 	 */
 	private void initLayout() {
-		_btnNew = new JButton(new ImageIcon(Helper.getFileInDocumentBase("./images/new.png")));
+		_btnNew = new JButton(Helper.getImageIcon("./images/new.png"));
 		_btnNew.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_NEW_TOOLTIP));
 		_btnNew.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
@@ -110,7 +110,7 @@ public class SourceMenuPanel extends JPanel {
 
 		add(Helper.getSeparator());
 
-		_btnUndo = new JButton(new ImageIcon(Helper.getFileInDocumentBase("./images/undo.png")));
+		_btnUndo = new JButton(Helper.getImageIcon("./images/undo.png"));
 		_btnUndo.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_UNDO_TOOLTIP));
 		_btnUndo.setPreferredSize(Settings.BUTTON_SIZE);
 		_btnUndo.addActionListener(new ActionListener() {
@@ -124,7 +124,7 @@ public class SourceMenuPanel extends JPanel {
 		});
 		add(_btnUndo);
 
-		_btnRedo = new JButton(new ImageIcon(Helper.getFileInDocumentBase("./images/redo.png")));
+		_btnRedo = new JButton(Helper.getImageIcon("./images/redo.png"));
 		_btnRedo.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_REDO_TOOLTIP));
 		_btnRedo.setPreferredSize(Settings.BUTTON_SIZE);
 		_btnRedo.addActionListener(new ActionListener() {
@@ -142,21 +142,21 @@ public class SourceMenuPanel extends JPanel {
 
 		_btnCut = new JButton(getActionByName(DefaultEditorKit.cutAction));
 		_btnCut.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_CUT_TOOLTIP));
-		_btnCut.setIcon(new ImageIcon(Helper.getFileInDocumentBase("./images/cut.png")));
+		_btnCut.setIcon(Helper.getImageIcon("./images/cut.png"));
 		_btnCut.setText("");
 		_btnCut.setPreferredSize(Settings.BUTTON_SIZE);
 		add(_btnCut);
 
 		_btnCopy = new JButton(getActionByName(DefaultEditorKit.copyAction));
 		_btnCopy.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_COPY_TOOLTIP));
-		_btnCopy.setIcon(new ImageIcon(Helper.getFileInDocumentBase("./images/copy.png")));
+		_btnCopy.setIcon(Helper.getImageIcon("./images/copy.png"));
 		_btnCopy.setText("");
 		_btnCopy.setPreferredSize(Settings.BUTTON_SIZE);
 		add(_btnCopy);
 
 		_btnPaste = new JButton(getActionByName(DefaultEditorKit.pasteAction));
 		_btnPaste.setToolTipText(LanguageContainer.getText(Language.GUI_BTN_PASTE_TOOLTIP));
-		_btnPaste.setIcon(new ImageIcon(Helper.getFileInDocumentBase("./images/paste.png")));
+		_btnPaste.setIcon(Helper.getImageIcon("./images/paste.png"));
 		_btnPaste.setText("");
 		_btnPaste.setPreferredSize(Settings.BUTTON_SIZE);
 		add(_btnPaste);
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Records the durations of the phases during the startup of the editor. A phase starts
+ * when the previous one has been finished (or the object has been created) and ends
+ * with {@link #finishPhase(String)}.
+ * 
+ * @author hrniels
+ */
+public final class StartupTimings {
+	
+	/**
+	 * The names of the finished phases
+	 */
+	private final List<String> _names = new ArrayList<String>();
+	
+	/**
+	 * The durations of the finished phases in milliseconds
+	 */
+	private final List<Long> _durations = new ArrayList<Long>();
+	
+	/**
+	 * The time when the startup began
+	 */
+	private final long _start;
+	
+	/**
+	 * The time when the current phase began
+	 */
+	private long _phaseStart;
+	
+	/**
+	 * Constructor. Starts the first phase
+	 */
+	public StartupTimings() {
+		_start = System.currentTimeMillis();
+		_phaseStart = _start;
+	}
+	
+	/**
+	 * Finishes the current phase and starts the next one
+	 * 
+	 * @param name the name of the finished phase
+	 */
+	public void finishPhase(String name) {
+		long now = System.currentTimeMillis();
+		_names.add(name);
+		_durations.add(Long.valueOf(now - _phaseStart));
+		_phaseStart = now;
+	}
+	
+	/**
+	 * @param name the name of the phase
+	 * @return the duration of the given phase in milliseconds or -1 if it is unknown
+	 */
+	public long getDuration(String name) {
+		int index = _names.indexOf(name);
+		if(index == -1)
+			return -1;
+		
+		return _durations.get(index).longValue();
+	}
+	
+	/**
+	 * @return the time in milliseconds from the start until the end of the last phase
+	 */
+	public long getTotal() {
+		return _phaseStart - _start;
+	}
+	
+	public String toString() {
+		StringBuffer buf = new StringBuffer();
+		for(int i = 0;i < _names.size();i++)
+			buf.append(_names.get(i)).append('=').append(_durations.get(i)).append("ms, ");
+		buf.append("total=").append(getTotal()).append("ms");
+		return buf.toString();
+	}
+}
\ No newline at end of file
@@ -39,7 +39,7 @@ public class WysiwygBBCodeEditor extends JApplet {
 	 * constructor
 	 */
 	public void init() {
-		Map params = new HashMap();
+		Map<String,String> params = new HashMap<String,String>();
 		params.put("lookAndFeel",getParameter("lookAndFeel"));
 		params.put("path",getParameter("path"));
 		params.put("lang",getParameter("lang"));
@@ -50,6 +50,7 @@ public class WysiwygBBCodeEditor extends JApplet {
 		params.put("text",getParameter("text"));
 		params.put("fontFamilies",getParameter("fontFamilies"));
 		params.put("enabledTags",getParameter("enabledTags"));
+		params.put("lazyInit",getParameter("lazyInit"));
 		int count = Integer.parseInt(getParameter("smileyCount"));
 		params.put("smileyCount",getParameter("smileyCount"));
 		for(int i = 1; i <= count; i++) {
@@ -58,7 +59,7 @@ public class WysiwygBBCodeEditor extends JApplet {
 			params.put("smileyPath" + i,getParameter("smileyPath" + i));
 		}
 		
-		String path = (String)params.get("path");
+		String path = params.get("path");
 		if(path == null)
 			path = "";
 		Settings.setBaseURL(getCodeBase(),path);
@@ -88,6 +89,13 @@ public class WysiwygBBCodeEditor extends JApplet {
 	public String getBBCode() {
 		return _mainPanel.getBBCode();
 	}
+	
+	/**
+	 * @return the durations of the startup-phases
+	 */
+	public String getStartupTimings() {
+		return _mainPanel.getStartupTimings().toString();
+	}
 
 	/**
 	 * switches to the source-tab and sets the given string as text
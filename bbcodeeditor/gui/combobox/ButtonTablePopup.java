@@ -27,7 +27,6 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Vector;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
@@ -58,7 +57,7 @@ public class ButtonTablePopup extends JButton {
 	private PopupTable _table = null;
 	
 	/**
-	 * The used popup
+	 * The used popup; will be created with the table
 	 */
 	private JPopupMenu _popup = null;
 	
@@ -81,59 +80,26 @@ public class ButtonTablePopup extends JButton {
 	 * @param align the alignment of the table-content. See SwingConstants
 	 */
 	public ButtonTablePopup(CellContent[] items,int cols,int align) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/arrow.png")));
+		super(Helper.getImageIcon("./images/arrow.png"));
 		
 		_items = items;
 		_cols = cols;
 		_align = align;
 		
-		// Very ugly but I think we have to catch global mouse-events to hide the popup
-		// if necessary :/
-		Toolkit.getDefaultToolkit().addAWTEventListener(new AWTEventListener(){
-			public void eventDispatched(AWTEvent event) {
-				if(event.getID() == MouseEvent.MOUSE_PRESSED) {
-					_inButtonBounds = false;
-
-					if(_popup.isVisible()) {
-						MouseEvent me = (MouseEvent)event;
-						if(me.getSource() instanceof Container) {
-							// translate to application wide coordinates
-							Point mp = getPositionInApp((Container)me.getSource());
-							mp.translate(me.getX(),me.getY());
-							Point pp = getPositionInApp(_popup);
-	
-							// store if we have hit the button
-							Point bp = getPositionInApp(ButtonTablePopup.this);
-							if(mp.x >= bp.x && mp.y >= bp.y && mp.x <= bp.x + getWidth() && 
-									mp.y <= bp.y + getHeight())
-								_inButtonBounds = true;
-							
-							// outside the popup?
-							if(mp.x < pp.x || mp.y < pp.y || mp.x > pp.x + _popup.getWidth() ||
-									mp.y > pp.y + _popup.getHeight())
-								_popup.setVisible(false);
-						}
-					}
-				}
-			}
-		},AWTEvent.MOUSE_EVENT_MASK);
-		
 		// hide popup if the component has been moved or something like that
 		addAncestorListener(new AncestorListener() {
 			public void ancestorAdded(AncestorEvent event) {
-      	_popup.setVisible(false);
+      	hidePopup();
 			}
       
       public void ancestorRemoved(AncestorEvent event) {
-      	_popup.setVisible(false);
+      	hidePopup();
       }
       
       public void ancestorMoved(AncestorEvent event) {
-      	_popup.setVisible(false);
+      	hidePopup();
       }
 		});
-
-		_popup = new JPopupMenu();
 		
 		// show popup if the button has been clicked
 		Insets margin = getMargin();
@@ -164,6 +130,53 @@ public class ButtonTablePopup extends JButton {
     _popup.setVisible(true);
 	}
 	
+	/**
+	 * hides the popup, if it has been created yet
+	 */
+	private void hidePopup() {
+		if(_popup != null)
+			_popup.setVisible(false);
+	}
+	
+	/**
+	 * Creates the popup and registers the listener for global mouse-events.
+	 * We do that not before the popup is needed the first time.
+	 */
+	private void initPopup() {
+		_popup = new JPopupMenu();
+		
+		// Very ugly but I think we have to catch global mouse-events to hide the popup
+		// if necessary :/
+		Toolkit.getDefaultToolkit().addAWTEventListener(new AWTEventListener(){
+			public void eventDispatched(AWTEvent event) {
+				if(event.getID() == MouseEvent.MOUSE_PRESSED) {
+					_inButtonBounds = false;
+
+					if(_popup.isVisible()) {
+						MouseEvent me = (MouseEvent)event;
+						if(me.getSource() instanceof Container) {
+							// translate to application wide coordinates
+							Point mp = getPositionInApp((Container)me.getSource());
+							mp.translate(me.getX(),me.getY());
+							Point pp = getPositionInApp(_popup);
+	
+							// store if we have hit the button
+							Point bp = getPositionInApp(ButtonTablePopup.this);
+							if(mp.x >= bp.x && mp.y >= bp.y && mp.x <= bp.x + getWidth() && 
+									mp.y <= bp.y + getHeight())
+								_inButtonBounds = true;
+							
+							// outside the popup?
+							if(mp.x < pp.x || mp.y < pp.y || mp.x > pp.x + _popup.getWidth() ||
+									mp.y > pp.y + _popup.getHeight())
+								_popup.setVisible(false);
+						}
+					}
+				}
+			}
+		},AWTEvent.MOUSE_EVENT_MASK);
+	}
+	
 	/**
 	 * @return the width of a column
 	 */
@@ -229,6 +242,8 @@ public class ButtonTablePopup extends JButton {
 		if(_table != null)
 			return;
 		
+		initPopup();
+		
 		// build rows
 		int numRows = (int)Math.ceil(_items.length / (double)_cols);
 		Vector rows = new Vector(numRows);
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.gui.combobox;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.ImageObserver;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.swing.ImageIcon;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+
+/**
+ * An image icon which does not wait until the image has been loaded. The image will be
+ * loaded in the background as soon as the icon is painted the first time and the
+ * components will be repainted when it is available. As long as the size of the image is unknown,
+ * {@link #DEFAULT_SIZE} will be used. Like the {@link LimitedImageIcon} the image may be
+ * resized to a maximum width and height.
+ * 
+ * @author hrniels
+ */
+public class LazyImageIcon extends ImageIcon implements ImageObserver {
+	
+	private static final long serialVersionUID = -2496173185307617544L;
+	
+	/**
+	 * The width and height that will be used as long as the image-size is unknown
+	 */
+	public static final int DEFAULT_SIZE = 16;
+	
+	/**
+	 * The image
+	 */
+	private final Image _img;
+	
+	/**
+	 * The maximum width to use for painting the image
+	 */
+	private final int _maxWidth;
+	
+	/**
+	 * The maximum height to use for painting the image
+	 */
+	private final int _maxHeight;
+	
+	/**
+	 * The components that have painted the icon before the size was known
+	 */
+	private final Map<Component,Object> _components = new WeakHashMap<Component,Object>();
+	
+	/**
+	 * Wether the image is being loaded
+	 */
+	private boolean _loading = false;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param imageUrl the URL to the image to use
+	 */
+	public LazyImageIcon(URL imageUrl) {
+		this(Toolkit.getDefaultToolkit().getImage(imageUrl),Integer.MAX_VALUE,Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param img the image to use
+	 * @param maxWidth the maximum width of the image
+	 * @param maxHeight the maximum height of the image
+	 */
+	public LazyImageIcon(Image img,int maxWidth,int maxHeight) {
+		_img = img;
+		_maxWidth = maxWidth;
+		_maxHeight = maxHeight;
+	}
+	
+	public Image getImage() {
+		return _img;
+	}
+	
+	public int getIconWidth() {
+		return getSize().width;
+	}
+	
+	public int getIconHeight() {
+		return getSize().height;
+	}
+	
+	public void paintIcon(Component c,Graphics g,int x,int y) {
+		synchronized(_components) {
+			if(!isSizeKnown())
+				_components.put(c,null);
+		}
+		
+		if(!_loading) {
+			_loading = true;
+			Toolkit.getDefaultToolkit().prepareImage(_img,-1,-1,this);
+		}
+		
+		Dimension size = getSize();
+		g.drawImage(_img,x,y,size.width,size.height,c);
+	}
+	
+	public boolean imageUpdate(Image img,int infoflags,int x,int y,int width,int height) {
+		boolean done = (infoflags & (ALLBITS | ERROR | ABORT)) != 0;
+		if(done || isSizeKnown()) {
+			// the components may have used the wrong size
+			final List<Component> comps;
+			synchronized(_components) {
+				comps = new ArrayList<Component>(_components.keySet());
+				_components.clear();
+			}
+			
+			if(comps.size() > 0) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						Iterator<Component> it = comps.iterator();
+						while(it.hasNext()) {
+							Component c = it.next();
+							if(c instanceof JComponent)
+								((JComponent)c).revalidate();
+							c.repaint();
+						}
+					}
+				});
+			}
+		}
+		
+		return !done;
+	}
+	
+	/**
+	 * @return wether the size of the image is known
+	 */
+	private boolean isSizeKnown() {
+		return _img.getWidth(null) >= 0 && _img.getHeight(null) >= 0;
+	}
+	
+	/**
+	 * @return the size to use for painting the image
+	 */
+	private Dimension getSize() {
+		int iwidth = _img.getWidth(null);
+		int iheight = _img.getHeight(null);
+		if(iwidth < 0 || iheight < 0)
+			return new Dimension(DEFAULT_SIZE,DEFAULT_SIZE);
+		
+		int pwidth = iwidth,pheight = iheight;
+		if(iwidth > _maxWidth || iheight > _maxHeight) {
+			if(iwidth > iheight) {
+				pwidth = _maxWidth;
+				pheight = (int)(pwidth * ((float)iheight / iwidth));
+			}
+			else {
+				pheight = _maxHeight;
+				pwidth = (int)(pheight * ((float)iwidth / iheight));
+			}
+		}
+		return new Dimension(pwidth,pheight);
+	}
+}
\ No newline at end of file
@@ -20,6 +20,7 @@ package bbcodeeditor.gui.dialogs;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.security.InvalidParameterException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -29,6 +30,7 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
 import bbcodeeditor.control.AbstractTextField;
+import bbcodeeditor.control.IPublicController;
 import bbcodeeditor.control.tools.TextPart;
 import bbcodeeditor.gui.international.Language;
 import bbcodeeditor.gui.international.LanguageContainer;
@@ -64,6 +66,10 @@ public class EditorSearchDialog extends JDialog {
 	private final JPanel _dirPanel;
 	private final JRadioButton _dirBackwards;
 	private final JRadioButton _dirForward;
+	private final JLabel _regexLabel;
+	private final JCheckBox _regex;
+	private final JLabel _wholeWordLabel;
+	private final JCheckBox _wholeWord;
 	private final JLabel _wrapSearchLabel;
 	private final JCheckBox _wrapSearch;
 	private final JLabel _parseBBCodeLabel;
@@ -118,6 +124,10 @@ public class EditorSearchDialog extends JDialog {
 		_scopeSel = new JRadioButton(LanguageContainer.getText(Language.GUI_DIALOG_SEARCH_SELECTION));
 		_caseSensitive = new JCheckBox();
 		_caseSensitiveLabel = new JLabel(LanguageContainer.getText(Language.GUI_DIALOG_SEARCH_CASESENSITIVE) + ":");
+		_regex = new JCheckBox();
+		_regexLabel = new JLabel(LanguageContainer.getText(Language.GUI_DIALOG_SEARCH_REGEX) + ":");
+		_wholeWord = new JCheckBox();
+		_wholeWordLabel = new JLabel(LanguageContainer.getText(Language.GUI_DIALOG_SEARCH_WHOLEWORD) + ":");
 		_directionLabel = new JLabel(LanguageContainer.getText(Language.GUI_DIALOG_SEARCH_DIRECTION) + ":");
 		_dirGroup = new ButtonGroup();
 		_dirPanel = new JPanel();
@@ -270,6 +280,32 @@ public class EditorSearchDialog extends JDialog {
 		gcLeft.gridy += 1;
 		gcRight.gridy += 1;
 		
+		// Regular expression
+		_contentPanel.add(_regexLabel,gcLeft);
+
+		_regex.addItemListener(new ItemListener() {
+			public void itemStateChanged(ItemEvent e) {
+				resetSearch();
+			}
+		});
+		_contentPanel.add(_regex,gcRight);
+
+		gcLeft.gridy += 1;
+		gcRight.gridy += 1;
+		
+		// Whole word
+		_contentPanel.add(_wholeWordLabel,gcLeft);
+
+		_wholeWord.addItemListener(new ItemListener() {
+			public void itemStateChanged(ItemEvent e) {
+				resetSearch();
+			}
+		});
+		_contentPanel.add(_wholeWord,gcRight);
+
+		gcLeft.gridy += 1;
+		gcRight.gridy += 1;
+		
 		// Wrap search
 		_contentPanel.add(_wrapSearchLabel,gcLeft);
 		_contentPanel.add(_wrapSearch,gcRight);
@@ -296,11 +332,11 @@ public class EditorSearchDialog extends JDialog {
 			public void actionPerformed(ActionEvent e) {
 				String text = _find.getText();
 				String repl = _replace.getText();
-				boolean caseSensitive = _caseSensitive.isSelected();
+				int flags = getSearchFlags();
 				boolean forward = _dirForward.isSelected();
 				boolean scopeIsAll = _scopeAll.isSelected();
 				
-				_status.initSearch(text,caseSensitive,forward,scopeIsAll);
+				_status.initSearch(text,flags,forward,scopeIsAll);
 
 				// determine scope
 				int[] pos = _status.getScope();
@@ -316,11 +352,11 @@ public class EditorSearchDialog extends JDialog {
 				// replace text
 				int replPos;
 				if(forward)
-					replPos = _textField.replaceFirst(text,repl,pos[0],pos[1],
-							caseSensitive,_parseBBCode.isSelected());
+					replPos = _textField.replaceFirstMatch(text,repl,pos[0],pos[1],
+							flags,_parseBBCode.isSelected());
 				else
-					replPos = _textField.replaceLast(text,repl,pos[0],pos[1],
-							caseSensitive,_parseBBCode.isSelected());
+					replPos = _textField.replaceLastMatch(text,repl,pos[0],pos[1],
+							flags,_parseBBCode.isSelected());
 				
 				// mark results and search the next one
 				if(replPos >= 0)
@@ -340,18 +376,24 @@ public class EditorSearchDialog extends JDialog {
 					return;
 				
 				String repl = _replace.getText();
-				boolean caseSensitive = _caseSensitive.isSelected();
+				int flags = getSearchFlags();
 				boolean scopeIsAll = _scopeAll.isSelected();
 				
 				_status.reset();
-				_status.initSearch(text,caseSensitive,true,scopeIsAll);
+				_status.initSearch(text,flags,true,scopeIsAll);
 
 				int[] pos = _status.getScope();
 				_textField.clearSelection();
 				_textField.clearHighlighting();
 				if(pos[1] > pos[0]) {
-					_textField.replaceAll(text,repl,pos[0],pos[1],
-							caseSensitive,_parseBBCode.isSelected());
+					try {
+						_textField.replaceAllMatches(text,repl,pos[0],pos[1],
+								flags,_parseBBCode.isSelected());
+					}
+					catch(InvalidParameterException ex) {
+						// the regular expression is invalid
+						_resultsLabel.setText(ex.getMessage());
+					}
 				}
 				
 				// ensure that we restart the search
@@ -387,6 +429,20 @@ public class EditorSearchDialog extends JDialog {
 		setLocationRelativeTo(_comp);
 	}
 	
+	/**
+	 * @return the search-flags for the current settings
+	 */
+	private int getSearchFlags() {
+		int flags = 0;
+		if(_caseSensitive.isSelected())
+			flags |= IPublicController.SEARCH_CASE_SENSITIVE;
+		if(_regex.isSelected())
+			flags |= IPublicController.SEARCH_REGEX;
+		if(_wholeWord.isSelected())
+			flags |= IPublicController.SEARCH_WHOLE_WORD;
+		return flags;
+	}
+	
 	/**
 	 * Resets the search
 	 */
@@ -419,11 +475,11 @@ public class EditorSearchDialog extends JDialog {
 	 */
 	private void searchNext() {
 		String text = _find.getText();
-		boolean caseSensitive = _caseSensitive.isSelected();
+		int flags = getSearchFlags();
 		boolean forward = _dirForward.isSelected();
 		boolean scopeIsAll = _scopeAll.isSelected();
 
-		_status.initSearch(text,caseSensitive,forward,scopeIsAll);
+		_status.initSearch(text,flags,forward,scopeIsAll);
 		int[] pos = _status.getScope();
 		if(text.length() == 0 || _textField.length() == 0 || pos == null) {
 			_textField.clearHighlighting();
@@ -434,13 +490,22 @@ public class EditorSearchDialog extends JDialog {
 		// do we have to (re)start the search and highlight all results?
 		if(_status.shouldRestart()) {
 			_textField.clearHighlighting();
-			List res = _textField.getAllOccurrences(text,pos[0],pos[1],caseSensitive);
+			List<TextPart> res;
+			try {
+				res = _textField.getAllMatches(text,pos[0],pos[1],flags);
+			}
+			catch(InvalidParameterException e) {
+				// the regular expression is invalid
+				resetSearch();
+				_resultsLabel.setText(e.getMessage());
+				return;
+			}
 			
 			// are there matches?
 			if(res.size() > 0) {
 				_textField.highlightRegions(res,Color.yellow);
 				
-				TextPart first = forward ? (TextPart)res.get(0) : (TextPart)res.get(res.size() - 1);
+				TextPart first = forward ? res.get(0) : res.get(res.size() - 1);
 				_status.finishSearch(first);
 				_textField.goToPosition(first.startPos);
 				_textField.highlightRegions(Arrays.asList(new TextPart[] {first}),Color.ORANGE);
@@ -458,9 +523,9 @@ public class EditorSearchDialog extends JDialog {
 		else {
 			TextPart part;
 			if(forward)
-				part = _textField.getFirstOccurrence(text,pos[0],pos[1],caseSensitive);
+				part = _textField.getFirstMatch(text,pos[0],pos[1],flags);
 			else
-				part = _textField.getLastOccurrence(text,pos[0],pos[1],caseSensitive);
+				part = _textField.getLastMatch(text,pos[0],pos[1],flags);
 			
 			TextPart last = _status.getLastMatch();
 			if(last != null)
@@ -70,9 +70,9 @@ class SearchStatus {
 	private boolean _scopeIsAll = false;
 	
 	/**
-	 * Stores wether case-sensitivity is currently enabled
+	 * The current search-flags
 	 */
-	private boolean _caseSensitiv = false;
+	private int _flags = 0;
 	
 	/**
 	 * The current match-number
@@ -107,18 +107,18 @@ class SearchStatus {
 	 * Inits the search
 	 * 
 	 * @param keyword the entered keyword
-	 * @param caseSensitive case-sensitive?
+	 * @param flags the search-flags (see IPublicController.SEARCH_*)
 	 * @param forward search forward?
 	 * @param scopeIsAll is the scope "all"?
 	 */
-	public void initSearch(String keyword,boolean caseSensitive,boolean forward,
+	public void initSearch(String keyword,int flags,boolean forward,
 			boolean scopeIsAll) {
 		boolean hasChanged = false;
 		Selection sel = _textField.getSelection();
 		
 		if(!keyword.equals(_keyword))
 			hasChanged = true;
-		else if(caseSensitive != _caseSensitiv)
+		else if(flags != _flags)
 			hasChanged = true;
 		else if(scopeIsAll != _scopeIsAll)
 			hasChanged = true;
@@ -132,7 +132,7 @@ class SearchStatus {
 		_initialized = true;
 		
 		_keyword = keyword;
-		_caseSensitiv = caseSensitive;
+		_flags = flags;
 		_forward = forward;
 		_scopeIsAll = scopeIsAll;
 		_selStart = sel.getSelectionStart();
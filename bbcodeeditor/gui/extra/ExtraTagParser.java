@@ -45,6 +45,16 @@ public class ExtraTagParser {
 	 * the xml-file
 	 */
 	private URL _xmlFile;
+	
+	/**
+	 * the thread that parses the file in the background, if any
+	 */
+	private Thread _thread = null;
+	
+	/**
+	 * the result of the background-thread
+	 */
+	private Map<String,ExtraButton> _buttons = null;
 
 	/**
 	 * constructor
@@ -55,13 +65,49 @@ public class ExtraTagParser {
 		_xmlFile = xmlFile;
 	}
 	
+	/**
+	 * starts parsing the file in a background-thread. {@link #getExtraButtons()} will
+	 * wait for it and return the result
+	 */
+	public void parseInBackground() {
+		_thread = new Thread(new Runnable() {
+			public void run() {
+				_buttons = parse();
+			}
+		},"ExtraTagParser");
+		_thread.setDaemon(true);
+		_thread.start();
+	}
+	
 	/**
 	 * reads the extra tag from the xml-file and returns the list of tags
 	 * 
 	 * @return a Map with the found buttons and tags
 	 */
 	public Map getExtraButtons() {
-		Map buttons = new HashMap();
+		if(_thread != null) {
+			try {
+				_thread.join();
+			}
+			catch(InterruptedException e) {
+				// keep the interrupt for the caller; we parse the file ourself
+				Thread.currentThread().interrupt();
+			}
+			
+			if(_buttons != null)
+				return _buttons;
+		}
+		
+		return parse();
+	}
+	
+	/**
+	 * parses the xml-file
+	 * 
+	 * @return a Map with the found buttons and tags
+	 */
+	private Map<String,ExtraButton> parse() {
+		Map<String,ExtraButton> buttons = new HashMap<String,ExtraButton>();
 		
 		DocumentBuilderFactory factory = XMLTools.getDocumentBuilderFactory();
 		
@@ -145,7 +191,7 @@ public class ExtraTagParser {
 		    	}
 		    	
 		    	if(button != null) {
-		    		ExtraButton btn = (ExtraButton)buttons.get(button);
+		    		ExtraButton btn = buttons.get(button);
 		    		if(btn != null) {
 		    			if(isDeactivated)
 		    				btn.increaseItemCount();
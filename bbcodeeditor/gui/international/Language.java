@@ -82,6 +82,16 @@ public class Language {
 	 */
 	public static final String GUI_DIALOG_SEARCH_CASESENSITIVE	= "gui.dialog.search.casesensitive";
 	
+	/**
+	 * Wether the search-text is a regular expression
+	 */
+	public static final String GUI_DIALOG_SEARCH_REGEX					= "gui.dialog.search.regex";
+	
+	/**
+	 * Wether just whole words should be found
+	 */
+	public static final String GUI_DIALOG_SEARCH_WHOLEWORD			= "gui.dialog.search.wholeword";
+	
 	/**
 	 * The search-direction
 	 */
@@ -596,6 +606,11 @@ public class Language {
 	 * The parser-error for "missing closing tag"
 	 */
 	public static final String PARSER_ERR_MISSING_CLOSING_TAG		= "parser.err.missingclosingtag";
+	
+	/**
+	 * The parser-error for "budget exceeded"
+	 */
+	public static final String PARSER_ERR_BUDGET_EXCEEDED				= "parser.err.budgetexceeded";
 
 	/**
 	 * The error-message for an invalid image url
@@ -25,7 +25,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -81,8 +80,7 @@ public class CodeButton extends ButtonComboBox implements ActionListener,ItemSel
 		
 		_textArea = textArea;
 		
-		JButton listBtn = new JButton(new ImageIcon(
-				Helper.getFileInDocumentBase("./images/code.png")));
+		JButton listBtn = new JButton(Helper.getImageIcon("./images/code.png"));
 		listBtn.setPreferredSize(prefSize);
 		listBtn.addActionListener(this);
 		setDefaultButton(listBtn,false);
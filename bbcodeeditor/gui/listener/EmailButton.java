@@ -21,7 +21,6 @@ package bbcodeeditor.gui.listener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -55,7 +54,7 @@ public class EmailButton extends JButton implements ActionListener {
 	 * @param textArea the textArea-object
 	 */
 	public EmailButton(AbstractTextField textArea) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/mail.png")));
+		super(Helper.getImageIcon("./images/mail.png"));
 		
 		_textArea = textArea;
 		
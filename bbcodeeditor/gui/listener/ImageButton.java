@@ -21,7 +21,6 @@ package bbcodeeditor.gui.listener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -54,7 +53,7 @@ public class ImageButton extends JButton implements ActionListener {
 	 * @param textArea the textArea-object
 	 */
 	public ImageButton(AbstractTextField textArea) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/image.png")));
+		super(Helper.getImageIcon("./images/image.png"));
 		
 		_textArea = textArea;
 		
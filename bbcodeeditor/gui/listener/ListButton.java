@@ -22,7 +22,6 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -79,7 +78,7 @@ public class ListButton extends ButtonComboBox implements ActionListener,ItemSel
 		
 		_textArea = textArea;
 		
-		JButton listBtn = new JButton(new ImageIcon(Helper.getFileInDocumentBase("./images/list.png")));
+		JButton listBtn = new JButton(Helper.getImageIcon("./images/list.png"));
 		listBtn.setPreferredSize(prefSize);
 		listBtn.addActionListener(this);
 		setDefaultButton(listBtn,false);
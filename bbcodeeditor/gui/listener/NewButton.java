@@ -21,7 +21,6 @@ package bbcodeeditor.gui.listener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
 
@@ -51,7 +50,7 @@ public class NewButton extends JButton implements ActionListener {
 	 * @param textArea the textArea-object
 	 */
 	public NewButton(AbstractTextField textArea) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/new.png")));
+		super(Helper.getImageIcon("./images/new.png"));
 		
 		_textArea = textArea;
 		
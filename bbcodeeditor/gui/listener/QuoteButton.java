@@ -22,7 +22,6 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -67,8 +66,7 @@ public class QuoteButton extends ButtonComboBox implements ActionListener,ItemSe
 		
 		_textArea = textArea;
 		
-		JButton listBtn = new JButton(new ImageIcon(
-				Helper.getFileInDocumentBase("./images/quote.png")));
+		JButton listBtn = new JButton(Helper.getImageIcon("./images/quote.png"));
 		listBtn.setPreferredSize(prefSize);
 		listBtn.addActionListener(this);
 		setDefaultButton(listBtn,false);
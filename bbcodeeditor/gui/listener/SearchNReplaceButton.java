@@ -21,7 +21,6 @@ package bbcodeeditor.gui.listener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -52,7 +51,7 @@ public class SearchNReplaceButton extends JButton implements ActionListener {
 	 * @param textArea the textArea-object
 	 */
 	public SearchNReplaceButton(AbstractTextField textArea) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/find_replace.png")));
+		super(Helper.getImageIcon("./images/find_replace.png"));
 		
 		_textArea = textArea;
 		
@@ -21,7 +21,6 @@ package bbcodeeditor.gui.listener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
-import javax.swing.ImageIcon;
 import javax.swing.JButton;
 
 import bbcodeeditor.control.AbstractTextField;
@@ -50,7 +49,7 @@ public class UndoButton extends JButton implements ActionListener {
 	 * @param textArea the textArea-object
 	 */
 	public UndoButton(AbstractTextField textArea) {
-		super(new ImageIcon(Helper.getFileInDocumentBase("./images/undo.png")));
+		super(Helper.getImageIcon("./images/undo.png"));
 		
 		_textArea = textArea;
 		
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+
+/**
+ * A benchmark that will be measured by the {@link BenchmarkRunner}. The runner calls
+ * {@link #setUp()} once and afterwards {@link #run()} as often as possible in each
+ * iteration. The result of run() will be consumed so that the JIT can't remove the work.
+ * 
+ * @author hrniels
+ */
+abstract class Benchmark {
+	
+	/**
+	 * The name of the benchmark
+	 */
+	private final String _name;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param name the name of the benchmark
+	 */
+	Benchmark(String name) {
+		_name = name;
+	}
+	
+	/**
+	 * @return the name of the benchmark
+	 */
+	public String getName() {
+		return _name;
+	}
+	
+	/**
+	 * Prepares the benchmark. The time will not be measured
+	 * 
+	 * @throws Exception if anything goes wrong
+	 */
+	void setUp() throws Exception {
+	
+	}
+	
+	/**
+	 * Performs one operation
+	 * 
+	 * @return the result of the operation
+	 * @throws Exception if anything goes wrong
+	 */
+	abstract Object run() throws Exception;
+}
\ No newline at end of file
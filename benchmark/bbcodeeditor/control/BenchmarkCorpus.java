@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Random;
+
+
+/**
+ * Generates the posts for the benchmarks. The posts are generated with a fixed seed so
+ * that every run (and every version) uses the same input.
+ * 
+ * @author hrniels
+ */
+final class BenchmarkCorpus {
+	
+	/**
+	 * A short post with a few tags
+	 */
+	public static final int SMALL					= 0;
+	
+	/**
+	 * A long post with all kinds of tags, environments and smileys
+	 */
+	public static final int MEDIUM				= 1;
+	
+	/**
+	 * A post with many unclosed, interleaved and deeply nested tags
+	 */
+	public static final int PATHOLOGICAL	= 2;
+	
+	/**
+	 * The names of the sizes
+	 */
+	public static final String[] NAMES = {"small","medium","pathological"};
+	
+	/**
+	 * The codes of the smileys
+	 */
+	public static final String[] SMILEYS = {
+		":)",":(",";)",":D",":P",":o",":-)",":-(",";-)","8)",":lol:",":roll:",":evil:",
+		":twisted:",":oops:",":cry:",":shock:",":?:",":!:",":idea:"
+	};
+	
+	/**
+	 * The lines of the code that will be highlighted. Contains the constructs of all
+	 * shipped highlighters
+	 */
+	private static final String[] CODE = {
+		"int count = 0; // the counter",
+		"/* a block-comment */ if(count > 10) { return \"a string\"; }",
+		"<div class=\"box\" id='main'>some text &amp; more</div>",
+		"SELECT name, id FROM users WHERE id = 42 ORDER BY name;",
+		"# a comment-line",
+		"echo $HOME; for i in 1 2 3; do ls -la \"$i\"; done",
+		"[section]",
+		"key = value ; comment",
+		"function foo(a, b) { var s = 'x' + a; return s; }",
+		".box { color: #ff0000; margin: 0 4px; }",
+		"{if $x}{$y|escape}{/if}",
+		"<?php $arr = array('a' => 1); echo $arr['a']; ?>",
+		"public static void main(String[] args) throws Exception {",
+		"#include <stdio.h>",
+		"    char c = '\\n'; printf(\"%d\\n\", c);"
+	};
+	
+	/**
+	 * Words for the text
+	 */
+	private static final String[] WORDS = {
+		"the","editor","should","be","fast","even","for","long","posts","with","many",
+		"tags","and","smileys","lorem","ipsum","dolor","sit","amet","http://example.com/"
+	};
+	
+	/**
+	 * Constructor
+	 */
+	private BenchmarkCorpus() {
+		// no instantiation
+	}
+	
+	/**
+	 * Generates the post with given size
+	 * 
+	 * @param size the size: SMALL, MEDIUM or PATHOLOGICAL
+	 * @return the post in BBCode
+	 */
+	public static String getPost(int size) {
+		Random r = new Random(42 + size);
+		StringBuffer buf = new StringBuffer();
+		switch(size) {
+			case SMALL:
+				buf.append("Hi [b]all[/b] :)\n");
+				appendText(buf,r,20);
+				buf.append("\nsee [url=http://example.com/]here[/url] and [i]there[/i] ;)");
+				break;
+			
+			case MEDIUM:
+				for(int i = 0;i < 60;i++)
+					appendBlock(buf,r);
+				break;
+			
+			case PATHOLOGICAL:
+				// unclosed tags
+				for(int i = 0;i < 500;i++)
+					buf.append(i % 2 == 0 ? "[b]x" : "[i]y");
+				buf.append('\n');
+				// interleaved tags
+				for(int i = 0;i < 500;i++)
+					buf.append("[b][i]z[/b][/i]");
+				buf.append('\n');
+				// deeply nested environments
+				for(int i = 0;i < 100;i++)
+					buf.append("[quote]");
+				buf.append("deep");
+				for(int i = 0;i < 100;i++)
+					buf.append("[/quote]");
+				buf.append('\n');
+				// brackets that are no tags and long words
+				for(int i = 0;i < 1000;i++)
+					buf.append(i % 3 == 0 ? "[" : "]").append("a");
+				for(int i = 0;i < 4000;i++)
+					buf.append((char)('a' + r.nextInt(26)));
+				buf.append('\n');
+				// a smiley after each other
+				for(int i = 0;i < 1000;i++)
+					buf.append(SMILEYS[r.nextInt(SMILEYS.length)]);
+				break;
+			
+			default:
+				throw new IllegalArgumentException("Invalid size " + size);
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * @param r the random-generator
+	 * @return a random word
+	 */
+	public static String getWord(Random r) {
+		return WORDS[r.nextInt(WORDS.length)];
+	}
+	
+	/**
+	 * Generates code with the given number of lines
+	 * 
+	 * @param lines the number of lines
+	 * @return the code
+	 */
+	public static String getCode(int lines) {
+		StringBuffer buf = new StringBuffer();
+		for(int i = 0;i < lines;i++) {
+			if(i > 0)
+				buf.append('\n');
+			buf.append(CODE[i % CODE.length]);
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * Appends a paragraph, a list, a quote or a code-block to the given buffer
+	 * 
+	 * @param buf the buffer
+	 * @param r the random-generator
+	 */
+	private static void appendBlock(StringBuffer buf,Random r) {
+		switch(r.nextInt(8)) {
+			case 0:
+				buf.append("[list]\n");
+				for(int i = 0;i < 4;i++) {
+					buf.append("[*]");
+					appendText(buf,r,8);
+					buf.append('\n');
+				}
+				buf.append("[/list]\n");
+				break;
+			
+			case 1:
+				buf.append("[quote=someone]");
+				appendText(buf,r,40);
+				buf.append("[/quote]\n");
+				break;
+			
+			case 2:
+				buf.append("[code=java]").append(getCode(8)).append("[/code]\n");
+				break;
+			
+			case 3:
+				boolean center = r.nextBoolean();
+				buf.append(center ? "[center]" : "[right]");
+				appendText(buf,r,15);
+				buf.append(center ? "[/center]\n" : "[/right]\n");
+				break;
+			
+			default:
+				appendText(buf,r,60);
+				buf.append('\n');
+				break;
+		}
+	}
+	
+	/**
+	 * Appends the given number of words, partially formated, to the given buffer
+	 * 
+	 * @param buf the buffer
+	 * @param r the random-generator
+	 * @param words the number of words
+	 */
+	private static void appendText(StringBuffer buf,Random r,int words) {
+		for(int i = 0;i < words;i++) {
+			String word = WORDS[r.nextInt(WORDS.length)];
+			switch(r.nextInt(12)) {
+				case 0:
+					buf.append("[b]").append(word).append("[/b]");
+					break;
+				case 1:
+					buf.append("[i][u]").append(word).append("[/u][/i]");
+					break;
+				case 2:
+					buf.append("[color=#ff0000]").append(word).append("[/color]");
+					break;
+				case 3:
+					buf.append("[size=14]").append(word).append("[/size]");
+					break;
+				case 4:
+					buf.append("[url=http://example.com/]").append(word).append("[/url]");
+					break;
+				case 5:
+					buf.append(SMILEYS[r.nextInt(SMILEYS.length)]);
+					break;
+				default:
+					buf.append(word);
+					break;
+			}
+			buf.append(' ');
+		}
+	}
+}
\ No newline at end of file
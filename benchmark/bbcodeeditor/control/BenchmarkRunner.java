@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.io.File;
+import java.net.URL;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.DecimalFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Runs the benchmarks and prints the throughput of each one. The options follow the ones
+ * of JMH:
+ * <pre>
+ * BenchmarkRunner [-wi &lt;n&gt;] [-i &lt;n&gt;] [-r &lt;ms&gt;] [-prof gc] [-hl &lt;dir&gt;] [regex]
+ * </pre>
+ * <ul>
+ * 	<li>-wi: the number of warmup-iterations (default 3)</li>
+ * 	<li>-i: the number of measured iterations (default 5)</li>
+ * 	<li>-r: the duration of an iteration in milliseconds (default 1000)</li>
+ * 	<li>-prof gc: reports the allocated bytes per operation and the number of
+ * 		garbage-collections as well</li>
+ * 	<li>-hl: the folder with the highlighters (default "highlighter")</li>
+ * 	<li>regex: only the benchmarks whose name contains a match will be run</li>
+ * </ul>
+ * The benchmarks run in the event-dispatch-thread, one after another. Should be started
+ * with <code>-Djava.awt.headless=true</code>. Exits with 1 if a benchmark has thrown an
+ * exception.
+ * 
+ * @author hrniels
+ */
+public final class BenchmarkRunner {
+	
+	/**
+	 * The result of the last operation; prevents that the JIT removes the work
+	 */
+	private static volatile Object _sink;
+	
+	/**
+	 * The number of warmup-iterations
+	 */
+	private int _warmupIterations = 3;
+	
+	/**
+	 * The number of measured iterations
+	 */
+	private int _iterations = 5;
+	
+	/**
+	 * The duration of an iteration in milliseconds
+	 */
+	private long _iterationTime = 1000;
+	
+	/**
+	 * Wether the allocations should be reported
+	 */
+	private boolean _profileGC = false;
+	
+	/**
+	 * The folder with the highlighters
+	 */
+	private File _hlFolder = new File("highlighter");
+	
+	/**
+	 * The pattern for the benchmark-names (null = all)
+	 */
+	private Pattern _filter = null;
+	
+	/**
+	 * The format for the scores
+	 */
+	private final DecimalFormat _format = new DecimalFormat("0.000");
+	
+	/**
+	 * Wether a benchmark has thrown an exception
+	 */
+	private volatile boolean _failed = false;
+	
+	/**
+	 * Constructor
+	 */
+	private BenchmarkRunner() {
+	
+	}
+	
+	/**
+	 * Runs the benchmarks
+	 * 
+	 * @param args the arguments
+	 * @throws Exception if anything goes wrong
+	 */
+	public static void main(String[] args) throws Exception {
+		final BenchmarkRunner runner = new BenchmarkRunner();
+		if(!runner.parseArgs(args)) {
+			System.err.println("Usage: BenchmarkRunner [-wi <n>] [-i <n>] [-r <ms>] [-prof gc]"
+					+ " [-hl <dir>] [regex]");
+			System.exit(1);
+		}
+		
+		// exceptions in events that are dispatched between the operations count as well
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			public void uncaughtException(Thread t,Throwable e) {
+				e.printStackTrace();
+				runner._failed = true;
+			}
+		});
+		
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					runner.runAll();
+				}
+				catch(Throwable e) {
+					e.printStackTrace();
+					runner._failed = true;
+				}
+			}
+		});
+		System.exit(runner._failed ? 1 : 0);
+	}
+	
+	/**
+	 * Parses the given arguments
+	 * 
+	 * @param args the arguments
+	 * @return true if they are valid
+	 */
+	private boolean parseArgs(String[] args) {
+		try {
+			for(int i = 0;i < args.length;i++) {
+				if(args[i].equals("-wi"))
+					_warmupIterations = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-i"))
+					_iterations = Math.max(1,Integer.parseInt(args[++i]));
+				else if(args[i].equals("-r"))
+					_iterationTime = Long.parseLong(args[++i]);
+				else if(args[i].equals("-prof") && args[++i].equals("gc"))
+					_profileGC = true;
+				else if(args[i].equals("-hl"))
+					_hlFolder = new File(args[++i]);
+				else if(!args[i].startsWith("-") && _filter == null)
+					_filter = Pattern.compile(args[i]);
+				else
+					return false;
+			}
+			return true;
+		}
+		catch(RuntimeException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Runs all benchmarks that match the filter
+	 * 
+	 * @throws Exception if anything goes wrong
+	 */
+	private void runAll() throws Exception {
+		URL hlFolder = _hlFolder.isDirectory() ? _hlFolder.toURI().toURL() : null;
+		List benchmarks = Benchmarks.create(hlFolder);
+		
+		System.out.println(pad("Benchmark",-50) + pad("Cnt",6) + pad("Score",16) + pad("Error",14)
+				+ "  Units");
+		Iterator it = benchmarks.iterator();
+		while(it.hasNext()) {
+			Benchmark b = (Benchmark)it.next();
+			if(_filter == null || _filter.matcher(b.getName()).find())
+				run(b);
+		}
+	}
+	
+	/**
+	 * Runs the given benchmark and prints the result
+	 * 
+	 * @param b the benchmark
+	 * @throws Exception if anything goes wrong
+	 */
+	private void run(Benchmark b) throws Exception {
+		b.setUp();
+		
+		for(int i = 0;i < _warmupIterations;i++)
+			runIteration(b);
+		
+		double[] scores = new double[_iterations];
+		long ops = 0;
+		long bytes = 0;
+		long gcs = 0;
+		for(int i = 0;i < _iterations;i++) {
+			long bytesBefore = getAllocatedBytes();
+			long gcsBefore = getGCCount();
+			long start = System.nanoTime();
+			long iterOps = runIteration(b);
+			long time = System.nanoTime() - start;
+			
+			bytes += getAllocatedBytes() - bytesBefore;
+			gcs += getGCCount() - gcsBefore;
+			ops += iterOps;
+			scores[i] = iterOps * 1e9 / time;
+		}
+		
+		double mean = 0;
+		for(int i = 0;i < scores.length;i++)
+			mean += scores[i];
+		mean /= scores.length;
+		double variance = 0;
+		for(int i = 0;i < scores.length;i++)
+			variance += (scores[i] - mean) * (scores[i] - mean);
+		double error = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0;
+		
+		printResult(b.getName(),mean,"+- " + _format.format(error),"ops/s");
+		if(_profileGC) {
+			if(bytes >= 0)
+				printResult(b.getName() + ":gc.alloc.rate.norm",(double)bytes / ops,"","B/op");
+			printResult(b.getName() + ":gc.count",gcs,"","counts");
+		}
+	}
+	
+	/**
+	 * Runs the given benchmark for one iteration
+	 * 
+	 * @param b the benchmark
+	 * @return the number of operations
+	 * @throws Exception if anything goes wrong
+	 */
+	private long runIteration(Benchmark b) throws Exception {
+		long end = System.nanoTime() + _iterationTime * 1000000;
+		long ops = 0;
+		do {
+			_sink = b.run();
+			ops++;
+		}
+		while(System.nanoTime() < end);
+		return ops;
+	}
+	
+	/**
+	 * Prints one line of the result
+	 * 
+	 * @param name the name
+	 * @param score the score
+	 * @param error the error
+	 * @param unit the unit
+	 */
+	private void printResult(String name,double score,String error,String unit) {
+		System.out.println(pad(name,-50) + pad(String.valueOf(_iterations),6)
+				+ pad(_format.format(score),16) + pad(error,14) + "  " + unit);
+	}
+	
+	/**
+	 * @return the number of bytes that have been allocated by the current thread so far
+	 * 	or -1 if the JVM does not support that
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+			if(sunBean.isThreadAllocatedMemorySupported())
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+	
+	/**
+	 * @return the number of garbage-collections so far
+	 */
+	private static long getGCCount() {
+		long count = 0;
+		Iterator it = ManagementFactory.getGarbageCollectorMXBeans().iterator();
+		while(it.hasNext())
+			count += Math.max(0,((GarbageCollectorMXBean)it.next()).getCollectionCount());
+		return count;
+	}
+	
+	/**
+	 * Pads the given string with spaces
+	 * 
+	 * @param str the string
+	 * @param width the width; negative = left-aligned
+	 * @return the padded string
+	 */
+	static String pad(String str,int width) {
+		StringBuffer buf = new StringBuffer();
+		int len = Math.abs(width);
+		if(width < 0)
+			buf.append(str);
+		for(int i = str.length();i < len;i++)
+			buf.append(' ');
+		if(width > 0)
+			buf.append(str);
+		return buf.toString();
+	}
+}
\ No newline at end of file
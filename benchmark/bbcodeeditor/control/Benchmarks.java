@@ -0,0 +1,389 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import bbcodeeditor.control.events.ImageLoadingFinishedListener;
+import bbcodeeditor.control.events.ImageLoadingRequestListener;
+import bbcodeeditor.control.export.Exporter;
+import bbcodeeditor.control.export.IExportContent;
+import bbcodeeditor.control.export.bbcode.BBCodeExportContent;
+import bbcodeeditor.control.export.bbcode.BBCodeParser;
+import bbcodeeditor.control.export.bbcode.BBCodeTokenizer;
+import bbcodeeditor.control.export.html.HTMLExportContent;
+import bbcodeeditor.control.export.html.HTMLParser;
+import bbcodeeditor.control.export.html.HTMLTokenizer;
+import bbcodeeditor.control.export.plain.PlainExportContent;
+import bbcodeeditor.control.highlighter.CustomHighlighters;
+import bbcodeeditor.control.highlighter.HighlighterEntry;
+
+
+/**
+ * Creates all benchmarks
+ * 
+ * @author hrniels
+ */
+final class Benchmarks {
+	
+	/**
+	 * The names of the export-syntaxes, indexed by IPublicController.SYNTAX_*
+	 */
+	private static final String[] SYNTAX_NAMES = {"bbcode","html","plain"};
+	
+	/**
+	 * Constructor
+	 */
+	private Benchmarks() {
+		// no instantiation
+	}
+	
+	/**
+	 * Creates all benchmarks
+	 * 
+	 * @param hlFolder the folder with the highlighters (null = no highlighter-benchmarks)
+	 * @return a List with the Benchmark-objects
+	 */
+	public static List create(URL hlFolder) {
+		List list = new ArrayList();
+		for(int size = 0;size < BenchmarkCorpus.NAMES.length;size++) {
+			String name = BenchmarkCorpus.NAMES[size];
+			String post = BenchmarkCorpus.getPost(size);
+			
+			list.add(new TokenizerBenchmark(name,post));
+			list.add(new ParserBenchmark(name,post));
+			for(int syntax = 0;syntax < SYNTAX_NAMES.length;syntax++)
+				list.add(new ExportBenchmark(name,post,syntax));
+			list.add(new HTMLImportBenchmark(name,post));
+			list.add(new SmileyBenchmark(name,post));
+		}
+		
+		if(hlFolder != null) {
+			CustomHighlighters.init(hlFolder,"languages.xml",false);
+			Iterator it = CustomHighlighters.getHighlighter().iterator();
+			while(it.hasNext())
+				list.add(new HighlightBenchmark(((HighlighterEntry)it.next()).getId()));
+		}
+		return list;
+	}
+	
+	/**
+	 * Creates a new text-field with the smileys of the corpus
+	 * 
+	 * @return the text-field
+	 */
+	static BBCTextField createTextField() {
+		BBCTextField tf = new BBCTextField();
+		tf.setSize(600,400);
+		
+		// the images of the corpus are not loaded. otherwise they would arrive
+		// asynchronously and change content that has been replaced in the meantime
+		tf.setImageLoader(new ImageLoadingRequestListener() {
+			public void imageLoadingRequest(URL location,ImageLoadingFinishedListener notifier) {
+				// ignore
+			}
+		});
+		
+		// use an existing image, so that it will be loaded just once
+		String location;
+		try {
+			location = new File("images/smileys/happy.png").toURI().toURL().toString();
+		}
+		catch(MalformedURLException e) {
+			throw new RuntimeException(e);
+		}
+		
+		SmileyContainer smileys = tf._controller.getSmileys();
+		for(int i = 0;i < BenchmarkCorpus.SMILEYS.length;i++)
+			smileys.addSmiley(new SecSmiley(tf,location,BenchmarkCorpus.SMILEYS[i]));
+		return tf;
+	}
+	
+	/**
+	 * @param tf the text-field
+	 * @param syntax the syntax. see IPublicController.SYNTAX_*
+	 * @return the corresponding export-type
+	 */
+	private static IExportContent getExportType(AbstractTextField tf,int syntax) {
+		switch(syntax) {
+			case IPublicController.SYNTAX_BBCODE:
+				return new BBCodeExportContent();
+			case IPublicController.SYNTAX_HTML:
+				return new HTMLExportContent(tf);
+			default:
+				return new PlainExportContent();
+		}
+	}
+	
+	/**
+	 * Tokenizes a post
+	 */
+	private static final class TokenizerBenchmark extends Benchmark {
+		
+		/**
+		 * the post
+		 */
+		private final String _post;
+		
+		/**
+		 * the text-field
+		 */
+		private BBCTextField _tf;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param name the name of the post
+		 * @param post the post
+		 */
+		public TokenizerBenchmark(String name,String post) {
+			super("tokenizer." + name);
+			_post = post;
+		}
+		
+		void setUp() {
+			_tf = createTextField();
+		}
+		
+		Object run() {
+			return new BBCodeTokenizer(_tf._controller,_post).getTokens();
+		}
+	}
+	
+	/**
+	 * Parses the tokens of a post and builds the document
+	 */
+	private static final class ParserBenchmark extends Benchmark {
+		
+		/**
+		 * the post
+		 */
+		private final String _post;
+		
+		/**
+		 * the text-field
+		 */
+		private BBCTextField _tf;
+		
+		/**
+		 * the tokens of the post
+		 */
+		private List<String> _tokens;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param name the name of the post
+		 * @param post the post
+		 */
+		public ParserBenchmark(String name,String post) {
+			super("parser." + name);
+			_post = post;
+		}
+		
+		void setUp() {
+			_tf = createTextField();
+			_tokens = new BBCodeTokenizer(_tf._controller,_post).getTokens();
+		}
+		
+		Object run() {
+			_tf._controller.clear();
+			return new Integer(new BBCodeParser(_tf._controller,_tokens).parse());
+		}
+	}
+	
+	/**
+	 * Exports a post in one syntax
+	 */
+	private static final class ExportBenchmark extends Benchmark {
+		
+		/**
+		 * the post
+		 */
+		private final String _post;
+		
+		/**
+		 * the syntax, see IPublicController.SYNTAX_*
+		 */
+		private final int _syntax;
+		
+		/**
+		 * the text-field
+		 */
+		private BBCTextField _tf;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param name the name of the post
+		 * @param post the post
+		 * @param syntax the syntax, see IPublicController.SYNTAX_*
+		 */
+		public ExportBenchmark(String name,String post,int syntax) {
+			super("export." + SYNTAX_NAMES[syntax] + "." + name);
+			_post = post;
+			_syntax = syntax;
+		}
+		
+		void setUp() {
+			_tf = createTextField();
+			_tf.setText(_post);
+		}
+		
+		Object run() {
+			return new Exporter(_tf,getExportType(_tf,_syntax)).getContent();
+		}
+	}
+	
+	/**
+	 * Converts the HTML-export of a post back to BBCode
+	 */
+	private static final class HTMLImportBenchmark extends Benchmark {
+		
+		/**
+		 * the post
+		 */
+		private final String _post;
+		
+		/**
+		 * the text-field
+		 */
+		private BBCTextField _tf;
+		
+		/**
+		 * the post in HTML
+		 */
+		private String _html;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param name the name of the post
+		 * @param post the post
+		 */
+		public HTMLImportBenchmark(String name,String post) {
+			super("htmlimport." + name);
+			_post = post;
+		}
+		
+		void setUp() {
+			_tf = createTextField();
+			_tf.setText(_post);
+			_html = _tf.getText(IPublicController.SYNTAX_HTML);
+		}
+		
+		Object run() {
+			HTMLTokenizer tok = new HTMLTokenizer(_html);
+			return new HTMLParser(_tf._controller,tok.getTokens()).convertToBBCode();
+		}
+	}
+	
+	/**
+	 * Searches for smileys at each position of a post, as the tokenizer does
+	 */
+	private static final class SmileyBenchmark extends Benchmark {
+		
+		/**
+		 * the post
+		 */
+		private final String _post;
+		
+		/**
+		 * the smileys
+		 */
+		private SmileyContainer _smileys;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param name the name of the post
+		 * @param post the post
+		 */
+		public SmileyBenchmark(String name,String post) {
+			super("smileys." + name);
+			_post = post;
+		}
+		
+		void setUp() {
+			_smileys = createTextField()._controller.getSmileys();
+		}
+		
+		Object run() {
+			int count = 0;
+			int maxLen = _smileys.getMaxSmileyLength();
+			for(int i = 0,len = _post.length();i < len;i++) {
+				String sub = _post.substring(i,Math.min(len,i + maxLen));
+				if(_smileys.getSmileyAtBeginning(sub) != null)
+					count++;
+			}
+			return new Integer(count);
+		}
+	}
+	
+	/**
+	 * Highlights all paragraphs of a code-block
+	 */
+	private static final class HighlightBenchmark extends Benchmark {
+		
+		/**
+		 * the id of the highlighter
+		 */
+		private final String _syntax;
+		
+		/**
+		 * the paragraphs of the code-block
+		 */
+		private List _paragraphs;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param syntax the id of the highlighter
+		 */
+		public HighlightBenchmark(String syntax) {
+			super("highlight." + syntax);
+			_syntax = syntax;
+		}
+		
+		void setUp() {
+			BBCTextField tf = createTextField();
+			tf.setText("[code=" + _syntax + "]" + BenchmarkCorpus.getCode(200) + "[/code]");
+			
+			// collect the paragraphs of the code-environment
+			_paragraphs = new ArrayList();
+			Paragraph p = tf.getRootEnvironment().getFirstParagraph();
+			while(!p.containsEnvironment())
+				p = (Paragraph)p.getNext();
+			Environment env = (Environment)p.getFirstSection();
+			for(p = env.getFirstParagraph();p != null;p = (Paragraph)p.getNext())
+				_paragraphs.add(p);
+		}
+		
+		Object run() {
+			for(int i = 0,len = _paragraphs.size();i < len;i++)
+				((Paragraph)_paragraphs.get(i)).getHighlighter().highlight();
+			return _paragraphs;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import bbcodeeditor.control.events.RecordingKeyListener;
+
+
+/**
+ * A sequence of editing-operations that can be replayed on a text-field. The format is
+ * the one of {@link RecordingKeyListener}. Typed text will be split into one operation
+ * per character because each one is a keystroke.
+ * 
+ * @author hrniels
+ */
+final class EditTrace {
+	
+	/**
+	 * Characters have been typed
+	 */
+	public static final int TYPE		= 0;
+	
+	/**
+	 * A key has been pressed
+	 */
+	public static final int KEY			= 1;
+	
+	/**
+	 * Text has been pasted
+	 */
+	public static final int PASTE		= 2;
+	
+	/**
+	 * An attribute has been toggled
+	 */
+	public static final int TOGGLE	= 3;
+	
+	/**
+	 * The attributes that will be toggled in generated traces
+	 */
+	private static final Integer[] TOGGLES = {
+		TextAttributes.BOLD,TextAttributes.ITALIC,TextAttributes.UNDERLINE,TextAttributes.STRIKE
+	};
+	
+	/**
+	 * The operations
+	 */
+	private final List _ops = new ArrayList();
+	
+	/**
+	 * Constructor
+	 */
+	private EditTrace() {
+	
+	}
+	
+	/**
+	 * Reads the trace from the given reader
+	 * 
+	 * @param in the reader
+	 * @return the trace
+	 * @throws IOException if reading fails or the trace is invalid
+	 */
+	public static EditTrace read(Reader in) throws IOException {
+		EditTrace trace = new EditTrace();
+		BufferedReader reader = new BufferedReader(in);
+		String line;
+		int lineNo = 0;
+		while((line = reader.readLine()) != null) {
+			lineNo++;
+			if(line.trim().length() == 0 || line.startsWith("#"))
+				continue;
+			
+			int space = line.indexOf(' ');
+			String cmd = space == -1 ? line : line.substring(0,space);
+			String arg = space == -1 ? "" : line.substring(space + 1);
+			if(cmd.equals("type")) {
+				String text = RecordingKeyListener.unescape(arg);
+				for(int i = 0;i < text.length();i++)
+					trace.add(new Op(TYPE,String.valueOf(text.charAt(i)),0,0,null));
+			}
+			else if(cmd.equals("key")) {
+				String[] parts = arg.split(" ");
+				int keyCode = RecordingKeyListener.getKeyCode(parts[0]);
+				if(keyCode == -1)
+					throw new IOException("Invalid key '" + parts[0] + "' in line " + lineNo);
+				
+				boolean ctrl = false;
+				boolean shift = false;
+				for(int i = 1;i < parts.length;i++) {
+					if(parts[i].equals("ctrl"))
+						ctrl = true;
+					else if(parts[i].equals("shift"))
+						shift = true;
+				}
+				trace.addKey(keyCode,ctrl,shift);
+			}
+			else if(cmd.equals("paste"))
+				trace.add(new Op(PASTE,RecordingKeyListener.unescape(arg),0,0,null));
+			else if(cmd.equals("toggle")) {
+				Integer attr = TextAttributes.getAttributeFromName(arg);
+				if(attr == null)
+					throw new IOException("Invalid attribute '" + arg + "' in line " + lineNo);
+				trace.add(new Op(TOGGLE,arg,0,0,attr));
+			}
+			else
+				throw new IOException("Invalid command '" + cmd + "' in line " + lineNo);
+		}
+		return trace;
+	}
+	
+	/**
+	 * Generates a trace that is similar to a user writing a post: mostly typing with a few
+	 * corrections, line-breaks, pastes, formatings, undos/redos and scrolling. The trace is
+	 * generated with the given seed so that every run uses the same operations.
+	 * 
+	 * @param count the (minimum) number of operations
+	 * @param seed the seed for the random-generator
+	 * @return the trace
+	 */
+	public static EditTrace generate(int count,long seed) {
+		Random r = new Random(seed);
+		EditTrace trace = new EditTrace();
+		while(trace.size() < count) {
+			int action = r.nextInt(100);
+			if(action < 70) {
+				String word = BenchmarkCorpus.getWord(r) + " ";
+				for(int i = 0;i < word.length();i++)
+					trace.add(new Op(TYPE,String.valueOf(word.charAt(i)),0,0,null));
+			}
+			else if(action < 78) {
+				for(int i = r.nextInt(4);i >= 0;i--)
+					trace.addKey(KeyEvent.VK_BACK_SPACE,false,false);
+			}
+			else if(action < 82)
+				trace.addKey(KeyEvent.VK_ENTER,false,false);
+			else if(action < 85) {
+				StringBuffer text = new StringBuffer();
+				for(int i = r.nextInt(6) + 3;i > 0;i--)
+					text.append(BenchmarkCorpus.getWord(r)).append(' ');
+				trace.add(new Op(PASTE,text.toString(),0,0,null));
+			}
+			else if(action < 89) {
+				Integer attr = TOGGLES[r.nextInt(TOGGLES.length)];
+				trace.add(new Op(TOGGLE,TextAttributes.getAttributeName(attr),0,0,attr));
+			}
+			else if(action < 93) {
+				int steps = r.nextInt(3) + 1;
+				for(int i = 0;i < steps;i++)
+					trace.addKey(KeyEvent.VK_Z,true,false);
+				for(int i = 0;i < steps;i++)
+					trace.addKey(KeyEvent.VK_Y,true,false);
+			}
+			else {
+				int key = r.nextBoolean() ? KeyEvent.VK_DOWN : KeyEvent.VK_UP;
+				for(int i = r.nextInt(5);i >= 0;i--)
+					trace.addKey(key,true,false);
+			}
+		}
+		return trace;
+	}
+	
+	/**
+	 * @return the number of operations
+	 */
+	public int size() {
+		return _ops.size();
+	}
+	
+	/**
+	 * @param index the index
+	 * @return the operation with given index
+	 */
+	public Op get(int index) {
+		return (Op)_ops.get(index);
+	}
+	
+	/**
+	 * Adds the given operation
+	 * 
+	 * @param op the operation
+	 */
+	private void add(Op op) {
+		_ops.add(op);
+	}
+	
+	/**
+	 * Adds a key-press
+	 * 
+	 * @param keyCode the key-code
+	 * @param ctrl is control down?
+	 * @param shift is shift down?
+	 */
+	private void addKey(int keyCode,boolean ctrl,boolean shift) {
+		add(new Op(KEY,RecordingKeyListener.getKeyName(keyCode),keyCode,
+				RecordingKeyListener.getModifiers(ctrl,shift),null));
+	}
+	
+	/**
+	 * An operation of the trace
+	 * 
+	 * @author hrniels
+	 */
+	static final class Op {
+		
+		/**
+		 * The type: TYPE, KEY, PASTE or TOGGLE
+		 */
+		private final int _type;
+		
+		/**
+		 * The typed character, the key-name, the pasted text or the attribute-name
+		 */
+		private final String _text;
+		
+		/**
+		 * The key-code for KEY
+		 */
+		private final int _keyCode;
+		
+		/**
+		 * The modifiers for KEY
+		 */
+		private final int _modifiers;
+		
+		/**
+		 * The attribute for TOGGLE
+		 */
+		private final Integer _attribute;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param type the type
+		 * @param text the typed character, the key-name, the pasted text or the attribute-name
+		 * @param keyCode the key-code for KEY
+		 * @param modifiers the modifiers for KEY
+		 * @param attribute the attribute for TOGGLE
+		 */
+		Op(int type,String text,int keyCode,int modifiers,Integer attribute) {
+			_type = type;
+			_text = text;
+			_keyCode = keyCode;
+			_modifiers = modifiers;
+			_attribute = attribute;
+		}
+		
+		/**
+		 * @return the category for the report: type, enter, backspace, paste, toggle, undo,
+		 * 	redo, scroll or key
+		 */
+		public String getCategory() {
+			switch(_type) {
+				case TYPE:
+					return "type";
+				case PASTE:
+					return "paste";
+				case TOGGLE:
+					return "toggle";
+			}
+			
+			boolean ctrl = (_modifiers & KeyEvent.CTRL_DOWN_MASK) != 0;
+			switch(_keyCode) {
+				case KeyEvent.VK_ENTER:
+					return "enter";
+				case KeyEvent.VK_BACK_SPACE:
+					return "backspace";
+				case KeyEvent.VK_Z:
+					return ctrl ? "undo" : "key";
+				case KeyEvent.VK_Y:
+					return ctrl ? "redo" : "key";
+				case KeyEvent.VK_UP:
+				case KeyEvent.VK_DOWN:
+					return ctrl ? "scroll" : "key";
+				case KeyEvent.VK_PAGE_UP:
+				case KeyEvent.VK_PAGE_DOWN:
+					return "scroll";
+			}
+			return "key";
+		}
+		
+		/**
+		 * Performs the operation. Keys will be passed to the given listener, just like
+		 * the ones of the user
+		 * 
+		 * @param tf the text-field
+		 * @param listener the key-listener of the text-field
+		 */
+		public void perform(BBCTextField tf,KeyListener listener) {
+			switch(_type) {
+				case TYPE:
+					listener.keyTyped(new KeyEvent(tf,KeyEvent.KEY_TYPED,System.currentTimeMillis(),
+							0,KeyEvent.VK_UNDEFINED,_text.charAt(0)));
+					break;
+				
+				case KEY:
+					listener.keyPressed(new KeyEvent(tf,KeyEvent.KEY_PRESSED,System.currentTimeMillis(),
+							_modifiers,_keyCode,KeyEvent.CHAR_UNDEFINED));
+					break;
+				
+				case PASTE:
+					tf.pasteTextAtCursor(_text,false);
+					break;
+				
+				case TOGGLE:
+					tf.toggleAttribute(_attribute);
+					break;
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+
+import bbcodeeditor.control.events.TextAreaKeyListener;
+
+
+/**
+ * Measures the latency of editing-operations by replaying a recorded or generated trace
+ * on a text-field and painting it into an offscreen-image after each operation:
+ * <pre>
+ * LatencyBenchmark [-doc small|medium|pathological] [-repeat &lt;n&gt;] [-ops &lt;n&gt;]
+ *   [-seed &lt;n&gt;] [-size &lt;w&gt;x&lt;h&gt;] [-warmup &lt;n&gt;] [-raster] [-virtual] [trace]
+ * </pre>
+ * <ul>
+ * 	<li>-doc: the post the text-field contains initially (default medium)</li>
+ * 	<li>-repeat: how often the post will be repeated (default 4)</li>
+ * 	<li>-ops: the number of operations of the generated trace (default 2000)</li>
+ * 	<li>-seed: the seed of the generated trace (default 1)</li>
+ * 	<li>-size: the size of the visible area (default 600x400)</li>
+ * 	<li>-warmup: the number of unmeasured replays before (default 2)</li>
+ * 	<li>-raster: enables the raster-cache</li>
+ * 	<li>-virtual: enables the virtual layout</li>
+ * 	<li>trace: the trace to replay, see {@link bbcodeeditor.control.events.RecordingKeyListener}.
+ * 		If missing a trace will be generated</li>
+ * </ul>
+ * The operation starts in the middle of the post. For each kind of operation the
+ * percentiles are reported for the model-update, the word-wrap (including the refresh of
+ * the views), the refresh of the paint-positions and the paint. The operations run
+ * unchanged, the times of the word-wrap and the paint-positions are taken from the
+ * {@link Metrics} of the text-field. The model-update is the rest of the operation,
+ * including the rest of {@link BBCTextField#finish()}, like the history. Should be
+ * started with <code>-Djava.awt.headless=true</code>.
+ * 
+ * @author hrniels
+ */
+public final class LatencyBenchmark {
+	
+	/**
+	 * The phases
+	 */
+	private static final String[] PHASES = {"model","wordwrap","paintpos","paint","total"};
+	
+	/**
+	 * The index of the model-update
+	 */
+	private static final int MODEL			= 0;
+	
+	/**
+	 * The index of the word-wrap
+	 */
+	private static final int WORDWRAP		= 1;
+	
+	/**
+	 * The index of the paint-position-refresh
+	 */
+	private static final int PAINTPOS		= 2;
+	
+	/**
+	 * The index of the paint
+	 */
+	private static final int PAINT			= 3;
+	
+	/**
+	 * The index of the total time
+	 */
+	private static final int TOTAL			= 4;
+	
+	/**
+	 * The percentiles to report
+	 */
+	private static final double[] PERCENTILES = {50,90,99,100};
+	
+	/**
+	 * The post
+	 */
+	private int _doc = BenchmarkCorpus.MEDIUM;
+	
+	/**
+	 * How often the post is repeated
+	 */
+	private int _repeat = 4;
+	
+	/**
+	 * The number of generated operations
+	 */
+	private int _ops = 2000;
+	
+	/**
+	 * The seed for the generated trace
+	 */
+	private long _seed = 1;
+	
+	/**
+	 * The width of the visible area
+	 */
+	private int _width = 600;
+	
+	/**
+	 * The height of the visible area
+	 */
+	private int _height = 400;
+	
+	/**
+	 * The number of unmeasured replays
+	 */
+	private int _warmup = 2;
+	
+	/**
+	 * Wether the raster-cache should be used
+	 */
+	private boolean _raster = false;
+	
+	/**
+	 * Wether the virtual layout should be used
+	 */
+	private boolean _virtualLayout = false;
+	
+	/**
+	 * The trace-file (null = generate one)
+	 */
+	private String _traceFile = null;
+	
+	/**
+	 * The samples of the categories: <code>String => Samples[]</code>, one for each phase
+	 */
+	private final Map<String,Samples[]> _samples = new LinkedHashMap<String,Samples[]>();
+	
+	/**
+	 * The format for the times
+	 */
+	private final DecimalFormat _format = new DecimalFormat("0.000");
+	
+	/**
+	 * Constructor
+	 */
+	private LatencyBenchmark() {
+	
+	}
+	
+	/**
+	 * Runs the benchmark
+	 * 
+	 * @param args the arguments
+	 * @throws Exception if anything goes wrong
+	 */
+	public static void main(String[] args) throws Exception {
+		final LatencyBenchmark bench = new LatencyBenchmark();
+		if(!bench.parseArgs(args)) {
+			System.err.println("Usage: LatencyBenchmark [-doc small|medium|pathological]"
+					+ " [-repeat <n>] [-ops <n>] [-seed <n>] [-size <w>x<h>] [-warmup <n>]"
+					+ " [-raster] [-virtual] [trace]");
+			System.exit(1);
+		}
+		
+		final EditTrace trace;
+		if(bench._traceFile != null) {
+			Reader in = new FileReader(bench._traceFile);
+			try {
+				trace = EditTrace.read(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		else
+			trace = EditTrace.generate(bench._ops,bench._seed);
+		
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				for(int i = 0;i < bench._warmup;i++)
+					bench.replay(trace,false);
+				bench.replay(trace,true);
+				bench.printResult(trace);
+			}
+		});
+		System.exit(0);
+	}
+	
+	/**
+	 * Parses the given arguments
+	 * 
+	 * @param args the arguments
+	 * @return true if they are valid
+	 */
+	private boolean parseArgs(String[] args) {
+		try {
+			for(int i = 0;i < args.length;i++) {
+				if(args[i].equals("-doc")) {
+					_doc = Arrays.asList(BenchmarkCorpus.NAMES).indexOf(args[++i]);
+					if(_doc == -1)
+						return false;
+				}
+				else if(args[i].equals("-repeat"))
+					_repeat = Math.max(1,Integer.parseInt(args[++i]));
+				else if(args[i].equals("-ops"))
+					_ops = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-seed"))
+					_seed = Long.parseLong(args[++i]);
+				else if(args[i].equals("-size")) {
+					String[] size = args[++i].split("x");
+					_width = Integer.parseInt(size[0]);
+					_height = Integer.parseInt(size[1]);
+				}
+				else if(args[i].equals("-warmup"))
+					_warmup = Integer.parseInt(args[++i]);
+				else if(args[i].equals("-raster"))
+					_raster = true;
+				else if(args[i].equals("-virtual"))
+					_virtualLayout = true;
+				else if(!args[i].startsWith("-") && _traceFile == null)
+					_traceFile = args[i];
+				else
+					return false;
+			}
+			return true;
+		}
+		catch(RuntimeException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Replays the given trace on a new text-field
+	 * 
+	 * @param trace the trace
+	 * @param measure wether the latencies should be recorded
+	 */
+	private void replay(EditTrace trace,boolean measure) {
+		BBCTextField tf = Benchmarks.createTextField();
+		// we paint into our image, not into a buffer of swing
+		tf.setDoubleBuffered(false);
+		tf.setRasterCacheEnabled(_raster);
+		tf.setMetricsEnabled(true);
+		
+		JViewport viewport = new JViewport();
+		viewport.setSize(_width,_height);
+		viewport.setView(tf);
+		if(_virtualLayout)
+			tf.setVirtualLayoutEnabled(true);
+		
+		StringBuffer post = new StringBuffer();
+		for(int i = 0;i < _repeat;i++)
+			post.append(BenchmarkCorpus.getPost(_doc)).append('\n');
+		tf.setText(post.toString());
+		viewport.doLayout();
+		tf.goToPosition(tf._controller.getRootEnvironment().getElementLength() / 2);
+		
+		BufferedImage image = new BufferedImage(_width,_height,BufferedImage.TYPE_INT_RGB);
+		paint(tf,viewport,image);
+		
+		TextAreaKeyListener listener = new TextAreaKeyListener(tf);
+		long[] times = new long[PHASES.length];
+		for(int i = 0;i < trace.size();i++) {
+			EditTrace.Op op = trace.get(i);
+			perform(tf,viewport,image,listener,op,times);
+			if(measure) {
+				Samples[] samples = getSamples(op.getCategory());
+				for(int j = 0;j < times.length;j++)
+					samples[j].add(times[j]);
+			}
+		}
+	}
+	
+	/**
+	 * Performs the given operation and stores the time of each phase in <code>times</code>.
+	 * The word-wrap and the paint-positions are the differences of the corresponding
+	 * phases of the metrics.
+	 * 
+	 * @param tf the text-field
+	 * @param viewport the viewport of the text-field
+	 * @param image the image to paint in
+	 * @param listener the key-listener
+	 * @param op the operation
+	 * @param times the times of the phases in nanoseconds
+	 */
+	private void perform(BBCTextField tf,JViewport viewport,BufferedImage image,
+			TextAreaKeyListener listener,EditTrace.Op op,long[] times) {
+		Metrics metrics = tf.getMetrics();
+		long wordwrap = getWordwrapTime(metrics);
+		long paintPos = metrics.getTotalTime(Metrics.PAINTPOS_REFRESH);
+		
+		long start = System.nanoTime();
+		op.perform(tf,listener);
+		long opTime = System.nanoTime() - start;
+		
+		times[WORDWRAP] = getWordwrapTime(metrics) - wordwrap;
+		times[PAINTPOS] = metrics.getTotalTime(Metrics.PAINTPOS_REFRESH) - paintPos;
+		times[MODEL] = Math.max(0,opTime - times[WORDWRAP] - times[PAINTPOS]);
+		
+		start = System.nanoTime();
+		paint(tf,viewport,image);
+		times[PAINT] = System.nanoTime() - start;
+		
+		times[TOTAL] = times[MODEL] + times[WORDWRAP] + times[PAINTPOS] + times[PAINT];
+	}
+	
+	/**
+	 * @param metrics the metrics
+	 * @return the total time of the word-wrap, including the refresh of the views
+	 */
+	private static long getWordwrapTime(Metrics metrics) {
+		return metrics.getTotalTime(Metrics.WORDWRAP) + metrics.getTotalTime(Metrics.VIEW_REFRESH);
+	}
+	
+	/**
+	 * Lays out the viewport and paints the visible area of the text-field into the image
+	 * 
+	 * @param tf the text-field
+	 * @param viewport the viewport
+	 * @param image the image
+	 */
+	private void paint(BBCTextField tf,JViewport viewport,BufferedImage image) {
+		// the required size may have changed
+		viewport.doLayout();
+		
+		Rectangle visible = tf.getVisibleRect();
+		Graphics2D g = image.createGraphics();
+		try {
+			g.translate(-visible.x,-visible.y);
+			g.setClip(visible);
+			tf.paint(g);
+		}
+		finally {
+			g.dispose();
+		}
+	}
+	
+	/**
+	 * @param category the category
+	 * @return the samples for the given category
+	 */
+	private Samples[] getSamples(String category) {
+		Samples[] samples = _samples.get(category);
+		if(samples == null) {
+			samples = new Samples[PHASES.length];
+			for(int i = 0;i < samples.length;i++)
+				samples[i] = new Samples();
+			_samples.put(category,samples);
+		}
+		return samples;
+	}
+	
+	/**
+	 * Prints the percentiles of all categories and phases
+	 * 
+	 * @param trace the trace
+	 */
+	private void printResult(EditTrace trace) {
+		System.out.println("# " + trace.size() + " operations on "
+				+ BenchmarkCorpus.NAMES[_doc] + " x " + _repeat + ", times in ms");
+		StringBuffer header = new StringBuffer();
+		header.append(BenchmarkRunner.pad("Operation",-12));
+		header.append(BenchmarkRunner.pad("Phase",-10));
+		header.append(BenchmarkRunner.pad("Cnt",7));
+		for(int i = 0;i < PERCENTILES.length;i++) {
+			String name = PERCENTILES[i] == 100 ? "max" : "p" + (int)PERCENTILES[i];
+			header.append(BenchmarkRunner.pad(name,10));
+		}
+		System.out.println(header);
+		
+		Iterator<Map.Entry<String,Samples[]>> it = _samples.entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry<String,Samples[]> e = it.next();
+			Samples[] samples = e.getValue();
+			for(int i = 0;i < samples.length;i++) {
+				StringBuffer line = new StringBuffer();
+				line.append(BenchmarkRunner.pad(i == 0 ? e.getKey() : "",-12));
+				line.append(BenchmarkRunner.pad(PHASES[i],-10));
+				line.append(BenchmarkRunner.pad(String.valueOf(samples[i].size()),7));
+				for(int j = 0;j < PERCENTILES.length;j++) {
+					double ms = samples[i].getPercentile(PERCENTILES[j]) / 1000000.0;
+					line.append(BenchmarkRunner.pad(_format.format(ms),10));
+				}
+				System.out.println(line);
+			}
+		}
+	}
+	
+	/**
+	 * The measured times of one phase
+	 * 
+	 * @author hrniels
+	 */
+	private static final class Samples {
+		
+		/**
+		 * The times
+		 */
+		private long[] _times = new long[64];
+		
+		/**
+		 * The number of times
+		 */
+		private int _size = 0;
+		
+		/**
+		 * Wether the times are sorted
+		 */
+		private boolean _sorted = true;
+		
+		/**
+		 * @return the number of times
+		 */
+		public int size() {
+			return _size;
+		}
+		
+		/**
+		 * Adds the given time
+		 * 
+		 * @param time the time
+		 */
+		public void add(long time) {
+			if(_size == _times.length) {
+				long[] times = new long[_size * 2];
+				System.arraycopy(_times,0,times,0,_size);
+				_times = times;
+			}
+			_times[_size++] = time;
+			_sorted = false;
+		}
+		
+		/**
+		 * Determines the given percentile with the nearest-rank-method
+		 * 
+		 * @param percentile the percentile (0..100)
+		 * @return the time
+		 */
+		public long getPercentile(double percentile) {
+			if(_size == 0)
+				return 0;
+			
+			if(!_sorted) {
+				Arrays.sort(_times,0,_size);
+				_sorted = true;
+			}
+			
+			int rank = (int)Math.ceil(percentile / 100 * _size);
+			return _times[Math.max(0,Math.min(_size,rank) - 1)];
+		}
+	}
+}
\ No newline at end of file
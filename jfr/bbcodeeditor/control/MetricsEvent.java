@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+
+package bbcodeeditor.control;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/**
+ * The JFR-event for a measured phase of {@link Metrics}. This class is in an optional
+ * source-folder, which is just compiled if the JDK supports JFR, and {@link Metrics}
+ * loads it via reflection if the events are enabled. So the control builds and runs
+ * without JFR as well.
+ * 
+ * @author hrniels
+ */
+@Name("bbcodeeditor.Phase")
+@Label("Editor Phase")
+@Category("BBCodeEditor")
+final class MetricsEvent extends Event {
+	
+	/**
+	 * The name of the phase
+	 */
+	@Label("Phase")
+	String phase;
+	
+	/**
+	 * The time of the phase in nanoseconds
+	 */
+	@Label("Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long time;
+	
+	/**
+	 * Emits an event for the given phase, if JFR records it
+	 * 
+	 * @param phase the name of the phase
+	 * @param time the time in nanoseconds
+	 */
+	static void emit(String phase,long time) {
+		MetricsEvent e = new MetricsEvent();
+		if(e.isEnabled()) {
+			e.phase = phase;
+			e.time = time;
+			e.commit();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import bbcodeeditor.control.events.BBCodeParseError;
+import bbcodeeditor.control.events.BBCodeParseErrorListener;
+import bbcodeeditor.control.events.ImageLoadingFinishedListener;
+import bbcodeeditor.control.events.ImageLoadingRequestListener;
+import bbcodeeditor.control.export.bbcode.BBCodeParser;
+import bbcodeeditor.control.export.bbcode.BBCodeTags;
+import bbcodeeditor.control.export.bbcode.BBCodeValidator;
+import bbcodeeditor.control.export.bbcode.ValidationError;
+import bbcodeeditor.control.export.bbcode.ValidatorConfig;
+
+
+/**
+ * Tests the validator: random BBCode has to be valid for the validator if and only if the
+ * text-field reports no parse-error, with the same configuration. The error of the
+ * text-field has to be one of the reported errors.
+ * 
+ * @author hrniels
+ */
+final class BBCodeValidatorTest extends TestCase {
+	
+	/**
+	 * The opening tags of the random BBCode, including unknown and invalid ones
+	 */
+	private static final String[] OPEN = {
+		"[b]","[i]","[u]","[s]","[sub]","[sup]","[size=12]","[font=Arial]","[color=#ff0000]",
+		"[bgcolor=#00ff00]","[url]","[url=http://x/]","[mail]","[quote]","[quote=Nils]","[code]",
+		"[list]","[img]","[left]","[center]","[right]","[foo]","[*]","[size]","[b=3]","[quote=]"
+	};
+	
+	/**
+	 * The closing tags for {@link #OPEN}
+	 */
+	private static final String[] CLOSE = {
+		"[/b]","[/i]","[/u]","[/s]","[/sub]","[/sup]","[/size]","[/font]","[/color]","[/bgcolor]",
+		"[/url]","[/url]","[/mail]","[/quote]","[/quote]","[/code]","[/list]","[/img]","[/left]",
+		"[/center]","[/right]","[/foo]","[/*]","[/size]","[/b]","[/quote]"
+	};
+	
+	/**
+	 * Fragments that are no tags
+	 */
+	private static final String[] JUNK = {"[","]","=","/","[/","[]","[/]","x[y","a]b"};
+	
+	/**
+	 * The last reported error; -1 if there was none
+	 */
+	private int _error;
+	
+	/**
+	 * Constructor
+	 */
+	BBCodeValidatorTest() {
+		super("bbcode-validator");
+	}
+	
+	void run() throws Exception {
+		ValidatorConfig config = new ValidatorConfig();
+		BBCodeValidator validator = new BBCodeValidator(config);
+		check(validator.isValid("[b]a[/b] [list][*]x[/list]"),"valid input");
+		List<ValidationError> errors = validator.validate("a[/b] x [/u]");
+		checkEquals(2,errors.size(),"number of errors");
+		checkEquals(BBCodeParser.ERR_MISSING_CLOSING_TAG,errors.get(0).getError(),"first error");
+		checkEquals(1,errors.get(0).getOffset(),"offset of the first error");
+		checkEquals(8,errors.get(1).getOffset(),"offset of the second error");
+		check(!validator.isValid("a[/b] x [/u]"),"invalid input");
+		
+		// the configuration is copied
+		config.disableTag(BBCodeTags.BOLD);
+		config.setMaxErrors(1);
+		checkEquals(2,validator.validate("a[/b] x [/u]").size(),"copy of the configuration");
+		validator = new BBCodeValidator(config);
+		check(validator.isValid("[b]a[/b]"),"disabled tag");
+		checkEquals(1,validator.validate("a[/i] x [/u]").size(),"maximum number of errors");
+		
+		BBCTextField tf = createTextField();
+		tf.addBBCodeParseErrorListener(new BBCodeParseErrorListener() {
+			public void parseError(BBCodeParseError e) {
+				_error = e.getError();
+			}
+		});
+		// the images are not needed
+		tf.setImageLoader(new ImageLoadingRequestListener() {
+			public void imageLoadingRequest(URL location,ImageLoadingFinishedListener notifier) {
+				// ignore
+			}
+		});
+		
+		Random rnd = new Random(50);
+		for(int c = 0;c < 40;c++) {
+			config = new ValidatorConfig();
+			tf.enableAllTags();
+			tf.enableTag(BBCodeTags.IMAGE);
+			List<Integer> disabled = new ArrayList<Integer>();
+			for(int tag = BBCodeTags.BOLD;tag < BBCodeTags.HIGHLIGHT;tag++) {
+				if(rnd.nextInt(6) == 0) {
+					disabled.add(Integer.valueOf(tag));
+					config.disableTag(tag);
+					// the text-field disables them together
+					if(tag == BBCodeTags.SUBSCRIPT || tag == BBCodeTags.SUPERSCRIPT)
+						config.disableTag(BBCodeTags.SUBSCRIPT + BBCodeTags.SUPERSCRIPT - tag);
+				}
+			}
+			tf.disableTags(disabled);
+			int level = 1 + rnd.nextInt(5);
+			tf.setMaxTagNestingLevel(level);
+			config.setMaxTagNestingLevel(level);
+			validator = new BBCodeValidator(config);
+			
+			for(int k = 0;k < 150;k++) {
+				String input = createInput(rnd);
+				String msg = "config " + c + ", input '" + input + "'";
+				_error = -1;
+				tf.setText(input);
+				
+				errors = validator.validate(input);
+				checkEquals(_error == -1,errors.isEmpty(),msg);
+				checkEquals(_error == -1,validator.isValid(input),msg);
+				if(_error != -1)
+					checkEquals(_error,getExpectedError(errors),msg + ", " + errors);
+			}
+		}
+	}
+	
+	/**
+	 * Determines the error that the text-field should report. The text-field converts the
+	 * tags first, so that missing opening and closing tags are reported before the other
+	 * errors.
+	 * 
+	 * @param errors the errors of the validator
+	 * @return the error
+	 */
+	private static int getExpectedError(List<ValidationError> errors) {
+		for(int i = 0;i < errors.size();i++) {
+			int error = errors.get(i).getError();
+			if(error == BBCodeParser.ERR_MISSING_CLOSING_TAG || error == BBCodeParser.ERR_MISS_OPEN_TAG)
+				return error;
+		}
+		return errors.get(0).getError();
+	}
+	
+	/**
+	 * Generates random BBCode with nested, unclosed and interleaved tags and junk
+	 * 
+	 * @param rnd the random-generator
+	 * @return the BBCode
+	 */
+	private static String createInput(Random rnd) {
+		StringBuffer buf = new StringBuffer();
+		List<Integer> open = new ArrayList<Integer>();
+		int count = 1 + rnd.nextInt(14);
+		for(int i = 0;i < count;i++) {
+			int kind = rnd.nextInt(10);
+			if(kind < 4) {
+				int tag = rnd.nextInt(OPEN.length);
+				buf.append(OPEN[tag]);
+				open.add(Integer.valueOf(tag));
+			}
+			else if(kind < 7 && open.size() > 0) {
+				int index = rnd.nextInt(4) == 0 ? rnd.nextInt(open.size()) : open.size() - 1;
+				buf.append(CLOSE[open.remove(index).intValue()]);
+			}
+			else if(kind == 7)
+				buf.append(CLOSE[rnd.nextInt(CLOSE.length)]);
+			else if(kind == 8)
+				buf.append(JUNK[rnd.nextInt(JUNK.length)]);
+			else
+				buf.append('t').append(i);
+		}
+		while(open.size() > 0 && rnd.nextBoolean())
+			buf.append(CLOSE[open.remove(open.size() - 1).intValue()]);
+		return buf.toString();
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Random;
+
+import bbcodeeditor.control.export.Exporter;
+import bbcodeeditor.control.export.IExportContent;
+import bbcodeeditor.control.export.bbcode.BBCodeTags;
+import bbcodeeditor.control.export.bbcode.BBCodeExportContent;
+import bbcodeeditor.control.export.html.HTMLExportContent;
+import bbcodeeditor.control.export.plain.PlainExportContent;
+
+
+/**
+ * Tests the invalidation of the export-cache: after each edit the cached export of the
+ * text-field has to be the same as an export without cache, for all syntaxes.
+ * 
+ * @author hrniels
+ */
+final class ExportCacheTest extends TestCase {
+	
+	/**
+	 * Constructor
+	 */
+	ExportCacheTest() {
+		super("export-cache");
+	}
+	
+	void run() throws Exception {
+		BBCTextField tf = createTextField();
+		
+		// a change in the middle has to be visible, the rest comes from the cache
+		tf.setText("[b]first[/b]\nsecond\n[i]third[/i]");
+		checkEquals("[b]first[/b]\nsecond\n[i]third[/i]",tf.getText(),"initial export");
+		tf.addTextAt("the ",6,null);
+		checkEquals("[b]first[/b]\nthe second\n[i]third[/i]",tf.getText(),"export after a change");
+		tf.toggleAttribute(6,9,TextAttributes.UNDERLINE);
+		checkEquals("[b]first[/b]\n[u]the[/u] second\n[i]third[/i]",tf.getText(),
+				"export after an attribute-change");
+		tf.disableTag(BBCodeTags.BOLD);
+		checkEquals("first\n[u]the[/u] second\n[i]third[/i]",tf.getText(),
+				"export after disabling a tag");
+		
+		Random rnd = new Random(44);
+		for(int d = 0;d < 100;d++) {
+			tf.enableTag(BBCodeTags.BOLD);
+			tf.setText(TestCorpus.createPost(rnd,0));
+			for(int e = 0;e < 12;e++) {
+				TestCorpus.edit(tf,rnd);
+				for(int syntax = 0;syntax <= IPublicController.SYNTAX_PLAIN;syntax++) {
+					String msg = "document " + d + ", edit " + e + ", syntax " + syntax;
+					Exporter ex = new Exporter(tf,getExportType(tf,syntax));
+					checkEquals(ex.getContent(),tf.getText(syntax),msg);
+					
+					int len = tf._controller.length();
+					int start = rnd.nextInt(len + 1);
+					int end = start + rnd.nextInt(len - start + 1);
+					ex = new Exporter(tf,getExportType(tf,syntax));
+					checkEquals(ex.getContent(start,end),tf.getText(start,end,syntax),
+							msg + ", " + start + " - " + end);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param tf the text-field
+	 * @param syntax the syntax. see IPublicController.SYNTAX_*
+	 * @return the corresponding export-type
+	 */
+	static IExportContent getExportType(AbstractTextField tf,int syntax) {
+		switch(syntax) {
+			case IPublicController.SYNTAX_BBCODE:
+				return new BBCodeExportContent();
+			case IPublicController.SYNTAX_HTML:
+				return new HTMLExportContent(tf);
+			default:
+				return new PlainExportContent();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import bbcodeeditor.control.export.Exporter;
+import bbcodeeditor.control.export.bbcode.BBCodeTags;
+
+
+/**
+ * Tests the parallel export: the result has to be the same as the one of the sequential
+ * export, for all syntaxes. The documents are long enough to be split into several
+ * chunks.
+ * 
+ * @author hrniels
+ */
+final class ParallelExportTest extends TestCase {
+	
+	/**
+	 * The minimum length of the documents, so that they are split into several chunks
+	 */
+	private static final int MIN_LENGTH = 100 * 1024;
+	
+	/**
+	 * Constructor
+	 */
+	ParallelExportTest() {
+		super("parallel-export");
+	}
+	
+	void run() throws Exception {
+		BBCTextField tf = createTextField();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			Random rnd = new Random(45);
+			for(int d = 0;d < 6;d++) {
+				StringBuffer text = new StringBuffer();
+				while(text.length() < MIN_LENGTH)
+					text.append(TestCorpus.createPost(rnd,0));
+				// an attribute over the whole document prevents the splitting
+				if(d == 5)
+					text.insert(0,"[u]").append("[/u]");
+				
+				tf.enableTag(BBCodeTags.BOLD);
+				tf.setText(text.toString());
+				for(int e = 0;e < 10;e++)
+					TestCorpus.edit(tf,rnd);
+				if(d % 3 == 1)
+					tf.disableTag(BBCodeTags.BOLD);
+				
+				for(int syntax = 0;syntax <= IPublicController.SYNTAX_PLAIN;syntax++) {
+					String msg = "document " + d + ", syntax " + syntax;
+					Exporter seq = new Exporter(tf,ExportCacheTest.getExportType(tf,syntax));
+					Exporter par = new Exporter(tf,ExportCacheTest.getExportType(tf,syntax));
+					checkEquals(seq.getContent(),par.getContent(pool),msg);
+				}
+			}
+			
+			// the parallel export must not remove the attributes of disabled tags
+			StringBuffer text = new StringBuffer();
+			for(int i = 0;text.length() < MIN_LENGTH;i++)
+				text.append("[i]line ").append(i).append("[/i] text\n");
+			tf.setText(text.toString());
+			tf.disableTag(BBCodeTags.BOLD);
+			Paragraph first = tf._controller.getRootEnvironment().getFirstParagraph();
+			TextAttributes attrs = ((TextSection)first.getFirstSection()).getAttributes();
+			attrs.set(TextAttributes.BOLD,Boolean.TRUE);
+			for(int syntax = 0;syntax <= IPublicController.SYNTAX_PLAIN;syntax++) {
+				new Exporter(tf,ExportCacheTest.getExportType(tf,syntax)).getContent(pool);
+				check(attrs.isSet(TextAttributes.BOLD),"attributes after the export, syntax " + syntax);
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
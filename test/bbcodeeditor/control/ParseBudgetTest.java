@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Random;
+
+import bbcodeeditor.control.events.BBCodeParseError;
+import bbcodeeditor.control.events.BBCodeParseErrorListener;
+import bbcodeeditor.control.export.bbcode.BBCodeParser;
+import bbcodeeditor.control.export.bbcode.ParseBudget;
+
+
+/**
+ * Tests the parse-budget: if a limit is exceeded, the rest of the input has to be inserted
+ * as plain-text and the error has to be reported. The result has to depend just on the
+ * input and the budget.
+ * 
+ * @author hrniels
+ */
+final class ParseBudgetTest extends TestCase {
+	
+	/**
+	 * The ranges of the random limits for tokens, tags, characters, smileys and steps
+	 */
+	private static final int[] RANGES = {2000,2000,2000,20,40000};
+	
+	/**
+	 * The last reported error; -1 if there was none
+	 */
+	private int _error;
+	
+	/**
+	 * Constructor
+	 */
+	ParseBudgetTest() {
+		super("parse-budget");
+	}
+	
+	void run() throws Exception {
+		int u = ParseBudget.UNLIMITED;
+		String text = "[b]a[/b] [i]b[/i] [u]c[/u]";
+		
+		check(new ParseBudget().isUnlimited(),"default budget is unlimited");
+		checkEquals("a b c",parse(text,new ParseBudget()),"unlimited budget");
+		checkEquals(-1,_error,"error with unlimited budget");
+		checkEquals("a [i]b[/i] [u]c[/u]",parse(text,new ParseBudget(u,2,u,u,u)),"tag-limit");
+		checkEquals(BBCodeParser.ERR_BUDGET_EXCEEDED,_error,"error of the tag-limit");
+		checkEquals("a [i]b[/i] [u]c[/u]",parse(text,new ParseBudget(u,u,5,u,u)),"length-limit");
+		checkEquals(BBCodeParser.ERR_BUDGET_EXCEEDED,_error,"error of the length-limit");
+		checkEquals(text,parse(text,new ParseBudget(u,u,u,u,3)),"step-limit");
+		checkEquals(BBCodeParser.ERR_BUDGET_EXCEEDED,_error,"error of the step-limit");
+		
+		// adversarial input with many unclosed tags is cut off by the steps
+		StringBuffer unclosed = new StringBuffer();
+		for(int i = 0;i < 20000;i++)
+			unclosed.append("[b]a");
+		ParseBudget steps = new ParseBudget(u,u,u,u,100000);
+		String first = parse(unclosed.toString(),steps);
+		checkEquals(BBCodeParser.ERR_BUDGET_EXCEEDED,_error,"error of unclosed tags");
+		checkEquals(first,parse(unclosed.toString(),steps),"result of unclosed tags is deterministic");
+		
+		// without an error the result has to be the same as without limits
+		Random rnd = new Random(49);
+		for(int d = 0;d < 100;d++) {
+			String post = TestCorpus.createPost(rnd,0);
+			String msg = "document " + d;
+			String expected = parse(post,null);
+			checkEquals(expected,parse(post,new ParseBudget()),msg + ", unlimited budget");
+			
+			// limit one of tokens, tags, characters, smileys and steps
+			int[] limits = {u,u,u,u,u};
+			int limit = rnd.nextInt(limits.length);
+			limits[limit] = rnd.nextInt(RANGES[limit]);
+			ParseBudget budget = new ParseBudget(limits[0],limits[1],limits[2],limits[3],limits[4]);
+			String limited = parse(post,budget);
+			int error = _error;
+			if(error == -1)
+				checkEquals(expected,limited,msg + ", " + budget);
+			else
+				checkEquals(BBCodeParser.ERR_BUDGET_EXCEEDED,error,msg + ", " + budget);
+			checkEquals(limited,parse(post,budget),msg + ", deterministic with " + budget);
+			checkEquals(error,_error,msg + ", deterministic error with " + budget);
+		}
+	}
+	
+	/**
+	 * Parses the given text in a new text-field with the given budget
+	 * 
+	 * @param text the BBCode to parse
+	 * @param budget the budget; null for the default one
+	 * @return the exported plain-text
+	 */
+	private String parse(String text,ParseBudget budget) {
+		BBCTextField tf = createTextField();
+		_error = -1;
+		tf.addBBCodeParseErrorListener(new BBCodeParseErrorListener() {
+			public void parseError(BBCodeParseError e) {
+				_error = e.getError();
+			}
+		});
+		if(budget != null)
+			tf.setParseBudget(budget);
+		tf.setText(text);
+		return tf.getText(IPublicController.SYNTAX_PLAIN);
+	}
+}
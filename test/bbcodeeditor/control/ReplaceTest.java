@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.Random;
+
+
+/**
+ * Tests replace-all: the result has to be the same as if the occurrences would have been
+ * replaced one after another, including the attributes of the replacements, and the
+ * whole replace has to be undone and redone in one step.
+ * 
+ * @author hrniels
+ */
+final class ReplaceTest extends TestCase {
+	
+	/**
+	 * The fragments of the random documents
+	 */
+	private static final String[] FRAGMENTS = {
+		"ab","a b","[b]ab[/b]","[i]xa[/i]","\n","[code]ab\nba[/code]","[list][*]ab[*]b a[/list]",
+		"[quote]a\nab[/quote]","[color=red]aa[/color]","ba","  ","[center]ab[/center]","AB"
+	};
+	
+	/**
+	 * The search-strings for the random documents
+	 */
+	private static final String[] FINDS = {"a","ab","b a","aa","ba"," "};
+	
+	/**
+	 * The replacements for the random documents
+	 */
+	private static final String[] REPLACEMENTS = {"","x","xyz","a","ab","[u]x[/u]"};
+	
+	/**
+	 * Constructor
+	 */
+	ReplaceTest() {
+		super("replace-all");
+	}
+	
+	void run() throws Exception {
+		BBCTextField tf = createTextField();
+		BBCTextField seq = createTextField();
+		
+		tf.setText("a1 b22 c333");
+		checkEquals(3,tf.replaceAllMatches("[0-9]+","#",0,tf._controller.length(),
+				IPublicController.SEARCH_REGEX,false),"number of regex-replaces");
+		checkEquals("a# b# c#",tf.getText(),"regex-replace");
+		tf.undo();
+		checkEquals("a1 b22 c333",tf.getText(),"undo of the regex-replace");
+		
+		// matches across paragraphs
+		tf.setText("foo\nbar foo\nbar");
+		checkEquals(2,tf.replaceAllMatches("o\nb","-",0,tf._controller.length(),0,false),
+				"number of replaces across paragraphs");
+		checkEquals("fo-ar fo-ar",tf.getText(),"replace across paragraphs");
+		tf.undo();
+		checkEquals("foo\nbar foo\nbar",tf.getText(),"undo of the replace across paragraphs");
+		tf.redo();
+		checkEquals("fo-ar fo-ar",tf.getText(),"redo of the replace across paragraphs");
+		
+		// the replacements of adjacent regions get the attributes of the first one
+		tf.setText("b[color=#FF0000]aa[/color]");
+		tf.replaceAll("a","ab",0,tf._controller.length(),true,false);
+		checkEquals("babab",tf.getText(),"replace of adjacent regions");
+		
+		Random rnd = new Random(27);
+		for(int c = 0;c < 300;c++) {
+			StringBuffer text = new StringBuffer();
+			int count = 1 + rnd.nextInt(12);
+			for(int i = 0;i < count;i++)
+				text.append(FRAGMENTS[rnd.nextInt(FRAGMENTS.length)]);
+			String find = FINDS[rnd.nextInt(FINDS.length)];
+			String repl = REPLACEMENTS[rnd.nextInt(REPLACEMENTS.length)];
+			boolean caseSensitive = rnd.nextBoolean();
+			boolean parseBBCode = rnd.nextBoolean();
+			String msg = "document " + c + ": '" + text + "', '" + find + "' -> '" + repl + "'";
+			
+			seq.setText(text.toString());
+			int expCount = replaceSequentially(seq,find,repl,caseSensitive,parseBBCode);
+			String expected = seq.getText();
+			
+			tf.setText(text.toString());
+			String orig = tf.getText();
+			int num = tf.replaceAll(find,repl,0,tf._controller.length(),caseSensitive,parseBBCode);
+			checkEquals(expCount,num,msg);
+			checkEquals(expected,tf.getText(),msg);
+			if(num > 0) {
+				tf.undo();
+				checkEquals(orig,tf.getText(),"undo of " + msg);
+				tf.redo();
+				checkEquals(expected,tf.getText(),"redo of " + msg);
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the occurrences one after another, each one behind the previous replacement
+	 * 
+	 * @param tf the text-field
+	 * @param find the text to search
+	 * @param repl the text to replace with
+	 * @param caseSensitive search case-sensitive?
+	 * @param parseBBCode parse bbcode in the replacement?
+	 * @return the number of replaces
+	 */
+	private static int replaceSequentially(BBCTextField tf,String find,String repl,
+			boolean caseSensitive,boolean parseBBCode) {
+		int count = 0;
+		int pos = 0;
+		while(pos < tf._controller.length()) {
+			if(tf.replaceFirst(find,repl,pos,tf._controller.length(),caseSensitive,parseBBCode) < 0)
+				break;
+			pos = tf._controller.getCurrentCursorPos();
+			count++;
+		}
+		return count;
+	}
+}
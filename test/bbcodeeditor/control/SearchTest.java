@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.List;
+import java.util.Random;
+
+import bbcodeeditor.control.tools.TextPart;
+
+
+/**
+ * Tests the search on the document-text: literal, case-sensitive, whole-word and
+ * regular-expression searches, matches across paragraphs and the comparison with a naive
+ * search on random documents.
+ * 
+ * @author hrniels
+ */
+final class SearchTest extends TestCase {
+	
+	/**
+	 * The fragments of the random documents
+	 */
+	private static final String[] FRAGMENTS = {
+		"ab","a b","[b]ab[/b]","[i]xa[/i]","\n","[code]ab\nba[/code]","[list][*]ab[*]b a[/list]",
+		"[quote]a\nab[/quote]","[color=red]aa[/color]","ba","  ","[center]ab[/center]"
+	};
+	
+	/**
+	 * The search-strings for the random documents
+	 */
+	private static final String[] PATTERNS = {"a","ab","b a","a\nb","aa","ba"," "};
+	
+	/**
+	 * Constructor
+	 */
+	SearchTest() {
+		super("search");
+	}
+	
+	void run() throws Exception {
+		BBCTextField tf = createTextField();
+		tf.setText("Foo bar\nfoo[b]bar[/b] foobar");
+		int len = tf._controller.length();
+		checkEquals("Foo bar\nfoobar foobar",tf.getDocumentText().toString(),"document-text");
+		
+		checkMatches(tf,"foo",0,new int[] {0,8,15});
+		checkMatches(tf,"foo",IPublicController.SEARCH_CASE_SENSITIVE,new int[] {8,15});
+		checkMatches(tf,"foo",IPublicController.SEARCH_WHOLE_WORD,new int[] {0});
+		checkMatches(tf,"bar",IPublicController.SEARCH_WHOLE_WORD,new int[] {4});
+		checkMatches(tf,"o.",0,new int[0]);
+		checkMatches(tf,"o.",IPublicController.SEARCH_REGEX,new int[] {1,9,16});
+		checkMatches(tf,"bar\nfoo",0,new int[] {4});
+		checkMatches(tf,"(?m)^foo",IPublicController.SEARCH_REGEX,new int[] {0,8});
+		checkMatches(tf,"x*",IPublicController.SEARCH_REGEX,new int[0]);
+		
+		TextPart first = tf.getFirstMatch("bar",0,len,0);
+		TextPart last = tf.getLastMatch("bar",0,len,0);
+		checkEquals(4,first.startPos,"first match");
+		checkEquals(18,last.startPos,"last match");
+		checkEquals("bar",last.text,"text of the last match");
+		check(tf.getFirstMatch("bar",19,len,0) == null,"no match after the last one");
+		checkMatches(tf,"foo",9,len,0,new int[] {15});
+		
+		// the document-text has to follow the changes
+		tf.addTextAt("foo ",4,null);
+		checkEquals("Foo foo bar\nfoobar foobar",tf.getDocumentText().toString(),"changed text");
+		checkMatches(tf,"foo",IPublicController.SEARCH_WHOLE_WORD,new int[] {0,4});
+		
+		Random rnd = new Random(26);
+		for(int c = 0;c < 200;c++) {
+			StringBuffer text = new StringBuffer();
+			int count = 1 + rnd.nextInt(12);
+			for(int i = 0;i < count;i++)
+				text.append(FRAGMENTS[rnd.nextInt(FRAGMENTS.length)]);
+			tf.setText(text.toString());
+			String pattern = PATTERNS[rnd.nextInt(PATTERNS.length)];
+			checkNaive(tf,pattern,"document " + c + ": '" + text + "'");
+		}
+	}
+	
+	/**
+	 * Checks that the matches in the whole document start at the given positions
+	 * 
+	 * @param tf the text-field
+	 * @param pattern the pattern
+	 * @param flags the search-flags
+	 * @param starts the expected start-positions
+	 */
+	private static void checkMatches(BBCTextField tf,String pattern,int flags,int[] starts) {
+		checkMatches(tf,pattern,0,tf._controller.length(),flags,starts);
+	}
+	
+	/**
+	 * Checks that the matches in the given interval start at the given positions and that
+	 * the text of each match is the corresponding part of the document-text
+	 * 
+	 * @param tf the text-field
+	 * @param pattern the pattern
+	 * @param start the start-position
+	 * @param end the end-position
+	 * @param flags the search-flags
+	 * @param starts the expected start-positions
+	 */
+	private static void checkMatches(BBCTextField tf,String pattern,int start,int end,int flags,
+			int[] starts) {
+		String msg = "matches of '" + pattern + "' with flags " + flags;
+		List<TextPart> matches = tf.getAllMatches(pattern,start,end,flags);
+		checkEquals(starts.length,matches.size(),msg);
+		CharSequence doc = tf.getDocumentText();
+		for(int i = 0;i < starts.length;i++) {
+			TextPart part = matches.get(i);
+			checkEquals(starts[i],part.startPos,msg);
+			checkEquals(doc.subSequence(part.startPos,part.endPos).toString(),part.text,msg);
+		}
+	}
+	
+	/**
+	 * Compares the literal, case-sensitive matches with the ones of a naive search on the
+	 * document-text
+	 * 
+	 * @param tf the text-field
+	 * @param pattern the pattern
+	 * @param msg the message to report
+	 */
+	private static void checkNaive(BBCTextField tf,String pattern,String msg) {
+		String doc = tf.getDocumentText().toString();
+		List<TextPart> matches = tf.getAllMatches(pattern,0,tf._controller.length(),
+				IPublicController.SEARCH_CASE_SENSITIVE);
+		int i = 0;
+		int pos = doc.indexOf(pattern);
+		while(pos >= 0) {
+			check(i < matches.size(),msg + ": missing match at " + pos);
+			checkEquals(pos,matches.get(i).startPos,msg);
+			i++;
+			pos = doc.indexOf(pattern,pos + pattern.length());
+		}
+		checkEquals(i,matches.size(),msg);
+	}
+}
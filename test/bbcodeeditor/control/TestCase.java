@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import javax.swing.JScrollPane;
+
+
+/**
+ * A test that will be executed by the {@link TestRunner}. The runner calls {@link #run()}
+ * once; the test fails if it throws an exception, e.g. by one of the check-methods.
+ * 
+ * @author hrniels
+ */
+abstract class TestCase {
+	
+	/**
+	 * The name of the test
+	 */
+	private final String _name;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param name the name of the test
+	 */
+	TestCase(String name) {
+		_name = name;
+	}
+	
+	/**
+	 * @return the name of the test
+	 */
+	public String getName() {
+		return _name;
+	}
+	
+	/**
+	 * Performs the test
+	 * 
+	 * @throws Exception if anything goes wrong
+	 */
+	abstract void run() throws Exception;
+	
+	/**
+	 * Creates a new text-field with a fixed size, so that the layout can be done
+	 * 
+	 * @return the text-field
+	 */
+	static BBCTextField createTextField() {
+		BBCTextField tf = new BBCTextField();
+		JScrollPane sp = new JScrollPane(tf);
+		sp.setSize(420,600);
+		tf.setSize(400,600);
+		return tf;
+	}
+	
+	/**
+	 * Fails if the given condition is false
+	 * 
+	 * @param cond the condition
+	 * @param msg the message to report
+	 */
+	static void check(boolean cond,String msg) {
+		if(!cond)
+			throw new Failure(msg);
+	}
+	
+	/**
+	 * Fails if the given objects are not equal
+	 * 
+	 * @param expected the expected object (may be null)
+	 * @param actual the actual object (may be null)
+	 * @param msg the message to report
+	 */
+	static void checkEquals(Object expected,Object actual,String msg) {
+		boolean equal = expected == null ? actual == null : expected.equals(actual);
+		if(!equal)
+			throw new Failure(msg + ": expected <" + expected + "> but was <" + actual + ">");
+	}
+	
+	/**
+	 * Fails if the given ints are not equal
+	 * 
+	 * @param expected the expected value
+	 * @param actual the actual value
+	 * @param msg the message to report
+	 */
+	static void checkEquals(int expected,int actual,String msg) {
+		if(expected != actual)
+			throw new Failure(msg + ": expected <" + expected + "> but was <" + actual + ">");
+	}
+	
+	/**
+	 * Will be thrown if a check fails
+	 * 
+	 * @author hrniels
+	 */
+	static final class Failure extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param msg the message
+		 */
+		Failure(String msg) {
+			super(msg);
+		}
+	}
+}
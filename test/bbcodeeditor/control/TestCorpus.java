@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.awt.Color;
+import java.util.Random;
+
+import bbcodeeditor.control.export.bbcode.BBCodeTags;
+
+
+/**
+ * Generates random posts with nested attributes, alignments, lists, quotes and code-blocks
+ * and performs random edits on them
+ * 
+ * @author hrniels
+ */
+final class TestCorpus {
+	
+	/**
+	 * The opening tags of the attributes
+	 */
+	private static final String[] OPEN = {
+		"[b]","[i]","[u]","[s]","[sup]","[sub]","[color=#ff0000]","[color=blue]","[size=18]",
+		"[size=10]","[font=arial]","[font=tahoma]","[bgcolor=#00ff00]","[url=http://a.b/]",
+		"[mail=x@y.z]"
+	};
+	
+	/**
+	 * The closing tags of the attributes
+	 */
+	private static final String[] CLOSE = {
+		"[/b]","[/i]","[/u]","[/s]","[/sup]","[/sub]","[/color]","[/color]","[/size]",
+		"[/size]","[/font]","[/font]","[/bgcolor]","[/url]","[/mail]"
+	};
+	
+	/**
+	 * The group of each attribute; attributes of the same group are not nested
+	 */
+	private static final int[] GROUPS = {0,1,2,3,4,4,5,5,6,6,7,7,8,9,9};
+	
+	/**
+	 * Constructor
+	 */
+	private TestCorpus() {
+		// no instantiation
+	}
+	
+	/**
+	 * Generates a post with paragraphs, lists, quotes and code-blocks
+	 * 
+	 * @param rnd the random-generator
+	 * @param depth the nesting-level of the environments
+	 * @return the post
+	 */
+	static String createPost(Random rnd,int depth) {
+		StringBuffer buf = new StringBuffer();
+		int count = 3 + rnd.nextInt(10);
+		for(int i = 0;i < count;i++) {
+			int kind = rnd.nextInt(10);
+			if(kind < 5)
+				buf.append(createLine(rnd,0,0)).append('\n');
+			else if(kind < 7) {
+				String align = rnd.nextBoolean() ? "center" : "right";
+				buf.append('[').append(align).append(']').append(createLine(rnd,0,0));
+				buf.append("[/").append(align).append("]\n");
+			}
+			else if(kind == 7 && depth < 2) {
+				buf.append("[list][*]a ").append(createLine(rnd,1,0)).append("\n[*]");
+				buf.append(createPost(rnd,depth + 1)).append("[/list]\n");
+			}
+			else if(kind == 8 && depth < 2)
+				buf.append("[quote]q ").append(createPost(rnd,depth + 1)).append("[/quote]\n");
+			else if(kind == 9 && depth < 2)
+				buf.append("[code]int x = 1;\n  y[/code]\n");
+			else
+				buf.append('\n');
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * Generates the content of a line with nested attributes
+	 * 
+	 * @param rnd the random-generator
+	 * @param depth the nesting-level of the attributes
+	 * @param open a bitmask with the groups of the open attributes
+	 * @return the line
+	 */
+	private static String createLine(Random rnd,int depth,int open) {
+		StringBuffer buf = new StringBuffer();
+		int count = 1 + rnd.nextInt(6);
+		for(int i = 0;i < count;i++) {
+			int attr = rnd.nextInt(OPEN.length);
+			if(rnd.nextInt(10) < 5 && depth < 4 && (open & (1 << GROUPS[attr])) == 0) {
+				buf.append(OPEN[attr]);
+				buf.append(createLine(rnd,depth + 1,open | (1 << GROUPS[attr])));
+				buf.append(CLOSE[attr]);
+			}
+			else {
+				buf.append("word").append(rnd.nextInt(100));
+				if(rnd.nextBoolean())
+					buf.append(' ');
+			}
+		}
+		return buf.toString();
+	}
+	
+	/**
+	 * Performs a random edit in the given text-field: changes attributes or the alignment,
+	 * adds or removes text, enables or disables a tag or changes the tab-width
+	 * 
+	 * @param tf the text-field
+	 * @param rnd the random-generator
+	 */
+	static void edit(BBCTextField tf,Random rnd) {
+		int len = tf._controller.length();
+		if(len <= 4)
+			return;
+		
+		int start = rnd.nextInt(len - 2);
+		int end = start + 1 + rnd.nextInt(Math.min(30,len - start - 1));
+		switch(rnd.nextInt(9)) {
+			case 0:
+				tf.toggleAttribute(start,end,TextAttributes.BOLD);
+				break;
+			case 1:
+				tf.removeAttributes(start,end);
+				break;
+			case 2:
+				tf.setAttribute(start,end,TextAttributes.FONT_COLOR,new Color(rnd.nextInt(0xFFFFFF)));
+				break;
+			case 3:
+				int align = rnd.nextBoolean() ? ParagraphAttributes.ALIGN_CENTER
+						: ParagraphAttributes.ALIGN_LEFT;
+				tf.setLineAlignment(start,end,align);
+				break;
+			case 4:
+				tf.addTextAt(rnd.nextBoolean() ? "xy" : "\nnew ",start,null);
+				break;
+			case 5:
+				tf.removeText(start,end);
+				break;
+			case 6:
+				if(rnd.nextInt(4) == 0)
+					tf.disableTag(BBCodeTags.BOLD);
+				else
+					tf.enableTag(BBCodeTags.BOLD);
+				break;
+			case 7:
+				tf.setTabWidth(2 + rnd.nextInt(4));
+				tf.addTextAt("\t",start,null);
+				break;
+			case 8:
+				tf.undo();
+				break;
+		}
+	}
+}
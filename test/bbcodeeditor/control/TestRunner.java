@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2004 - 2012 Nils Asmussen
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package bbcodeeditor.control;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.swing.SwingUtilities;
+
+
+/**
+ * Runs the tests and prints the result of each one:
+ * <pre>
+ * TestRunner [regex]
+ * </pre>
+ * If a regex is given, only the tests whose name contains a match will be run. The tests
+ * run in the event-dispatch-thread, one after another. Should be started with
+ * <code>-Djava.awt.headless=true</code>. The exit-code is 1 if at least one test failed.
+ * 
+ * @author hrniels
+ */
+public final class TestRunner {
+	
+	/**
+	 * The pattern for the test-names (null = all)
+	 */
+	private Pattern _filter = null;
+	
+	/**
+	 * The number of failed tests
+	 */
+	private int _failed = 0;
+	
+	/**
+	 * Constructor
+	 */
+	private TestRunner() {
+	
+	}
+	
+	/**
+	 * Runs the tests
+	 * 
+	 * @param args the arguments
+	 * @throws Exception if anything goes wrong
+	 */
+	public static void main(String[] args) throws Exception {
+		final TestRunner runner = new TestRunner();
+		if(args.length > 1 || (args.length == 1 && args[0].startsWith("-"))) {
+			System.err.println("Usage: TestRunner [regex]");
+			System.exit(1);
+		}
+		if(args.length == 1)
+			runner._filter = Pattern.compile(args[0]);
+		
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				runner.runAll();
+			}
+		});
+		System.exit(runner._failed > 0 ? 1 : 0);
+	}
+	
+	/**
+	 * Runs all tests that match the filter
+	 */
+	private void runAll() {
+		List<TestCase> tests = Tests.create();
+		int count = 0;
+		for(int i = 0;i < tests.size();i++) {
+			TestCase t = tests.get(i);
+			if(_filter == null || _filter.matcher(t.getName()).find()) {
+				run(t);
+				count++;
+			}
+		}
+		System.out.println(count + " tests, " + _failed + " failed");
+	}
+	
+	/**
+	 * Runs the given test and prints the result
+	 * 
+	 * @param t the test
+	 */
+	private void run(TestCase t) {
+		try {
+			t.run();
+			System.out.println(getLabel(t) + "ok");
+		}
+		catch(TestCase.Failure e) {
+			_failed++;
+			System.out.println(getLabel(t) + "FAILED: " + e.getMessage());
+		}
+		catch(Throwable e) {
+			_failed++;
+			System.out.println(getLabel(t) + "ERROR");
+			e.printStackTrace(System.out);
+		}
+	}
+	
+	/**
+	 * @param t the test
+	 * @return the name of the test, padded with dots to a fixed width
+	 */
+	private static String getLabel(TestCase t) {
+		StringBuffer buf = new StringBuffer(t.getName());
+		buf.append(' ');
+		while(buf.length() < 50)
+			buf.append('.');
+		return buf.append(' ').toString();
+	}
+}